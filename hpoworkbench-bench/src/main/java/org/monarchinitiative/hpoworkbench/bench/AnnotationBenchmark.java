@@ -0,0 +1,95 @@
+package org.monarchinitiative.hpoworkbench.bench;
+
+import org.monarchinitiative.hpoworkbench.analysis.AnnotationFrequencies;
+import org.monarchinitiative.hpoworkbench.analysis.AnnotationTlc;
+import org.monarchinitiative.hpoworkbench.analysis.HpoStats;
+import org.monarchinitiative.hpoworkbench.analysis.InformationContent;
+import org.monarchinitiative.hpoworkbench.analysis.SemanticSimilarity;
+import org.monarchinitiative.hpoworkbench.analysis.TermStatistics;
+import org.monarchinitiative.hpoworkbench.annotation.DiseasePostings;
+import org.monarchinitiative.hpoworkbench.exception.HPOException;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing phenotype.hpoa and the analyses that are built from the parsed diseases.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnnotationBenchmark {
+
+    @Benchmark
+    public HpoDiseases loadDiseases(HpoFixture fixture) throws IOException {
+        return HpoDiseaseLoaders.defaultLoader(fixture.ontology, HpoDiseaseLoaderOptions.defaultOptions())
+                .load(fixture.phenotypeHpoa);
+    }
+
+    /**
+     * The direct and indirect annotation maps of the GUI, built as in {@code DirectIndirectHpoAnnotationParser}
+     * (which lives in the GUI module and cannot be used from here).
+     */
+    @Benchmark
+    public void directIndirectAnnotations(HpoFixture fixture, Blackhole blackhole) {
+        DiseasePostings postings = DiseasePostings.build(AncestorClosure.of(fixture.ontology),
+                fixture.hpoDiseases.diseaseById().values());
+        blackhole.consume(postings.directAnnotMap());
+        blackhole.consume(postings.indirectAnnotMap());
+    }
+
+    @Benchmark
+    public HpoStats hpoStats(HpoFixture fixture) throws HPOException {
+        return new HpoStats(fixture.ontology, fixture.hpoDiseases.diseaseById());
+    }
+
+    /** Statistics of the subhierarchies of all terms, built on a closure that already exists. */
+    @Benchmark
+    public TermStatistics termStatistics(HpoFixture fixture) {
+        return TermStatistics.of(fixture.closure, fixture.hpoDiseases.diseaseById().values());
+    }
+
+    /** Direct and propagated annotation counts of all terms ({@code countfreq --all}). */
+    @Benchmark
+    public AnnotationFrequencies annotationFrequencies(HpoFixture fixture) {
+        return AnnotationFrequencies.count(fixture.closure, fixture.hpoDiseases.diseaseById().values());
+    }
+
+    /** Information content of all terms, without the cache file. */
+    @Benchmark
+    public InformationContent informationContent(HpoFixture fixture) {
+        return InformationContent.compute(fixture.closure, fixture.hpoDiseases.diseaseById().values());
+    }
+
+    /** Best-match average (Resnik) of the first 50 diseases against all diseases ({@code best --similarity}). */
+    @Benchmark
+    public double semanticSimilarity(HpoFixture fixture) {
+        SemanticSimilarity similarity = new SemanticSimilarity(fixture.informationContent);
+        int[][] diseases = fixture.hpoDiseases.diseaseById().values().stream()
+                .map(d -> SemanticSimilarity.presentTerms(fixture.closure, d))
+                .toArray(int[][]::new);
+        int[] query = Arrays.stream(diseases, 0, Math.min(50, diseases.length))
+                .flatMapToInt(Arrays::stream)
+                .distinct()
+                .toArray();
+        double sum = 0D;
+        for (int[] target : diseases) {
+            sum += similarity.bestMatchAverage(SemanticSimilarity.Measure.RESNIK, query, target);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public AnnotationTlc annotationTlc(HpoFixture fixture) {
+        return new AnnotationTlc(fixture.ontology, fixture.hpoDiseases.diseaseById());
+    }
+}
@@ -0,0 +1,45 @@
+package org.monarchinitiative.hpoworkbench.bench;
+
+import org.monarchinitiative.hpoworkbench.analysis.DescendantAnnotationCounts;
+import org.monarchinitiative.hpoworkbench.ontology.TermBitSet;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The index and compute phases of the {@code countfreq} command: the descendants of the term of interest, and the
+ * counts of the annotations to each of them. The term of interest is either Phenotypic abnormality (almost all
+ * annotations) or the first organ system below it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CountFrequencyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TermOfInterest {
+        @Param({"HP:0000118", "HP:1000000"})
+        public String term;
+
+        int termIndex;
+
+        @Setup(Level.Trial)
+        public void setUp(HpoFixture fixture) {
+            termIndex = fixture.closure.index(TermId.of(term));
+        }
+    }
+
+    @Benchmark
+    public TermBitSet descendants(HpoFixture fixture, TermOfInterest term) {
+        return fixture.closure.descendants(term.termIndex);
+    }
+
+    @Benchmark
+    public DescendantAnnotationCounts countfreq(HpoFixture fixture, TermOfInterest term) {
+        TermBitSet descendants = fixture.closure.descendants(term.termIndex);
+        return DescendantAnnotationCounts.count(descendants, fixture.hpoDiseases.diseaseById().values());
+    }
+}
@@ -0,0 +1,33 @@
+package org.monarchinitiative.hpoworkbench.bench;
+
+import org.monarchinitiative.hpoworkbench.excel.HierarchicalExcelExporter;
+import org.monarchinitiative.hpoworkbench.excel.Hpo2ExcelExporter;
+import org.monarchinitiative.hpoworkbench.exception.HPOException;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export of the whole ontology and of the Phenotypic abnormality subhierarchy to Excel files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ExcelExportBenchmark {
+
+    @Benchmark
+    public void hpo2Excel(HpoFixture fixture) {
+        new Hpo2ExcelExporter(fixture.ontology).exportToExcelFile(fixture.directory.resolve("hpo.xlsx").toString());
+    }
+
+    @Benchmark
+    public void hierarchicalExcel(HpoFixture fixture) throws HPOException {
+        Term phenotypicAbnormality = fixture.ontology.getTermMap().get(TermId.of("HP:0000118"));
+        new HierarchicalExcelExporter(fixture.ontology, phenotypicAbnormality)
+                .exportToExcel(fixture.directory.resolve("hierarchy.xlsx").toString());
+    }
+}
@@ -0,0 +1,71 @@
+package org.monarchinitiative.hpoworkbench.bench;
+
+import org.monarchinitiative.hpoworkbench.analysis.InformationContent;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic hp.json and phenotype.hpoa (see {@link SyntheticHpoGenerator}) in a temporary directory, together with
+ * the ontology, diseases, ancestor closure and information content loaded from them. The files are written once per
+ * trial, so the size parameters can be varied from the JMH command line, e.g. {@code java -jar benchmarks.jar -p
+ * terms=16000}.
+ */
+@State(Scope.Benchmark)
+public class HpoFixture {
+
+    @Param({"2000", "16000"})
+    public int terms;
+
+    @Param({"1500", "12000"})
+    public int diseases;
+
+    @Param("10")
+    public int annotationsPerDisease;
+
+    public Path directory;
+    public Path hpJson;
+    public Path phenotypeHpoa;
+    public Ontology ontology;
+    public HpoDiseases hpoDiseases;
+    public AncestorClosure closure;
+    public InformationContent informationContent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("hpowb-bench");
+        hpJson = directory.resolve(SyntheticHpoGenerator.HP_JSON);
+        phenotypeHpoa = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        new SyntheticHpoGenerator.Builder()
+                .terms(terms)
+                .diseases(diseases)
+                .annotationsPerDisease(annotationsPerDisease)
+                .build()
+                .write(directory);
+        ontology = OntologyLoader.loadOntology(hpJson.toFile());
+        hpoDiseases = HpoDiseaseLoaders.defaultLoader(ontology, HpoDiseaseLoaderOptions.defaultOptions())
+                .load(phenotypeHpoa);
+        closure = AncestorClosure.of(ontology);
+        informationContent = InformationContent.compute(closure, hpoDiseases.diseaseById().values());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.monarchinitiative.hpoworkbench.bench;
+
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading hp.json with phenol and from the binary snapshot, and building the ancestor closure on which most of the
+ * analyses depend.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OntologyLoadBenchmark {
+
+    @Benchmark
+    public Ontology loadJson(HpoFixture fixture) {
+        return OntologyLoader.loadOntology(fixture.hpJson.toFile());
+    }
+
+    /** The first invocation writes the snapshot, all later ones read it. */
+    @Benchmark
+    public Ontology loadSnapshot(HpoFixture fixture) {
+        return OntologySnapshot.loadOntology(fixture.hpJson.toFile());
+    }
+
+    @Benchmark
+    public AncestorClosure ancestorClosure(HpoFixture fixture) {
+        return AncestorClosure.of(fixture.ontology);
+    }
+}
@@ -2,10 +2,17 @@ package org.monarchinitiative.hpoworkbench;
 
 
 import org.monarchinitiative.hpoworkbench.cmd.*;
+import org.monarchinitiative.hpoworkbench.profile.ProfileReport;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -18,15 +25,35 @@ import java.util.concurrent.Callable;
         description = "long covid phenottype")
 public class HpoWorkbench implements Callable<Integer> {
     private static final Logger logger = LoggerFactory.getLogger(HpoWorkbench.class);
+    /** Value of {@link #profile} if the summary should be printed instead of written to a file. */
+    private static final String PROFILE_TABLE = "-";
+
+    @CommandLine.Option(names = {"--profile"}, arity = "0..1", fallbackValue = PROFILE_TABLE, paramLabel = "JSON",
+            description = "print the time and memory used by each phase of the command to stderr, or write them to a JSON file")
+    private String profile = null;
 
     public static void main(String[] args) {
         if (args.length == 0) {
             // if the user doesn't pass any command or option, add -h to show help
             args = new String[]{"-h"};
         }
+        CommandLine cline = commandLine()
+                .addSubcommand("serve", new ServeCommand())
+                .addSubcommand("client", new CommandLine(new ClientCommand()).setStopAtPositional(true));
+        int exitCode = cline.execute(args);
+        System.exit(exitCode);
+    }
+
+
+    /**
+     * @return a new command line with fresh instances of all commands that can be run locally or by the
+     * {@code serve} command
+     */
+    public static CommandLine commandLine() {
         CommandLine cline = new CommandLine(new HpoWorkbench())
                 .addSubcommand("word", new WordCommand())
                 .addSubcommand("stats", new HpoStatsCommand())
+                .addSubcommand("statsdiff", new StatsDiffCommand())
                 .addSubcommand("download", new DownloadCommand())
                 .addSubcommand("batch", new BatchGitPostCommand())
                 .addSubcommand("countfreq", new CountFrequencyCommand())
@@ -36,17 +63,48 @@ public class HpoWorkbench implements Callable<Integer> {
                 .addSubcommand("csv", new HPO2CSVCommand())
                 .addSubcommand("convert", new PhenopacketConvertCommand())
                 .addSubcommand("compare", new PhenopacketCompareCommand())
+                .addSubcommand("rank", new PhenopacketRankCommand())
                 .addSubcommand("matchterms", new MatchTermsCommand())
                 .addSubcommand("count", new CountGenes())
                 .addSubcommand("encoding", new EncodingCheckCommand())
                 .addSubcommand("onset", new OnsetCommand())
                 .addSubcommand("ptools", new MapToPtools())
-                .addSubcommand("ranges", new CountHpoIdRanges());
+                .addSubcommand("ranges", new CountHpoIdRanges())
+                .addSubcommand("redundant", new RedundantAnnotationsCommand())
+                .addSubcommand("ic", new InformationContentCommand())
+                .addSubcommand("synthetic", new SyntheticDataCommand())
+                .addSubcommand("best", new HpoBestMatchCommand());
         cline.setToggleBooleanFlags(false);
-        int exitCode = cline.execute(args);
-        System.exit(exitCode);
+        cline.setExecutionStrategy(HpoWorkbench::execute);
+        return cline;
     }
 
+    /** Run the subcommand, wrapped in a profiling session if {@code --profile} was given. */
+    private static int execute(CommandLine.ParseResult parseResult) {
+        HpoWorkbench workbench = parseResult.commandSpec().commandLine().getCommand();
+        if (workbench.profile == null) {
+            return new CommandLine.RunLast().execute(parseResult);
+        }
+        List<CommandLine> commands = parseResult.asCommandLineList();
+        Profiler.start(commands.get(commands.size() - 1).getCommandName());
+        try {
+            return new CommandLine.RunLast().execute(parseResult);
+        } finally {
+            writeProfile(Profiler.stop(), workbench.profile);
+        }
+    }
+
+    private static void writeProfile(ProfileReport report, String destination) {
+        if (PROFILE_TABLE.equals(destination)) {
+            System.err.print(report.toTable());
+            return;
+        }
+        try {
+            Files.writeString(Path.of(destination), report.toJson(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.error("Could not write profile to {}: {}", destination, e.getMessage());
+        }
+    }
 
     public static String getVersion() {
         String version = "0.0.0";// default, should be overwritten by the following.
@@ -1,12 +1,10 @@
 package org.monarchinitiative.hpoworkbench.analysis;
 
 import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
 import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseAnnotationParser;
-import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoader;
-import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
-import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
 import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.Term;
@@ -33,22 +31,18 @@ public class HpoStats {
     public HpoStats(String hpoOboPath, String annotpath) {
         File f = new File(hpoOboPath);
         if (!f.exists()) {
-            LOGGER.error(String.format("Could not find hpo ontology file at\"%s\". Terminating program...", hpoOboPath));
-            System.exit(1);
+            throw new PhenolRuntimeException(String.format("Could not find hpo ontology file at\"%s\"", hpoOboPath));
         }
         f = new File(annotpath);
         if (!f.exists()) {
-            LOGGER.error(String.format("Could not find phenotype annotation file at\"%s\". Terminating program...", annotpath));
-            System.exit(1);
+            throw new PhenolRuntimeException(String.format("Could not find phenotype annotation file at\"%s\"", annotpath));
         }
         LOGGER.trace(String.format("inputting data with files %s and %s", hpoOboPath, annotpath));
         HPOParser parser = new HPOParser(hpoOboPath);
         this.hpoOntology = parser.getHPO();
 
        try {
-           HpoDiseaseLoaderOptions options = HpoDiseaseLoaderOptions.defaultOptions();
-           HpoDiseaseLoader loader = HpoDiseaseLoaders.defaultLoader(hpoOntology, options);
-           HpoDiseases diseases = loader.load(Path.of(annotpath));
+           HpoDiseases diseases = ResidentResources.diseases(Path.of(annotpath), hpoOntology);
            this.diseaseMap = diseases.diseaseById();
            LOGGER.trace("Diseases imported: " + diseaseMap.size());
        } catch (IOException e) {
@@ -56,6 +50,14 @@ public class HpoStats {
        }
     }
 
+    public Ontology getOntology() {
+        return hpoOntology;
+    }
+
+    public Map<TermId, HpoDisease> getDiseaseMap() {
+        return diseaseMap;
+    }
+
     public void outputOntologyStats(Writer writer) {
         Set<TermId> nonObsolete = this.hpoOntology.getNonObsoleteTermIds();
         int n_terms = nonObsolete.size();
@@ -0,0 +1,66 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import picocli.CommandLine;
+
+import java.io.*;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Send a command to a running {@code serve} command and print its output, e.g.
+ * {@code client --socket /tmp/hpowb.sock countfreq -t HP:0001626}. Everything after the name of the command is
+ * passed on unchanged, and the exit code of the remote command becomes the exit code of the client. The access token
+ * is read from the token file of the server.
+ */
+@CommandLine.Command(name = "client",
+        mixinStandardHelpOptions = true,
+        description = "Run a command on a running HPO Workbench server (see serve).")
+public class ClientCommand implements Callable<Integer> {
+
+    @CommandLine.Option(names = {"--socket"}, description = "path of the Unix-domain socket of the server")
+    private String socketPath = null;
+
+    @CommandLine.Option(names = {"--port"}, description = "port of the server on the loopback interface (default: ${DEFAULT-VALUE})")
+    private int port = WorkbenchSocket.DEFAULT_PORT;
+
+    @CommandLine.Option(names = {"--token-file"}, description = "token file of the server (default: next to the socket, or ~/.hpoworkbench/serve-<port>.token)")
+    private String tokenFile = null;
+
+    @CommandLine.Parameters(arity = "1..*", paramLabel = "COMMAND", description = "command and its arguments")
+    private List<String> command;
+
+    @Override
+    public Integer call() {
+        return run(System.out, System.err);
+    }
+
+    /**
+     * Send the command to the server and copy its output to {@code stdout} and {@code stderr}.
+     *
+     * @return the exit code of the remote command, or 1 if it could not be run
+     */
+    int run(PrintStream stdout, PrintStream stderr) {
+        SocketAddress address = WorkbenchSocket.address(socketPath, port);
+        Path tokenPath = WorkbenchSocket.tokenPath(tokenFile, socketPath, port);
+        String token;
+        try {
+            token = WorkbenchSocket.readToken(tokenPath);
+        } catch (IOException e) {
+            stderr.printf("[ERROR] Could not read the access token of the server from %s: %s%n", tokenPath, e.getMessage());
+            return 1;
+        }
+        try (SocketChannel channel = WorkbenchSocket.connect(address)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            WorkbenchSocket.writeRequest(out, token, Path.of("").toAbsolutePath().toString(), command);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            return WorkbenchSocket.readResponse(in, stdout, stderr);
+        } catch (IOException e) {
+            stderr.printf("[ERROR] Could not run command on HPO Workbench server at %s: %s%n", address, e.getMessage());
+            return 1;
+        }
+    }
+}
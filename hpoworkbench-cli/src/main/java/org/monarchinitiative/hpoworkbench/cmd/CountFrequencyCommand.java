@@ -1,41 +1,72 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
+import org.monarchinitiative.hpoworkbench.analysis.AnnotationFrequencies;
+import org.monarchinitiative.hpoworkbench.analysis.DescendantAnnotationCounts;
 import org.monarchinitiative.phenol.annotations.formats.hpo.*;
-import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoader;
 import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
 import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.ontology.*;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
 import org.monarchinitiative.phenol.ontology.data.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.stream.Collectors;
-
-import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getDescendents;
+import java.util.stream.Stream;
 
 /**
  * The situation is that we have a list of disease annotations (which could be {@code phenotype_annotation.tab} or
  * a smaller selection of annotations) and an HPO term. We would like to find out the total number of annotations
  * to the term or any of its ancestors. This command will outpout a list of these counts to the shell.
+ * With {@code --all}, the direct and propagated counts of all terms are written as TSV instead. With {@code --files},
+ * several annotation files are counted against the same ontology and written as a term x file matrix.
  *
  * @author <a href="mailto:peter.robinson">Peter Robinson</a>
  */
 
+@SuppressWarnings("try")
 @CommandLine.Command(name = "countfreq",
         mixinStandardHelpOptions = true,
         description = "Count freqeuncy of annotations.")
 public class CountFrequencyCommand extends HPOCommand implements Callable<Integer> {
     private static final Logger LOGGER = LoggerFactory.getLogger(DownloadCommand.class.getName());
 
-    @CommandLine.Option(names={"-t","--term"},required = true,description = "TermId of interest")
+    @CommandLine.Option(names={"-t","--term"},description = "TermId of interest")
     private String hpoTermId;
 
+    @CommandLine.Option(names={"--all"}, description = "write the direct and propagated counts of all terms as TSV")
+    private boolean allTerms = false;
+
+    @CommandLine.Option(names={"--top"}, paramLabel = "N",
+            description = "with --all, only write the N terms with most direct annotations of each branch below --root")
+    private Integer top = null;
+
+    @CommandLine.Option(names={"--root"}, description = "root of the branches for --top (default: ${DEFAULT-VALUE})")
+    private String branchRoot = "HP:0000118";
+
+    @CommandLine.Option(names={"--files"}, arity = "1..*", paramLabel = "FILE|DIR",
+            description = "annotation files, or directories with *.hpoa files, to count side by side (term x file matrix)")
+    private List<String> annotationFiles = null;
+
+    @CommandLine.Option(names={"--propagated"},
+            description = "with --files, count the annotations to each term or any of its descendants")
+    private boolean propagated = false;
+
+    @CommandLine.Option(names={"-o","--out"}, description = "file for the TSV of --all or --files (default: stdout)")
+    private String outPath = null;
+
+    private static final String HEADER = String.join("\t", "term_id", "label", "direct", "direct_weighted",
+            "propagated", "propagated_weighted");
+
     private TermId termId;
 
     private int descendentTermCount;
@@ -51,64 +82,260 @@ public class CountFrequencyCommand extends HPOCommand implements Callable<Intege
     }
 
     public Integer call() throws IOException {
+        if (hpoTermId == null && !allTerms && annotationFiles == null) {
+            System.err.println("[ERROR] Either a term (-t), --all or --files is required");
+            return 1;
+        }
+        if (top != null && top < 1) {
+            System.err.println("[ERROR] --top must be at least 1, was " + top);
+            return 1;
+        }
         String hpJsonPath = this.downloadDirectory + File.separator + this.hpopath;
         String annotationPath = this.downloadDirectory + File.separator + annotpath;
 
-        Ontology ontology = OntologyLoader.loadOntology(new File(hpJsonPath));
-        HpoDiseaseLoaderOptions options = HpoDiseaseLoaderOptions.defaultOptions();
-        HpoDiseaseLoader loader = HpoDiseaseLoaders.defaultLoader(ontology, options);
-        HpoDiseases diseases = loader.load(Path.of(annotationPath));
+        if (annotationFiles != null) {
+            return countFiles(hpJsonPath);
+        }
+        Ontology ontology;
+        HpoDiseases diseases;
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            ontology = ResidentResources.ontology(new File(hpJsonPath));
+            diseases = ResidentResources.diseases(Path.of(annotationPath), ontology);
+        }
+        if (allTerms) {
+            return countAllTerms(ontology, diseases);
+        }
         termId = TermId.of(hpoTermId);
 
         Map<TermId, HpoDisease> annotationMap = diseases.diseaseById();
         LOGGER.trace("Annotation count total " + annotationMap.size());
-        Set<TermId> descendents = getDescendents(ontology, termId);
+        TermBitSet descendents = null;
+        try (Profiler.Phase index = Profiler.phase("index")) {
+            AncestorClosure closure = AncestorClosure.of(ontology);
+            int termIdx = closure.index(termId);
+            if (termIdx >= 0) {
+                descendents = closure.descendants(termIdx);
+            }
+        }
+        if (descendents == null) {
+            System.err.println("[ERROR] Could not find term " + hpoTermId + " in the ontology");
+            return 1;
+        }
         descendentTermCount = descendents.size();
         LOGGER.error("Descendent Term Count size " + descendentTermCount);
-        HashMap<TermId, Integer> annotationCounts = new HashMap<>();
-        HashMap<TermId, Double> weightedAnnotationCounts = new HashMap<>();
-        for (TermId t : descendents) {
-            annotationCounts.put(t, 0);
-            weightedAnnotationCounts.put(t, 0D);
-        }
-        for (HpoDisease d : annotationMap.values()) {
-            for (HpoDiseaseAnnotation hpoDiseaseAnnot : d.annotations()) {
-                TermId hpoid = hpoDiseaseAnnot.id();
-                float freq = hpoDiseaseAnnot.frequency();
-                if (descendents.contains(hpoid)) {
-                    annotationCounts.put(hpoid, 1 + annotationCounts.get(hpoid));
-                    weightedAnnotationCounts.put(hpoid, freq + weightedAnnotationCounts.get(hpoid));
-                    totalAnnotationCount++;
+        DescendantAnnotationCounts counts;
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            counts = DescendantAnnotationCounts.count(descendents, annotationMap.values());
+        }
+        totalAnnotationCount = counts.totalAnnotationCount();
+        try (Profiler.Phase output = Profiler.phase("output")) {
+            outputCounts(counts.counts(), counts.weightedCounts(), ontology);
+        }
+        return 0;
+    }
+
+    private int countAllTerms(Ontology ontology, HpoDiseases diseases) throws IOException {
+        AncestorClosure closure;
+        try (Profiler.Phase index = Profiler.phase("index")) {
+            closure = AncestorClosure.of(ontology);
+        }
+        int root = closure.index(TermId.of(branchRoot));
+        if (top != null && root < 0) {
+            System.err.println("[ERROR] Could not find term " + branchRoot + " in the ontology");
+            return 1;
+        }
+        AnnotationFrequencies frequencies;
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            frequencies = AnnotationFrequencies.count(closure, diseases.diseaseById().values());
+        }
+        try (Profiler.Phase output = Profiler.phase("output")) {
+            writeTsv(writer -> writeFrequencies(frequencies, root, writer));
+        }
+        return 0;
+    }
+
+    private interface TsvContent {
+        void write(Writer writer) throws IOException;
+    }
+
+    /** Write the TSV to {@link #outPath}, or to stdout if no output file was given. */
+    private void writeTsv(TsvContent content) throws IOException {
+        if (outPath == null) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            content.write(writer);
+            writer.flush();
+        } else {
+            try (Writer writer = Files.newBufferedWriter(Path.of(outPath))) {
+                content.write(writer);
+            }
+        }
+    }
+
+    /** Counts of one of the {@code --files}. */
+    private record FileCounts(Path path, int diseases, int annotations, TermIntArray counts) {}
+
+    /**
+     * Count the annotations of each of the {@code --files} against the same ontology. The files are parsed in
+     * parallel; only the counts are kept, so the diseases of a file can be collected as soon as it is counted. The
+     * counts are written as one row per term (with a non-zero count in any file; with {@code -t} only the descendants
+     * of the term) and one column per file.
+     */
+    private int countFiles(String hpJsonPath) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (String f : annotationFiles) {
+            Path path = Path.of(f);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    files.filter(p -> p.getFileName().toString().endsWith(".hpoa"))
+                            .sorted()
+                            .forEach(paths::add);
                 }
+            } else if (Files.isRegularFile(path)) {
+                paths.add(path);
+            } else {
+                System.err.println("[ERROR] Could not find annotation file " + f);
+                return 1;
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("[ERROR] No annotation files found in " + annotationFiles);
+            return 1;
+        }
+        Ontology ontology;
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            ontology = ResidentResources.ontology(new File(hpJsonPath));
+        }
+        AncestorClosure closure;
+        try (Profiler.Phase index = Profiler.phase("index")) {
+            closure = AncestorClosure.of(ontology);
+        }
+        // with -t, only the descendants of the term are written
+        TermBitSet selected = null;
+        if (hpoTermId != null) {
+            int termIdx = closure.index(TermId.of(hpoTermId));
+            if (termIdx < 0) {
+                System.err.println("[ERROR] Could not find term " + hpoTermId + " in the ontology");
+                return 1;
             }
+            selected = closure.descendants(termIdx);
+        }
+        List<FileCounts> files;
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            files = paths.parallelStream()
+                    .map(path -> countFile(closure, ontology, path))
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (FileCounts f : files) {
+            System.err.printf("[INFO] %s: %d diseases, %d annotations, %d annotated terms%n", f.path(),
+                    f.diseases(), f.annotations(), f.counts().countNonZero());
+        }
+        TermBitSet rows = selected;
+        try (Profiler.Phase output = Profiler.phase("output")) {
+            writeTsv(writer -> writeMatrix(closure.registry(), files, rows, writer));
         }
-        outputCounts(annotationCounts, weightedAnnotationCounts, ontology);
         return 0;
     }
 
     /**
-     * Sort a map by values and return a sorted map with the top {@link #TERMS_TO_SHOW} items.
-     *
-     * @param map Here, keys are terms and values are disease annotations
-     * @param <K> key
-     * @param <V> value
-     * @return sorted map with top TERMS_TO_SHOW entries
+     * Parse and count one of the {@code --files}. The file is parsed with a loader of its own instead of going
+     * through {@link ResidentResources}, which would serialize the workers under {@code serve} and keep every file
+     * resident.
      */
-    private <K, V extends Comparable<? super V>> Map<K, V> sortByValue(Map<K, V> map) {
-        return map.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue(Collections.reverseOrder()))
-                .limit(TERMS_TO_SHOW)
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
+    private FileCounts countFile(AncestorClosure closure, Ontology ontology, Path path) {
+        HpoDiseases diseases;
+        try {
+            diseases = HpoDiseaseLoaders.defaultLoader(ontology, HpoDiseaseLoaderOptions.defaultOptions()).load(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        AnnotationFrequencies frequencies = AnnotationFrequencies.count(closure, diseases.diseaseById().values());
+        int annotations = 0;
+        for (HpoDisease d : diseases) {
+            annotations += d.annotationCount();
+        }
+        TermIntArray counts = propagated ? frequencies.propagated() : frequencies.direct();
+        return new FileCounts(path, diseases.size(), annotations, counts);
+    }
+
+    /** @param selected the terms to write, or null for all terms */
+    private static void writeMatrix(TermRegistry registry, List<FileCounts> files, TermBitSet selected, Writer writer) throws IOException {
+        writer.write("term_id\tlabel");
+        for (FileCounts f : files) {
+            writer.write('\t');
+            writer.write(f.path().toString());
+        }
+        writer.write('\n');
+        for (int t = 0; t < registry.size(); t++) {
+            if (selected != null && !selected.contains(t)) {
+                continue;
+            }
+            boolean annotated = false;
+            for (FileCounts f : files) {
+                if (f.counts().get(t) != 0) {
+                    annotated = true;
+                    break;
+                }
+            }
+            if (!annotated) {
+                continue;
+            }
+            writer.write(registry.termId(t).getValue());
+            writer.write('\t');
+            writer.write(registry.label(t));
+            for (FileCounts f : files) {
+                writer.write('\t');
+                writer.write(Integer.toString(f.counts().get(t)));
+            }
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Write one line per term, or with {@code --top} the top terms of each child of {@code root} (the branch is
+     * then written as an additional first column). The lines are written as they are produced.
+     */
+    private void writeFrequencies(AnnotationFrequencies frequencies, int root, Writer writer) throws IOException {
+        AncestorClosure closure = frequencies.closure();
+        if (top == null) {
+            writer.write(HEADER);
+            writer.write('\n');
+            for (int t = 0; t < closure.size(); t++) {
+                writeFrequencyLine(frequencies, t, writer);
+            }
+            return;
+        }
+        writer.write("branch_id\t");
+        writer.write(HEADER);
+        writer.write('\n');
+        for (int branch : closure.children(root)) {
+            String branchId = closure.termId(branch).getValue();
+            for (int t : frequencies.direct().topIndices(closure.descendants(branch), top)) {
+                writer.write(branchId);
+                writer.write('\t');
+                writeFrequencyLine(frequencies, t, writer);
+            }
+        }
+    }
+
+    private static void writeFrequencyLine(AnnotationFrequencies frequencies, int t, Writer writer) throws IOException {
+        TermRegistry registry = frequencies.closure().registry();
+        writer.write(registry.termId(t).getValue());
+        writer.write('\t');
+        writer.write(registry.label(t));
+        writer.write('\t');
+        writer.write(Integer.toString(frequencies.direct().get(t)));
+        writer.write('\t');
+        writer.write(Double.toString(frequencies.directWeighted().get(t)));
+        writer.write('\t');
+        writer.write(Integer.toString(frequencies.propagated().get(t)));
+        writer.write('\t');
+        writer.write(Double.toString(frequencies.propagatedWeighted().get(t)));
+        writer.write('\n');
     }
 
-    private void outputCounts(HashMap<TermId, Integer> hm, Map<TermId, Double> weightedmap, Ontology ontology) {
-        Map<TermId, Integer> mp2 = sortByValue(hm);
+    private void outputCounts(TermIntArray counts, TermDoubleArray weighted, Ontology ontology) {
         String termS = String.format("%s [%s]", ontology.getTermMap().get(termId).getName(),
                 termId.getValue());
         System.out.println();
@@ -117,10 +344,10 @@ public class CountFrequencyCommand extends HPOCommand implements Callable<Intege
         System.out.printf("\tTotal annotations to any descendent of %s: %d ", termS, totalAnnotationCount);
         System.out.println();
 
-        for (TermId tid : mp2.keySet()) {
-            int count = mp2.get(tid);
-            String name = ontology.getTermMap().get(tid).getName();
-            System.out.println(name + " [" + tid.getValue() + "]: " + count + " (" + weightedmap.get(tid) + ")");
+        TermRegistry registry = counts.registry();
+        for (int idx : counts.topIndices(TERMS_TO_SHOW)) {
+            TermId tid = registry.termId(idx);
+            System.out.println(registry.label(idx) + " [" + tid.getValue() + "]: " + counts.get(idx) + " (" + weighted.get(idx) + ")");
         }
     }
 
@@ -4,7 +4,8 @@ package org.monarchinitiative.hpoworkbench.cmd;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
@@ -21,6 +22,7 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 
 
+@SuppressWarnings("try")
 @CommandLine.Command(name = "count",
         mixinStandardHelpOptions = true,
         description = "Count and compare gene to disease associations.")
@@ -46,9 +48,13 @@ public class CountGenes extends HPOCommand implements Callable<Integer> {
     @Override
     public Integer call() {
         LOGGER.trace("Count genes command");
-        parseGeneToPhenotypeFile(pathToGenesToPhenotypeFile);
-        parsePhenolFiles();
-        compare();
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            parseGeneToPhenotypeFile(pathToGenesToPhenotypeFile);
+            parsePhenolFiles();
+        }
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            compare();
+        }
         return 0;
     }
 
@@ -72,7 +78,7 @@ public class CountGenes extends HPOCommand implements Callable<Integer> {
 
 
     private void parsePhenolFiles() {
-        Ontology ontology = OntologyLoader.loadOntology(new File(hpopath));
+        Ontology ontology = ResidentResources.ontology(new File(hpopath));
         //HpoAssociationParser parser = new HpoAssociationParser(pathToGeneInfo, pathToMim2Gene, pathToOrpha, annotpath, ontology);
         this.geneToDiseaseMapPhenol = null;//parser.getGeneToDiseaseIdMap();
     }
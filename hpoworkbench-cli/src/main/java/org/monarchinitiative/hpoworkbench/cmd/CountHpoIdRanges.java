@@ -1,6 +1,7 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
@@ -19,6 +20,7 @@ import java.util.concurrent.Callable;
  * @version 0.0.1 (May 14, 2020)
  */
 
+@SuppressWarnings("try")
 @CommandLine.Command(name = "ranges",
         mixinStandardHelpOptions = true,
         description = "Show used ranges for HPO ids.")
@@ -32,25 +34,30 @@ public class CountHpoIdRanges extends HPOCommand implements Callable<Integer>  {
         if (hpopath==null) {
             hpopath = this.downloadDirectory + File.separator + "hp.obo";
         }
-        Ontology ontology = OntologyLoader.loadOntology(new File(hpopath));
-        List<Integer> idlist = new ArrayList<>();
-        for (TermId tid : ontology.getTermMap().keySet()) {
-            Integer i = Integer.parseInt(tid.getId());
-            idlist.add(i);
+        Ontology ontology;
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            ontology = ResidentResources.ontology(new File(hpopath));
         }
-        Collections.sort(idlist);
-        int N = idlist.size();
-        int currentStart = idlist.get(0);
-        int currentEnd = currentStart;
-        for (int i = 1; i<N; i++) {
-            int next = idlist.get(i);
-            if (next == currentEnd + 1) {
-                currentEnd++;
-            } else {
-                int diff = currentEnd - currentStart + 1;
-                System.out.printf("HP:%07d-HP:%07d (n=%d).\n",currentStart, currentEnd, diff);
-                currentStart = next;
-                currentEnd = next;
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            List<Integer> idlist = new ArrayList<>();
+            for (TermId tid : ontology.getTermMap().keySet()) {
+                Integer i = Integer.parseInt(tid.getId());
+                idlist.add(i);
+            }
+            Collections.sort(idlist);
+            int N = idlist.size();
+            int currentStart = idlist.get(0);
+            int currentEnd = currentStart;
+            for (int i = 1; i<N; i++) {
+                int next = idlist.get(i);
+                if (next == currentEnd + 1) {
+                    currentEnd++;
+                } else {
+                    int diff = currentEnd - currentStart + 1;
+                    System.out.printf("HP:%07d-HP:%07d (n=%d).\n",currentStart, currentEnd, diff);
+                    currentStart = next;
+                    currentEnd = next;
+                }
             }
         }
         return 0;
@@ -81,7 +81,7 @@ public class HPO2CSVCommand extends HPOCommand implements Callable<Integer> {
             ontology = hpoparser.getHPO();
         } catch (Exception e) {
             System.err.println("[ERROR] could not partse hp.obo file.\n"+ e);
-            System.exit(1);
+            return 1;
         }
 
         Collection<Term>  terms = ontology.getTerms();
@@ -114,7 +114,7 @@ public class HPO2CSVCommand extends HPOCommand implements Callable<Integer> {
 
         } catch (IOException e) {
             e.printStackTrace();
-            System.exit(1);
+            return 1;
         }
         return 0;
     }
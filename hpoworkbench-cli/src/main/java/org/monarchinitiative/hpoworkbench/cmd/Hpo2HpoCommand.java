@@ -1,7 +1,7 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
 
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
 import org.monarchinitiative.phenol.ontology.data.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,7 +47,7 @@ public class Hpo2HpoCommand extends HPOCommand implements Callable<Integer>  {
      * input the hp.obo and the annotations.
      */
     private void inputHpoData() {
-        Ontology ontology = OntologyLoader.loadOntology(new File(this.hpopath));
+        Ontology ontology = ResidentResources.ontology(new File(this.hpopath));
         throw new UnsupportedOperationException(); // TODO REFACTOR!!!!
     }
 
@@ -1,29 +1,33 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
+import org.monarchinitiative.hpoworkbench.analysis.InformationContent;
+import org.monarchinitiative.hpoworkbench.analysis.SemanticSimilarity;
 import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.NeighborhoodIndex;
+import org.monarchinitiative.hpoworkbench.ontology.TermBitSet;
+import org.monarchinitiative.hpoworkbench.ontology.TermIntArray;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
-import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoader;
-import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
-import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.Callable;
 
-import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getParentTerms;
-
 
+@SuppressWarnings("try")
 @CommandLine.Command(name = "best",
         mixinStandardHelpOptions = true,
         description = "hpo best match.")
@@ -31,21 +35,55 @@ public class HpoBestMatchCommand  extends HPOCommand implements Callable<Integer
     private static final Logger LOGGER = LoggerFactory.getLogger(Hpo2HpoCommand.class);
     private Ontology hpoOntology=null;
     /** All disease annotations for the entire ontology. */
-    private final Map<TermId, HpoDisease> diseaseMap =null;
+    private Map<TermId, HpoDisease> diseaseMap =null;
+    /** Ancestor closure (and term registry) of {@link #hpoOntology}. */
+    private AncestorClosure closure;
     @CommandLine.Option(names={"--target"},required = true,description = "file with target disease IDs")
     private String targetFile;
     @CommandLine.Option(names={"--source"},required = true,description = "file with source disease IDs")
     private String sourceFile;
     @CommandLine.Option(names={"--minhits"}, description = "minimum number of diseases in source with term")
     private int minhits = 2;
+    @CommandLine.Option(names={"--similarity"}, description = "rank the target diseases by their semantic similarity to the source terms")
+    private boolean similarity = false;
+    @CommandLine.Option(names={"--measure"}, description = "similarity of two terms, ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private SemanticSimilarity.Measure measure = SemanticSimilarity.Measure.RESNIK;
+    @CommandLine.Option(names={"--no-cache"}, description = "with --similarity, compute the information content without reading or writing the cache")
+    private boolean noCache = false;
+    @CommandLine.Option(names={"--hops"}, description = "maximum distance of a matching source term (default: ${DEFAULT-VALUE})")
+    private int hops = 2;
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: stdout)")
+    private String outPath = null;
 
     private Set<TermId> targets;
     private Set<TermId> sources;
     /** HPO Terms present in at least {@link #minhits} source diseases. */
-    private Set<TermId> sourcePhenos;
+    private TermBitSet sourcePhenos;
+
+    /** A target disease and its best-match average similarity to {@link #sourcePhenos}. */
+    private record ScoredTarget(HpoDisease disease, double score) {}
+
+    /** How the annotation of a target disease relates to the source term it matches. */
+    private enum Relation {
+        /** the annotation is a source term */
+        EXACT,
+        /** the annotation is a parent, grandparent, ... of the source term */
+        ANCESTOR,
+        /** the annotation is a child, grandchild, ... of the source term */
+        DESCENDANT;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
 
-    private Set<TermId> sourcesPhenosParents;
-    private Set<TermId> sourcePhenoGrandParents;
+    /** One line of the output: an annotation of a target disease and a source term it matches. */
+    private record Match(HpoDisease disease, int term, int sourceTerm, Relation relation, int hops) {}
+
+    private static final String MATCH_HEADER = String.join("\t", "disease_id", "disease_name", "term_id", "term_label",
+            "source_term_id", "source_term_label", "relation", "hops");
+
+    private static final String RANKING_HEADER = String.join("\t", "rank", "disease_id", "disease_name", "score");
 
 
     /**
@@ -53,114 +91,193 @@ public class HpoBestMatchCommand  extends HPOCommand implements Callable<Integer
      */
     @Override
     public Integer call() throws IOException {
-        inputHPOdata();
-        inputTargets();
-        inputSources();
-        countSourcePhenos();
-        getBestMatches();
+        if (hops < 0) {
+            System.err.println("[ERROR] --hops must not be negative");
+            return 1;
+        }
+        if (minhits < 1) {
+            System.err.println("[ERROR] --minhits must be at least 1");
+            return 1;
+        }
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            inputHPOdata();
+            inputTargets();
+            inputSources();
+        }
+        if (similarity) {
+            SemanticSimilarity semanticSimilarity;
+            try (Profiler.Phase index = Profiler.phase("index")) {
+                countSourcePhenos();
+                Path annotations = Path.of(annotpath);
+                InformationContent ic = noCache
+                        ? InformationContent.compute(closure, diseaseMap.values())
+                        : InformationContent.load(InformationContent.cachePath(annotations), closure,
+                                InformationContent.Version.of(hpoOntology, annotations), diseaseMap::values);
+                semanticSimilarity = new SemanticSimilarity(ic);
+            }
+            List<ScoredTarget> ranking;
+            try (Profiler.Phase compute = Profiler.phase("compute")) {
+                ranking = rankTargets(semanticSimilarity);
+            }
+            try (Profiler.Phase output = Profiler.phase("output")) {
+                writeTsv(writer -> writeRanking(ranking, writer));
+            }
+            return 0;
+        }
+        NeighborhoodIndex neighborhoods;
+        try (Profiler.Phase index = Profiler.phase("index")) {
+            countSourcePhenos();
+            neighborhoods = NeighborhoodIndex.of(closure, hops);
+        }
+        List<List<Match>> matches;
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            matches = targetDiseases().parallelStream()
+                    .map(d -> getBestMatches(d, neighborhoods))
+                    .toList();
+        }
+        try (Profiler.Phase output = Profiler.phase("output")) {
+            writeTsv(writer -> writeMatches(matches, writer));
+        }
         return 0;
     }
 
+    /** @return the target diseases in the order of the target file */
+    private List<HpoDisease> targetDiseases() {
+        List<HpoDisease> targetDiseases = new ArrayList<>();
+        for (TermId diseaseId : targets) {
+            if (diseaseMap.containsKey(diseaseId)) {
+                targetDiseases.add(diseaseMap.get(diseaseId));
+            } else {
+                System.err.println("[ERROR] could not find disease for target " + diseaseId.getValue());
+            }
+        }
+        return targetDiseases;
+    }
 
     /**
-     * Get all of the matches for t that are within one hop in either direction
-     * @param t TermId of an HPO term
-     * @return list of matching labels
+     * Score each target disease by the best-match average of its annotations and the source terms. The targets are
+     * scored in parallel and share the MICA cache of {@code semanticSimilarity}.
+     * @return the targets, most similar first
      */
-    private List<String> getTwoHopMatches(TermId t) {
-        List<String> hits = new ArrayList<>();
-        if (sourcePhenos.contains(t)) {
-            String hpolabel = hpoOntology.getTermMap().get(t).getName();
-            hits.add(hpolabel);
-        }
-        else if (sourcesPhenosParents.contains(t)) {
-            String hpolabel = hpoOntology.getTermMap().get(t).getName();
-            hits.add(hpolabel + " (parent of source term)");
-        } else if (sourcePhenoGrandParents.contains(t)) {
-            String hpolabel = hpoOntology.getTermMap().get(t).getName();
-            hits.add(hpolabel + " (grandparent of source term)");
-        }
-        return hits;
+    private List<ScoredTarget> rankTargets(SemanticSimilarity semanticSimilarity) {
+        int[] query = sourcePhenos.indices().toArray();
+        return targetDiseases().parallelStream()
+                .map(d -> new ScoredTarget(d, semanticSimilarity.bestMatchAverage(measure, query,
+                        SemanticSimilarity.presentTerms(closure, d))))
+                .sorted(Comparator.comparingDouble(ScoredTarget::score).reversed()
+                        .thenComparing(t -> t.disease().id().getValue()))
+                .toList();
     }
 
+    /**
+     * Match each annotation of the disease with the source terms. An annotation that is a source term matches only
+     * that term. Otherwise, it matches the nearest source terms below it (up to {@link #hops} hops), and if there are
+     * none, the nearest source terms above it.
+     */
+    private List<Match> getBestMatches(HpoDisease disease, NeighborhoodIndex neighborhoods) {
+        List<Match> matches = new ArrayList<>();
+        for (HpoDiseaseAnnotation annotation : disease.annotations()) {
+            int term = closure.index(annotation.id());
+            if (term < 0) {
+                continue;
+            }
+            if (sourcePhenos.contains(term)) {
+                matches.add(new Match(disease, term, term, Relation.EXACT, 0));
+            } else if (!addNearestMatches(disease, term, neighborhoods, Relation.ANCESTOR, matches)) {
+                addNearestMatches(disease, term, neighborhoods, Relation.DESCENDANT, matches);
+            }
+        }
+        return matches;
+    }
 
-    private List<String> getZeroHopMatches(TermId t) {
-        List<String> hits = new ArrayList<>();
-        if (sourcePhenos.contains(t)) {
-            String hpolabel = hpoOntology.getTermMap().get(t).getName();
-            hits.add(hpolabel);
+    /** @return true if a source term was found within {@link #hops} hops in the direction of the relation */
+    private boolean addNearestMatches(HpoDisease disease, int term, NeighborhoodIndex neighborhoods, Relation relation,
+                                      List<Match> matches) {
+        for (int d = 1; d <= neighborhoods.k(); d++) {
+            boolean found = false;
+            // the source terms are below the annotation if the annotation is their ancestor
+            int[] level = relation == Relation.ANCESTOR ? neighborhoods.down(term, d) : neighborhoods.up(term, d);
+            for (int t : level) {
+                if (sourcePhenos.contains(t)) {
+                    matches.add(new Match(disease, term, t, relation, d));
+                    found = true;
+                }
+            }
+            if (found) {
+                return true;
+            }
         }
-        return hits;
+        return false;
     }
 
+    private interface TsvContent {
+        void write(Writer writer) throws IOException;
+    }
 
-    private void getBestMatches() {
-        for (TermId diseaseId : targets) {
-            if (diseaseMap.containsKey(diseaseId)) {
-                HpoDisease disease = diseaseMap.get(diseaseId);
-                for (HpoDiseaseAnnotation annotation  : disease.annotations()) {
-                    TermId hpoId = annotation.id();
-                   List<String> hits = getTwoHopMatches(hpoId);
-                   if (hits.isEmpty()) {
-                       Set<TermId> pars = getParentTerms(hpoOntology, hpoId,false);
-                       for (TermId par : pars) {
-                           List<String> newHits1 = getZeroHopMatches(par);
-                           hits.addAll(newHits1);
-                       }
-                       if (hits.isEmpty()) {
-                           Set<TermId> gpars = getParentTerms(hpoOntology,pars,false);
-                           for (TermId par : gpars) {
-                               List<String> newHits1 = getZeroHopMatches(par);
-                               hits.addAll(newHits1);
-                           }
-                       }
-                   }
-                   for (String h : hits) {
-                       System.out.println(disease.diseaseName() +": " + h);
-                   }
-                }
-            } else {
-                System.err.println("[ERROR] could not find disease for target " + diseaseId.getValue());
+    /** Write the TSV to {@link #outPath}, or to stdout if no output file was given. */
+    private void writeTsv(TsvContent content) throws IOException {
+        if (outPath == null) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            content.write(writer);
+            writer.flush();
+        } else {
+            try (Writer writer = Files.newBufferedWriter(Path.of(outPath))) {
+                content.write(writer);
             }
         }
     }
 
+    private void writeMatches(List<List<Match>> matches, Writer writer) throws IOException {
+        TermRegistry registry = closure.registry();
+        writer.write(MATCH_HEADER);
+        writer.write('\n');
+        for (List<Match> diseaseMatches : matches) {
+            for (Match m : diseaseMatches) {
+                writer.write(String.join("\t", m.disease().id().getValue(), m.disease().diseaseName(),
+                        registry.termId(m.term()).getValue(), registry.label(m.term()),
+                        registry.termId(m.sourceTerm()).getValue(), registry.label(m.sourceTerm()),
+                        m.relation().label(), Integer.toString(m.hops())));
+                writer.write('\n');
+            }
+        }
+    }
 
+    private static void writeRanking(List<ScoredTarget> ranking, Writer writer) throws IOException {
+        writer.write(RANKING_HEADER);
+        writer.write('\n');
+        int rank = 0;
+        for (ScoredTarget target : ranking) {
+            writer.write(String.format(Locale.ROOT, "%d\t%s\t%s\t%.4f", ++rank, target.disease().id().getValue(),
+                    target.disease().diseaseName(), target.score()));
+            writer.write('\n');
+        }
+    }
 
     private void countSourcePhenos() {
-        Map<TermId,Integer> counts = new HashMap<>();
+        TermRegistry registry = closure.registry();
+        TermIntArray counts = new TermIntArray(registry);
         for (TermId tid : sources) {
             if (diseaseMap.containsKey(tid)) {
                 HpoDisease disease = diseaseMap.get(tid);
                 for  (HpoDiseaseAnnotation annotation : disease.annotations()) {
-                    TermId hpoId = annotation.id();
-                    counts.putIfAbsent(hpoId,0);
-                    int c = counts.get(hpoId);
-                    counts.put(hpoId,c+1);
+                    counts.increment(annotation.id());
                 }
             } else {
                 System.err.println("[ERROR] could not find disease for " + tid.getValue());
             }
         }
-        System.out.println("[INFO] Got counts for " + counts.size() + " HPO terms");
-        sourcePhenos = new HashSet<>();
-        for (TermId hpo : counts.keySet()) {
-            int c = counts.get(hpo);
-            if (c>=minhits) {
-                sourcePhenos.add(hpo);
+        System.err.println("[INFO] Got counts for " + counts.countNonZero() + " HPO terms");
+        sourcePhenos = new TermBitSet(registry);
+        for (int i = 0; i < registry.size(); i++) {
+            if (counts.get(i) >= minhits) {
+                sourcePhenos.add(i);
             }
         }
-        for (TermId t : sourcePhenos) {
-            String label = hpoOntology.getTermMap().get(t).getName();
-            System.out.println("\t"+label);
-        }
-        sourcesPhenosParents = getParentTerms(hpoOntology,sourcePhenos,false);
-        sourcePhenoGrandParents = getParentTerms(hpoOntology,sourcesPhenosParents,false);
     }
 
 
     private void inputTargets() {
-        targets = new HashSet<>();
+        targets = new LinkedHashSet<>();
         try {
             BufferedReader br = new BufferedReader(new FileReader(this.targetFile));
             String line;
@@ -173,7 +290,7 @@ public class HpoBestMatchCommand  extends HPOCommand implements Callable<Integer
         } catch (IOException e){
             e.printStackTrace();
         }
-        System.out.println("[INFO] target diseases: " + targets.size());
+        System.err.println("[INFO] target diseases: " + targets.size());
     }
 
     private void inputSources() {
@@ -190,7 +307,7 @@ public class HpoBestMatchCommand  extends HPOCommand implements Callable<Integer
         } catch (IOException e){
             e.printStackTrace();
         }
-        System.out.println("[INFO] sources diseases: " + sources.size());
+        System.err.println("[INFO] sources diseases: " + sources.size());
     }
 
 
@@ -200,21 +317,18 @@ public class HpoBestMatchCommand  extends HPOCommand implements Callable<Integer
     private void inputHPOdata() throws IOException {
         File f = new File(hpopath);
         if (! f.exists()) {
-            LOGGER.error(String.format("Could not find hpo ontology file at\"%s\". Terminating program...", hpopath ));
-            System.exit(1);
+            throw new IOException(String.format("Could not find hpo ontology file at\"%s\". Terminating program...", hpopath ));
         }
         f=new File(annotpath);
         if (! f.exists()) {
-            LOGGER.error(String.format("Could not find phenotype annotation file at\"%s\". Terminating program...", annotpath ));
-            System.exit(1);
+            throw new IOException(String.format("Could not find phenotype annotation file at\"%s\". Terminating program...", annotpath ));
         }
         LOGGER.trace(String.format("inputting data with files %s and %s",hpopath,annotpath));
         HPOParser parser = new HPOParser(hpopath);
         hpoOntology=parser.getHPO();
-        HpoDiseaseLoaderOptions options = HpoDiseaseLoaderOptions.defaultOptions();
-        HpoDiseaseLoader loader = HpoDiseaseLoaders.defaultLoader(hpoOntology, options);
-        HpoDiseases diseases = loader.load(Path.of(annotpath));
-        Map<TermId, HpoDisease> diseaseMap = diseases.diseaseById();
+        HpoDiseases diseases = ResidentResources.diseases(Path.of(annotpath), hpoOntology);
+        diseaseMap = diseases.diseaseById();
+        closure = AncestorClosure.of(hpoOntology);
         LOGGER.trace("Diseases imported: " + diseaseMap.size());
     }
 
@@ -1,36 +1,52 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
-import com.google.common.collect.ImmutableSet;
+import org.monarchinitiative.hpoworkbench.analysis.TermStatistics;
 import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.hpoworkbench.io.HpoaScanner;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
 import org.monarchinitiative.phenol.base.PhenolRuntimeException;
-import org.monarchinitiative.phenol.graph.IdLabeledEdge;
+import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
 import java.util.Set;
-import java.util.Stack;
 import java.util.concurrent.Callable;
+import java.util.stream.Collector;
 
 /**
  * Generates a list of all terms that are descendents of a given term.
  */
 
+@SuppressWarnings("try")
 @CommandLine.Command(name = "descendent",
         mixinStandardHelpOptions = true,
         description = "Generates a list of all terms that are descendents of a given term.")
 public class HpoListDescendentsCommand extends HPOCommand implements Callable<Integer> {
     private static final Logger LOGGER = LoggerFactory.getLogger(HpoListDescendentsCommand.class);
 
+    private static final TermStatistics.Database[] DATABASES = TermStatistics.Database.values();
+    /** Prefixes of the disease ids of {@link #DATABASES}, e.g. {@code OMIM:}. */
+    private static final String[] DATABASE_PREFIXES = new String[DATABASES.length];
+
+    static {
+        for (TermStatistics.Database db : DATABASES) {
+            DATABASE_PREFIXES[db.ordinal()] = db.name() + ":";
+        }
+    }
+
     private Ontology hpoOntology=null;
-    /** Set of all HPO terms that are descendents of {@link #hpoTermId}. */
-    private Set<TermId> descendentsOfTheTermOfInterest =null;
+    /** The HPO ids (as numbers, including alt ids) of all descendents of {@link #hpoTermId}. */
+    private BitSet descendentsOfTheTermOfInterest =null;
+    /** Number of terms in {@link #descendentsOfTheTermOfInterest}, not counting alt ids. */
+    private int descendentCount;
     @CommandLine.Option(names={"-t","--term"},required = true,description = "TermId of interest")
     private String hpoTermId;
 
@@ -41,52 +57,53 @@ public class HpoListDescendentsCommand extends HPOCommand implements Callable<In
     private void inputHPOdata() {
         File f = new File(hpopath);
         if (! f.exists()) {
-            LOGGER.error(String.format("Could not find hpo ontology file at\"%s\". Terminating program...", hpopath ));
-            System.exit(1);
+            throw new PhenolRuntimeException(String.format("Could not find hpo ontology file at\"%s\"", hpopath));
         }
         HPOParser parser = new HPOParser(hpopath);
         hpoOntology=parser.getHPO();
     }
 
-    private void parsePhenotypeHpoa() {
-        String path = "data/phenotype.hpoa";
-        File f = new File(path);
-        if (!f.exists()) {
-            throw new PhenolRuntimeException("Could not find phenotype.hpoa. Run the download command");
+    /** Annotation counts per database; {@code total} for all annotations, {@code inSubhierarchy} for the descendents. */
+    private record Counts(int[] total, int[] inSubhierarchy) {
+        Counts() {
+            this(new int[DATABASES.length], new int[DATABASES.length]);
         }
-        int n_omim = 0;
-        int n_orpha = 0;
-        int n_decipher = 0;
-        int n_omim_total = 0;
-        int n_orpha_total = 0;
-        int n_decipher_total = 0;
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-            String line;
-            while ((line=br.readLine()) != null) {
-                //System.out.println(line);
-                if (line.startsWith("#") ) {
-                    continue; // skip comments
-                }
-                if (line.startsWith("OMIM")) n_omim_total++;
-                if (line.startsWith("ORPHA")) n_orpha_total++;
-                if (line.startsWith("DECIPHER")) n_decipher_total++;
-                String [] fields = line.split("\t");
-                TermId t = TermId.of(fields[3]);
-                System.out.println(t.getValue());
-                if (descendentsOfTheTermOfInterest.contains(t)) {
-                    if (line.startsWith("OMIM")){
-                        n_omim++;
-                    } else if (line.startsWith("ORPHA")) {
-                        n_orpha++;
-                    } else if (line.startsWith("DECIPHER")) {
-                        n_decipher++;
-                    }
+
+        Counts add(Counts other) {
+            for (int i = 0; i < DATABASES.length; i++) {
+                total[i] += other.total[i];
+                inSubhierarchy[i] += other.inSubhierarchy[i];
+            }
+            return this;
+        }
+    }
+
+    private void accept(Counts counts, HpoaScanner.Line line) {
+        for (int db = 0; db < DATABASES.length; db++) {
+            if (line.fieldStartsWith(HpoaScanner.DATABASE_ID, DATABASE_PREFIXES[db])) {
+                counts.total[db]++;
+                int hpo = line.hpoIdNumber();
+                if (hpo >= 0 && descendentsOfTheTermOfInterest.get(hpo)) {
+                    counts.inSubhierarchy[db]++;
                 }
+                return;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-        System.out.printf("Total of %d terms descend from %s\n", descendentsOfTheTermOfInterest.size(), hpoTermId);
+    }
+
+    private void parsePhenotypeHpoa() throws IOException {
+        File f = new File(annotpath);
+        if (!f.exists()) {
+            throw new PhenolRuntimeException("Could not find phenotype.hpoa. Run the download command");
+        }
+        Counts counts = HpoaScanner.scan(Path.of(annotpath), Collector.of(Counts::new, this::accept, Counts::add));
+        int n_omim = counts.inSubhierarchy()[TermStatistics.Database.OMIM.ordinal()];
+        int n_orpha = counts.inSubhierarchy()[TermStatistics.Database.ORPHA.ordinal()];
+        int n_decipher = counts.inSubhierarchy()[TermStatistics.Database.DECIPHER.ordinal()];
+        int n_omim_total = counts.total()[TermStatistics.Database.OMIM.ordinal()];
+        int n_orpha_total = counts.total()[TermStatistics.Database.ORPHA.ordinal()];
+        int n_decipher_total = counts.total()[TermStatistics.Database.DECIPHER.ordinal()];
+        System.out.printf("Total of %d terms descend from %s\n", descendentCount, hpoTermId);
         System.out.printf("Annotations: OMIM: %d, ORPHA: %d, DECIPHER: %d\n", n_omim, n_orpha, n_decipher);
         System.out.printf("Percent omim %f%% (%d/%d)\n",(100.0*(double)n_omim/n_omim_total),n_omim,n_omim_total);
         System.out.printf("Percent orpha %f%% (%d/%d)\n",(100.0*(double)n_orpha/n_orpha_total),n_orpha,n_orpha_total);
@@ -98,70 +115,61 @@ public class HpoListDescendentsCommand extends HPOCommand implements Callable<In
     }
 
     @Override
-    public Integer call() {
+    public Integer call() throws IOException {
         if (! hpoTermId.startsWith("HP:") || hpoTermId.length()!=10) {
             LOGGER.error(String.format("Malformed HPO id: \"%s\". Terminating program...",hpoTermId ));
-            System.exit(1);
+            return 1;
         }
 
         // the root of the subhierarchy for which we are calculating the descriptive statistics.
         TermId termOfInterest=TermId.of(hpoTermId);
         LOGGER.trace("Term of interest: "+termOfInterest.getValue());
 
-        inputHPOdata();
-        getDescendentsOfTermOfInterest(termOfInterest);
-        parsePhenotypeHpoa();
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            inputHPOdata();
+        }
+        try (Profiler.Phase index = Profiler.phase("index")) {
+            if (!getDescendentsOfTermOfInterest(termOfInterest)) {
+                System.err.println("[ERROR] Could not find term " + hpoTermId + " in the ontology");
+                return 1;
+            }
+        }
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            parsePhenotypeHpoa();
+        }
         return 0;
 
     }
 
-    private void getDescendentsOfTermOfInterest(TermId termOfInterest) {
-        String name = String.format("%s [%s]",hpoOntology.getTermMap().get(termOfInterest).getName(),termOfInterest.getValue() );
-        descendentsOfTheTermOfInterest = countDescendentsAndSubclassRelations(hpoOntology,termOfInterest);
-
-
-    }
-
     /**
-     * Find all of the descendents of parentTermId (including direct children and more distant
-     * descendents)
+     * Collect the numbers of the ids of the term of interest and all of its descendents, including their alt ids,
+     * so that the ids in phenotype.hpoa can be looked up without creating {@link TermId} objects.
      *
-     * @param ontology The ontology to which parentTermId belongs
-     * @param parentTermId The term whose descendents were are seeking
-     * @return A set of all descendents of parentTermId (including the parentTermId itself)
+     * @return false if the term is not part of the ontology
      */
-    private Set<TermId> countDescendentsAndSubclassRelations(
-            Ontology ontology, TermId parentTermId) {
-        ImmutableSet.Builder<TermId> descset = new ImmutableSet.Builder<>();
-        Stack<TermId> stack = new Stack<>();
-        stack.push(parentTermId);
-        while (!stack.empty()) {
-            TermId tid = stack.pop();
-            descset.add(tid);
-            Set<TermId> directChildrenSet = countChildTermsAndSubclassRelations(ontology, tid);
-            directChildrenSet.forEach(stack::push);
+    private boolean getDescendentsOfTermOfInterest(TermId termOfInterest) {
+        if (!hpoOntology.getTermMap().containsKey(termOfInterest)) {
+            return false;
+        }
+        Set<TermId> descendents = OntologyAlgorithm.getDescendents(hpoOntology, termOfInterest);
+        descendentCount = descendents.size();
+        descendentsOfTheTermOfInterest = new BitSet();
+        for (TermId tid : descendents) {
+            addIdNumber(tid);
+            Term term = hpoOntology.getTermMap().get(tid);
+            if (term != null) {
+                term.getAltTermIds().forEach(this::addIdNumber);
+            }
         }
-        return descset.build();
+        return true;
     }
 
-    /**
-     * Find all of the direct children of parentTermId (do not include "grandchildren" and other
-     * descendents).
-     *
-     * @param ontology The ontology to which parentTermId belongs
-     * @param parentTermId The term whose children were are seeking
-     * @return A set of all child terms of parentTermId
-     */
-    public Set<TermId> countChildTermsAndSubclassRelations(
-            Ontology ontology,
-            TermId parentTermId) {
-        ImmutableSet.Builder<TermId> kids = new ImmutableSet.Builder<>();
-        //if (includeOriginalTerm) kids.add(parentTermId);
-        for (IdLabeledEdge edge : ontology.getGraph().incomingEdgesOf(parentTermId)) {
-            TermId sourceId = (TermId) edge.getSource();
-            kids.add(sourceId);
+    private void addIdNumber(TermId tid) {
+        try {
+            descendentsOfTheTermOfInterest.set(Integer.parseInt(tid.getId()));
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Skipping term with non-numeric id {}", tid.getValue());
         }
-        return kids.build();
     }
 
 
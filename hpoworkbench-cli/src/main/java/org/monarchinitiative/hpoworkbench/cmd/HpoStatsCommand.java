@@ -1,59 +1,75 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
 
-import com.google.common.collect.ImmutableSet;
+import org.json.simple.JSONValue;
 import org.monarchinitiative.hpoworkbench.analysis.HpoStats;
+import org.monarchinitiative.hpoworkbench.analysis.StatsSnapshot;
+import org.monarchinitiative.hpoworkbench.analysis.TermStatistics;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
 import org.monarchinitiative.phenol.annotations.formats.hpo.*;
-import org.monarchinitiative.phenol.graph.IdLabeledEdge;
-import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
-import java.io.File;
-import java.io.PrintWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.Callable;
 
-import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.existsPath;
-
 /**
- * Extract descriptive statistics about a a certain subhierarchy of the HPO.
+ * Extract descriptive statistics about a a certain subhierarchy of the HPO. In batch mode ({@code --terms} or
+ * {@code --depth}), the statistics of many subhierarchies are written as one TSV row or JSON object per term. A single
+ * {@code -t} term is written after the statistics of the whole ontology.
  * @author <a href="mailto:peter.robinson@jax.org">Peter Robinson</a>
  */
 
+@SuppressWarnings("try")
 @CommandLine.Command(name = "stats",
         mixinStandardHelpOptions = true,
         description = "Extract descriptive statistics about a subhierarchy of the HPO.")
 public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
     private static final Logger LOGGER = LoggerFactory.getLogger(HpoStatsCommand.class);
-    private Ontology hpoOntology=null;
-    /** All disease annotations for the entire ontology. */
-    private Map<TermId, HpoDisease> diseaseMap =null;
-
-    /** Set of all HPO terms that are descendents of {@link #termOfInterest}. */
-    private Set<TermId> descendentsOfTheTermOfInterest =null;
-    /** We use this to count the number of subclass relations underneath {@link #termOfInterest}. */
-    private Set<IdLabeledEdge> relationsUnderTermOfInterest;
     private Set<HpoOnset> adultOnset=null;
     private Set<HpoOnset> childhoodOnset=null;
 
 
-    private List<HpoDisease> omim;
-    private List<HpoDisease> orphanet;
-    private List<HpoDisease> decipher;
+    /** the root of the subhierarchy for which we are calculating the descriptive statistics. */
+    @CommandLine.Option(names={"-t","--term"},description = "the root of the subhierarchy for which we are calculating the descriptive statistics; "
+            + "without --terms or --depth, the statistics of the whole ontology are output first.")
+    private String term = null;
 
+    @CommandLine.Option(names={"--terms"}, paramLabel = "FILE",
+            description = "file with the roots of the subhierarchies, one term id per line (batch mode)")
+    private String termListPath = null;
 
+    @CommandLine.Option(names={"--depth"}, paramLabel = "N",
+            description = "use all terms N levels below the --root term as roots of the subhierarchies (batch mode)")
+    private Integer depth = null;
 
+    @CommandLine.Option(names={"--root"}, description = "root term for --depth (default: ${DEFAULT-VALUE})")
+    private String depthRoot = "HP:0000118";
 
+    @CommandLine.Option(names={"--format"}, description = "format of the statistics per term: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private Format format = Format.tsv;
 
-    /** the root of the subhierarchy for which we are calculating the descriptive statistics. */
-    @CommandLine.Option(names={"-t","--term"},description = "the root of the subhierarchy for which we are calculating the descriptive statistics.")
-    private String term = null;
+    @CommandLine.Option(names={"-o","--out"}, description = "file for the statistics per term (default: stdout)")
+    private String outPath = null;
 
+    @CommandLine.Option(names={"--snapshot"}, paramLabel = "FILE",
+            description = "write the statistics of all terms to FILE, for comparing releases with statsdiff")
+    private String snapshotPath = null;
 
-    private TermId termOfInterest;
+    enum Format { tsv, json }
+
+    private static final String[] HEADER = {"term_id", "label", "terms", "definitions", "synonyms",
+            "omim_diseases", "omim_annotations", "orpha_diseases", "orpha_annotations",
+            "decipher_diseases", "decipher_annotations"};
 
 
 
@@ -62,7 +78,7 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
     }
 
     @Override
-    public  Integer call() {
+    public  Integer call() throws IOException {
 
         if (hpopath==null) {
             hpopath = this.downloadDirectory + File.separator + "hp.obo";
@@ -70,33 +86,58 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
         if (annotpath==null) {
             annotpath = this.downloadDirectory + File.separator + "phenotype.hpoa";
         }
-        HpoStats hpoStats = new HpoStats(hpopath, annotpath);
-        PrintWriter writer = new PrintWriter(System.out);
-        hpoStats.outputOntologyStats(writer);
-
-        if (term != null) {
-            LOGGER.trace(String.format("HPO path: %s, annotations: %s", hpopath, annotpath));
-            if (!term.startsWith("HP:") || term.length() != 10) {
-                LOGGER.error(String.format("Malformed HPO id: \"%s\". Terminating program...", term));
-                System.exit(1);
+        if (term != null && parseTermId(term) == null) {
+            System.err.println("[ERROR] Invalid term " + term + ", expected an id like HP:0000118");
+            return 1;
+        }
+        if (depth != null && parseTermId(depthRoot) == null) {
+            System.err.println("[ERROR] Invalid --root term " + depthRoot + ", expected an id like HP:0000118");
+            return 1;
+        }
+        HpoStats hpoStats;
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            hpoStats = new HpoStats(hpopath, annotpath);
+        }
+        boolean batch = term != null || termListPath != null || depth != null;
+        if (!batch && snapshotPath == null) {
+            try (Profiler.Phase output = Profiler.phase("output")) {
+                PrintWriter writer = new PrintWriter(System.out);
+                hpoStats.outputOntologyStats(writer);
             }
-            this.termOfInterest = TermId.of(term);
-            LOGGER.trace("Term of interest: " + termOfInterest.getValue());
-            omim = new ArrayList<>();
-            orphanet = new ArrayList<>();
-            decipher = new ArrayList<>();
-
-            getDescendentsOfTermOfInterest();
-            filterDiseasesAccordingToDatabase();
-          //  qcInheritanceModesForDiseases();
-            //countDiseasesWithAndWithoutAssociatedGenes();
-        } else {
             System.err.println("[WARN] No HPO term passed for stats");
+            return 0;
+        }
+        TermStatistics stats;
+        try (Profiler.Phase index = Profiler.phase("index")) {
+            AncestorClosure closure = AncestorClosure.of(hpoStats.getOntology());
+            stats = TermStatistics.of(closure, hpoStats.getDiseaseMap().values());
+        }
+        if (snapshotPath != null) {
+            try (Profiler.Phase snapshot = Profiler.phase("snapshot")) {
+                Map<String, String> metadata = new LinkedHashMap<>();
+                metadata.put(StatsSnapshot.HPO_RELEASE, hpoStats.getOntology().getMetaInfo().getOrDefault("release", ""));
+                metadata.put(StatsSnapshot.ANNOTATIONS, Path.of(annotpath).getFileName().toString());
+                StatsSnapshot.of(stats, metadata).write(Path.of(snapshotPath));
+            }
+            System.err.println("[INFO] Wrote statistics snapshot to " + snapshotPath);
+            if (!batch) {
+                return 0;
+            }
+        }
+        int[] roots = selectTerms(stats.closure());
+        if (roots == null) {
+            return 1;
+        }
+        try (Profiler.Phase output = Profiler.phase("output")) {
+            if (termListPath == null && depth == null) {
+                // a single -t term is reported after the statistics of the whole ontology, as before the batch mode
+                hpoStats.outputOntologyStats(new PrintWriter(System.out));
+            }
+            writeTermStatistics(stats, roots);
         }
         return 0;
     }
 
-
    /* private void countDiseasesWithAndWithoutAssociatedGenes() {
         String geneInfoFile = this.downloadDirectory + File.separator + "Homo_sapiens_gene_info.gz";
         String mim2genemedgenFile = this.downloadDirectory + File.separator + "mim2gene_medgen";
@@ -166,80 +207,147 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
 
 
 
-    private void getDescendentsOfTermOfInterest() {
-        String name = String.format("%s [%s]",hpoOntology.getTermMap().get(termOfInterest).getName(),termOfInterest.getValue() );
-        relationsUnderTermOfInterest=new HashSet<>();
-        descendentsOfTheTermOfInterest = countDescendentsAndSubclassRelations(hpoOntology,termOfInterest);
-        int n_textual_def = getNumberOfTermsWithDefinition(hpoOntology,descendentsOfTheTermOfInterest);
-        int n_synonyms = getTotalNumberOfSynonyms(hpoOntology,descendentsOfTheTermOfInterest);
-        LOGGER.trace(String.format("We found a total of %d terms annotated to %s or descendents", descendentsOfTheTermOfInterest.size(), name));
-        LOGGER.trace(String.format("Of these terms, %d has a textual definition. There were a total of %d synonyms.",n_textual_def,n_synonyms));
-        LOGGER.trace(String.format("We found a total of %d subclass relations beneath the term of interest",relationsUnderTermOfInterest.size()));
+    /**
+     * @return indices of the terms given with {@code -t}, {@code --terms} and {@code --depth}, in this order and
+     * without duplicates, or null if one of the options is invalid
+     */
+    private int[] selectTerms(AncestorClosure closure) throws IOException {
+        Set<Integer> selected = new LinkedHashSet<>();
+        if (term != null) {
+            int idx = closure.index(TermId.of(term));
+            if (idx < 0) {
+                System.err.println("[ERROR] Could not find term " + term + " in the ontology");
+                return null;
+            }
+            selected.add(idx);
+        }
+        if (termListPath != null) {
+            for (String line : Files.readAllLines(Path.of(termListPath))) {
+                String id = line.strip().split("\\s+")[0];
+                if (id.isEmpty() || id.startsWith("#")) {
+                    continue;
+                }
+                TermId termId = parseTermId(id);
+                int idx = termId == null ? -1 : closure.index(termId);
+                if (idx < 0) {
+                    System.err.println("[WARN] Skipping " + id + ", which is not a term of the ontology");
+                    continue;
+                }
+                selected.add(idx);
+            }
+        }
+        if (depth != null) {
+            int root = closure.index(TermId.of(depthRoot));
+            if (root < 0 || depth < 0) {
+                System.err.println("[ERROR] Invalid --root " + depthRoot + " or --depth " + depth);
+                return null;
+            }
+            for (int idx : termsAtDepth(closure, root, depth)) {
+                selected.add(idx);
+            }
+        }
+        return selected.stream().mapToInt(Integer::intValue).toArray();
     }
 
-
+    /** @return the term id, or null if {@code id} is not of the form {@code PREFIX:ID} */
+    private static TermId parseTermId(String id) {
+        try {
+            return TermId.of(id);
+        } catch (PhenolRuntimeException e) {
+            return null;
+        }
+    }
 
     /**
-     * Find all of the descendents of parentTermId (including direct children and more distant
-     * descendents)
-     *
-     * @param ontology The ontology to which parentTermId belongs
-     * @param parentTermId The term whose descendents were are seeking
-     * @return A set of all descendents of parentTermId (including the parentTermId itself)
+     * @return the terms whose shortest path to {@code root} has {@code depth} edges, i.e. that are {@code depth}
+     * levels below {@code root}, in breadth-first order
      */
-    private Set<TermId> countDescendentsAndSubclassRelations(
-            Ontology ontology, TermId parentTermId) {
-        ImmutableSet.Builder<TermId> descset = new ImmutableSet.Builder<>();
-        Stack<TermId> stack = new Stack<>();
-        stack.push(parentTermId);
-        while (!stack.empty()) {
-            TermId tid = stack.pop();
-            descset.add(tid);
-            Set<TermId> directChildrenSet = countChildTermsAndSubclassRelations(ontology, tid);
-            directChildrenSet.forEach(stack::push);
+    private static int[] termsAtDepth(AncestorClosure closure, int root, int depth) {
+        int[] level = new int[closure.size()];
+        Arrays.fill(level, -1);
+        level[root] = 0;
+        int[] queue = new int[closure.size()];
+        int head = 0, tail = 0;
+        queue[tail++] = root;
+        while (head < tail) {
+            int t = queue[head++];
+            if (level[t] == depth) {
+                continue;
+            }
+            for (int c : closure.children(t)) {
+                if (level[c] < 0) {
+                    level[c] = level[t] + 1;
+                    queue[tail++] = c;
+                }
+            }
         }
-        return descset.build();
+        return Arrays.stream(queue, 0, tail).filter(t -> level[t] == depth).toArray();
     }
 
     /**
-     * Find all of the direct children of parentTermId (do not include "grandchildren" and other
-     * descendents).
-     *
-     * @param ontology The ontology to which parentTermId belongs
-     * @param parentTermId The term whose children were are seeking
-     * @return A set of all child terms of parentTermId
+     * Write one row (TSV) or one JSON object per line (JSON) with the statistics of the subhierarchy of each term.
+     * The statistics of all terms were computed at once, so each row is a lookup.
      */
-    public Set<TermId> countChildTermsAndSubclassRelations(
-            Ontology ontology,
-            TermId parentTermId) {
-        ImmutableSet.Builder<TermId> kids = new ImmutableSet.Builder<>();
-        //if (includeOriginalTerm) kids.add(parentTermId);
-        for (IdLabeledEdge edge : ontology.getGraph().incomingEdgesOf(parentTermId)) {
-            TermId sourceId = (TermId) edge.getSource();
-            kids.add(sourceId);
-            this.relationsUnderTermOfInterest.add(edge);
+    private void writeTermStatistics(TermStatistics stats, int[] roots) throws IOException {
+        if (outPath == null) {
+            // stdout must not be closed, e.g. when the command is run by the server
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            writeTermStatistics(writer, stats, roots);
+            writer.flush();
+        } else {
+            try (BufferedWriter writer = Files.newBufferedWriter(Path.of(outPath), StandardCharsets.UTF_8)) {
+                writeTermStatistics(writer, stats, roots);
+            }
         }
-        return kids.build();
     }
 
+    private void writeTermStatistics(BufferedWriter writer, TermStatistics stats, int[] roots) throws IOException {
+        if (format == Format.tsv) {
+            writer.write(String.join("\t", HEADER));
+            writer.newLine();
+        }
+        TermRegistry registry = stats.closure().registry();
+        for (int idx : roots) {
+            Object[] values = {registry.termId(idx).getValue(), registry.label(idx),
+                    stats.descendantCount(idx), stats.definitionCount(idx), stats.synonymCount(idx),
+                    stats.diseaseCount(TermStatistics.Database.OMIM, idx),
+                    stats.annotationCount(TermStatistics.Database.OMIM, idx),
+                    stats.diseaseCount(TermStatistics.Database.ORPHA, idx),
+                    stats.annotationCount(TermStatistics.Database.ORPHA, idx),
+                    stats.diseaseCount(TermStatistics.Database.DECIPHER, idx),
+                    stats.annotationCount(TermStatistics.Database.DECIPHER, idx)};
+            if (format == Format.tsv) {
+                writeTsv(writer, values);
+            } else {
+                writeJson(writer, values);
+            }
+        }
+    }
 
-
-
-    private int getTotalNumberOfSynonyms(Ontology ontology, Set<TermId> terms) {
-        int n=0;
-        for (TermId tid : terms) {
-            n+=ontology.getTermMap().get(tid).getSynonyms().size();
+    private static void writeTsv(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write('\t');
+            }
+            writer.write(String.valueOf(values[i]));
         }
-        return n;
+        writer.write('\n');
     }
 
-    private int getNumberOfTermsWithDefinition(Ontology ontology, Set<TermId> terms) {
-        int n=0;
-        for (TermId tid : terms) {
-            String def=ontology.getTermMap().get(tid).getDefinition();
-            if (def!=null && def.length()>0) n++;
+    private static void writeJson(Writer writer, Object[] values) throws IOException {
+        writer.write('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(", ");
+            }
+            writer.write('"' + HEADER[i] + "\": ");
+            if (values[i] instanceof String text) {
+                writer.write(JSONValue.toJSONString(text));
+            } else {
+                writer.write(String.valueOf(values[i]));
+            }
         }
-        return n;
+        writer.write("}\n");
     }
 
 
@@ -267,56 +375,6 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
     }
 
 
-    private boolean diseaseAnnotatedToTermOfInterest(HpoDisease d) {
-        for  (HpoDiseaseAnnotation annotation  : d.annotations()) {
-            TermId tid = annotation.id();
-            if (this.descendentsOfTheTermOfInterest.contains(tid))
-                return true;
-        }
-        return false;
-    }
-
-
-    private void filterDiseasesAccordingToDatabase() {
-        int n_omim_annot=0;
-        int n_orpha_annot=0;
-        int n_decipher_annot=0;
-        if (diseaseMap==null) {
-            LOGGER.error("Disease map was not properly initialized. Terminating program...");
-            System.exit(1);
-        }
-        for (HpoDisease d:this.diseaseMap.values()) {
-            if (!diseaseAnnotatedToTermOfInterest(d)) {
-                continue;
-            }
-            int n_annot=0;
-            for  (HpoDiseaseAnnotation annotation : d.annotations()) {
-                TermId hpoId = annotation.id();
-                if (existsPath(hpoOntology,hpoId,termOfInterest)) {
-                    n_annot++;
-                }
-            }
-            String database=d.id().getValue();
-            if (database.startsWith("OMIM")) {
-                omim.add(d);
-                n_omim_annot+=n_annot;
-            } else if (database.startsWith("ORPHA")){
-                orphanet.add(d);
-                n_orpha_annot+=n_annot;
-            } else if (database.startsWith("DECIPHER")) {
-                decipher.add(d);
-                n_decipher_annot+=n_annot;
-            } else {
-                LOGGER.error("Did not recognize data base"+ database);
-            }
-        }
-        String termname=hpoOntology.getTermMap().get(termOfInterest).getName();
-        LOGGER.trace(String.format("We found %d diseases in OMIM annotated to %s or descendents with %d total annotations for the term of interest",omim.size(),termname,n_omim_annot));
-        LOGGER.trace(String.format("We found %d diseases in Orphanet annotated to %s or descendents with %d total annotations for the term of interest",orphanet.size(),termname,n_orpha_annot));
-        LOGGER.trace(String.format("We found %d diseases in DECIPHER annotated to %s or descendents with %d total annotations for the term of interest",decipher.size(),termname,n_decipher_annot));
-    }
-
-
     private boolean hasAdultOnset(HpoDisease d) {
         for  (HpoDiseaseAnnotation annotation : d.annotations()) {
             TermId hpoId = annotation.id();
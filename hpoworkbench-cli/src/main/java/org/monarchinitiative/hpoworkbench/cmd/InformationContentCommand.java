@@ -0,0 +1,102 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.analysis.InformationContent;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * Write the information content of all terms as TSV. The values are read from the cache file next to the annotation
+ * file if it belongs to the same hp.json and phenotype.hpoa, and computed (and cached) otherwise; phenotype.hpoa is
+ * only parsed if the values have to be computed.
+ */
+@SuppressWarnings("try")
+@CommandLine.Command(name = "ic",
+        mixinStandardHelpOptions = true,
+        description = "Write the information content of all terms.")
+public class InformationContentCommand extends HPOCommand implements Callable<Integer> {
+
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: stdout)")
+    private String outPath = null;
+
+    @CommandLine.Option(names={"--cache"}, description = "cache file (default: next to the annotation file)")
+    private String cachePath = null;
+
+    @CommandLine.Option(names={"--no-cache"}, description = "compute the information content without reading or writing the cache")
+    private boolean noCache = false;
+
+    private static final String HEADER = String.join("\t", "term_id", "label", "diseases", "ic");
+
+    @Override
+    public Integer call() throws IOException {
+        Ontology ontology;
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            ontology = ResidentResources.ontology(new File(hpopath));
+        }
+        Path annotations = Path.of(annotpath);
+        AncestorClosure closure;
+        try (Profiler.Phase index = Profiler.phase("index")) {
+            closure = AncestorClosure.of(ontology);
+        }
+        InformationContent ic;
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            if (noCache) {
+                ic = InformationContent.compute(closure, loadDiseases(annotations, ontology));
+            } else {
+                Path cache = cachePath == null ? InformationContent.cachePath(annotations) : Path.of(cachePath);
+                ic = InformationContent.load(cache, closure, InformationContent.Version.of(ontology, annotations),
+                        () -> loadDiseases(annotations, ontology));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        try (Profiler.Phase output = Profiler.phase("output")) {
+            if (outPath == null) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                write(ic, writer);
+                writer.flush();
+            } else {
+                try (Writer writer = Files.newBufferedWriter(Path.of(outPath))) {
+                    write(ic, writer);
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static Collection<HpoDisease> loadDiseases(Path annotations, Ontology ontology) {
+        try {
+            return ResidentResources.diseases(annotations, ontology).diseaseById().values();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(InformationContent ic, Writer writer) throws IOException {
+        TermRegistry registry = ic.closure().registry();
+        writer.write(HEADER);
+        writer.write('\n');
+        for (int t = 0; t < registry.size(); t++) {
+            writer.write(registry.termId(t).getValue());
+            writer.write('\t');
+            writer.write(registry.label(t));
+            writer.write('\t');
+            writer.write(Integer.toString(ic.diseaseCount(t)));
+            writer.write('\t');
+            writer.write(String.format(Locale.ROOT, "%.6f", ic.ic(t)));
+            writer.write('\n');
+        }
+    }
+}
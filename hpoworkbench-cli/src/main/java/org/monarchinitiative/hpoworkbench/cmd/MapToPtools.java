@@ -1,6 +1,6 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
 import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -24,7 +24,7 @@ public class MapToPtools extends  HPOCommand implements Callable<Integer> {
         if (hpopath==null) {
             hpopath = this.downloadDirectory + File.separator + "hp.json";
         }
-        Ontology hpo = OntologyLoader.loadOntology(new File(hpopath));
+        Ontology hpo = ResidentResources.ontology(new File(hpopath));
         //HP:0012836
         TermId spatialPattern = TermId.of("HP:0012836");
         Set<TermId> termIdSet = OntologyAlgorithm.getDescendents(hpo, spatialPattern);
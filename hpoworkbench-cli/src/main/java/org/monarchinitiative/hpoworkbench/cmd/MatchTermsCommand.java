@@ -2,7 +2,8 @@ package org.monarchinitiative.hpoworkbench.cmd;
 
 import me.xdrop.fuzzywuzzy.FuzzySearch;
 
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.Term;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -17,6 +18,7 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 
 
+@SuppressWarnings("try")
 @CommandLine.Command(name = "match",
         mixinStandardHelpOptions = true,
         description = "Match HPO terms to a list of candidates.")
@@ -37,9 +39,11 @@ public class MatchTermsCommand extends  HPOCommand implements Callable<Integer>
     @Override
     public Integer call() {
         logger.trace("Processing input file {}", path);
-        initHPOontology();
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            initHPOontology();
+        }
         logger.trace("Got HPO with {} terms", hpo.countAllTerms());
-        try {
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
             String line;
             BufferedReader br = new BufferedReader(new FileReader(path));
             BufferedWriter writer = new BufferedWriter(new FileWriter("mapping.tsv"));
@@ -95,7 +99,7 @@ public class MatchTermsCommand extends  HPOCommand implements Callable<Integer>
         if (hpopath==null) {
             hpopath = this.downloadDirectory + File.separator + "hp.obo";
         }
-        this.hpo = OntologyLoader.loadOntology(new File(this.hpopath));
+        this.hpo = ResidentResources.ontology(new File(this.hpopath));
         labelToTermIdMap = new HashMap<>();
         for (Term term : hpo.getTermMap().values()){
             TermId tid = term.id();
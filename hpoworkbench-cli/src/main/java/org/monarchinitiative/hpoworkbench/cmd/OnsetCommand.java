@@ -8,7 +8,8 @@ import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoader;
 import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
 import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
 import org.monarchinitiative.phenol.base.PhenolRuntimeException;
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
 import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.Term;
@@ -27,6 +28,7 @@ import java.util.concurrent.Callable;
  * #DatabaseID	DiseaseName	Qualifier	HPO_ID	Reference	EvidenceOnset	Frequency	Sex	Modifier	Aspect	Biocuration
  * OMIM:619340	Developmental and epileptic encephalopathy 96		HP:0011097	PMID:31675180	PCS		1/2
  */
+@SuppressWarnings("try")
 public class OnsetCommand extends  HPOCommand implements Callable<Integer> {
     /** Terms such as Polydactyly that have a certain assignment to an age of onset (Congenital is taken
      * here to comprise also antenatal). The map is derived from the file {@code term2onset.txt} in the
@@ -64,11 +66,14 @@ public class OnsetCommand extends  HPOCommand implements Callable<Integer> {
             throw new PhenolRuntimeException("Need to specify annotpath path");
         }
 
-        Ontology ontology = OntologyLoader.loadOntology(new File(hpopath));
-
-        HpoDiseaseLoaderOptions options = HpoDiseaseLoaderOptions.of(Set.of(DiseaseDatabase.OMIM), false, 5);
-        HpoDiseaseLoader loader = HpoDiseaseLoaders.defaultLoader(ontology, options);
-        HpoDiseases diseases = loader.load(Path.of(annotpath));
+        Ontology ontology;
+        HpoDiseases diseases;
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            ontology = ResidentResources.ontology(new File(hpopath));
+            HpoDiseaseLoaderOptions options = HpoDiseaseLoaderOptions.of(Set.of(DiseaseDatabase.OMIM), false, 5);
+            HpoDiseaseLoader loader = HpoDiseaseLoaders.defaultLoader(ontology, options);
+            diseases = loader.load(Path.of(annotpath));
+        }
 
 
 
@@ -89,7 +94,8 @@ public class OnsetCommand extends  HPOCommand implements Callable<Integer> {
             }
         }
         int n_inferred = 0;
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outfilePath))) {
+        try (Profiler.Phase output = Profiler.phase("output");
+             BufferedWriter writer = new BufferedWriter(new FileWriter(outfilePath))) {
             for (HpoDisease disease : congenitalDiseaseSet) {
                 n_inferred++;
                 List<String> fields = new ArrayList<>();
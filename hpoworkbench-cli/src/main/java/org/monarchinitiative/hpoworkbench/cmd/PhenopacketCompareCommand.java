@@ -2,10 +2,12 @@ package org.monarchinitiative.hpoworkbench.cmd;
 
 
 import org.apache.commons.lang3.NotImplementedException;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.analysis.CohortTermIndex;
+import org.monarchinitiative.hpoworkbench.io.PhenopacketLoader;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.phenopackets.schema.v2.Phenopacket;
@@ -13,8 +15,8 @@ import org.phenopackets.schema.v2.core.Disease;
 import picocli.CommandLine;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.Callable;
 
@@ -37,6 +39,11 @@ import static org.apache.commons.math3.stat.inference.TestUtils.chiSquareTest;
  *
  *   and pass --groupA MONDO:0013847 --groupB MONDO:0013848 etc.
  *
+ * The phenopackets are read from the directory and its subdirectories with {@link PhenopacketLoader}, which caches
+ * them per directory. The observed phenotypic features of the packets of both groups are indexed once (see {@link CohortTermIndex}), so
+ * the 2x2 table of each term is counted from the packets of the term rather than by scanning all packets. With
+ * --propagate, a packet counts for a term if it has the term or one of its descendants (requires --hpo).
+ *
  * java -jar target/HPOworkbench.jar  compare
  * --phenopackets
  * /Users/robinp/IdeaProjects/simonsq/TMP
@@ -47,6 +54,7 @@ import static org.apache.commons.math3.stat.inference.TestUtils.chiSquareTest;
  * --groupB MONDO:0013267
  * --hpo <path>/hp.json
  */
+@SuppressWarnings("try")
 @CommandLine.Command(name = "phenopacketCompare",
         mixinStandardHelpOptions = true,
         description = "Compare two groups of patients in a colection of phenopackets")
@@ -68,33 +76,66 @@ public class PhenopacketCompareCommand implements Callable<Integer> {
     @CommandLine.Option(names={"--hpo"}, description = "path to hp.json")
     private String hpoJsonPath = null;
 
+    @CommandLine.Option(names={"--propagate"}, description = "count packets annotated to a descendant of a term for the term (requires --hpo)")
+    private boolean propagate = false;
+
+    @CommandLine.Option(names={"--no-cache"}, description = "parse the phenopackets without reading or writing the cache")
+    private boolean noCache = false;
+
     @Override
     public Integer call() throws Exception {
-        List<File> files = getAllPhenopacketFiles(new File(this.phenopacketDirectory));
-        List<Phenopacket> packets = getPhenopackets(files);
-        List<Phenopacket> packetsA = getGroupA(packets);
-        List<Phenopacket> packetsB = getGroupB(packets);
+        if (propagate && hpoJsonPath == null) {
+            System.err.println("[ERROR] --propagate requires --hpo");
+            return 1;
+        }
+        List<Phenopacket> packets;
         Ontology hpo = null;
-        if (hpoJsonPath != null) {
-            hpo = OntologyLoader.loadOntology(new File(this.hpoJsonPath));
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            packets = getPhenopackets(Path.of(this.phenopacketDirectory), !noCache);
+            if (hpoJsonPath != null) {
+                hpo = ResidentResources.ontology(new File(this.hpoJsonPath));
+            }
+        }
+        List<Phenopacket> packetsA;
+        List<Phenopacket> packetsB;
+        CohortTermIndex termIndex;
+        try (Profiler.Phase index = Profiler.phase("index")) {
+            packetsA = getGroupA(packets);
+            packetsB = getGroupB(packets);
+            // the packets of group A are samples 0..|A|-1, those of group B follow
+            List<List<TermId>> samples = new ArrayList<>(packetsA.size() + packetsB.size());
+            for (Phenopacket packet : packetsA) {
+                samples.add(getObservedHpos(packet));
+            }
+            for (Phenopacket packet : packetsB) {
+                samples.add(getObservedHpos(packet));
+            }
+            termIndex = CohortTermIndex.of(samples, propagate ? AncestorClosure.of(hpo) : null);
         }
         System.out.printf("Group A n=%d, Group B n=%d\n", packetsA.size(), packetsB.size());
-        Set<TermId> allHpoTermIds = getAllHpos(packets);
-        for (TermId hpoId : allHpoTermIds) {
-            long[][] counts = getCounts(hpoId, packetsA, packetsB);
-            double chiSquare = chiSquare(counts);
-            double chiSquareP = chiSquareTest(counts);
-            String hpoOut = hpoId.getValue();
-            if (hpo != null) {
-                Optional<String> labelOpt = hpo.getTermLabel(hpoId);
-                if (labelOpt.isPresent()) {
-                    String label = labelOpt.get();
-                    hpoOut = String.format("%s (%s)", label, hpoOut);
+        if (packetsA.isEmpty() || packetsB.isEmpty()) {
+            System.err.println("[ERROR] No phenopackets for " + (packetsA.isEmpty() ? groupA : groupB));
+            return 1;
+        }
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            for (TermId hpoId : termIndex.terms(propagate)) {
+                long[][] counts = getCounts(hpoId, termIndex, packetsA.size(), packetsB.size());
+                String hpoOut = hpoId.getValue();
+                if (hpo != null) {
+                    Optional<String> labelOpt = hpo.getTermLabel(hpoId);
+                    if (labelOpt.isPresent()) {
+                        String label = labelOpt.get();
+                        hpoOut = String.format("%s (%s)", label, hpoOut);
+                    }
+                }
+                if (!isTestable(counts)) {
+                    System.out.printf("%s: %s --  not testable\n", hpoOut, outputAandB(counts));
+                    continue;
                 }
+                System.out.printf("%s: %s --  chi2 %.2f p-value %e\n",
+                        hpoOut, outputAandB(counts),
+                        chiSquare(counts), chiSquareTest(counts));
             }
-            System.out.printf("%s: %s --  chi2 %.2f p-value %e\n",
-                    hpoOut, outputAandB(counts),
-                    chiSquare, chiSquareP);
         }
         return null;
     }
@@ -117,14 +158,22 @@ public class PhenopacketCompareCommand implements Callable<Integer> {
 
 
 
-    private long[][] getCounts(TermId hpoId, List<Phenopacket> packetsA, List<Phenopacket> packetsB) {
+    /**
+     * @return false if a row or a column of the 2x2 table is empty, e.g. if every packet of both groups has the term
+     * (which is common with {@code --propagate}) or one of the groups has no packets; the chi-squared statistic is
+     * not defined for such a table
+     */
+    private static boolean isTestable(long[][] counts) {
+        return counts[0][0] + counts[0][1] > 0 && counts[1][0] + counts[1][1] > 0
+                && counts[0][0] + counts[1][0] > 0 && counts[0][1] + counts[1][1] > 0;
+    }
+
+    private long[][] getCounts(TermId hpoId, CohortTermIndex termIndex, int groupAtotal, int groupBtotal) {
         long[][]  counts = new long[2][2];
         // need to get counts for group A and B with/without HPO term annotation
-        long groupAtotal = packetsA.size();
-        long groupBtotal = packetsB.size();
-        long groupAannotated = getAnnotatedCount(hpoId, packetsA);
+        long groupAannotated = termIndex.count(hpoId, propagate, 0, groupAtotal);
         long groupAnotAnnotated = groupAtotal - groupAannotated;
-        long groupBannotated = getAnnotatedCount(hpoId, packetsB);
+        long groupBannotated = termIndex.count(hpoId, propagate, groupAtotal, groupAtotal + groupBtotal);
         long groupBnotAnnotated = groupBtotal - groupBannotated;
         counts[0][0] = groupAannotated; // group A with HPO
         counts[0][1] = groupAnotAnnotated; // group A with HPO
@@ -134,31 +183,22 @@ public class PhenopacketCompareCommand implements Callable<Integer> {
         return counts;
     }
 
-    long getAnnotatedCount(TermId hpoId, List<Phenopacket> packets) {
-        long annotated = 0;
-        String idAsString = hpoId.getValue();
-        for (Phenopacket phenopacket: packets) {
-            for (var pf : phenopacket.getPhenotypicFeaturesList()) {
-                String id = pf.getType().getId();
-                if (id.equals(idAsString)) {
-                    annotated++;
-                }
-            }
-        }
-        return annotated;
-    }
-
 
-    Set<TermId> getAllHpos(List<Phenopacket> packets) {
-        Set<TermId> hpoTermSet = new HashSet<>();
-        for (Phenopacket packet : packets) {
-            for (var pf : packet.getPhenotypicFeaturesList()) {
-                String id = pf.getType().getId();
-                TermId hpoId = TermId.of(id);
-                hpoTermSet.add(hpoId);
+    /** @return the ids of the phenotypic features of the packet that were observed (not excluded) */
+    List<TermId> getObservedHpos(Phenopacket packet) {
+        List<TermId> hpoIds = new ArrayList<>();
+        for (var pf : packet.getPhenotypicFeaturesList()) {
+            String id = pf.getType().getId();
+            if (pf.getExcluded() || id.isEmpty()) {
+                continue;
+            }
+            try {
+                hpoIds.add(TermId.of(id));
+            } catch (PhenolRuntimeException e) {
+                System.err.println("[ERROR] Skipping malformed term id " + id + " in " + packet.getId());
             }
         }
-        return hpoTermSet;
+        return hpoIds;
     }
 
 
@@ -194,35 +234,17 @@ public class PhenopacketCompareCommand implements Callable<Integer> {
 
 
 
-    List<Phenopacket> getPhenopackets(List<File> files) {
-        List<Phenopacket> packets = new ArrayList<>();
-        JSONParser parser = new JSONParser();
-        for (File f : files) {
-            try {
-                Object obj = parser.parse(new FileReader(f));
-                JSONObject jsonObject = (JSONObject) obj;
-                String phenopacketJsonString = jsonObject.toJSONString();
-                Phenopacket.Builder phenoPacketBuilder = Phenopacket.newBuilder();
-                com.google.protobuf.util.JsonFormat.parser().merge(phenopacketJsonString, phenoPacketBuilder);
-                Phenopacket v2phenopacket = phenoPacketBuilder.build();
-                packets.add(v2phenopacket);
-            } catch (IOException | ParseException e) {
-                e.printStackTrace();
-            }
-
+    /** @return the packets of the directory (or file); files that cannot be read are reported and skipped */
+    static List<Phenopacket> getPhenopackets(Path path, boolean useCache) throws IOException {
+        PhenopacketLoader.Result result = PhenopacketLoader.load(path, useCache);
+        for (PhenopacketLoader.Failure failure : result.failures()) {
+            System.err.println("[ERROR] Could not read phenopacket " + failure.file() + ": " + failure.message());
         }
-        return packets;
-    }
-
-
-    public List<File> getAllPhenopacketFiles(final File folder) {
-        List<File> files = new ArrayList<>();
-        for (final File fileEntry : folder.listFiles()) {
-            if (fileEntry.getAbsolutePath().endsWith(".json")) {
-                files.add(fileEntry);
-            }
+        List<Phenopacket> packets = new ArrayList<>(result.phenopackets().size());
+        for (PhenopacketLoader.LoadedPhenopacket loaded : result.phenopackets()) {
+            packets.add(loaded.phenopacket());
         }
-        return files;
+        return packets;
     }
 
 
@@ -0,0 +1,154 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.analysis.DiseaseRanker;
+import org.monarchinitiative.hpoworkbench.analysis.InformationContent;
+import org.monarchinitiative.hpoworkbench.io.PhenopacketLoader;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
+import org.monarchinitiative.phenol.base.PhenolRuntimeException;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.phenopackets.schema.v2.Phenopacket;
+import org.phenopackets.schema.v2.core.PhenotypicFeature;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * Rank all diseases of phenotype.hpoa for each phenopacket of a directory by the observed and excluded phenotypic
+ * features of the packet (see {@link DiseaseRanker}), and write the top diseases of each packet as TSV.
+ * <p>
+ * The packets are read from the directory and its subdirectories with {@link PhenopacketLoader}, which caches them
+ * per directory, and ranked in parallel, in batches of {@link #BATCH_SIZE} files; the rankings of a batch are written
+ * in the order of the files before the next batch is read, so large directories do not need much memory.
+ */
+@SuppressWarnings("try")
+@CommandLine.Command(name = "rank",
+        mixinStandardHelpOptions = true,
+        description = "Rank the diseases for each phenopacket of a directory.")
+public class PhenopacketRankCommand extends HPOCommand implements Callable<Integer> {
+
+    @CommandLine.Option(names = {"-p", "--phenopackets"}, required = true, description = "directory with phenopacket JSON files, or one file")
+    private String phenopacketPath;
+
+    @CommandLine.Option(names={"--no-cache"},
+            description = "parse the phenopackets and compute the information content without reading or writing the caches")
+    private boolean noCache = false;
+
+    @CommandLine.Option(names = {"-k", "--top"}, description = "number of diseases per phenopacket (default: ${DEFAULT-VALUE})")
+    private int top = 10;
+
+    @CommandLine.Option(names = {"-o", "--out"}, description = "output file (default: stdout)")
+    private String outPath = null;
+
+    /** Number of packets that are read and ranked together. */
+    private static final int BATCH_SIZE = 256;
+
+    private static final String HEADER = String.join("\t", "phenopacket", "rank", "disease_id", "disease_name", "score");
+
+    /** The top diseases of one phenopacket. */
+    private record PacketRanking(String packetId, List<DiseaseRanker.RankedDisease> diseases) {}
+
+    @Override
+    public Integer call() throws IOException {
+        File packetFile = new File(phenopacketPath);
+        if (!packetFile.exists()) {
+            System.err.println("[ERROR] Could not find phenopackets at " + phenopacketPath);
+            return 1;
+        }
+        if (top <= 0) {
+            System.err.println("[ERROR] --top must be positive");
+            return 1;
+        }
+        Ontology ontology;
+        HpoDiseases diseases;
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            ontology = ResidentResources.ontology(new File(hpopath));
+            diseases = ResidentResources.diseases(Path.of(annotpath), ontology);
+        }
+        DiseaseRanker ranker;
+        try (Profiler.Phase index = Profiler.phase("index")) {
+            AncestorClosure closure = AncestorClosure.of(ontology);
+            Path annotations = Path.of(annotpath);
+            InformationContent ic = noCache
+                    ? InformationContent.compute(closure, diseases.diseaseById().values())
+                    : InformationContent.load(InformationContent.cachePath(annotations), closure,
+                            InformationContent.Version.of(ontology, annotations), () -> diseases.diseaseById().values());
+            ranker = DiseaseRanker.of(ic, diseases.diseaseById().values());
+        }
+        // ranked, failed and cached packets
+        int[] counts = new int[3];
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            if (outPath == null) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                rankAll(ranker, packetFile.toPath(), writer, counts);
+                writer.flush();
+            } else {
+                try (Writer writer = Files.newBufferedWriter(Path.of(outPath))) {
+                    rankAll(ranker, packetFile.toPath(), writer, counts);
+                }
+            }
+        }
+        System.err.printf("[INFO] Ranked %d diseases for %d of %d phenopackets (%d from the cache).%n",
+                ranker.size(), counts[0], counts[0] + counts[1], counts[2]);
+        return 0;
+    }
+
+    /** Read, rank and write the packets one batch at a time, counting the ranked, failed and cached packets. */
+    private void rankAll(DiseaseRanker ranker, Path path, Writer writer, int[] counts) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        PhenopacketLoader.load(path, !noCache, BATCH_SIZE, batch -> {
+            for (PhenopacketLoader.Failure failure : batch.failures()) {
+                System.err.println("[ERROR] Could not read phenopacket " + failure.file() + ": " + failure.message());
+            }
+            List<PacketRanking> rankings = batch.phenopackets().parallelStream()
+                    .map(p -> rank(ranker, p))
+                    .toList();
+            for (PacketRanking ranking : rankings) {
+                write(ranking, writer);
+            }
+            counts[0] += rankings.size();
+            counts[1] += batch.failures().size();
+            counts[2] += batch.cached();
+        });
+    }
+
+    private PacketRanking rank(DiseaseRanker ranker, PhenopacketLoader.LoadedPhenopacket loaded) {
+        Phenopacket packet = loaded.phenopacket();
+        Path file = loaded.file();
+        List<TermId> observed = new ArrayList<>();
+        List<TermId> excluded = new ArrayList<>();
+        for (PhenotypicFeature feature : packet.getPhenotypicFeaturesList()) {
+            String id = feature.getType().getId();
+            if (id.isEmpty()) {
+                continue;
+            }
+            try {
+                (feature.getExcluded() ? excluded : observed).add(TermId.of(id));
+            } catch (PhenolRuntimeException e) {
+                System.err.println("[ERROR] Skipping malformed term id " + id + " in " + file);
+            }
+        }
+        String packetId = packet.getId().isEmpty() ? file.getFileName().toString() : packet.getId();
+        return new PacketRanking(packetId, ranker.rank(observed, excluded, top));
+    }
+
+    private static void write(PacketRanking ranking, Writer writer) throws IOException {
+        int rank = 0;
+        for (DiseaseRanker.RankedDisease d : ranking.diseases()) {
+            writer.write(String.format(Locale.ROOT, "%s\t%d\t%s\t%s\t%.4f", ranking.packetId(), ++rank,
+                    d.disease().id().getValue(), d.disease().diseaseName(), d.score()));
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.analysis.RedundantAnnotations;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+/**
+ * List the diseases that are annotated to a term and to one of its ancestors. Each redundant pair of annotations is
+ * written as one TSV line; a summary is written to stderr.
+ */
+@SuppressWarnings("try")
+@CommandLine.Command(name = "redundant",
+        mixinStandardHelpOptions = true,
+        description = "List diseases that are annotated to a term and to one of its ancestors.")
+public class RedundantAnnotationsCommand extends HPOCommand implements Callable<Integer> {
+
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: stdout)")
+    private String outPath = null;
+
+    private static final String HEADER = String.join("\t", "disease_id", "disease_name",
+            "ancestor_id", "ancestor_label", "descendant_id", "descendant_label");
+
+    @Override
+    public Integer call() throws IOException {
+        Ontology ontology;
+        HpoDiseases diseases;
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            ontology = ResidentResources.ontology(new File(hpopath));
+            diseases = ResidentResources.diseases(Path.of(annotpath), ontology);
+        }
+        AncestorClosure closure;
+        try (Profiler.Phase index = Profiler.phase("index")) {
+            closure = AncestorClosure.of(ontology);
+        }
+        RedundantAnnotations redundant;
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            redundant = RedundantAnnotations.find(closure, diseases.diseaseById().values());
+        }
+        try (Profiler.Phase output = Profiler.phase("output")) {
+            if (outPath == null) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                write(redundant, closure, writer);
+                writer.flush();
+            } else {
+                try (Writer writer = Files.newBufferedWriter(Path.of(outPath))) {
+                    write(redundant, closure, writer);
+                }
+            }
+        }
+        System.err.printf("[INFO] %d of %d diseases have %d redundant annotations.%n", redundant.diseases().size(),
+                diseases.size(), redundant.redundantAnnotationCount());
+        return 0;
+    }
+
+    private static void write(RedundantAnnotations redundant, AncestorClosure closure, Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (RedundantAnnotations.DiseaseRedundancies d : redundant.diseases()) {
+            HpoDisease disease = d.disease();
+            for (RedundantAnnotations.Redundancy r : d.redundancies()) {
+                writer.write(String.join("\t", disease.id().getValue(), disease.diseaseName(),
+                        r.ancestor().getValue(), label(closure, r.ancestor()),
+                        r.descendant().getValue(), label(closure, r.descendant())));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static String label(AncestorClosure closure, TermId termId) {
+        return closure.registry().label(closure.index(termId));
+    }
+}
@@ -0,0 +1,204 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.HpoWorkbench;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load hp.json and phenotype.hpoa once and keep them resident while executing commands that are sent by the
+ * {@code client} command, e.g.
+ * <pre>
+ *   java -jar hpoworkbench-cli.jar serve --hpo data/hp.json -a data/phenotype.hpoa --socket /tmp/hpowb.sock &amp;
+ *   java -jar hpoworkbench-cli.jar client --socket /tmp/hpowb.sock countfreq -t HP:0001626
+ * </pre>
+ * Each request runs with fresh command objects, so options do not leak from one request into the next. Ontologies and
+ * annotations are cached by {@link ResidentResources} and reloaded only if the file changes. Because the output of
+ * a command is captured by replacing {@link System#out} and {@link System#err}, requests are executed one at a time.
+ * A client that does not send its complete request within {@link #REQUEST_TIMEOUT_MILLIS} ms is disconnected, so that
+ * a stalled connection does not block the server. Relative paths in the arguments are resolved against the working directory of the server.
+ * <p>
+ * The server runs commands with the permissions of its user, so it only accepts requests with the random token that it
+ * writes to a file only its user can read (see {@link WorkbenchSocket}); the client reads the token from the same file.
+ */
+@CommandLine.Command(name = "serve",
+        mixinStandardHelpOptions = true,
+        description = {"Keep HPO data loaded and run commands sent by the client command.",
+                "Requests must carry the token that is written to the token file (readable only by the current user) at startup."})
+public class ServeCommand extends HPOCommand implements Callable<Integer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServeCommand.class);
+    /** Commands that cannot be run by the server. */
+    private static final Set<String> LOCAL_ONLY = Set.of("serve", "client");
+    /** Time a client has to send its request before the connection is closed. */
+    static final long REQUEST_TIMEOUT_MILLIS = 10_000;
+
+    @CommandLine.Option(names = {"--socket"}, description = "path of a Unix-domain socket to listen on (default: TCP on the loopback interface)")
+    private String socketPath = null;
+
+    @CommandLine.Option(names = {"--port"}, description = "port on the loopback interface (default: ${DEFAULT-VALUE})")
+    private int port = WorkbenchSocket.DEFAULT_PORT;
+
+    @CommandLine.Option(names = {"--token-file"}, description = "file the access token is written to (default: next to the socket, or ~/.hpoworkbench/serve-<port>.token)")
+    private String tokenFile = null;
+
+    /** Token that every request must start with. */
+    private String token;
+
+    /** Time a client has to send its request; package-private so that tests do not have to wait for the default. */
+    long requestTimeoutMillis = REQUEST_TIMEOUT_MILLIS;
+
+    /** Closes connections whose request has not been read within {@link #requestTimeoutMillis}. */
+    private final ScheduledExecutorService requestTimeout = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "serve-request-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public Integer call() throws IOException {
+        ResidentResources.enable();
+        preload();
+        SocketAddress address = WorkbenchSocket.address(socketPath, port);
+        if (address instanceof UnixDomainSocketAddress unix) {
+            // a socket file left over by a server that was killed
+            Files.deleteIfExists(unix.getPath());
+        }
+        Path tokenPath = WorkbenchSocket.tokenPath(tokenFile, socketPath, port);
+        token = WorkbenchSocket.writeNewToken(tokenPath);
+        try (ServerSocketChannel server = WorkbenchSocket.bind(address)) {
+            Path socketFile = address instanceof UnixDomainSocketAddress unix ? unix.getPath() : null;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(tokenPath);
+                    if (socketFile != null) {
+                        Files.deleteIfExists(socketFile);
+                    }
+                } catch (IOException e) {
+                    // nothing we can do while shutting down
+                }
+            }));
+            System.out.println("[INFO] HPO Workbench listening on " + address);
+            System.out.println("[INFO] Access token written to " + tokenPath);
+            while (true) {
+                try (SocketChannel channel = server.accept()) {
+                    handle(channel);
+                } catch (AsynchronousCloseException e) {
+                    // closed by the request timeout, which logs it
+                } catch (IOException e) {
+                    LOGGER.warn("Request failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Load the resources that were passed to the serve command so that the first request is fast as well. */
+    private void preload() {
+        File hpJson = new File(hpopath);
+        if (!hpJson.isFile()) {
+            LOGGER.warn("Not preloading ontology, could not find {}", hpopath);
+            return;
+        }
+        Ontology ontology = ResidentResources.ontology(hpJson);
+        System.out.println("[INFO] Loaded " + hpopath);
+        Path hpoa = Path.of(annotpath);
+        if (!Files.isRegularFile(hpoa)) {
+            LOGGER.warn("Not preloading annotations, could not find {}", annotpath);
+            return;
+        }
+        try {
+            ResidentResources.diseases(hpoa, ontology);
+            System.out.println("[INFO] Loaded " + annotpath);
+        } catch (IOException e) {
+            LOGGER.warn("Could not preload annotations from {}: {}", annotpath, e.getMessage());
+        }
+    }
+
+    private void handle(SocketChannel channel) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        List<String> request;
+        ScheduledFuture<?> deadline = requestTimeout.schedule(() -> closeStalled(channel),
+                requestTimeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            if (!WorkbenchSocket.tokenMatches(token, WorkbenchSocket.readRequestToken(in))) {
+                LOGGER.warn("Rejected a request with a wrong token");
+                new WorkbenchSocket.FrameOutputStream(out, WorkbenchSocket.STDERR)
+                        .write("[ERROR] Wrong access token, see the token file of the server\n".getBytes(StandardCharsets.UTF_8));
+                WorkbenchSocket.writeExit(out, 1);
+                return;
+            }
+            request = WorkbenchSocket.readRequest(in);
+        } finally {
+            deadline.cancel(false);
+        }
+        if (!channel.isOpen()) {
+            // the timeout fired just as the request was complete
+            return;
+        }
+        String clientDirectory = request.get(0);
+        String[] args = request.subList(1, request.size()).toArray(new String[0]);
+        LOGGER.info("Running {}", String.join(" ", args));
+        PrintStream stdout = new PrintStream(new BufferedOutputStream(
+                new WorkbenchSocket.FrameOutputStream(out, WorkbenchSocket.STDOUT), 1 << 16), false, StandardCharsets.UTF_8);
+        PrintStream stderr = new PrintStream(new BufferedOutputStream(
+                new WorkbenchSocket.FrameOutputStream(out, WorkbenchSocket.STDERR), 1 << 12), true, StandardCharsets.UTF_8);
+        int exitCode;
+        if (!Path.of(clientDirectory).equals(Path.of("").toAbsolutePath())) {
+            stderr.printf("[WARN] Relative paths are resolved against the server directory %s%n", Path.of("").toAbsolutePath());
+        }
+        if (args.length > 0 && LOCAL_ONLY.contains(args[0])) {
+            stderr.printf("[ERROR] The %s command cannot be run by the server%n", args[0]);
+            exitCode = 1;
+        } else {
+            exitCode = execute(args, stdout, stderr);
+        }
+        stdout.flush();
+        stderr.flush();
+        WorkbenchSocket.writeExit(out, exitCode);
+    }
+
+    private void closeStalled(SocketChannel channel) {
+        LOGGER.warn("Closing a connection that did not send its request within {} ms", requestTimeoutMillis);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close stalled connection: {}", e.getMessage());
+        }
+    }
+
+    private static int execute(String[] args, PrintStream stdout, PrintStream stderr) {
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        System.setOut(stdout);
+        System.setErr(stderr);
+        try {
+            CommandLine cline = HpoWorkbench.commandLine();
+            cline.setOut(new PrintWriter(stdout, true));
+            cline.setErr(new PrintWriter(stderr, true));
+            return cline.execute(args);
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.analysis.StatsSnapshot;
+import org.monarchinitiative.hpoworkbench.analysis.StatsSnapshotDiff;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Compare the statistics snapshots of two releases that were written with {@code stats --snapshot}. The report lists
+ * the changes of the totals, the new and obsolete terms, and the changes of each branch below the branch root.
+ */
+@SuppressWarnings("try")
+@CommandLine.Command(name = "statsdiff",
+        mixinStandardHelpOptions = true,
+        description = "Compare the statistics snapshots of two releases.")
+public class StatsDiffCommand implements Callable<Integer> {
+
+    @CommandLine.Parameters(index = "0", paramLabel = "OLD", description = "snapshot of the older release")
+    private String beforePath;
+
+    @CommandLine.Parameters(index = "1", paramLabel = "NEW", description = "snapshot of the newer release")
+    private String afterPath;
+
+    @CommandLine.Option(names={"--root"}, description = "report the children of this term as branches (default: ${DEFAULT-VALUE})")
+    private String branchRoot = "HP:0000118";
+
+    @CommandLine.Option(names={"-o","--out"}, description = "file for the report (default: stdout)")
+    private String outPath = null;
+
+    private static final StatsSnapshot.Count[] COUNTS = StatsSnapshot.Count.values();
+
+    @Override
+    public Integer call() throws IOException {
+        StatsSnapshot before;
+        StatsSnapshot after;
+        try (Profiler.Phase load = Profiler.phase("load")) {
+            before = StatsSnapshot.read(Path.of(beforePath));
+            after = StatsSnapshot.read(Path.of(afterPath));
+        }
+        StatsSnapshotDiff diff;
+        try (Profiler.Phase compute = Profiler.phase("compute")) {
+            diff = StatsSnapshotDiff.of(before, after, TermId.of(branchRoot));
+        }
+        try (Profiler.Phase output = Profiler.phase("output")) {
+            if (outPath == null) {
+                PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+                writeReport(diff, writer);
+                writer.flush();
+            } else {
+                try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(outPath)))) {
+                    writeReport(diff, writer);
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static void writeReport(StatsSnapshotDiff diff, PrintWriter writer) {
+        writer.printf("HPO statistics: %s -> %s%n", release(diff.before()), release(diff.after()));
+        writer.println();
+        writer.printf("Totals (%s)%n", StatsSnapshotDiff.HPO_ROOT.getValue());
+        writer.println("count\told\tnew\tdelta");
+        StatsSnapshotDiff.TermDelta totals = diff.totals();
+        for (StatsSnapshot.Count c : COUNTS) {
+            writer.printf("%s\t%d\t%d\t%+d%n", c.header(), totals.before(c), totals.after(c), totals.delta(c));
+        }
+        writeTerms(writer, "New terms", diff.newTerms());
+        writeTerms(writer, "Obsolete terms", diff.obsoleteTerms());
+        writer.println();
+        writer.printf("Branches below %s (new count and delta)%n", diff.branchRoot().getValue());
+        writer.print("term_id\tlabel");
+        for (StatsSnapshot.Count c : COUNTS) {
+            writer.print('\t');
+            writer.print(c.header());
+        }
+        writer.println();
+        for (StatsSnapshotDiff.TermDelta branch : diff.branches()) {
+            writer.print(branch.termId().getValue());
+            writer.print('\t');
+            writer.print(branch.label());
+            for (StatsSnapshot.Count c : COUNTS) {
+                writer.printf("\t%d (%+d)", branch.after(c), branch.delta(c));
+            }
+            writer.println();
+        }
+    }
+
+    private static void writeTerms(PrintWriter writer, String title, List<StatsSnapshotDiff.TermDelta> terms) {
+        writer.println();
+        writer.printf("%s: %d%n", title, terms.size());
+        for (StatsSnapshotDiff.TermDelta term : terms) {
+            writer.printf("%s\t%s%n", term.termId().getValue(), term.label());
+        }
+    }
+
+    private static String release(StatsSnapshot snapshot) {
+        String release = snapshot.metadata().getOrDefault(StatsSnapshot.HPO_RELEASE, "");
+        String annotations = snapshot.metadata().getOrDefault(StatsSnapshot.ANNOTATIONS, "");
+        return String.format("%s (%s)", release.isEmpty() ? "unknown release" : release, annotations);
+    }
+}
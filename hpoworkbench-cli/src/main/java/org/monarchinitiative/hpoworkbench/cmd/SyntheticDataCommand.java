@@ -0,0 +1,69 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.profile.Profiler;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+/**
+ * Writes a synthetic hp.json and phenotype.hpoa of a given size, which can then be used with the other commands
+ * (e.g. {@code countfreq -d <outdir> --hpo hp.json -a phenotype.hpoa}) to see how they scale. The command is not
+ * shown in the help because it is only meant for testing.
+ */
+@SuppressWarnings("try")
+@CommandLine.Command(name = "synthetic",
+        hidden = true,
+        mixinStandardHelpOptions = true,
+        description = "Write a synthetic hp.json and phenotype.hpoa for scale testing.")
+public class SyntheticDataCommand implements Callable<Integer> {
+
+    @CommandLine.Option(names = {"-o", "--outdir"}, description = "output directory (default: ${DEFAULT-VALUE})")
+    private String outdir = "synthetic";
+
+    @CommandLine.Option(names = {"--terms"}, description = "number of terms below Phenotypic abnormality (default: ${DEFAULT-VALUE})")
+    private int terms = 16_000;
+
+    @CommandLine.Option(names = {"--branching"}, description = "number of children of each term (default: ${DEFAULT-VALUE})")
+    private int branching = 6;
+
+    @CommandLine.Option(names = {"--multi-parent"}, description = "fraction of terms with a second parent (default: ${DEFAULT-VALUE})")
+    private double multiParentRatio = 0.1;
+
+    @CommandLine.Option(names = {"--diseases"}, description = "number of diseases (default: ${DEFAULT-VALUE})")
+    private int diseases = 12_000;
+
+    @CommandLine.Option(names = {"--annotations"}, description = "phenotypic annotations per disease (default: ${DEFAULT-VALUE})")
+    private int annotationsPerDisease = 20;
+
+    @CommandLine.Option(names = {"--seed"}, description = "seed of the random numbers (default: ${DEFAULT-VALUE})")
+    private long seed = 42L;
+
+    @Override
+    public Integer call() throws IOException {
+        SyntheticHpoGenerator generator;
+        try {
+            generator = new SyntheticHpoGenerator.Builder()
+                    .terms(terms)
+                    .branching(branching)
+                    .multiParentRatio(multiParentRatio)
+                    .diseases(diseases)
+                    .annotationsPerDisease(annotationsPerDisease)
+                    .seed(seed)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ERROR] " + e.getMessage());
+            return 1;
+        }
+        Path directory = Path.of(outdir);
+        try (Profiler.Phase output = Profiler.phase("output")) {
+            generator.write(directory);
+        }
+        System.out.printf("[INFO] Wrote %d terms and %d diseases to %s and %s.%n", generator.termCount(),
+                generator.diseaseCount(), directory.resolve(SyntheticHpoGenerator.HP_JSON),
+                directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA));
+        return 0;
+    }
+}
@@ -0,0 +1,208 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Wire format shared by the {@code serve} and {@code client} commands. The connection is either a Unix-domain socket
+ * or a TCP socket on the loopback interface.
+ * <p>
+ * Any local process can connect to the socket, so the server only accepts requests that start with a random token.
+ * The server writes the token to a file that only its user can read ({@link #tokenPath}), and the client reads it
+ * from there. After the token, the client sends its working directory and the command line arguments as UTF strings,
+ * preceded by the number of arguments. The server answers with a sequence of frames; each frame starts with a one byte stream id. Output
+ * frames ({@link #STDOUT}, {@link #STDERR}) are followed by the length and the bytes of the output, the final
+ * {@link #EXIT} frame is followed by the exit code of the command.
+ */
+final class WorkbenchSocket {
+    static final int DEFAULT_PORT = 7077;
+
+    static final byte EXIT = 0;
+    static final byte STDOUT = 1;
+    static final byte STDERR = 2;
+
+    private WorkbenchSocket() {
+    }
+
+    /**
+     * @param tokenFile path given with {@code --token-file}, or {@code null} for the default
+     * @return the token file of the server: next to the Unix-domain socket, or in {@code ~/.hpoworkbench} for TCP
+     */
+    static Path tokenPath(String tokenFile, String socketPath, int port) {
+        if (tokenFile != null) {
+            return Path.of(tokenFile);
+        }
+        if (socketPath != null) {
+            return Path.of(socketPath + ".token");
+        }
+        return Path.of(System.getProperty("user.home"), ".hpoworkbench", "serve-" + port + ".token");
+    }
+
+    /**
+     * Create a new random token and write it to a file that only the current user can read and write.
+     *
+     * @return the token
+     */
+    static String writeNewToken(Path tokenFile) throws IOException {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        String token = HexFormat.of().formatHex(bytes);
+        Path parent = tokenFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Files.deleteIfExists(tokenFile);
+        try {
+            // created with the restricted permissions, so the token is never readable by others
+            Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system; the file gets the default permissions of the user's directory
+            Files.createFile(tokenFile);
+        }
+        Files.writeString(tokenFile, token, StandardCharsets.US_ASCII);
+        return token;
+    }
+
+    static String readToken(Path tokenFile) throws IOException {
+        return Files.readString(tokenFile, StandardCharsets.US_ASCII).trim();
+    }
+
+    /** @return true if the tokens are equal, compared in constant time */
+    static boolean tokenMatches(String expected, String actual) {
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII), actual.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param socketPath path of a Unix-domain socket, or {@code null} to use TCP
+     * @param port port on the loopback interface, only used if {@code socketPath} is {@code null}
+     */
+    static SocketAddress address(String socketPath, int port) {
+        if (socketPath != null) {
+            return UnixDomainSocketAddress.of(Path.of(socketPath));
+        }
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    static ServerSocketChannel bind(SocketAddress address) throws IOException {
+        ServerSocketChannel server = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        server.bind(address);
+        return server;
+    }
+
+    static SocketChannel connect(SocketAddress address) throws IOException {
+        return SocketChannel.open(address);
+    }
+
+    static void writeRequest(DataOutputStream out, String token, String workingDirectory, List<String> args) throws IOException {
+        out.writeUTF(token);
+        out.writeUTF(workingDirectory);
+        out.writeInt(args.size());
+        for (String arg : args) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+    }
+
+    /** @return the token of the request, which must be checked before the rest of the request is read */
+    static String readRequestToken(DataInputStream in) throws IOException {
+        return in.readUTF();
+    }
+
+    /** @return the working directory of the client followed by the arguments */
+    static List<String> readRequest(DataInputStream in) throws IOException {
+        List<String> request = new ArrayList<>();
+        request.add(in.readUTF());
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            request.add(in.readUTF());
+        }
+        return request;
+    }
+
+    static void writeExit(DataOutputStream out, int exitCode) throws IOException {
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    /**
+     * Read frames until the exit frame, copying the output to {@code stdout} and {@code stderr}.
+     *
+     * @return the exit code of the command
+     */
+    static int readResponse(DataInputStream in, OutputStream stdout, OutputStream stderr) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (true) {
+            byte stream = in.readByte();
+            if (stream == EXIT) {
+                stdout.flush();
+                stderr.flush();
+                return in.readInt();
+            }
+            OutputStream target = stream == STDERR ? stderr : stdout;
+            int remaining = in.readInt();
+            while (remaining > 0) {
+                int n = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    throw new EOFException("Connection closed in the middle of a frame");
+                }
+                target.write(buffer, 0, n);
+                remaining -= n;
+            }
+            target.flush();
+        }
+    }
+
+    /** Writes everything as frames of one stream. */
+    static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte stream;
+
+        FrameOutputStream(DataOutputStream out, byte stream) {
+            this.out = out;
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            // stdout and stderr frames share the connection
+            synchronized (out) {
+                out.writeByte(stream);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
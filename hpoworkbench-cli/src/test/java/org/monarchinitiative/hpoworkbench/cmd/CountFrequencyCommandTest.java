@@ -0,0 +1,193 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.HpoWorkbench;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@code countfreq} on the six-term synthetic ontology: T0 and T1 are the children of Phenotypic abnormality, T2 and
+ * T3 the children of T0, and T4 and T5 the children of both T1 and T0. T4 has two annotations, and T0 to T3 and T5
+ * one each.
+ */
+public class CountFrequencyCommandTest {
+
+    private static final String T0 = SyntheticHpoGenerator.termId(0);
+    private static final String T1 = SyntheticHpoGenerator.termId(1);
+    private static final String T2 = SyntheticHpoGenerator.termId(2);
+    private static final String T3 = SyntheticHpoGenerator.termId(3);
+    private static final String T4 = SyntheticHpoGenerator.termId(4);
+    private static final String T5 = SyntheticHpoGenerator.termId(5);
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        new SyntheticHpoGenerator.Builder().terms(6).branching(2).multiParentRatio(1.0).diseases(0).build()
+                .writeOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON));
+        Files.writeString(directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA), "#version: 2022-06-11\n"
+                + line("OMIM:100001", T4) + line("OMIM:100001", T2)
+                + line("OMIM:100002", T4) + line("OMIM:100002", T5)
+                + line("OMIM:100003", T1) + line("OMIM:100003", T3)
+                + line("OMIM:100004", T0),
+                StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testAllTerms() throws IOException {
+        List<String> lines = countfreq("--all");
+        assertEquals("term_id\tlabel\tdirect\tdirect_weighted\tpropagated\tpropagated_weighted", lines.get(0));
+        // the eight top-level terms of the generator and T0 to T5
+        assertEquals(1 + 14, lines.size());
+        List<List<String>> counts = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split("\t");
+            counts.add(List.of(fields[0], fields[1], fields[2], fields[4]));
+        }
+        assertTrue(counts.contains(List.of("HP:0000118", "Phenotypic abnormality", "0", "7")));
+        assertTrue(counts.contains(List.of(T0, "Abnormality of organ system 0", "1", "6")));
+        assertTrue(counts.contains(List.of(T4, "Synthetic phenotype 4", "2", "2")));
+    }
+
+    /**
+     * The terms with most direct annotations of each branch below Phenotypic abnormality, i.e. among the descendants
+     * of T0 and of T1. T4 is in both branches, and the ties of one annotation are broken by term id.
+     */
+    @Test
+    public void testTopTermsPerBranch() throws IOException {
+        assertEquals(List.of(
+                        List.of(T0, T4, "2", "2"),
+                        List.of(T1, T4, "2", "2")),
+                topTerms(countfreq("--all", "--top", "1")));
+        assertEquals(List.of(
+                        List.of(T0, T4, "2", "2"),
+                        List.of(T0, T0, "1", "6"),
+                        List.of(T1, T4, "2", "2"),
+                        List.of(T1, T1, "1", "4")),
+                topTerms(countfreq("--all", "--top", "2")));
+        // below T0, every branch is a single term
+        assertEquals(List.of(
+                        List.of(T2, T2, "1", "1"),
+                        List.of(T3, T3, "1", "1"),
+                        List.of(T4, T4, "2", "2"),
+                        List.of(T5, T5, "1", "1")),
+                topTerms(countfreq("--all", "--top", "3", "--root", T0)));
+    }
+
+    /**
+     * Count a file and a directory with two more files side by side. The columns are in the order of the arguments,
+     * with the files of the directory sorted by name, and only the terms with an annotation in any file are written.
+     */
+    @Test
+    public void testFileMatrix() throws IOException {
+        Path single = writeHpoa(directory.resolve("single.hpoa"), line("OMIM:1", T4) + line("OMIM:1", T2));
+        Path dir = Files.createDirectory(directory.resolve("dir"));
+        Path b = writeHpoa(dir.resolve("b.hpoa"), line("OMIM:4", T0));
+        Path a = writeHpoa(dir.resolve("a.hpoa"), line("OMIM:2", T4) + line("OMIM:3", T5));
+        Files.writeString(dir.resolve("notes.txt"), "not an annotation file\n");
+
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        List<String> lines = withStderr(stderr, () -> countfreq("--files", single.toString(), dir.toString()));
+        assertEquals(List.of(
+                String.join("\t", "term_id", "label", single.toString(), a.toString(), b.toString()),
+                String.join("\t", T0, "Abnormality of organ system 0", "0", "0", "1"),
+                String.join("\t", T2, "Synthetic phenotype 2", "1", "0", "0"),
+                String.join("\t", T4, "Synthetic phenotype 4", "1", "1", "0"),
+                String.join("\t", T5, "Synthetic phenotype 5", "0", "1", "0")), lines);
+        String summary = stderr.toString(StandardCharsets.UTF_8);
+        assertTrue(summary.contains("[INFO] " + single + ": 1 diseases, 2 annotations, 2 annotated terms"), summary);
+        assertTrue(summary.contains("[INFO] " + a + ": 2 diseases, 2 annotations, 2 annotated terms"), summary);
+        assertTrue(summary.contains("[INFO] " + b + ": 1 diseases, 1 annotations, 1 annotated terms"), summary);
+
+        assertEquals(List.of(
+                String.join("\t", "term_id", "label", single.toString(), a.toString(), b.toString()),
+                String.join("\t", "HP:0000001", "All", "2", "2", "1"),
+                String.join("\t", "HP:0000118", "Phenotypic abnormality", "2", "2", "1"),
+                String.join("\t", T0, "Abnormality of organ system 0", "2", "2", "1"),
+                String.join("\t", T1, "Abnormality of organ system 1", "1", "2", "0"),
+                String.join("\t", T2, "Synthetic phenotype 2", "1", "0", "0"),
+                String.join("\t", T4, "Synthetic phenotype 4", "1", "1", "0"),
+                String.join("\t", T5, "Synthetic phenotype 5", "0", "1", "0")),
+                countfreq("--propagated", "--files", single.toString(), dir.toString()));
+
+        // with -t, only the descendants of the term
+        assertEquals(List.of(
+                String.join("\t", "term_id", "label", single.toString(), a.toString(), b.toString()),
+                String.join("\t", T1, "Abnormality of organ system 1", "1", "2", "0"),
+                String.join("\t", T4, "Synthetic phenotype 4", "1", "1", "0"),
+                String.join("\t", T5, "Synthetic phenotype 5", "0", "1", "0")),
+                countfreq("--propagated", "-t", T1, "--files", single.toString(), dir.toString()));
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        Path out = directory.resolve("countfreq.tsv");
+        assertEquals(1, HpoWorkbench.commandLine().execute("countfreq", "-d", directory.toString(),
+                "--hpo", SyntheticHpoGenerator.HP_JSON, "-o", out.toString(),
+                "--files", directory.resolve("missing.hpoa").toString()));
+        Path empty = Files.createDirectory(directory.resolve("empty"));
+        assertEquals(1, HpoWorkbench.commandLine().execute("countfreq", "-d", directory.toString(),
+                "--hpo", SyntheticHpoGenerator.HP_JSON, "-o", out.toString(), "--files", empty.toString()));
+        assertFalse(Files.exists(out));
+    }
+
+    private interface Command {
+        List<String> run() throws IOException;
+    }
+
+    /** @return the result of the command, with the standard error written to {@code stderr} */
+    private static List<String> withStderr(ByteArrayOutputStream stderr, Command command) throws IOException {
+        PrintStream originalErr = System.err;
+        System.setErr(new PrintStream(stderr, true, StandardCharsets.UTF_8));
+        try {
+            return command.run();
+        } finally {
+            System.err.flush();
+            System.setErr(originalErr);
+        }
+    }
+
+    private static Path writeHpoa(Path path, String lines) throws IOException {
+        return Files.writeString(path, "#version: 2022-06-11\n" + lines, StandardCharsets.UTF_8);
+    }
+
+    /** @return branch, term, direct and propagated count of each line */
+    private static List<List<String>> topTerms(List<String> lines) {
+        assertEquals("branch_id\tterm_id\tlabel\tdirect\tdirect_weighted\tpropagated\tpropagated_weighted",
+                lines.get(0));
+        List<List<String>> terms = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split("\t");
+            terms.add(List.of(fields[0], fields[1], fields[3], fields[5]));
+        }
+        return terms;
+    }
+
+    /** @return the lines written by {@code countfreq} with the options */
+    private List<String> countfreq(String... options) throws IOException {
+        Path out = directory.resolve("countfreq.tsv");
+        List<String> args = new ArrayList<>(List.of("countfreq", "-d", directory.toString(),
+                "--hpo", SyntheticHpoGenerator.HP_JSON, "-a", SyntheticHpoGenerator.PHENOTYPE_HPOA, "-o", out.toString()));
+        args.addAll(List.of(options));
+        assertEquals(0, HpoWorkbench.commandLine().execute(args.toArray(new String[0])));
+        return Files.readAllLines(out);
+    }
+
+    private static String line(String diseaseId, String termId) {
+        return String.join("\t", diseaseId, "Disease " + diseaseId, "", termId, diseaseId, "IEA", "", "", "", "",
+                "P", "HPO:probinson[2022-06-11]") + "\n";
+    }
+}
@@ -0,0 +1,110 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.HpoWorkbench;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The matches of {@code best} on the six-term synthetic ontology: T0 and T1 are the children of Phenotypic
+ * abnormality, T2 and T3 the children of T0, and T4 and T5 the children of both T1 and T0. The source diseases share
+ * T2, T1 and Phenotypic abnormality, and the target disease is annotated to T2, T0, T4 and T3.
+ */
+public class HpoBestMatchCommandTest {
+
+    private static final String PHENOTYPIC_ABNORMALITY = "HP:0000118";
+    private static final String T0 = SyntheticHpoGenerator.termId(0);
+    private static final String T1 = SyntheticHpoGenerator.termId(1);
+    private static final String T2 = SyntheticHpoGenerator.termId(2);
+    private static final String T3 = SyntheticHpoGenerator.termId(3);
+    private static final String T4 = SyntheticHpoGenerator.termId(4);
+    private static final String T5 = SyntheticHpoGenerator.termId(5);
+
+    private static final String HEADER = "disease_id\tdisease_name\tterm_id\tterm_label\tsource_term_id\t"
+            + "source_term_label\trelation\thops";
+    /** T2 is a source term. */
+    private static final String EXACT = match(T2, "Synthetic phenotype 2", T2, "Synthetic phenotype 2", "exact", 0);
+    /** T2 is below T0, and the source term above it is not used. */
+    private static final String ANCESTOR = match(T0, "Abnormality of organ system 0", T2, "Synthetic phenotype 2",
+            "ancestor", 1);
+    /** Nothing is below T4, so the match falls back to its parent T1. */
+    private static final String DESCENDANT = match(T4, "Synthetic phenotype 4", T1, "Abnormality of organ system 1",
+            "descendant", 1);
+    /** The parent T0 of T3 is not a source term, its grandparent is. */
+    private static final String DESCENDANT_2 = match(T3, "Synthetic phenotype 3", PHENOTYPIC_ABNORMALITY,
+            "Phenotypic abnormality", "descendant", 2);
+
+    @TempDir
+    Path directory;
+
+    private Path hpJson;
+    private Path phenotypeHpoa;
+    private Path targets;
+    private Path sources;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        hpJson = directory.resolve(SyntheticHpoGenerator.HP_JSON);
+        new SyntheticHpoGenerator.Builder().terms(6).branching(2).multiParentRatio(1.0).diseases(0).build()
+                .writeOntology(hpJson);
+        phenotypeHpoa = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        Files.writeString(phenotypeHpoa, "#version: 2022-06-11\n"
+                + line("OMIM:100001", T2) + line("OMIM:100001", T0) + line("OMIM:100001", T4) + line("OMIM:100001", T3)
+                + line("OMIM:200001", T2) + line("OMIM:200001", T1) + line("OMIM:200001", PHENOTYPIC_ABNORMALITY)
+                + line("OMIM:200002", T2) + line("OMIM:200002", T1) + line("OMIM:200002", PHENOTYPIC_ABNORMALITY)
+                // T5 is in only one source disease, below --minhits
+                + line("OMIM:200002", T5),
+                StandardCharsets.UTF_8);
+        targets = Files.writeString(directory.resolve("targets.txt"), "OMIM:100001\n");
+        sources = Files.writeString(directory.resolve("sources.txt"), "OMIM:200001\nOMIM:200002\n");
+    }
+
+    @Test
+    public void testMatchesFallBackFromAncestorToDescendant() throws IOException {
+        assertEquals(Set.of(EXACT, ANCESTOR, DESCENDANT, DESCENDANT_2), best("--hops", "2"));
+    }
+
+    /** The grandparent of T3 is out of reach with one hop, and with no hops only the exact match remains. */
+    @Test
+    public void testHops() throws IOException {
+        assertEquals(Set.of(EXACT, ANCESTOR, DESCENDANT), best("--hops", "1"));
+        assertEquals(Set.of(EXACT), best("--hops", "0"));
+    }
+
+    /** @return the matches written by {@code best} with the options */
+    private Set<String> best(String... options) throws IOException {
+        Path out = directory.resolve("best.tsv");
+        List<String> args = new ArrayList<>(List.of("best", "--hpo", hpJson.toString(),
+                "-a", phenotypeHpoa.toString(), "--target", targets.toString(), "--source", sources.toString(),
+                "-o", out.toString()));
+        args.addAll(List.of(options));
+        assertEquals(0, HpoWorkbench.commandLine().execute(args.toArray(new String[0])));
+        List<String> lines = Files.readAllLines(out);
+        assertEquals(HEADER, lines.get(0));
+        Set<String> matches = Set.copyOf(lines.subList(1, lines.size()));
+        assertEquals(lines.size() - 1, matches.size(), "duplicate matches");
+        return matches;
+    }
+
+    private static String match(String termId, String label, String sourceTermId, String sourceLabel,
+                                String relation, int hops) {
+        return String.join("\t", "OMIM:100001", "Disease OMIM:100001", termId, label, sourceTermId, sourceLabel,
+                relation, Integer.toString(hops));
+    }
+
+    private static String line(String diseaseId, String termId) {
+        return String.join("\t", diseaseId, "Disease " + diseaseId, "", termId, diseaseId, "IEA", "", "", "", "",
+                "P", "HPO:probinson[2022-06-11]") + "\n";
+    }
+}
@@ -0,0 +1,172 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.HpoWorkbench;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@code stats} on the six-term synthetic ontology: T0 and T1 are the children of Phenotypic abnormality, T2 and T3
+ * the children of T0, and T4 and T5 the children of both T1 and T0. Two OMIM diseases are annotated below both T0 and
+ * T1, the ORPHA disease to T3 and T1, and the DECIPHER disease to T1 only. The definitions and synonyms of the
+ * generated terms are random, so their expected counts are taken from the written ontology.
+ */
+public class HpoStatsCommandTest {
+
+    private static final String PHENOTYPIC_ABNORMALITY = "HP:0000118";
+    private static final String T0 = SyntheticHpoGenerator.termId(0);
+    private static final String T1 = SyntheticHpoGenerator.termId(1);
+    private static final String T2 = SyntheticHpoGenerator.termId(2);
+    private static final String T3 = SyntheticHpoGenerator.termId(3);
+    private static final String T4 = SyntheticHpoGenerator.termId(4);
+    private static final String T5 = SyntheticHpoGenerator.termId(5);
+
+    private static final String HEADER = "term_id\tlabel\tterms\tdefinitions\tsynonyms\tomim_diseases\t"
+            + "omim_annotations\torpha_diseases\torpha_annotations\tdecipher_diseases\tdecipher_annotations";
+    private static final String SEPARATOR = "##########################################";
+
+    @TempDir
+    Path directory;
+
+    private Path hpJson;
+    private Path phenotypeHpoa;
+    private String json;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        hpJson = directory.resolve(SyntheticHpoGenerator.HP_JSON);
+        new SyntheticHpoGenerator.Builder().terms(6).branching(2).multiParentRatio(1.0).diseases(0).build()
+                .writeOntology(hpJson);
+        json = Files.readString(hpJson);
+        phenotypeHpoa = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        Files.writeString(phenotypeHpoa, "#version: 2022-06-11\n"
+                + line("OMIM:100001", T4) + line("OMIM:100001", T2)
+                + line("OMIM:100002", T5)
+                + line("ORPHA:1", T3) + line("ORPHA:1", T1)
+                + line("DECIPHER:1", T1),
+                StandardCharsets.UTF_8);
+    }
+
+    /** A single term is written to stdout after the statistics of the whole ontology. */
+    @Test
+    public void testSingleTerm() {
+        String stdout = stats("-t", T0);
+        List<String> lines = stdout.lines().toList();
+        int start = lines.indexOf(SEPARATOR);
+        assertTrue(start >= 0, stdout);
+        assertEquals(List.of(
+                SEPARATOR,
+                // the eight top-level terms of the generator and T0 to T5
+                "Number of non-obsolete terms: 14",
+                "Number of non-obsolete terms in Phenotypic Abnormality subontology: 7",
+                "Number of synonyms: " + count(json, "\"hasExactSynonym\""),
+                HEADER,
+                // OMIM:100001 and OMIM:100002 with three annotations, and ORPHA:1 with two below T3
+                row(T0, "Abnormality of organ system 0", List.of(T0, T2, T3, T4, T5), 2, 3, 1, 2, 0, 0)),
+                lines.subList(start, lines.size()));
+    }
+
+    /**
+     * The terms of {@code -t}, {@code --terms} and {@code --depth} in this order and without duplicates. The comment,
+     * the unknown term and the second T1 of the file are skipped, and T0 and T1 one level below Phenotypic
+     * abnormality were already listed.
+     */
+    @Test
+    public void testBatch() throws IOException {
+        Path terms = Files.writeString(directory.resolve("terms.txt"),
+                "# roots\n" + T1 + "\tAbnormality of organ system 1\nHP:9999999\n\n" + T0 + "\n" + T1 + "\n");
+        Path out = directory.resolve("stats.tsv");
+        String stdout = stats("-t", PHENOTYPIC_ABNORMALITY, "--terms", terms.toString(), "--depth", "1",
+                "-o", out.toString());
+        // the statistics of the whole ontology are only written for a single term
+        assertFalse(stdout.contains(SEPARATOR), stdout);
+        assertEquals(List.of(
+                HEADER,
+                row(PHENOTYPIC_ABNORMALITY, "Phenotypic abnormality",
+                        List.of(PHENOTYPIC_ABNORMALITY, T0, T1, T2, T3, T4, T5), 2, 3, 1, 2, 1, 1),
+                row(T1, "Abnormality of organ system 1", List.of(T1, T4, T5), 2, 3, 1, 2, 1, 1),
+                row(T0, "Abnormality of organ system 0", List.of(T0, T2, T3, T4, T5), 2, 3, 1, 2, 0, 0)),
+                Files.readAllLines(out));
+    }
+
+    @Test
+    public void testUnknownTerm() {
+        assertEquals(1, HpoWorkbench.commandLine().execute("stats", "--hpo", hpJson.toString(),
+                "-a", phenotypeHpoa.toString(), "-t", "HP:9999999"));
+        assertEquals(1, HpoWorkbench.commandLine().execute("stats", "--hpo", hpJson.toString(),
+                "-a", phenotypeHpoa.toString(), "-t", "T0"));
+    }
+
+    /**
+     * @return the row of the term, with the definitions and synonyms of the terms of its subhierarchy counted in the
+     * ontology
+     */
+    private String row(String termId, String label, List<String> subhierarchy, int omimDiseases, int omimAnnotations,
+                       int orphaDiseases, int orphaAnnotations, int decipherDiseases, int decipherAnnotations) {
+        int definitions = 0, synonyms = 0;
+        for (String id : subhierarchy) {
+            String termLabel = label(id);
+            if (json.contains("\"Definition of " + termLabel + ".\"")) {
+                definitions++;
+            }
+            synonyms += count(json, "\"" + termLabel + " synonym ");
+        }
+        List<String> fields = new ArrayList<>(List.of(termId, label));
+        for (int n : new int[]{subhierarchy.size(), definitions, synonyms, omimDiseases, omimAnnotations,
+                orphaDiseases, orphaAnnotations, decipherDiseases, decipherAnnotations}) {
+            fields.add(Integer.toString(n));
+        }
+        return String.join("\t", fields);
+    }
+
+    private static String label(String termId) {
+        for (int i = 0; i < 6; i++) {
+            if (termId.equals(SyntheticHpoGenerator.termId(i))) {
+                return i < 2 ? "Abnormality of organ system " + i : "Synthetic phenotype " + i;
+            }
+        }
+        return "Phenotypic abnormality";
+    }
+
+    private static int count(String text, String pattern) {
+        int n = 0;
+        for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + pattern.length())) {
+            n++;
+        }
+        return n;
+    }
+
+    /** @return the standard output of {@code stats} with the options */
+    private String stats(String... options) {
+        List<String> args = new ArrayList<>(List.of("stats", "--hpo", hpJson.toString(),
+                "-a", phenotypeHpoa.toString()));
+        args.addAll(List.of(options));
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(stdout, true, StandardCharsets.UTF_8));
+        try {
+            assertEquals(0, HpoWorkbench.commandLine().execute(args.toArray(new String[0])));
+        } finally {
+            System.out.flush();
+            System.setOut(originalOut);
+        }
+        return stdout.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String line(String diseaseId, String termId) {
+        return String.join("\t", diseaseId, "Disease " + diseaseId, "", termId, diseaseId, "IEA", "", "", "", "",
+                "P", "HPO:probinson[2022-06-11]") + "\n";
+    }
+}
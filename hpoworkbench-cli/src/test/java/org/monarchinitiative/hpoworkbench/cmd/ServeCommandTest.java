@@ -0,0 +1,126 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.HpoWorkbench;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import picocli.CommandLine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a {@code serve} command on a Unix-domain socket in the temporary directory and sends requests to it over the
+ * loopback connection, through {@link ClientCommand} or by hand.
+ */
+public class ServeCommandTest {
+
+    @TempDir
+    Path directory;
+
+    private Path socket;
+    private Path hpJson;
+    private Path phenotypeHpoa;
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        new SyntheticHpoGenerator.Builder().terms(200).diseases(50).annotationsPerDisease(5).build().write(directory);
+        hpJson = directory.resolve(SyntheticHpoGenerator.HP_JSON);
+        phenotypeHpoa = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        socket = directory.resolve("hpowb.sock");
+        ServeCommand serve = new ServeCommand();
+        serve.requestTimeoutMillis = 200;
+        Thread server = new Thread(() -> new CommandLine(serve).execute("--socket", socket.toString(),
+                "--hpo", hpJson.toString(), "-a", phenotypeHpoa.toString()), "serve");
+        // the server runs until the JVM exits
+        server.setDaemon(true);
+        server.start();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!Files.exists(socket)) {
+            assertTrue(server.isAlive(), "the server stopped");
+            assertTrue(System.currentTimeMillis() < deadline, "the server did not bind the socket");
+            Thread.sleep(20);
+        }
+    }
+
+    /** A command sent to the server writes the same output as the command run locally. */
+    @Test
+    public void testRoundTrip() {
+        String[] ic = {"ic", "--hpo", hpJson.toString(), "-a", phenotypeHpoa.toString(), "--no-cache"};
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        assertEquals(0, client(List.of(), ic).run(print(stdout), print(stderr)), stderr.toString(StandardCharsets.UTF_8));
+
+        String remote = stdout.toString(StandardCharsets.UTF_8);
+        assertTrue(remote.startsWith("term_id\tlabel\tdiseases\tic\n"));
+        assertEquals(local(ic), remote);
+    }
+
+    @Test
+    public void testWrongTokenIsRejected() throws IOException {
+        Path wrongToken = directory.resolve("wrong.token");
+        Files.writeString(wrongToken, "0".repeat(64), StandardCharsets.US_ASCII);
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        int exitCode = client(List.of("--token-file", wrongToken.toString()), "ic", "--hpo", hpJson.toString(),
+                "-a", phenotypeHpoa.toString()).run(print(stdout), print(stderr));
+        assertEquals(1, exitCode);
+        assertEquals("", stdout.toString(StandardCharsets.UTF_8));
+        assertTrue(stderr.toString(StandardCharsets.UTF_8).contains("Wrong access token"));
+    }
+
+    /** A client that connects and sends nothing is disconnected after the timeout, and the next request is served. */
+    @Test
+    public void testStalledClientIsDisconnected() throws IOException {
+        try (SocketChannel stalled = WorkbenchSocket.connect(WorkbenchSocket.address(socket.toString(), 0))) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(stalled));
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(EOFException.class, in::readByte));
+        }
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        assertEquals(0, client(List.of(), "ic", "--hpo", hpJson.toString(), "-a", phenotypeHpoa.toString(), "--no-cache")
+                .run(print(stdout), print(stderr)));
+        assertFalse(stdout.toString(StandardCharsets.UTF_8).isEmpty());
+    }
+
+    private ClientCommand client(List<String> options, String... command) {
+        List<String> args = new ArrayList<>(List.of("--socket", socket.toString()));
+        args.addAll(options);
+        args.addAll(List.of(command));
+        ClientCommand client = new ClientCommand();
+        new CommandLine(client).setStopAtPositional(true).parseArgs(args.toArray(new String[0]));
+        return client;
+    }
+
+    /** @return the standard output of the command run in this JVM */
+    private static String local(String... args) {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(print(stdout));
+        try {
+            assertEquals(0, HpoWorkbench.commandLine().execute(args));
+        } finally {
+            System.out.flush();
+            System.setOut(originalOut);
+        }
+        return stdout.toString(StandardCharsets.UTF_8);
+    }
+
+    private static PrintStream print(ByteArrayOutputStream bytes) {
+        return new PrintStream(bytes, true, StandardCharsets.UTF_8);
+    }
+}
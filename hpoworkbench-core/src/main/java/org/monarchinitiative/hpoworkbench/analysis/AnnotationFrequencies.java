@@ -0,0 +1,99 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermDoubleArray;
+import org.monarchinitiative.hpoworkbench.ontology.TermIntArray;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+
+import java.util.Collection;
+
+/**
+ * Annotation counts of all terms of the ontology at once: the direct counts (annotations made to the term itself)
+ * and the propagated counts according to the true-path rule (annotations made to the term or any of its
+ * descendants), each also weighted by the frequency of the annotations. This is the computation behind
+ * {@code countfreq --all}; {@link DescendantAnnotationCounts} does the same for the subhierarchy of one term.
+ * <p>
+ * The direct counts are collected in one pass over the annotations. The direct counts of each term are then added
+ * to all of its ancestors, which are taken from the {@link AncestorClosure}. Adding up the propagated counts of the
+ * children instead would count the annotations of terms with several parents more than once.
+ */
+public final class AnnotationFrequencies {
+
+    private final AncestorClosure closure;
+    private final TermIntArray direct;
+    private final TermDoubleArray directWeighted;
+    private final TermIntArray propagated;
+    private final TermDoubleArray propagatedWeighted;
+
+    private AnnotationFrequencies(AncestorClosure closure) {
+        this.closure = closure;
+        TermRegistry registry = closure.registry();
+        this.direct = new TermIntArray(registry);
+        this.directWeighted = new TermDoubleArray(registry);
+        this.propagated = new TermIntArray(registry);
+        this.propagatedWeighted = new TermDoubleArray(registry);
+    }
+
+    /**
+     * @param closure ancestor closure of the ontology
+     * @param diseases diseases whose annotations are counted
+     */
+    public static AnnotationFrequencies count(AncestorClosure closure, Collection<HpoDisease> diseases) {
+        AnnotationFrequencies frequencies = new AnnotationFrequencies(closure);
+        frequencies.countDirect(diseases);
+        frequencies.propagate();
+        return frequencies;
+    }
+
+    private void countDirect(Collection<HpoDisease> diseases) {
+        for (HpoDisease d : diseases) {
+            for (HpoDiseaseAnnotation annotation : d.annotations()) {
+                int idx = closure.index(annotation.id());
+                if (idx >= 0) {
+                    direct.increment(idx);
+                    directWeighted.add(idx, annotation.frequency());
+                }
+            }
+        }
+    }
+
+    private void propagate() {
+        for (int t = 0; t < closure.size(); t++) {
+            int count = direct.get(t);
+            if (count == 0) {
+                continue;
+            }
+            double weighted = directWeighted.get(t);
+            for (int a : closure.ancestors(t)) {
+                propagated.add(a, count);
+                propagatedWeighted.add(a, weighted);
+            }
+        }
+    }
+
+    public AncestorClosure closure() {
+        return closure;
+    }
+
+    /** @return number of annotations to each term */
+    public TermIntArray direct() {
+        return direct;
+    }
+
+    /** @return sum of the frequencies of the annotations to each term */
+    public TermDoubleArray directWeighted() {
+        return directWeighted;
+    }
+
+    /** @return number of annotations to each term or any of its descendants */
+    public TermIntArray propagated() {
+        return propagated;
+    }
+
+    /** @return sum of the frequencies of the annotations to each term or any of its descendants */
+    public TermDoubleArray propagatedWeighted() {
+        return propagatedWeighted;
+    }
+}
@@ -0,0 +1,66 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates a list of {@link AnnotationQcRule}s on all diseases. The rules are compiled once, and then all rules are
+ * applied to each disease in a single parallel pass over the diseases (of all databases). The findings are grouped by
+ * rule, in the order in which the rules were given.
+ */
+public final class AnnotationQc {
+
+    /** A disease that was flagged by a rule, with the reason (e.g. the offending annotations). */
+    public record Finding(HpoDisease disease, String detail) {
+
+        /** @return name and id of the disease, e.g. {@code Marfan syndrome [OMIM:154700]} */
+        public String diseaseLabel() {
+            return String.format("%s [%s]", disease.diseaseName(), disease.id().getValue());
+        }
+    }
+
+    private final Map<AnnotationQcRule, List<Finding>> findings;
+
+    private AnnotationQc(Map<AnnotationQcRule, List<Finding>> findings) {
+        this.findings = findings;
+    }
+
+    public static AnnotationQc evaluate(AncestorClosure closure, Collection<HpoDisease> diseases, List<AnnotationQcRule> rules) {
+        List<AnnotationQcRule.Check> checks = new ArrayList<>(rules.size());
+        for (AnnotationQcRule rule : rules) {
+            checks.add(rule.compile(closure));
+        }
+        record RuleFinding(int rule, Finding finding) {}
+        Map<Integer, List<Finding>> byRule = diseases.parallelStream()
+                .flatMap(d -> {
+                    List<RuleFinding> found = new ArrayList<>(1);
+                    for (int r = 0; r < checks.size(); r++) {
+                        String detail = checks.get(r).apply(d);
+                        if (detail != null) {
+                            found.add(new RuleFinding(r, new Finding(d, detail)));
+                        }
+                    }
+                    return found.stream();
+                })
+                .collect(Collectors.groupingBy(RuleFinding::rule,
+                        Collectors.mapping(RuleFinding::finding, Collectors.toList())));
+        Map<AnnotationQcRule, List<Finding>> findings = new LinkedHashMap<>();
+        for (int r = 0; r < rules.size(); r++) {
+            findings.put(rules.get(r), List.copyOf(byRule.getOrDefault(r, List.of())));
+        }
+        return new AnnotationQc(findings);
+    }
+
+    /** @return the findings of each rule (possibly an empty list), in the order of the rules */
+    public Map<AnnotationQcRule, List<Finding>> findings() {
+        return Collections.unmodifiableMap(findings);
+    }
+
+    /** @return the findings of the rule, or an empty list if the rule was not evaluated */
+    public List<Finding> findings(AnnotationQcRule rule) {
+        return findings.getOrDefault(rule, List.of());
+    }
+}
@@ -0,0 +1,116 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermBitSet;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A quality-control rule for the annotations of a disease, e.g. "fewer than three annotations" or "annotated to a
+ * term that is too general". A rule is first compiled against the ontology, which is where the expensive work
+ * (e.g. finding the too general terms) is done once; the compiled {@link Check} is then applied to each disease and
+ * must be safe to call from several threads.
+ *
+ * @see AnnotationQc
+ */
+public interface AnnotationQcRule {
+
+    /** @return short name of the rule, e.g. for a heading */
+    String name();
+
+    /** @return one sentence that describes the diseases that are flagged by the rule */
+    String description();
+
+    /** @return the check of this rule for the ontology of the closure */
+    Check compile(AncestorClosure closure);
+
+    @FunctionalInterface
+    interface Check {
+        /** @return why the disease violates the rule (shown to the curator), or null if it does not */
+        String apply(HpoDisease disease);
+    }
+
+    /** Flags diseases with fewer than {@code minimum} annotations; the detail is the number of annotations. */
+    static AnnotationQcRule fewerAnnotationsThan(int minimum) {
+        return new AnnotationQcRule() {
+            @Override
+            public String name() {
+                return "Underannotated";
+            }
+
+            @Override
+            public String description() {
+                return String.format("Entries with less than %d annotations", minimum);
+            }
+
+            @Override
+            public Check compile(AncestorClosure closure) {
+                return d -> d.annotationCount() < minimum ? String.valueOf(d.annotationCount()) : null;
+            }
+        };
+    }
+
+    /**
+     * Flags diseases that are annotated to {@code root} or to a term that is at most {@code maxDepth} levels below
+     * it (along the shortest path), e.g. the organ system terms directly below Phenotypic abnormality.
+     */
+    static AnnotationQcRule withinDepth(TermId root, int maxDepth) {
+        return new TermSetRule("Unspecific annotations",
+                String.format("Entries with annotations to terms at most %d levels below %s", maxDepth, root.getValue()),
+                closure -> {
+                    TermBitSet terms = new TermBitSet(closure.registry());
+                    int r = closure.index(root);
+                    if (r < 0) {
+                        return terms;
+                    }
+                    int[] depth = new int[closure.size()];
+                    Arrays.fill(depth, Integer.MAX_VALUE);
+                    depth[r] = 0;
+                    // parents come first, so the depth of a term is final when its children are visited
+                    for (int t : closure.topologicalOrder()) {
+                        if (depth[t] > maxDepth) {
+                            continue;
+                        }
+                        terms.add(t);
+                        for (int c : closure.children(t)) {
+                            depth[c] = Math.min(depth[c], depth[t] + 1);
+                        }
+                    }
+                    return terms;
+                });
+    }
+
+    /** Flags diseases that are annotated to one of a curated list of terms. */
+    static AnnotationQcRule curatedTerms(String name, String description, List<TermId> termIds) {
+        return new TermSetRule(name, description, closure -> {
+            TermBitSet terms = new TermBitSet(closure.registry());
+            for (TermId tid : termIds) {
+                terms.add(tid);
+            }
+            return terms;
+        });
+    }
+
+    /**
+     * Flags diseases that are annotated to a term whose label contains {@code text} (e.g. "Abnormality of"). Labels
+     * are not a reliable measure of specificity, so this rule is not used by default (see {@link #withinDepth}).
+     */
+    static AnnotationQcRule labelContains(String text) {
+        return new TermSetRule("Unspecific annotations",
+                String.format("Entries with annotations to terms whose label contains \"%s\"", text),
+                closure -> {
+                    TermRegistry registry = closure.registry();
+                    TermBitSet terms = new TermBitSet(registry);
+                    for (int i = 0; i < registry.size(); i++) {
+                        if (registry.term(i) != null && registry.label(i).contains(text)) {
+                            terms.add(i);
+                        }
+                    }
+                    return terms;
+                });
+    }
+}
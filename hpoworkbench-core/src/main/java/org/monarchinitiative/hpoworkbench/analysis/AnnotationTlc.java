@@ -1,67 +1,53 @@
 package org.monarchinitiative.hpoworkbench.analysis;
 
 
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
-import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Diseases that are likely in need of better annotations ("tender loving care"), as found by a list of
+ * {@link AnnotationQcRule}s. By default, these are diseases with less than three annotations and diseases that are
+ * annotated to Phenotypic abnormality or to one of the organ system terms directly below it. Other rules, e.g.
+ * {@link AnnotationQcRule#curatedTerms} or {@link AnnotationQcRule#labelContains}, can be passed to
+ * {@link #AnnotationTlc(Ontology, Map, List)}.
+ */
 public class AnnotationTlc {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AnnotationTlc.class);
-    private String hpopath;
-    private String annotpath;
-    private final Ontology hpoOntology;
-    /** All disease annotations for the entire ontology. */
-    private final Map<TermId, HpoDisease> diseaseMap;
 
-    private Map<String,Integer> underannotatedDiseases;
-    private Map<String,String> diseasesWithTooGeneralAnnotations;
+    public static final AnnotationQcRule UNDERANNOTATED = AnnotationQcRule.fewerAnnotationsThan(3);
+    public static final TermId PHENOTYPIC_ABNORMALITY = TermId.of("HP:0000118");
+    public static final AnnotationQcRule TOO_GENERAL = AnnotationQcRule.withinDepth(PHENOTYPIC_ABNORMALITY, 1);
+    public static final List<AnnotationQcRule> DEFAULT_RULES = List.of(UNDERANNOTATED, TOO_GENERAL);
+
+    private final AnnotationQc qc;
 
 
     public AnnotationTlc(Ontology ontolog,Map<TermId, HpoDisease> d2amap)  {
-        hpoOntology = ontolog;
-        diseaseMap = d2amap;
-        lookForUnderannotatedDiseases();
+        this(ontolog, d2amap, DEFAULT_RULES);
     }
 
-
-    public Map<String, Integer> getUnderannotatedDiseases() {
-        return underannotatedDiseases;
+    public AnnotationTlc(Ontology ontology, Map<TermId, HpoDisease> d2amap, List<AnnotationQcRule> rules) {
+        qc = AnnotationQc.evaluate(AncestorClosure.of(ontology), d2amap.values(), rules);
+        for (Map.Entry<AnnotationQcRule, List<AnnotationQc.Finding>> e : qc.findings().entrySet()) {
+            LOGGER.info("{}: n={}", e.getKey().name(), e.getValue().size());
+        }
     }
 
-    public Map<String, String> getDiseasesWithTooGeneralAnnotations() {
-        return diseasesWithTooGeneralAnnotations;
+    /** @return the findings of all rules, grouped by rule */
+    public Map<AnnotationQcRule, List<AnnotationQc.Finding>> getFindings() {
+        return qc.findings();
     }
 
-    private void lookForUnderannotatedDiseases() {
-        underannotatedDiseases=new HashMap<>();
-        diseasesWithTooGeneralAnnotations=new HashMap<>();
-        for (Map.Entry<TermId,HpoDisease> entry : diseaseMap.entrySet()) {
-            HpoDisease disease = entry.getValue();
-            String db = disease.id().getPrefix();
-            if (! db.equals("OMIM")) continue;  // just look at OMIM entries
-            String label = String.format("%s [%s]",disease.diseaseName(),disease.id().getValue());
-            if (disease.annotationCount()<3) {
-                underannotatedDiseases.put(label,disease.annotationCount());
-            } else {
-                for (HpoDiseaseAnnotation ann : disease.annotations()) {
-                    if (ann.isAbsent()) continue; // it is OK to have a negated (excluded) annotation
-                    TermId tid=ann.id();
-                    String lab = hpoOntology.getTermMap().get(tid).getName();
-                    if (lab.contains("Abnormality of")) {
-                        String s = String.format("%s [%s]",lab,tid.getValue());
-                        diseasesWithTooGeneralAnnotations.put(label,s);
-                    }
-                }
-            }
-        }
-        LOGGER.info("diseasesWithTooGeneralAnnotations: n={}", diseasesWithTooGeneralAnnotations.size());
+    public List<AnnotationQc.Finding> getFindings(AnnotationQcRule rule) {
+        return qc.findings(rule);
     }
 
 }
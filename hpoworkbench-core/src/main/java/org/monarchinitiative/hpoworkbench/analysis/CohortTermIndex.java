@@ -0,0 +1,204 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+/**
+ * The samples of a cohort (e.g. the patients of a collection of phenopackets) that are annotated to each term.
+ * Samples are numbered {@code 0..n-1} in the order in which they are passed to {@link #of}. The index has two
+ * variants: the direct postings of a term contain the samples that are annotated to the term itself, the propagated
+ * postings the samples that are annotated to the term or one of its descendants (only if an {@link AncestorClosure}
+ * is given; terms that are not part of the ontology are only propagated to themselves).
+ * <p>
+ * Like the postings of {@link org.monarchinitiative.hpoworkbench.annotation.DiseasePostings}, sparse posting lists are
+ * stored as sorted {@code int} arrays and dense ones as bitmaps, so that the number of samples of a term within a
+ * range of sample numbers (e.g. one of two groups of a comparison) is a binary search or a few bit counts instead of a
+ * scan of all samples. Instances are immutable.
+ */
+public final class CohortTermIndex {
+
+    private final int sampleCount;
+    /** Key: term id as passed to {@link #of}; value: samples annotated to the term. Sorted by term id. */
+    private final SortedMap<TermId, Postings> direct;
+    /** Key: primary term id; value: samples annotated to the term or a descendant; {@code null} without an ontology. */
+    private final SortedMap<TermId, Postings> propagated;
+
+    private CohortTermIndex(int sampleCount, SortedMap<TermId, Postings> direct, SortedMap<TermId, Postings> propagated) {
+        this.sampleCount = sampleCount;
+        this.direct = direct;
+        this.propagated = propagated;
+    }
+
+    /**
+     * @param samples the terms of each sample; a term that is listed twice for a sample is counted once
+     * @param closure ancestor closure for the propagated postings, or {@code null} for direct postings only
+     */
+    public static CohortTermIndex of(List<? extends Collection<TermId>> samples, AncestorClosure closure) {
+        Keys directKeys = new Keys();
+        int[][] directTerms = new int[samples.size()][];
+        BitSet scratch = new BitSet();
+        for (int s = 0; s < samples.size(); s++) {
+            scratch.clear();
+            for (TermId termId : samples.get(s)) {
+                scratch.set(directKeys.number(termId));
+            }
+            directTerms[s] = scratch.stream().toArray();
+        }
+        SortedMap<TermId, Postings> propagated = null;
+        if (closure != null) {
+            Keys propagatedKeys = new Keys();
+            // keyOfTerm[t] is the key number of the term with closure index t, -1 until the term is seen
+            int[] keyOfTerm = new int[closure.size()];
+            Arrays.fill(keyOfTerm, -1);
+            int[][] propagatedTerms = new int[samples.size()][];
+            for (int s = 0; s < samples.size(); s++) {
+                scratch.clear();
+                for (TermId termId : samples.get(s)) {
+                    int idx = closure.index(termId);
+                    if (idx < 0) {
+                        scratch.set(propagatedKeys.number(termId));
+                        continue;
+                    }
+                    for (int a : closure.ancestors(idx)) {
+                        if (keyOfTerm[a] < 0) {
+                            keyOfTerm[a] = propagatedKeys.number(closure.registry().termId(a));
+                        }
+                        scratch.set(keyOfTerm[a]);
+                    }
+                }
+                propagatedTerms[s] = scratch.stream().toArray();
+            }
+            propagated = propagatedKeys.postings(propagatedTerms);
+        }
+        return new CohortTermIndex(samples.size(), directKeys.postings(directTerms), propagated);
+    }
+
+    /** @return number of samples */
+    public int sampleCount() {
+        return sampleCount;
+    }
+
+    /** @return true if the index has propagated postings, i.e. was built with an ontology */
+    public boolean isPropagated() {
+        return propagated != null;
+    }
+
+    /**
+     * @param propagated true for the terms of the propagated postings
+     * @return the terms that are annotated to at least one sample, sorted by id
+     */
+    public Set<TermId> terms(boolean propagated) {
+        return Collections.unmodifiableSet(postings(propagated).keySet());
+    }
+
+    /** @return number of samples annotated to the term (or one of its descendants, if {@code propagated}) */
+    public int count(TermId termId, boolean propagated) {
+        return count(termId, propagated, 0, sampleCount);
+    }
+
+    /**
+     * @param from first sample number (inclusive)
+     * @param to last sample number (exclusive)
+     * @return number of samples in {@code from..to-1} annotated to the term (or one of its descendants, if
+     * {@code propagated})
+     */
+    public int count(TermId termId, boolean propagated, int from, int to) {
+        Postings postings = postings(propagated).get(termId);
+        return postings == null ? 0 : postings.count(from, to);
+    }
+
+    private SortedMap<TermId, Postings> postings(boolean propagated) {
+        if (propagated && this.propagated == null) {
+            throw new IllegalStateException("The index was built without an ontology and has no propagated postings");
+        }
+        return propagated ? this.propagated : direct;
+    }
+
+    /** Numbers the terms in the order in which they are first seen. */
+    private static final class Keys {
+        private final Map<TermId, Integer> numbers = new HashMap<>();
+        private final List<TermId> termIds = new ArrayList<>();
+
+        int number(TermId termId) {
+            Integer n = numbers.get(termId);
+            if (n == null) {
+                n = termIds.size();
+                numbers.put(termId, n);
+                termIds.add(termId);
+            }
+            return n;
+        }
+
+        /**
+         * Two passes over the samples: the first one counts the postings per term, the second one fills arrays of
+         * the exact size. Samples are visited in ascending order, so the id arrays are sorted.
+         */
+        SortedMap<TermId, Postings> postings(int[][] sampleTerms) {
+            int nSamples = sampleTerms.length;
+            int[] counts = new int[termIds.size()];
+            for (int[] terms : sampleTerms) {
+                for (int t : terms) {
+                    counts[t]++;
+                }
+            }
+            int[][] ids = new int[counts.length][];
+            long[][] bits = new long[counts.length][];
+            for (int t = 0; t < counts.length; t++) {
+                // a bitmap needs nSamples/8 bytes, an id array 4 bytes per sample
+                if ((long) counts[t] * 32 > nSamples) {
+                    bits[t] = new long[(nSamples + 63) >>> 6];
+                } else {
+                    ids[t] = new int[counts[t]];
+                }
+            }
+            int[] fill = new int[counts.length];
+            for (int s = 0; s < nSamples; s++) {
+                for (int t : sampleTerms[s]) {
+                    if (bits[t] != null) {
+                        bits[t][s >>> 6] |= 1L << s;
+                    } else {
+                        ids[t][fill[t]++] = s;
+                    }
+                }
+            }
+            SortedMap<TermId, Postings> postings = new TreeMap<>();
+            for (int t = 0; t < counts.length; t++) {
+                postings.put(termIds.get(t), new Postings(ids[t], bits[t]));
+            }
+            return postings;
+        }
+    }
+
+    /** The samples of one term; exactly one of {@code ids} and {@code bits} is non-null. */
+    private record Postings(int[] ids, long[] bits) {
+
+        int count(int from, int to) {
+            if (from >= to) {
+                return 0;
+            }
+            if (ids != null) {
+                return lowerBound(ids, to) - lowerBound(ids, from);
+            }
+            int first = from >>> 6;
+            int last = (to - 1) >>> 6;
+            long firstMask = -1L << from;
+            long lastMask = -1L >>> (63 - ((to - 1) & 63));
+            if (first == last) {
+                return Long.bitCount(bits[first] & firstMask & lastMask);
+            }
+            int count = Long.bitCount(bits[first] & firstMask);
+            for (int w = first + 1; w < last; w++) {
+                count += Long.bitCount(bits[w]);
+            }
+            return count + Long.bitCount(bits[last] & lastMask);
+        }
+
+        /** @return index of the first element of the sorted array that is not smaller than {@code value} */
+        private static int lowerBound(int[] sorted, int value) {
+            int pos = Arrays.binarySearch(sorted, value);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.TermBitSet;
+import org.monarchinitiative.hpoworkbench.ontology.TermDoubleArray;
+import org.monarchinitiative.hpoworkbench.ontology.TermIntArray;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+
+import java.util.Collection;
+
+/**
+ * Counts of the annotations to each term in a subhierarchy of the HPO, e.g. all descendants of a term of interest.
+ * Each annotation is counted once for the term it was made to; the weighted counts add up the frequency of each
+ * annotation instead. This is the computation behind the {@code countfreq} command.
+ */
+public final class DescendantAnnotationCounts {
+
+    private final TermIntArray counts;
+    private final TermDoubleArray weightedCounts;
+    private final int totalAnnotationCount;
+
+    private DescendantAnnotationCounts(TermIntArray counts, TermDoubleArray weightedCounts, int totalAnnotationCount) {
+        this.counts = counts;
+        this.weightedCounts = weightedCounts;
+        this.totalAnnotationCount = totalAnnotationCount;
+    }
+
+    /**
+     * @param descendants the terms whose annotations are counted, e.g. from
+     * {@link org.monarchinitiative.hpoworkbench.ontology.AncestorClosure#descendants(int)}
+     * @param diseases diseases whose annotations are counted
+     */
+    public static DescendantAnnotationCounts count(TermBitSet descendants, Collection<HpoDisease> diseases) {
+        TermRegistry registry = descendants.registry();
+        TermIntArray counts = new TermIntArray(registry);
+        TermDoubleArray weighted = new TermDoubleArray(registry);
+        int total = 0;
+        for (HpoDisease d : diseases) {
+            for (HpoDiseaseAnnotation annotation : d.annotations()) {
+                int idx = registry.index(annotation.id());
+                if (idx >= 0 && descendants.contains(idx)) {
+                    counts.increment(idx);
+                    weighted.add(idx, annotation.frequency());
+                    total++;
+                }
+            }
+        }
+        return new DescendantAnnotationCounts(counts, weighted, total);
+    }
+
+    /** @return number of annotations to each term */
+    public TermIntArray counts() {
+        return counts;
+    }
+
+    /** @return sum of the frequencies of the annotations to each term */
+    public TermDoubleArray weightedCounts() {
+        return weightedCounts;
+    }
+
+    /** @return number of annotations to any of the terms */
+    public int totalAnnotationCount() {
+        return totalAnnotationCount;
+    }
+}
@@ -0,0 +1,187 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+/**
+ * Ranks all diseases by how well their annotations explain the observed and excluded features of a patient. The score
+ * of a disease is the average over the observed terms of the Resnik similarity of the term and its best match among
+ * the annotations of the disease (as in the Phenomizer). Each excluded term that the disease is annotated to (or to one
+ * of its descendants) subtracts the IC of the excluded term.
+ * <p>
+ * The best match of an observed term {@code q} in a disease is the most informative ancestor of {@code q} that the
+ * disease is annotated to, directly or through a descendant. The ranker therefore keeps a term-to-disease index with
+ * the diseases of each term according to the true-path rule, and scores a patient by walking the ancestors of each
+ * observed term from the most to the least informative one and crediting the diseases of each ancestor that were not
+ * credited for the term yet. Ancestors without information content (e.g. the root) are skipped, so the long lists of
+ * the most general terms are never visited. Instances are thread-safe; each call to {@link #rank} uses its own
+ * scratch arrays.
+ */
+public final class DiseaseRanker {
+
+    /** A disease and its score for one patient. */
+    public record RankedDisease(HpoDisease disease, double score) {}
+
+    private final InformationContent ic;
+    private final AncestorClosure closure;
+    /** The ranked diseases, sorted by id so that ties are broken the same way in every run. */
+    private final HpoDisease[] diseases;
+    /** The diseases of term t are postings[offsets[t]] to postings[offsets[t + 1] - 1]. */
+    private final int[] offsets;
+    private final int[] postings;
+
+    private DiseaseRanker(InformationContent ic, HpoDisease[] diseases, int[] offsets, int[] postings) {
+        this.ic = ic;
+        this.closure = ic.closure();
+        this.diseases = diseases;
+        this.offsets = offsets;
+        this.postings = postings;
+    }
+
+    /**
+     * @param ic information content of the terms
+     * @param diseases the diseases to rank; excluded (NOT) annotations are not indexed
+     */
+    public static DiseaseRanker of(InformationContent ic, Collection<HpoDisease> diseases) {
+        AncestorClosure closure = ic.closure();
+        HpoDisease[] array = diseases.toArray(new HpoDisease[0]);
+        Arrays.sort(array, Comparator.comparing(d -> d.id().getValue()));
+        int n = closure.size();
+        int[][] terms = new int[array.length][];
+        int[] counts = new int[n];
+        // lastDisease[a] is the number (plus one) of the last disease that was counted for term a, so that a disease
+        // with several annotations below a term is indexed only once for the term
+        int[] lastDisease = new int[n];
+        int[] scratch = new int[n];
+        for (int d = 0; d < array.length; d++) {
+            int count = 0;
+            for (int t : SemanticSimilarity.presentTerms(closure, array[d])) {
+                for (int a : closure.ancestors(t)) {
+                    if (lastDisease[a] != d + 1) {
+                        lastDisease[a] = d + 1;
+                        scratch[count++] = a;
+                        counts[a]++;
+                    }
+                }
+            }
+            terms[d] = Arrays.copyOf(scratch, count);
+        }
+        int[] offsets = new int[n + 1];
+        for (int t = 0; t < n; t++) {
+            offsets[t + 1] = offsets[t] + counts[t];
+        }
+        int[] postings = new int[offsets[n]];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int d = 0; d < array.length; d++) {
+            for (int a : terms[d]) {
+                postings[next[a]++] = d;
+            }
+        }
+        return new DiseaseRanker(ic, array, offsets, postings);
+    }
+
+    public InformationContent informationContent() {
+        return ic;
+    }
+
+    /** @return number of diseases that are ranked */
+    public int size() {
+        return diseases.length;
+    }
+
+    /**
+     * @param observed terms that were observed in the patient
+     * @param excluded terms that were explicitly excluded in the patient
+     * @param k number of diseases to return
+     * @return the {@code k} diseases with the highest scores, best first; empty if none of the observed terms is part
+     * of the ontology
+     */
+    public List<RankedDisease> rank(Collection<TermId> observed, Collection<TermId> excluded, int k) {
+        int[] observedTerms = indices(observed);
+        if (observedTerms.length == 0 || k <= 0) {
+            return List.of();
+        }
+        double[] scores = new double[diseases.length];
+        // credited[d] == q + 1 if disease d already got its best match for observed term number q
+        int[] credited = new int[diseases.length];
+        for (int q = 0; q < observedTerms.length; q++) {
+            int[] ancestors = ancestorsByDecreasingIc(observedTerms[q]);
+            for (int a : ancestors) {
+                double value = ic.ic(a);
+                if (value <= 0D) {
+                    break;
+                }
+                for (int p = offsets[a]; p < offsets[a + 1]; p++) {
+                    int d = postings[p];
+                    if (credited[d] != q + 1) {
+                        credited[d] = q + 1;
+                        scores[d] += value;
+                    }
+                }
+            }
+        }
+        for (int e : indices(excluded)) {
+            double value = ic.ic(e);
+            for (int p = offsets[e]; p < offsets[e + 1]; p++) {
+                scores[postings[p]] -= value;
+            }
+        }
+        for (int d = 0; d < scores.length; d++) {
+            scores[d] /= observedTerms.length;
+        }
+        return top(scores, k);
+    }
+
+    /** @return distinct indices of the terms that are part of the ontology */
+    private int[] indices(Collection<TermId> termIds) {
+        BitSet terms = new BitSet(closure.size());
+        for (TermId termId : termIds) {
+            int idx = closure.index(termId);
+            if (idx >= 0) {
+                terms.set(idx);
+            }
+        }
+        return terms.stream().toArray();
+    }
+
+    private int[] ancestorsByDecreasingIc(int term) {
+        int[] ancestors = closure.ancestors(term).clone();
+        // insertion sort, a term has only a few dozen ancestors
+        for (int i = 1; i < ancestors.length; i++) {
+            int a = ancestors[i];
+            double value = ic.ic(a);
+            int j = i - 1;
+            while (j >= 0 && ic.ic(ancestors[j]) < value) {
+                ancestors[j + 1] = ancestors[j];
+                j--;
+            }
+            ancestors[j + 1] = a;
+        }
+        return ancestors;
+    }
+
+    /** @return the k diseases with the highest scores, best first; ties go to the disease with the smaller id */
+    private List<RankedDisease> top(double[] scores, int k) {
+        Comparator<Integer> worstFirst = Comparator.<Integer>comparingDouble(d -> scores[d])
+                .thenComparing(Comparator.<Integer>reverseOrder());
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(k, scores.length) + 1, worstFirst);
+        for (int d = 0; d < scores.length; d++) {
+            if (heap.size() < k) {
+                heap.add(d);
+            } else if (worstFirst.compare(d, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(d);
+            }
+        }
+        List<RankedDisease> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            int d = heap.poll();
+            result.add(new RankedDisease(diseases[d], scores[d]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+}
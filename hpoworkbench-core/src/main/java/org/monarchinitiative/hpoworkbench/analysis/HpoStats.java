@@ -3,13 +3,11 @@ package org.monarchinitiative.hpoworkbench.analysis;
 
 import org.monarchinitiative.hpoworkbench.exception.HPOException;
 import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.hpoworkbench.io.ResidentResources;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
-import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
-import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoader;
-import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
-import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
-import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.Term;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -21,8 +19,6 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
 
-import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getDescendents;
-
 /**
  * Get all the numbers we can for the HPO and annotations to it. This will be used to display these numbers
  * in the GUI.
@@ -35,12 +31,12 @@ public class HpoStats {
     private Ontology hpoOntology=null;
     /** All disease annotations for the entire ontology. */
     private Map<TermId, HpoDisease> diseaseMap =null;
-    /** Set of all HPO terms that are descendents of {@link #termIdOfInterest}. */
-    private Set<TermId> descendentsOfTheTermOfInterest =null;
-
-    private final List<HpoDisease> omim;
-    private final List<HpoDisease> orphanet;
-    private final List<HpoDisease> decipher;
+    /** Ancestor closure (and term registry) of {@link #hpoOntology}. */
+    private AncestorClosure closure;
+    /** Statistics of the subhierarchies of all terms of {@link #hpoOntology}. */
+    private TermStatistics termStatistics;
+    /** Index of {@link #termIdOfInterest} in {@link #closure}. */
+    private int termIndexOfInterest;
     /** Id for root (All) */
     private static final String rootHpoTerm="HP:0000001";
 
@@ -88,24 +84,25 @@ public class HpoStats {
     }
 
     /**
-     * Note that the OntologyAlgorithm.getDescendents includes the original term
+     * Note that the count includes the original term
      * which is what we want herre
      * @param t a term (should be a second level phenotype term)
-     * @param ontology reference to HPO
      * @return count of all descendant terms from t including t
      */
-    private int getSubontologyTermCount(TermId t, Ontology ontology) {
-        return OntologyAlgorithm.getDescendents(ontology, t).size();
+    private int getSubontologyTermCount(TermId t) {
+        int idx = closure.index(t);
+        return idx < 0 ? 0 : termStatistics.descendantCount(idx);
     }
 
     public Map<String, Integer> getHpoSubTermCounts() {
         Map<String, Integer> countsmap = new HashMap<>();
-        TermId phenotypicAbnormality = TermId.of("HP:0000118");
-        Set<TermId> firstListTerms = OntologyAlgorithm.getChildTerms(this.hpoOntology, phenotypicAbnormality, false);
-        for (TermId t : firstListTerms) {
-            String label = hpoOntology.getTermMap().get(t).getName();
-            int count = getSubontologyTermCount(t, hpoOntology);
-            countsmap.put(label, count);
+        int phenotypicAbnormality = closure.index(TermId.of("HP:0000118"));
+        if (phenotypicAbnormality < 0) {
+            return countsmap;
+        }
+        TermRegistry registry = closure.registry();
+        for (int child : closure.children(phenotypicAbnormality)) {
+            countsmap.put(registry.label(child), termStatistics.descendantCount(child));
         }
         return countsmap;
     }
@@ -115,13 +112,10 @@ public class HpoStats {
     public HpoStats(Ontology ontolog,Map<TermId, HpoDisease> d2amap) throws HPOException {
         termIdOfInterest=TermId.of(rootHpoTerm);
         hpoOntology=ontolog;
-        omim=new ArrayList<>();
-        orphanet=new ArrayList<>();
-        decipher=new ArrayList<>();
         this.diseaseMap=d2amap;
+        calculateTermStatistics();
         getDescendentsOfTermOfInterest();
         filterDiseasesAccordingToDatabase();
-        calculateNumberOfAnnotations();
         calculateOntologyStats();
         calculateSubontologyCounts();
     }
@@ -179,11 +173,11 @@ public class HpoStats {
         TermId modeOfInheritance = TermId.of("HP:0000005");
         TermId phenotypicAbnormality = TermId.of("HP:0000118");
 
-        n_clinicalCourse = getDescendents(hpoOntology,clinicalCourse).size();
-        n_clinicalModifier = getDescendents(hpoOntology,clinicalModifier).size();
-        n_frequency = getDescendents(hpoOntology,frequency).size();
-        n_modeOfInheritance = getDescendents(hpoOntology,modeOfInheritance).size();
-        n_phenotypicAbnormality = getDescendents(hpoOntology,phenotypicAbnormality).size();
+        n_clinicalCourse = getSubontologyTermCount(clinicalCourse);
+        n_clinicalModifier = getSubontologyTermCount(clinicalModifier);
+        n_frequency = getSubontologyTermCount(frequency);
+        n_modeOfInheritance = getSubontologyTermCount(modeOfInheritance);
+        n_phenotypicAbnormality = getSubontologyTermCount(phenotypicAbnormality);
 
     }
 
@@ -214,15 +208,25 @@ public class HpoStats {
         } else {
             termIdOfInterest = TermId.of(term);
         }
-        omim=new ArrayList<>();
-        orphanet=new ArrayList<>();
-        decipher=new ArrayList<>();
         inputHPOdata();
+        calculateTermStatistics();
         getDescendentsOfTermOfInterest();
         filterDiseasesAccordingToDatabase();
         countNegatedAnnotations();
     }
 
+    /**
+     * Compute the statistics of all terms in one pass over the ontology and the annotations; the numbers for the term
+     * of interest and for the subontologies are then simple lookups.
+     */
+    private void calculateTermStatistics() {
+        closure = AncestorClosure.of(hpoOntology);
+        if (diseaseMap == null) {
+            LOGGER.error("diseaseMap was not initialized");
+        }
+        termStatistics = TermStatistics.of(closure, diseaseMap == null ? List.of() : diseaseMap.values());
+    }
+
     private void getDescendentsOfTermOfInterest() throws HPOException {
         if (termIdOfInterest==null) {
             throw new HPOException("The Term of interest was not initialized");
@@ -231,53 +235,14 @@ public class HpoStats {
             throw new HPOException("Could not retrieve term for term id: "+termIdOfInterest);
         }
         String name = String.format("%s [%s]",hpoOntology.getTermMap().get(termIdOfInterest).getName(),termIdOfInterest.getValue() );
-        descendentsOfTheTermOfInterest = getDescendents(hpoOntology,termIdOfInterest);
-        this.n_textual_def = getNumberOfTermsWithDefinition(hpoOntology,descendentsOfTheTermOfInterest);
-        this.n_synonyms = getTotalNumberOfSynonyms(hpoOntology,descendentsOfTheTermOfInterest);
-        n_terms=descendentsOfTheTermOfInterest.size();
+        termIndexOfInterest = closure.index(termIdOfInterest);
+        this.n_textual_def = termStatistics.definitionCount(termIndexOfInterest);
+        this.n_synonyms = termStatistics.synonymCount(termIndexOfInterest);
+        n_terms=termStatistics.descendantCount(termIndexOfInterest);
         LOGGER.trace("We found a total of {} terms annotated to {} or descendents", n_terms, name);
         LOGGER.trace("Of these terms, {} has a textual definition. There were a total of {} synonyms.",n_textual_def,n_synonyms);
     }
 
-    /**
-     * Calculates and returns the total number of synonyms
-     * @param ontology reference to Hpo ontology object
-     * @param terms the set of terms for which we want to calculate the number of synomnyms
-     * @return number of synonyms.
-     */
-    private int getTotalNumberOfSynonyms(Ontology ontology, Set<TermId> terms) {
-        int n=0;
-        for (TermId tid : terms) {
-            n+=ontology.getTermMap().get(tid).getSynonyms().size();
-        }
-        return n;
-    }
-
-    /**
-     * Calculates and returns the total number of terms that have a textual definition
-     * @param ontology reference to Hpo ontology object
-     * @param terms the set of terms for which we want to calculate the number of terms with definition
-     * @return number of terms with definition.
-     */
-    private int getNumberOfTermsWithDefinition(Ontology ontology, Set<TermId> terms) {
-        int n=0;
-        for (TermId tid : terms) {
-            String def=ontology.getTermMap().get(tid).getDefinition();
-            if (def!=null && def.length()>0) n++;
-        }
-        return n;
-    }
-
-    /** is the disease annotated to the term we are interested in? */
-    private boolean diseaseAnnotatedToTermOfInterest(HpoDisease d) {
-        for  (HpoDiseaseAnnotation annotation : d.annotations()) {
-            TermId hpoId = annotation.id();
-            if (this.descendentsOfTheTermOfInterest.contains(hpoId))
-                return true;
-        }
-        return false;
-    }
-
     public int getN_terms() {
         return n_terms;
     }
@@ -307,26 +272,17 @@ public class HpoStats {
             LOGGER.error("diseaseMap was not initialized");
             return;
         }
-        for (HpoDisease d:this.diseaseMap.values()) {
-            if (!diseaseAnnotatedToTermOfInterest(d)) {
-                continue;
-            }
-            String databasePrefix =d.id().getPrefix();
-            switch (databasePrefix) {
-                case "OMIM" -> omim.add(d);
-                case "ORPHA" -> orphanet.add(d);
-                case "DECIPHER" -> decipher.add(d);
-                default -> LOGGER.error("Did not recognize database \"" + databasePrefix + "\"");
-            }
-        }
+        n_omim=termStatistics.diseaseCount(TermStatistics.Database.OMIM, termIndexOfInterest);
+        n_orphanet=termStatistics.diseaseCount(TermStatistics.Database.ORPHA, termIndexOfInterest);
+        n_decipher=termStatistics.diseaseCount(TermStatistics.Database.DECIPHER, termIndexOfInterest);
+        n_omim_annotations=termStatistics.annotationCount(TermStatistics.Database.OMIM, termIndexOfInterest);
+        n_orphanet_annotations=termStatistics.annotationCount(TermStatistics.Database.ORPHA, termIndexOfInterest);
+        n_decipher_annotations=termStatistics.annotationCount(TermStatistics.Database.DECIPHER, termIndexOfInterest);
         String termname=hpoOntology.getTermMap().get(termIdOfInterest).getName();
-        n_omim=omim.size();
-        n_orphanet=orphanet.size();
-        n_decipher=decipher.size();
 
-        LOGGER.trace(String.format("We found %d diseases in OMIM annotated to %s or descendents",omim.size(),termname));
-        LOGGER.trace(String.format("We found %d diseases in Orphanet annotated to %s or descendents",orphanet.size(),termname));
-        LOGGER.trace(String.format("We found %d diseases in DECIPHER annotated to %s or descendents",decipher.size(),termname));
+        LOGGER.trace(String.format("We found %d diseases in OMIM annotated to %s or descendents",n_omim,termname));
+        LOGGER.trace(String.format("We found %d diseases in Orphanet annotated to %s or descendents",n_orphanet,termname));
+        LOGGER.trace(String.format("We found %d diseases in DECIPHER annotated to %s or descendents",n_decipher,termname));
     }
 
     private void countNegatedAnnotations() {
@@ -350,23 +306,6 @@ public class HpoStats {
         return n_decipher_annotations;
     }
 
-    private void calculateNumberOfAnnotations() {
-        n_omim_annotations=0;
-        n_orphanet_annotations=0;
-        n_decipher_annotations=0;
-        for (HpoDisease d:omim) {
-            n_omim_annotations += (d.annotationCount());
-        }
-        for (HpoDisease d:orphanet) {
-            n_orphanet_annotations += (d.annotationCount());
-        }
-        for (HpoDisease d:decipher) {
-            n_decipher_annotations += (d.annotationCount());
-        }
-
-    }
-
-
     private void inputHPOdata() throws HPOException, IOException {
         File f = new File(hpopath);
         if (! f.exists()) {
@@ -379,10 +318,8 @@ public class HpoStats {
         LOGGER.trace(String.format("inputting data with files %s and %s",hpopath,annotpath));
         HPOParser parser = new HPOParser(hpopath);
         hpoOntology=parser.getHPO();
-        HpoDiseaseLoaderOptions options = HpoDiseaseLoaderOptions.defaultOptions();
-        HpoDiseaseLoader loader = HpoDiseaseLoaders.defaultLoader(hpoOntology, options);
-        HpoDiseases diseases = loader.load(Path.of(annotpath));
-        Map<TermId, HpoDisease> diseaseMap = diseases.diseaseById();
+        HpoDiseases diseases = ResidentResources.diseases(Path.of(annotpath), hpoOntology);
+        diseaseMap = diseases.diseaseById();
 
     }
 }
@@ -0,0 +1,261 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.io.HpoaScanner;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Information content (IC) of all terms of the ontology, computed from the diseases that are annotated to each term
+ * according to the true-path rule: {@code IC(t) = -ln(n(t) / N)}, where {@code n(t)} is the number of diseases that
+ * are annotated to {@code t} or any of its descendants and {@code N} is the number of diseases. Excluded (NOT)
+ * annotations are ignored. Terms without any annotated disease get the IC of a term with one disease, so that the
+ * values stay finite. The values are stored in one {@code double} per term of the {@link AncestorClosure}.
+ * <p>
+ * Computing the IC needs the parsed annotations, so {@link #load(Path, AncestorClosure, Version, Supplier)} keeps
+ * the values in a small cache file (by default {@code phenotype.hpoa.ic} next to the annotation file). The cache is
+ * keyed by the {@link Version}s of the ontology and of the annotation file (including the size and modification time
+ * of the file) and by the term ids, so a cache hit does not need the parsed annotations at all; if any of them
+ * differ, the annotations are requested, the IC is computed again and the cache is rewritten.
+ */
+public final class InformationContent {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InformationContent.class);
+    /** Suffix that is appended to the name of the annotation file to get the name of the cache file. */
+    public static final String CACHE_SUFFIX = ".ic";
+
+    static final long MAGIC = 0x4850_4F57_4249_4343L; // "HPOWBICC"
+    static final int FORMAT_VERSION = 2;
+
+    /**
+     * Versions of the input files that a cache file was computed from.
+     *
+     * @param ontology release of the ontology, e.g. 2023-01-27, or the empty string if it is not known
+     * @param annotations release of the annotation file (its {@code #date} or {@code #version} header), or the empty
+     *                    string if it is not known
+     * @param annotationSize size of the annotation file in bytes
+     * @param annotationModified modification time of the annotation file in milliseconds, which catches files that
+     *                           were edited without changing their header
+     */
+    public record Version(String ontology, String annotations, long annotationSize, long annotationModified) {
+        /**
+         * Read the versions from the meta information of the ontology and from the header and the attributes of
+         * phenotype.hpoa. The annotation file is not parsed.
+         */
+        public static Version of(Ontology ontology, Path phenotypeHpoa) throws IOException {
+            Map<String, String> metaInfo = ontology.getMetaInfo();
+            String release = metaInfo.getOrDefault("release", metaInfo.getOrDefault("data-version", ""));
+            BasicFileAttributes attributes = Files.readAttributes(phenotypeHpoa, BasicFileAttributes.class);
+            return new Version(release, HpoaScanner.release(phenotypeHpoa), attributes.size(),
+                    attributes.lastModifiedTime().toMillis());
+        }
+    }
+
+    private final AncestorClosure closure;
+    private final double[] ic;
+    /** Number of diseases annotated to each term or any of its descendants. */
+    private final int[] diseaseCounts;
+    private final int diseaseCount;
+
+    private InformationContent(AncestorClosure closure, double[] ic, int[] diseaseCounts, int diseaseCount) {
+        this.closure = closure;
+        this.ic = ic;
+        this.diseaseCounts = diseaseCounts;
+        this.diseaseCount = diseaseCount;
+    }
+
+    /**
+     * @param closure ancestor closure of the ontology
+     * @param diseases the annotated diseases
+     */
+    public static InformationContent compute(AncestorClosure closure, Collection<HpoDisease> diseases) {
+        int n = closure.size();
+        int[] counts = new int[n];
+        // lastDisease[a] is the number (plus one) of the last disease that was counted for term a, so that a disease
+        // with several annotations below a term is counted only once for the term
+        int[] lastDisease = new int[n];
+        int diseaseNumber = 0;
+        for (HpoDisease d : diseases) {
+            diseaseNumber++;
+            for (HpoDiseaseAnnotation annotation : d.annotations()) {
+                if (annotation.isAbsent()) {
+                    continue;
+                }
+                int idx = closure.index(annotation.id());
+                if (idx < 0) {
+                    continue;
+                }
+                for (int a : closure.ancestors(idx)) {
+                    if (lastDisease[a] != diseaseNumber) {
+                        lastDisease[a] = diseaseNumber;
+                        counts[a]++;
+                    }
+                }
+            }
+        }
+        int total = diseases.size();
+        double[] ic = new double[n];
+        if (total > 0) {
+            double logTotal = Math.log(total);
+            for (int t = 0; t < n; t++) {
+                ic[t] = logTotal - Math.log(Math.max(1, counts[t]));
+            }
+        }
+        return new InformationContent(closure, ic, counts, total);
+    }
+
+    /**
+     * Read the IC from the cache file if it was computed from the same versions of the ontology and the annotations,
+     * and compute it (and rewrite the cache) if not. A cache that cannot be read or written is logged and ignored.
+     *
+     * @param cache path of the cache file, see {@link #cachePath(Path)}
+     * @param closure ancestor closure of the ontology
+     * @param version versions of the ontology and the annotations
+     * @param diseases supplies the annotated diseases; only called if the cache is missing or out of date
+     */
+    public static InformationContent load(Path cache, AncestorClosure closure, Version version,
+                                          Supplier<? extends Collection<HpoDisease>> diseases) {
+        Key key = Key.of(version, closure);
+        if (Files.isRegularFile(cache)) {
+            try {
+                InformationContent ic = read(cache, closure, key);
+                if (ic != null) {
+                    LOGGER.trace("Read information content from {}", cache);
+                    return ic;
+                }
+                LOGGER.trace("Information content cache {} is out of date", cache);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not read information content cache {}: {}", cache, e.getMessage());
+            }
+        }
+        InformationContent ic = compute(closure, diseases.get());
+        try {
+            ic.write(cache, key);
+            LOGGER.trace("Wrote information content to {}", cache);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write information content cache {}: {}", cache, e.getMessage());
+        }
+        return ic;
+    }
+
+    /**
+     * @param phenotypeHpoa path to phenotype.hpoa
+     * @return path of the cache file that belongs to {@code phenotypeHpoa}
+     */
+    public static Path cachePath(Path phenotypeHpoa) {
+        return phenotypeHpoa.resolveSibling(phenotypeHpoa.getFileName().toString() + CACHE_SUFFIX);
+    }
+
+    /**
+     * Everything a cache file depends on. The term count and the hash of the term ids make sure that the stored
+     * values belong to the same term indices.
+     */
+    private record Key(Version version, int termCount, long termIdHash) {
+        static Key of(Version version, AncestorClosure closure) {
+            TermRegistry registry = closure.registry();
+            long hash = 0L;
+            for (int t = 0; t < closure.size(); t++) {
+                hash = 31L * hash + registry.termId(t).getValue().hashCode();
+            }
+            return new Key(version, closure.size(), hash);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(version.ontology());
+            out.writeUTF(version.annotations());
+            out.writeLong(version.annotationSize());
+            out.writeLong(version.annotationModified());
+            out.writeInt(termCount);
+            out.writeLong(termIdHash);
+        }
+
+        static Key read(DataInputStream in) throws IOException {
+            Version version = new Version(in.readUTF(), in.readUTF(), in.readLong(), in.readLong());
+            return new Key(version, in.readInt(), in.readLong());
+        }
+    }
+
+    /** @return the cached values, or {@code null} if the cache does not match {@code key} */
+    private static InformationContent read(Path cache, AncestorClosure closure, Key key) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cache), 1 << 16))) {
+            if (in.readLong() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (!key.equals(Key.read(in))) {
+                return null;
+            }
+            int diseaseCount = in.readInt();
+            int n = key.termCount();
+            double[] ic = new double[n];
+            int[] counts = new int[n];
+            for (int t = 0; t < n; t++) {
+                counts[t] = in.readInt();
+                ic[t] = in.readDouble();
+            }
+            return new InformationContent(closure, ic, counts, diseaseCount);
+        }
+    }
+
+    /** Write the values to a temporary file next to {@code cache}, which is then moved in place. */
+    private void write(Path cache, Key key) throws IOException {
+        Path tmp = Files.createTempFile(cache.toAbsolutePath().getParent(), cache.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeLong(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                key.write(out);
+                out.writeInt(diseaseCount);
+                for (int t = 0; t < ic.length; t++) {
+                    out.writeInt(diseaseCounts[t]);
+                    out.writeDouble(ic[t]);
+                }
+            }
+            Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public AncestorClosure closure() {
+        return closure;
+    }
+
+    /** @return number of diseases the IC was computed from */
+    public int diseaseCount() {
+        return diseaseCount;
+    }
+
+    /** @return number of diseases annotated to the term or any of its descendants */
+    public int diseaseCount(int index) {
+        return diseaseCounts[index];
+    }
+
+    /** @return IC of the term with the index */
+    public double ic(int index) {
+        return ic[index];
+    }
+
+    /** @return IC of the term, or 0 if the term is not part of the ontology */
+    public double ic(TermId termId) {
+        int idx = closure.index(termId);
+        return idx < 0 ? 0D : ic[idx];
+    }
+
+    /** @return the largest possible IC, i.e. the IC of a term with one annotated disease */
+    public double maxIc() {
+        return diseaseCount > 0 ? Math.log(diseaseCount) : 0D;
+    }
+}
@@ -0,0 +1,91 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+/**
+ * Diseases that are annotated to a term and also to one of its ancestors. The annotation to the ancestor is
+ * redundant (it is implied by the annotation to the more specific term) and inflates the counts of the ancestor,
+ * e.g. in the {@code countfreq} command. Only present annotations are considered; an excluded (NOT) annotation to a
+ * descendant does not make an annotation to its ancestor redundant.
+ * <p>
+ * The ancestors of each annotated term are looked up in the precomputed {@link AncestorClosure}, and the diseases
+ * are checked in parallel.
+ */
+public final class RedundantAnnotations {
+
+    /** The disease is annotated to {@code ancestor} and to its descendant {@code descendant}. */
+    public record Redundancy(TermId ancestor, TermId descendant) {}
+
+    /** All redundant pairs of annotations of one disease. */
+    public record DiseaseRedundancies(HpoDisease disease, List<Redundancy> redundancies) {}
+
+    private final List<DiseaseRedundancies> diseases;
+
+    private RedundantAnnotations(List<DiseaseRedundancies> diseases) {
+        this.diseases = diseases;
+    }
+
+    public static RedundantAnnotations find(AncestorClosure closure, Collection<HpoDisease> diseases) {
+        List<DiseaseRedundancies> found = diseases.parallelStream()
+                .map(d -> find(closure, d))
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(r -> r.disease().id().getValue()))
+                .toList();
+        return new RedundantAnnotations(found);
+    }
+
+    /** @return the redundant annotations of the disease, or null if there are none */
+    private static DiseaseRedundancies find(AncestorClosure closure, HpoDisease disease) {
+        int[] terms = new int[disease.annotationCount()];
+        int n = 0;
+        for (HpoDiseaseAnnotation annotation : disease.annotations()) {
+            if (annotation.isAbsent()) {
+                continue;
+            }
+            int idx = closure.index(annotation.id());
+            if (idx >= 0) {
+                terms[n++] = idx;
+            }
+        }
+        Arrays.sort(terms, 0, n);
+        List<Redundancy> redundancies = null;
+        for (int i = 0; i < n; i++) {
+            int term = terms[i];
+            if (i > 0 && terms[i - 1] == term) {
+                continue;
+            }
+            for (int a : closure.ancestors(term)) {
+                if (a != term && Arrays.binarySearch(terms, 0, n, a) >= 0) {
+                    if (redundancies == null) {
+                        redundancies = new ArrayList<>();
+                    }
+                    redundancies.add(new Redundancy(closure.termId(a), closure.termId(term)));
+                }
+            }
+        }
+        return redundancies == null ? null : new DiseaseRedundancies(disease, List.copyOf(redundancies));
+    }
+
+    /** @return the diseases with at least one redundant annotation, ordered by disease id */
+    public List<DiseaseRedundancies> diseases() {
+        return diseases;
+    }
+
+    /** @return number of annotations that are redundant, counting an ancestor with several descendants only once */
+    public int redundantAnnotationCount() {
+        int count = 0;
+        for (DiseaseRedundancies d : diseases) {
+            Set<TermId> ancestors = new HashSet<>();
+            for (Redundancy r : d.redundancies()) {
+                ancestors.add(r.ancestor());
+            }
+            count += ancestors.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,227 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Information-content based semantic similarity of terms and of sets of terms. The similarity of two terms is
+ * computed from their most informative common ancestor (MICA), i.e. the common ancestor with the highest
+ * {@link InformationContent}:
+ * <ul>
+ *     <li>Resnik: {@code IC(MICA)}</li>
+ *     <li>Lin: {@code 2 * IC(MICA) / (IC(a) + IC(b))}</li>
+ * </ul>
+ * Two sets of terms are compared with the best-match average: the mean of the best match of each query term in the
+ * target set, averaged with the mean of the best match of each target term in the query set.
+ * <p>
+ * When many diseases are compared with the same query, every query term is paired with thousands of terms. For
+ * these terms, the MICAs with all terms of the ontology are computed at once in one pass in topological order and
+ * cached as a row of term indices: the MICA of {@code q} and {@code t} is {@code t} itself if {@code t} is an
+ * ancestor of {@code q}, and otherwise the most informative of the MICAs of {@code q} and the parents of {@code t}.
+ * The number of cached rows is bounded; pairs without a cached row are answered by merging the sorted ancestor arrays
+ * of the {@link AncestorClosure}. Instances are thread-safe, so one instance can be shared by the threads of a
+ * parallel ranking.
+ */
+public final class SemanticSimilarity {
+
+    public enum Measure {
+        RESNIK, LIN
+    }
+
+    /** Default number of cached MICA rows (about 70 MB for the current HPO). */
+    public static final int DEFAULT_MAX_ROWS = 1024;
+
+    private final InformationContent ic;
+    private final AncestorClosure closure;
+    /** micaRows[q][t] is the MICA of q and t; {@code null} until the row of q is needed. */
+    private final AtomicReferenceArray<int[]> micaRows;
+    private final AtomicInteger rowCount = new AtomicInteger();
+    private final int maxRows;
+
+    public SemanticSimilarity(InformationContent ic) {
+        this(ic, DEFAULT_MAX_ROWS);
+    }
+
+    /**
+     * @param ic information content of the terms
+     * @param maxRows maximum number of terms whose MICAs with all terms are cached
+     */
+    public SemanticSimilarity(InformationContent ic, int maxRows) {
+        this.ic = ic;
+        this.closure = ic.closure();
+        this.micaRows = new AtomicReferenceArray<>(closure.size());
+        this.maxRows = maxRows;
+    }
+
+    public InformationContent informationContent() {
+        return ic;
+    }
+
+    /** @return index of the most informative common ancestor of the two terms, -1 if they have none */
+    public int mica(int a, int b) {
+        if (a == b) {
+            return a;
+        }
+        int[] row = micaRows.get(a);
+        if (row != null) {
+            return row[b];
+        }
+        row = micaRows.get(b);
+        if (row != null) {
+            return row[a];
+        }
+        return mergeMica(a, b);
+    }
+
+    /**
+     * @return the MICAs of the term with all terms, or {@code null} if the row is not cached and the cache is full
+     */
+    private int[] micaRow(int q) {
+        int[] row = micaRows.get(q);
+        if (row != null || rowCount.get() >= maxRows) {
+            return row;
+        }
+        row = computeMicaRow(q);
+        if (micaRows.compareAndSet(q, null, row)) {
+            rowCount.incrementAndGet();
+            return row;
+        }
+        return micaRows.get(q);
+    }
+
+    private int[] computeMicaRow(int q) {
+        int[] row = new int[closure.size()];
+        int[] ancestorsOfQ = closure.ancestors(q);
+        // parents come before their children, so the row of all parents of t is known when t is reached
+        for (int t : closure.topologicalOrder()) {
+            if (Arrays.binarySearch(ancestorsOfQ, t) >= 0) {
+                // a descendant is at least as informative as its ancestors
+                row[t] = t;
+                continue;
+            }
+            int mica = -1;
+            for (int p : closure.parents(t)) {
+                int m = row[p];
+                if (m >= 0 && (mica < 0 || ic.ic(m) > ic.ic(mica))) {
+                    mica = m;
+                }
+            }
+            row[t] = mica;
+        }
+        return row;
+    }
+
+    private int mergeMica(int a, int b) {
+        int[] ancestorsA = closure.ancestors(a);
+        int[] ancestorsB = closure.ancestors(b);
+        int mica = -1;
+        double best = -1D;
+        int i = 0, j = 0;
+        while (i < ancestorsA.length && j < ancestorsB.length) {
+            int x = ancestorsA[i];
+            int y = ancestorsB[j];
+            if (x < y) {
+                i++;
+            } else if (y < x) {
+                j++;
+            } else {
+                double value = ic.ic(x);
+                if (value > best) {
+                    best = value;
+                    mica = x;
+                }
+                i++;
+                j++;
+            }
+        }
+        return mica;
+    }
+
+    /** @return IC of the MICA of the two terms, 0 if they have no common ancestor */
+    public double resnik(int a, int b) {
+        return resnik(mica(a, b));
+    }
+
+    private double resnik(int mica) {
+        return mica < 0 ? 0D : ic.ic(mica);
+    }
+
+    /** @return Resnik similarity normalized by the IC of the two terms, between 0 and 1 */
+    public double lin(int a, int b) {
+        return lin(a, b, mica(a, b));
+    }
+
+    private double lin(int a, int b, int mica) {
+        if (a == b) {
+            return 1D;
+        }
+        double sum = ic.ic(a) + ic.ic(b);
+        return sum > 0D ? 2D * resnik(mica) / sum : 0D;
+    }
+
+    public double similarity(Measure measure, int a, int b) {
+        return similarity(measure, a, b, mica(a, b));
+    }
+
+    private double similarity(Measure measure, int a, int b, int mica) {
+        return switch (measure) {
+            case RESNIK -> resnik(mica);
+            case LIN -> lin(a, b, mica);
+        };
+    }
+
+    /**
+     * @param query term indices of the query
+     * @param target term indices of the target
+     * @return symmetric best-match average of the two sets, 0 if either of them is empty; the MICAs of the query
+     * terms are cached
+     */
+    public double bestMatchAverage(Measure measure, int[] query, int[] target) {
+        if (query.length == 0 || target.length == 0) {
+            return 0D;
+        }
+        double[] bestTarget = new double[target.length];
+        double querySum = 0D;
+        for (int q : query) {
+            int[] row = micaRow(q);
+            double best = 0D;
+            for (int k = 0; k < target.length; k++) {
+                int t = target[k];
+                double s = similarity(measure, q, t, row != null ? row[t] : mica(q, t));
+                if (s > best) {
+                    best = s;
+                }
+                if (s > bestTarget[k]) {
+                    bestTarget[k] = s;
+                }
+            }
+            querySum += best;
+        }
+        double targetSum = 0D;
+        for (double s : bestTarget) {
+            targetSum += s;
+        }
+        return 0.5D * (querySum / query.length + targetSum / target.length);
+    }
+
+    /** @return distinct indices of the terms the disease is annotated to, without excluded (NOT) annotations */
+    public static int[] presentTerms(AncestorClosure closure, HpoDisease disease) {
+        BitSet terms = new BitSet(closure.size());
+        for (HpoDiseaseAnnotation annotation : disease.annotations()) {
+            if (annotation.isAbsent()) {
+                continue;
+            }
+            int idx = closure.index(annotation.id());
+            if (idx >= 0) {
+                terms.set(idx);
+            }
+        }
+        return terms.stream().toArray();
+    }
+}
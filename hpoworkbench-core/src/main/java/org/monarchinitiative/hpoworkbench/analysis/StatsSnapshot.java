@@ -0,0 +1,227 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The {@link TermStatistics} of all terms of one release, together with the labels, the parents and the obsolete
+ * flag of the terms, so that two releases can be compared ({@link StatsSnapshotDiff}) without loading the
+ * ontologies and annotations again.
+ * <p>
+ * The file is a gzipped binary stream: magic, format version, metadata (e.g. the release of hp.json), and one record
+ * per term with its id, label, obsolete flag, parent indices and the {@link Count}s.
+ */
+public final class StatsSnapshot {
+
+    static final long MAGIC = 0x4850_4F57_4253_5441L; // "HPOWBSTA"
+    static final int FORMAT_VERSION = 1;
+
+    /** Metadata key for the release of the ontology (e.g. 2023-01-01). */
+    public static final String HPO_RELEASE = "hpo-release";
+    /** Metadata key for the name of the annotation file. */
+    public static final String ANNOTATIONS = "annotations";
+
+    /** The counts of each term, in the order in which they are stored. */
+    public enum Count {
+        TERMS("terms"),
+        DEFINITIONS("definitions"),
+        SYNONYMS("synonyms"),
+        DISEASES("diseases"),
+        OMIM_DISEASES("omim_diseases"),
+        OMIM_ANNOTATIONS("omim_annotations"),
+        ORPHA_DISEASES("orpha_diseases"),
+        ORPHA_ANNOTATIONS("orpha_annotations"),
+        DECIPHER_DISEASES("decipher_diseases"),
+        DECIPHER_ANNOTATIONS("decipher_annotations");
+
+        private final String header;
+
+        Count(String header) {
+            this.header = header;
+        }
+
+        /** @return name of the count for table headers */
+        public String header() {
+            return header;
+        }
+    }
+
+    private static final Count[] COUNTS = Count.values();
+
+    private final Map<String, String> metadata;
+    private final TermId[] termIds;
+    private final String[] labels;
+    private final boolean[] obsolete;
+    private final int[][] parents;
+    /** counts[term][count.ordinal()] */
+    private final int[][] counts;
+    private final Map<TermId, Integer> index;
+
+    private StatsSnapshot(Map<String, String> metadata, TermId[] termIds, String[] labels, boolean[] obsolete,
+                          int[][] parents, int[][] counts) {
+        this.metadata = metadata;
+        this.termIds = termIds;
+        this.labels = labels;
+        this.obsolete = obsolete;
+        this.parents = parents;
+        this.counts = counts;
+        this.index = new HashMap<>(2 * termIds.length);
+        for (int i = 0; i < termIds.length; i++) {
+            index.put(termIds[i], i);
+        }
+    }
+
+    /**
+     * @param stats statistics of all terms
+     * @param metadata information about the release, e.g. {@link #HPO_RELEASE}
+     */
+    public static StatsSnapshot of(TermStatistics stats, Map<String, String> metadata) {
+        AncestorClosure closure = stats.closure();
+        TermRegistry registry = closure.registry();
+        int n = closure.size();
+        TermId[] termIds = new TermId[n];
+        String[] labels = new String[n];
+        boolean[] obsolete = new boolean[n];
+        int[][] parents = new int[n][];
+        int[][] counts = new int[n][];
+        for (int i = 0; i < n; i++) {
+            termIds[i] = registry.termId(i);
+            Term term = registry.term(i);
+            labels[i] = term == null || term.getName() == null ? "" : term.getName();
+            obsolete[i] = term != null && term.isObsolete();
+            parents[i] = closure.parents(i).clone();
+            int[] c = new int[COUNTS.length];
+            c[Count.TERMS.ordinal()] = stats.descendantCount(i);
+            c[Count.DEFINITIONS.ordinal()] = stats.definitionCount(i);
+            c[Count.SYNONYMS.ordinal()] = stats.synonymCount(i);
+            c[Count.DISEASES.ordinal()] = stats.diseaseCount(i);
+            c[Count.OMIM_DISEASES.ordinal()] = stats.diseaseCount(TermStatistics.Database.OMIM, i);
+            c[Count.OMIM_ANNOTATIONS.ordinal()] = stats.annotationCount(TermStatistics.Database.OMIM, i);
+            c[Count.ORPHA_DISEASES.ordinal()] = stats.diseaseCount(TermStatistics.Database.ORPHA, i);
+            c[Count.ORPHA_ANNOTATIONS.ordinal()] = stats.annotationCount(TermStatistics.Database.ORPHA, i);
+            c[Count.DECIPHER_DISEASES.ordinal()] = stats.diseaseCount(TermStatistics.Database.DECIPHER, i);
+            c[Count.DECIPHER_ANNOTATIONS.ordinal()] = stats.annotationCount(TermStatistics.Database.DECIPHER, i);
+            counts[i] = c;
+        }
+        return new StatsSnapshot(new LinkedHashMap<>(metadata), termIds, labels, obsolete, parents, counts);
+    }
+
+    /** Write the snapshot to a temporary file next to {@code path}, which is then moved in place. */
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(tmp), 1 << 16), 1 << 16))) {
+                out.writeLong(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(metadata.size());
+                for (Map.Entry<String, String> e : metadata.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(e.getValue());
+                }
+                out.writeInt(termIds.length);
+                out.writeInt(COUNTS.length);
+                for (int i = 0; i < termIds.length; i++) {
+                    out.writeUTF(termIds[i].getValue());
+                    out.writeUTF(labels[i]);
+                    out.writeBoolean(obsolete[i]);
+                    out.writeInt(parents[i].length);
+                    for (int p : parents[i]) {
+                        out.writeInt(p);
+                    }
+                    for (int c : counts[i]) {
+                        out.writeInt(c);
+                    }
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public static StatsSnapshot read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path), 1 << 16), 1 << 16))) {
+            if (in.readLong() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a statistics snapshot: " + path);
+            }
+            int nMeta = in.readInt();
+            Map<String, String> metadata = new LinkedHashMap<>();
+            for (int i = 0; i < nMeta; i++) {
+                metadata.put(in.readUTF(), in.readUTF());
+            }
+            int n = in.readInt();
+            if (in.readInt() != COUNTS.length) {
+                throw new IOException("Unexpected number of counts in statistics snapshot: " + path);
+            }
+            TermId[] termIds = new TermId[n];
+            String[] labels = new String[n];
+            boolean[] obsolete = new boolean[n];
+            int[][] parents = new int[n][];
+            int[][] counts = new int[n][COUNTS.length];
+            for (int i = 0; i < n; i++) {
+                termIds[i] = TermId.of(in.readUTF());
+                labels[i] = in.readUTF();
+                obsolete[i] = in.readBoolean();
+                parents[i] = new int[in.readInt()];
+                for (int p = 0; p < parents[i].length; p++) {
+                    parents[i][p] = in.readInt();
+                }
+                for (int c = 0; c < COUNTS.length; c++) {
+                    counts[i][c] = in.readInt();
+                }
+            }
+            return new StatsSnapshot(metadata, termIds, labels, obsolete, parents, counts);
+        } catch (EOFException e) {
+            throw new IOException("Truncated statistics snapshot: " + path, e);
+        }
+    }
+
+    public Map<String, String> metadata() {
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    /** @return number of terms (including obsolete terms, if the ontology contained them) */
+    public int size() {
+        return termIds.length;
+    }
+
+    /** @return index of the term, or -1 if the snapshot does not contain it */
+    public int index(TermId termId) {
+        Integer i = index.get(termId);
+        return i == null ? -1 : i;
+    }
+
+    public TermId termId(int index) {
+        return termIds[index];
+    }
+
+    public String label(int index) {
+        return labels[index];
+    }
+
+    public boolean isObsolete(int index) {
+        return obsolete[index];
+    }
+
+    /** @return indices of the direct parents of the term */
+    public int[] parents(int index) {
+        return parents[index];
+    }
+
+    public int count(int index, Count count) {
+        return counts[index][count.ordinal()];
+    }
+}
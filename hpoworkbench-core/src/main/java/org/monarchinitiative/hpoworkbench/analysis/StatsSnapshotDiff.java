@@ -0,0 +1,154 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+/**
+ * Changes between the {@link StatsSnapshot}s of two releases: the totals (the counts of the root of the ontology),
+ * the terms that were added or became obsolete, and the counts of each branch, i.e. of each child of a branch root
+ * such as Phenotypic abnormality.
+ */
+public final class StatsSnapshotDiff {
+
+    /** Root of the HPO, whose counts are the totals of the release. */
+    public static final TermId HPO_ROOT = TermId.of("HP:0000001");
+
+    private static final int N_COUNTS = StatsSnapshot.Count.values().length;
+
+    /** The counts of a term in both releases; the counts are zero in a release that does not have the term. */
+    public record TermDelta(TermId termId, String label, int[] before, int[] after) {
+
+        public int before(StatsSnapshot.Count count) {
+            return before[count.ordinal()];
+        }
+
+        public int after(StatsSnapshot.Count count) {
+            return after[count.ordinal()];
+        }
+
+        public int delta(StatsSnapshot.Count count) {
+            return after(count) - before(count);
+        }
+
+        /** @return true if any of the counts differs between the releases */
+        public boolean changed() {
+            return !Arrays.equals(before, after);
+        }
+    }
+
+    private final StatsSnapshot before;
+    private final StatsSnapshot after;
+    private final TermId branchRoot;
+    private final TermDelta totals;
+    private final List<TermDelta> newTerms;
+    private final List<TermDelta> obsoleteTerms;
+    private final List<TermDelta> branches;
+
+    private StatsSnapshotDiff(StatsSnapshot before, StatsSnapshot after, TermId branchRoot) {
+        this.before = before;
+        this.after = after;
+        this.branchRoot = branchRoot;
+        this.totals = delta(HPO_ROOT);
+        this.newTerms = new ArrayList<>();
+        for (int i = 0; i < after.size(); i++) {
+            if (!after.isObsolete(i) && !isCurrent(before, after.termId(i))) {
+                newTerms.add(delta(after.termId(i)));
+            }
+        }
+        this.obsoleteTerms = new ArrayList<>();
+        for (int i = 0; i < before.size(); i++) {
+            if (!before.isObsolete(i) && !isCurrent(after, before.termId(i))) {
+                obsoleteTerms.add(delta(before.termId(i)));
+            }
+        }
+        // branches of both releases, so that a branch that was removed or added shows up as well
+        Set<TermId> branchIds = new LinkedHashSet<>();
+        branchIds.addAll(children(after, branchRoot));
+        branchIds.addAll(children(before, branchRoot));
+        this.branches = new ArrayList<>(branchIds.size());
+        for (TermId tid : branchIds) {
+            branches.add(delta(tid));
+        }
+    }
+
+    /**
+     * @param before snapshot of the older release
+     * @param after snapshot of the newer release
+     * @param branchRoot term whose children are reported as branches, e.g. Phenotypic abnormality
+     */
+    public static StatsSnapshotDiff of(StatsSnapshot before, StatsSnapshot after, TermId branchRoot) {
+        return new StatsSnapshotDiff(before, after, branchRoot);
+    }
+
+    private static boolean isCurrent(StatsSnapshot snapshot, TermId termId) {
+        int i = snapshot.index(termId);
+        return i >= 0 && !snapshot.isObsolete(i);
+    }
+
+    private static List<TermId> children(StatsSnapshot snapshot, TermId parent) {
+        int p = snapshot.index(parent);
+        List<TermId> children = new ArrayList<>();
+        if (p < 0) {
+            return children;
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            for (int q : snapshot.parents(i)) {
+                if (q == p) {
+                    children.add(snapshot.termId(i));
+                    break;
+                }
+            }
+        }
+        return children;
+    }
+
+    private TermDelta delta(TermId termId) {
+        int b = before.index(termId);
+        int a = after.index(termId);
+        String label = a >= 0 ? after.label(a) : b >= 0 ? before.label(b) : "";
+        return new TermDelta(termId, label, counts(before, b), counts(after, a));
+    }
+
+    private static int[] counts(StatsSnapshot snapshot, int index) {
+        int[] counts = new int[N_COUNTS];
+        if (index >= 0) {
+            for (StatsSnapshot.Count c : StatsSnapshot.Count.values()) {
+                counts[c.ordinal()] = snapshot.count(index, c);
+            }
+        }
+        return counts;
+    }
+
+    public StatsSnapshot before() {
+        return before;
+    }
+
+    public StatsSnapshot after() {
+        return after;
+    }
+
+    public TermId branchRoot() {
+        return branchRoot;
+    }
+
+    /** @return the counts of {@link #HPO_ROOT} */
+    public TermDelta totals() {
+        return totals;
+    }
+
+    /** @return terms that are current in the newer release, but are obsolete or missing in the older one */
+    public List<TermDelta> newTerms() {
+        return Collections.unmodifiableList(newTerms);
+    }
+
+    /** @return terms that are current in the older release, but are obsolete or missing in the newer one */
+    public List<TermDelta> obsoleteTerms() {
+        return Collections.unmodifiableList(obsoleteTerms);
+    }
+
+    /** @return the counts of the children of the branch root in either release */
+    public List<TermDelta> branches() {
+        return Collections.unmodifiableList(branches);
+    }
+}
@@ -0,0 +1,58 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermBitSet;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * A rule that flags the (present) annotations to a set of terms. The set is computed once when the rule is compiled,
+ * so that each annotation is checked with a single bit lookup. Excluded (NOT) annotations are never flagged.
+ */
+final class TermSetRule implements AnnotationQcRule {
+    private final String name;
+    private final String description;
+    private final Function<AncestorClosure, TermBitSet> terms;
+
+    TermSetRule(String name, String description, Function<AncestorClosure, TermBitSet> terms) {
+        this.name = name;
+        this.description = description;
+        this.terms = terms;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String description() {
+        return description;
+    }
+
+    @Override
+    public Check compile(AncestorClosure closure) {
+        TermBitSet flagged = terms.apply(closure);
+        return disease -> check(closure, flagged, disease);
+    }
+
+    private static String check(AncestorClosure closure, TermBitSet flagged, HpoDisease disease) {
+        StringJoiner detail = null;
+        for (HpoDiseaseAnnotation annotation : disease.annotations()) {
+            if (annotation.isAbsent()) {
+                continue; // it is OK to have a negated (excluded) annotation
+            }
+            int idx = closure.index(annotation.id());
+            if (idx >= 0 && flagged.contains(idx)) {
+                if (detail == null) {
+                    detail = new StringJoiner("; ");
+                }
+                detail.add(String.format("%s [%s]", closure.registry().label(idx), annotation.id().getValue()));
+            }
+        }
+        return detail == null ? null : detail.toString();
+    }
+}
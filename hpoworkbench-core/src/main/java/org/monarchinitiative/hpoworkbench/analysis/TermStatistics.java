@@ -0,0 +1,252 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Descriptive statistics of the subhierarchy below every term of the ontology: the number of terms, of terms with a
+ * definition and of synonyms, and the number of diseases (and their annotations) per database that are annotated to
+ * the term or one of its descendants. All terms are computed at once, so that the statistics of any term can be
+ * looked up without traversing the ontology again.
+ * <p>
+ * Each term (and each disease) is added to all of its ancestors, which the {@link AncestorClosure} provides as a
+ * precomputed list. Summing up the counts of the children instead would count terms with several parents more than
+ * once.
+ * <p>
+ * The diseases are counted in parallel: a fork/join task splits the diseases into chunks, each chunk is counted into
+ * its own arrays (so that the workers never share a counter), and the arrays are summed up when the tasks are joined.
+ * The sums do not depend on how the diseases were split, so the numbers are the same as those of a serial pass.
+ */
+public final class TermStatistics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TermStatistics.class);
+
+    /** The databases whose diseases are counted separately. */
+    public enum Database {
+        OMIM, ORPHA, DECIPHER;
+
+        /** @return the database with the prefix (e.g. {@code ORPHA} for {@code ORPHA:5}), or null if there is none */
+        public static Database of(String prefix) {
+            return switch (prefix) {
+                case "OMIM" -> OMIM;
+                case "ORPHA" -> ORPHA;
+                case "DECIPHER" -> DECIPHER;
+                default -> null;
+            };
+        }
+    }
+
+    private static final Database[] DATABASES = Database.values();
+    /** Chunks with fewer diseases are counted by a single worker; each chunk allocates its own counters. */
+    private static final int MIN_CHUNK_SIZE = 2_000;
+
+    private final AncestorClosure closure;
+    private final int[] descendantCounts;
+    private final int[] definitionCounts;
+    private final int[] synonymCounts;
+    private final DiseaseCounts diseaseCounts;
+
+    private TermStatistics(AncestorClosure closure, DiseaseCounts diseaseCounts) {
+        this.closure = closure;
+        int n = closure.size();
+        this.descendantCounts = new int[n];
+        this.definitionCounts = new int[n];
+        this.synonymCounts = new int[n];
+        this.diseaseCounts = diseaseCounts;
+    }
+
+    /**
+     * @param closure ancestor closure of the ontology
+     * @param diseases diseases whose annotations are counted; may be empty
+     */
+    public static TermStatistics of(AncestorClosure closure, Collection<HpoDisease> diseases) {
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (diseases.size() + parallelism - 1) / Math.max(1, parallelism));
+        return of(closure, diseases, chunkSize);
+    }
+
+    /** Count the diseases in chunks of at most {@code chunkSize} diseases, e.g. to test the fork/join split. */
+    static TermStatistics of(AncestorClosure closure, Collection<HpoDisease> diseases, int chunkSize) {
+        TermStatistics stats = new TermStatistics(closure, countDiseases(closure, diseases, chunkSize));
+        stats.countTerms();
+        return stats;
+    }
+
+    private void countTerms() {
+        TermRegistry registry = closure.registry();
+        for (int t = 0; t < closure.size(); t++) {
+            Term term = registry.term(t);
+            boolean definition = false;
+            int synonyms = 0;
+            if (term != null) {
+                String def = term.getDefinition();
+                definition = def != null && def.length() > 0;
+                synonyms = term.getSynonyms().size();
+            }
+            for (int a : closure.ancestors(t)) {
+                descendantCounts[a]++;
+                if (definition) {
+                    definitionCounts[a]++;
+                }
+                synonymCounts[a] += synonyms;
+            }
+        }
+    }
+
+    private static DiseaseCounts countDiseases(AncestorClosure closure, Collection<HpoDisease> diseases, int chunkSize) {
+        HpoDisease[] array = diseases.toArray(new HpoDisease[0]);
+        CountDiseasesTask task = new CountDiseasesTask(closure, array, 0, array.length, chunkSize);
+        DiseaseCounts counts = array.length <= chunkSize ? task.compute() : ForkJoinPool.commonPool().invoke(task);
+        for (String prefix : counts.unknownPrefixes) {
+            LOGGER.error("Did not recognize database \"" + prefix + "\"");
+        }
+        return counts;
+    }
+
+    /** Counters of the diseases of one chunk, or of several chunks once they have been merged. */
+    private static final class DiseaseCounts {
+        /** Number of diseases from any database that are annotated to each term or its descendants. */
+        private final int[] diseases;
+        /** Same as {@link #diseases}, per {@link Database}. */
+        private final int[][] databaseDiseases;
+        /** Total number of annotations of the diseases counted in {@link #databaseDiseases}. */
+        private final int[][] databaseAnnotations;
+        private final Set<String> unknownPrefixes = new HashSet<>();
+
+        private DiseaseCounts(int n) {
+            this.diseases = new int[n];
+            this.databaseDiseases = new int[DATABASES.length][n];
+            this.databaseAnnotations = new int[DATABASES.length][n];
+        }
+
+        private DiseaseCounts add(DiseaseCounts other) {
+            addTo(diseases, other.diseases);
+            for (int db = 0; db < DATABASES.length; db++) {
+                addTo(databaseDiseases[db], other.databaseDiseases[db]);
+                addTo(databaseAnnotations[db], other.databaseAnnotations[db]);
+            }
+            unknownPrefixes.addAll(other.unknownPrefixes);
+            return this;
+        }
+
+        private static void addTo(int[] target, int[] source) {
+            for (int i = 0; i < target.length; i++) {
+                target[i] += source[i];
+            }
+        }
+    }
+
+    /**
+     * Counts the diseases {@code from} (inclusive) to {@code to} (exclusive), splitting the range in halves until it
+     * is no larger than the chunk size.
+     */
+    private static final class CountDiseasesTask extends RecursiveTask<DiseaseCounts> {
+        private static final long serialVersionUID = 1L;
+        private final AncestorClosure closure;
+        private final HpoDisease[] diseases;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        private CountDiseasesTask(AncestorClosure closure, HpoDisease[] diseases, int from, int to, int chunkSize) {
+            this.closure = closure;
+            this.diseases = diseases;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected DiseaseCounts compute() {
+            if (to - from > chunkSize) {
+                int middle = (from + to) >>> 1;
+                CountDiseasesTask left = new CountDiseasesTask(closure, diseases, from, middle, chunkSize);
+                CountDiseasesTask right = new CountDiseasesTask(closure, diseases, middle, to, chunkSize);
+                left.fork();
+                DiseaseCounts counts = right.compute();
+                return left.join().add(counts);
+            }
+            DiseaseCounts counts = new DiseaseCounts(closure.size());
+            // lastDisease[a] is the number (plus one) of the last disease that was counted for term a, so that a
+            // disease with several annotations below a term is counted only once for the term
+            int[] lastDisease = new int[closure.size()];
+            for (int i = from; i < to; i++) {
+                HpoDisease d = diseases[i];
+                int diseaseNumber = i + 1;
+                String prefix = d.id().getPrefix();
+                Database database = Database.of(prefix);
+                if (database == null) {
+                    counts.unknownPrefixes.add(prefix);
+                }
+                int[] databaseDiseases = database == null ? null : counts.databaseDiseases[database.ordinal()];
+                int[] databaseAnnotations = database == null ? null : counts.databaseAnnotations[database.ordinal()];
+                int annotationCount = d.annotationCount();
+                for (HpoDiseaseAnnotation annotation : d.annotations()) {
+                    int idx = closure.index(annotation.id());
+                    if (idx < 0) {
+                        continue;
+                    }
+                    for (int a : closure.ancestors(idx)) {
+                        if (lastDisease[a] == diseaseNumber) {
+                            continue;
+                        }
+                        lastDisease[a] = diseaseNumber;
+                        counts.diseases[a]++;
+                        if (database != null) {
+                            databaseDiseases[a]++;
+                            databaseAnnotations[a] += annotationCount;
+                        }
+                    }
+                }
+            }
+            return counts;
+        }
+    }
+
+    public AncestorClosure closure() {
+        return closure;
+    }
+
+    /** @return number of terms in the subhierarchy of the term, including the term itself */
+    public int descendantCount(int index) {
+        return descendantCounts[index];
+    }
+
+    /** @return number of terms in the subhierarchy of the term that have a textual definition */
+    public int definitionCount(int index) {
+        return definitionCounts[index];
+    }
+
+    /** @return total number of synonyms of the terms in the subhierarchy of the term */
+    public int synonymCount(int index) {
+        return synonymCounts[index];
+    }
+
+    /** @return number of diseases (from any database) annotated to the term or one of its descendants */
+    public int diseaseCount(int index) {
+        return diseaseCounts.diseases[index];
+    }
+
+    /** @return number of diseases of the database that are annotated to the term or one of its descendants */
+    public int diseaseCount(Database database, int index) {
+        return diseaseCounts.databaseDiseases[database.ordinal()][index];
+    }
+
+    /**
+     * @return total number of annotations (to any term) of the diseases of the database that are annotated to the
+     * term or one of its descendants
+     */
+    public int annotationCount(Database database, int index) {
+        return diseaseCounts.databaseAnnotations[database.ordinal()][index];
+    }
+}
@@ -0,0 +1,494 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermRegistry;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Compact storage of the diseases that are annotated to each HPO term, either directly or via one of the
+ * descendants of the term. Diseases are numbered {@code 0..n-1}; for every term we store a posting list of disease
+ * numbers. Sparse posting lists are stored as sorted {@code int} arrays, dense posting lists (e.g. for the root and
+ * other high-level terms, which are annotated to almost every disease) as bitmaps.
+ * <p>
+ * {@link #directAnnotMap()} and {@link #indirectAnnotMap()} expose the postings with the same
+ * {@code Map<TermId, List<HpoDisease>>} API as the maps that were previously stored, but the lists are created on
+ * demand and are not retained.
+ * <p>
+ * Instances are immutable. {@link #update(Collection, Collection)} derives a new instance in which
+ * only the posting lists of the terms touched by the changed diseases are rebuilt; all other lists are shared with
+ * the original instance.
+ */
+public final class DiseasePostings {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiseasePostings.class);
+
+    private static final int[] NO_TERMS = new int[0];
+
+    private final AncestorClosure closure;
+    private final TermRegistry registry;
+    /** Diseases by number; removed diseases leave a {@code null} slot so that the other numbers stay stable. */
+    private final HpoDisease[] diseases;
+    /** Sorted indices of the terms each disease is directly annotated to. */
+    private final int[][] directTerms;
+    /** Key: disease id; value: number of the disease. */
+    private final Map<TermId, Integer> diseaseNumbers;
+    private final Postings direct;
+    private final Postings indirect;
+
+    private DiseasePostings(AncestorClosure closure, HpoDisease[] diseases, int[][] directTerms, Postings direct, Postings indirect) {
+        this.closure = closure;
+        this.registry = closure.registry();
+        this.diseases = diseases;
+        this.directTerms = directTerms;
+        this.diseaseNumbers = new HashMap<>(2 * diseases.length);
+        for (int i = 0; i < diseases.length; i++) {
+            if (diseases[i] != null) {
+                diseaseNumbers.put(diseases[i].id(), i);
+            }
+        }
+        this.direct = direct;
+        this.indirect = indirect;
+    }
+
+    /**
+     * Build the posting lists. Annotations and modes of inheritance of each disease are direct annotations; the
+     * indirect postings of a term contain every disease that is annotated to the term or any of its descendants.
+     */
+    public static DiseasePostings build(AncestorClosure closure, Collection<HpoDisease> diseaseCollection) {
+        TermRegistry registry = closure.registry();
+        HpoDisease[] diseases = diseaseCollection.toArray(new HpoDisease[0]);
+        int[][] directTerms = new int[diseases.length][];
+        for (int d = 0; d < diseases.length; d++) {
+            directTerms[d] = directTermIndices(registry, diseases[d]);
+        }
+        Postings direct = Postings.build(registry.size(), diseases.length, (d, sink) -> {
+            for (int t : directTerms[d]) {
+                sink.accept(t);
+            }
+        });
+        BitSet seen = new BitSet(registry.size());
+        Postings indirect = Postings.build(registry.size(), diseases.length, (d, sink) -> {
+            seen.clear();
+            for (int t : directTerms[d]) {
+                for (int a : closure.ancestors(t)) {
+                    if (!seen.get(a)) {
+                        seen.set(a);
+                        sink.accept(a);
+                    }
+                }
+            }
+        });
+        return new DiseasePostings(closure, diseases, directTerms, direct, indirect);
+    }
+
+    /**
+     * Derive postings in which the {@code changed} diseases replace the diseases with the same id (or are added if
+     * the id is new) and the {@code removed} diseases are dropped. Only the posting lists of terms that were or are
+     * annotated (directly or indirectly) to one of these diseases are rebuilt. If more than half of the disease
+     * slots would be empty, the postings are rebuilt from scratch instead.
+     *
+     * @param changed new or modified diseases
+     * @param removed ids of diseases that are no longer annotated
+     */
+    public DiseasePostings update(Collection<HpoDisease> changed, Collection<TermId> removed) {
+        int added = 0;
+        for (HpoDisease disease : changed) {
+            if (!diseaseNumbers.containsKey(disease.id())) added++;
+        }
+        HpoDisease[] newDiseases = Arrays.copyOf(diseases, diseases.length + added);
+        int[][] newDirectTerms = Arrays.copyOf(directTerms, newDiseases.length);
+        BitSet affected = new BitSet(newDiseases.length);
+        int next = diseases.length;
+        for (HpoDisease disease : changed) {
+            Integer n = diseaseNumbers.get(disease.id());
+            int d = n == null ? next++ : n;
+            newDiseases[d] = disease;
+            newDirectTerms[d] = directTermIndices(registry, disease);
+            affected.set(d);
+        }
+        for (TermId diseaseId : removed) {
+            Integer n = diseaseNumbers.get(diseaseId);
+            if (n != null && !affected.get(n)) {
+                newDiseases[n] = null;
+                newDirectTerms[n] = NO_TERMS;
+                affected.set(n);
+            }
+        }
+        int live = 0;
+        for (HpoDisease disease : newDiseases) {
+            if (disease != null) live++;
+        }
+        if (2 * live < newDiseases.length) {
+            List<HpoDisease> remaining = new ArrayList<>(live);
+            for (HpoDisease disease : newDiseases) {
+                if (disease != null) remaining.add(disease);
+            }
+            return build(closure, remaining);
+        }
+        // old and new annotations of the affected diseases, i.e. the terms whose posting lists change
+        Map<Integer, BitSet> directEdits = new HashMap<>();
+        Map<Integer, BitSet> indirectEdits = new HashMap<>();
+        for (int d = affected.nextSetBit(0); d >= 0; d = affected.nextSetBit(d + 1)) {
+            int[] oldTerms = d < directTerms.length ? directTerms[d] : NO_TERMS;
+            for (int[] terms : List.of(oldTerms, newDirectTerms[d])) {
+                for (int t : terms) {
+                    directEdits.computeIfAbsent(t, k -> direct.toBitSet(k, affected));
+                    for (int a : closure.ancestors(t)) {
+                        indirectEdits.computeIfAbsent(a, k -> indirect.toBitSet(k, affected));
+                    }
+                }
+            }
+        }
+        for (int d = affected.nextSetBit(0); d >= 0; d = affected.nextSetBit(d + 1)) {
+            for (int t : newDirectTerms[d]) {
+                directEdits.get(t).set(d);
+                for (int a : closure.ancestors(t)) {
+                    indirectEdits.get(a).set(d);
+                }
+            }
+        }
+        LOGGER.trace("Updating {} diseases: rebuilding {} direct and {} indirect posting lists",
+                affected.cardinality(), directEdits.size(), indirectEdits.size());
+        return new DiseasePostings(closure, newDiseases, newDirectTerms,
+                direct.with(directEdits, newDiseases.length), indirect.with(indirectEdits, newDiseases.length));
+    }
+
+    /** @return sorted, distinct indices of the terms that the disease is directly annotated to */
+    private static int[] directTermIndices(TermRegistry registry, HpoDisease disease) {
+        BitSet terms = new BitSet();
+        for (HpoDiseaseAnnotation annot : disease.annotations()) {
+            int idx = registry.index(annot.id());
+            if (idx >= 0) {
+                terms.set(idx);
+            } else {
+                LOGGER.error("Term {} in disease {} not contained in ontology", annot.id().getValue(), disease.diseaseName());
+            }
+        }
+        for (TermId inheritanceId : disease.modesOfInheritance()) {
+            int idx = registry.index(inheritanceId);
+            if (idx >= 0) {
+                terms.set(idx);
+            } else {
+                LOGGER.warn("Mode of inheritance {} of disease {} not contained in ontology", inheritanceId.getValue(), disease.diseaseName());
+            }
+        }
+        return terms.stream().toArray();
+    }
+
+    /** @return the ancestor closure the postings were built with */
+    public AncestorClosure closure() {
+        return closure;
+    }
+
+    public TermRegistry registry() {
+        return registry;
+    }
+
+    /** @return number of diseases */
+    public int diseaseCount() {
+        return diseaseNumbers.size();
+    }
+
+    /** @return all diseases, in the order of their numbers */
+    public List<HpoDisease> diseases() {
+        if (diseaseNumbers.size() == diseases.length) {
+            return Collections.unmodifiableList(Arrays.asList(diseases));
+        }
+        List<HpoDisease> result = new ArrayList<>(diseaseNumbers.size());
+        for (HpoDisease disease : diseases) {
+            if (disease != null) result.add(disease);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /** @return the disease with the given number, or {@code null} if the disease was removed by an update */
+    public HpoDisease disease(int number) {
+        return diseases[number];
+    }
+
+    /** @return the number of the disease or -1 if the disease is unknown */
+    public int diseaseNumber(TermId diseaseId) {
+        Integer n = diseaseNumbers.get(diseaseId);
+        return n == null ? -1 : n;
+    }
+
+    /** @return number of diseases directly annotated to the term */
+    public int directCount(TermId termId) {
+        int idx = registry.index(termId);
+        return idx < 0 ? 0 : direct.counts[idx];
+    }
+
+    /** @return number of diseases annotated to the term or one of its descendants */
+    public int indirectCount(TermId termId) {
+        int idx = registry.index(termId);
+        return idx < 0 ? 0 : indirect.counts[idx];
+    }
+
+    /** @return number of diseases annotated to the term with the given registry index or one of its descendants */
+    public int indirectCount(int termIndex) {
+        return indirect.counts[termIndex];
+    }
+
+    /** Call {@code consumer} with the number of each disease annotated to the term or one of its descendants. */
+    public void forEachIndirect(int termIndex, IntConsumer consumer) {
+        indirect.forEach(termIndex, consumer);
+    }
+
+    /** Call {@code consumer} with the number of each disease directly annotated to the term. */
+    public void forEachDirect(int termIndex, IntConsumer consumer) {
+        direct.forEach(termIndex, consumer);
+    }
+
+    /** @return view of the direct annotations: term id -> diseases directly annotated to the term */
+    public Map<TermId, List<HpoDisease>> directAnnotMap() {
+        return new PostingMap(direct);
+    }
+
+    /** @return view of the indirect annotations: term id -> diseases annotated to the term or its descendants */
+    public Map<TermId, List<HpoDisease>> indirectAnnotMap() {
+        return new PostingMap(indirect);
+    }
+
+    /** Approximate number of bytes used by the posting lists. */
+    public long postingBytes() {
+        return direct.bytes() + indirect.bytes();
+    }
+
+    /** Callback that emits the term indices for disease {@code d}. */
+    private interface TermEmitter {
+        void emit(int d, IntConsumer sink);
+    }
+
+    /**
+     * Posting lists for all terms. For each term, exactly one of {@code ids} and {@code bits} is non-null if the
+     * term has at least one disease.
+     */
+    private static final class Postings {
+        private final int[] counts;
+        private final int[][] ids;
+        private final long[][] bits;
+        private final int nonEmpty;
+
+        private Postings(int[] counts, int[][] ids, long[][] bits) {
+            this.counts = counts;
+            this.ids = ids;
+            this.bits = bits;
+            int n = 0;
+            for (int c : counts) {
+                if (c > 0) n++;
+            }
+            this.nonEmpty = n;
+        }
+
+        /**
+         * Two passes over the diseases: the first one counts the postings per term, the second one fills arrays of
+         * the exact size. Diseases are visited in ascending order, so the id arrays are sorted.
+         */
+        static Postings build(int nTerms, int nDiseases, TermEmitter emitter) {
+            int[] counts = new int[nTerms];
+            for (int d = 0; d < nDiseases; d++) {
+                emitter.emit(d, t -> counts[t]++);
+            }
+            int[][] ids = new int[nTerms][];
+            long[][] bits = new long[nTerms][];
+            int bitmapWords = (nDiseases + 63) >>> 6;
+            for (int t = 0; t < nTerms; t++) {
+                if (counts[t] == 0) {
+                    continue;
+                }
+                // a bitmap needs nDiseases/8 bytes, an id array 4 bytes per disease
+                if ((long) counts[t] * 32 > nDiseases) {
+                    bits[t] = new long[bitmapWords];
+                } else {
+                    ids[t] = new int[counts[t]];
+                }
+            }
+            int[] fill = new int[nTerms];
+            for (int d = 0; d < nDiseases; d++) {
+                final int disease = d;
+                emitter.emit(d, t -> {
+                    if (bits[t] != null) {
+                        bits[t][disease >>> 6] |= 1L << disease;
+                    } else {
+                        ids[t][fill[t]++] = disease;
+                    }
+                });
+            }
+            return new Postings(counts, ids, bits);
+        }
+
+        void forEach(int t, IntConsumer consumer) {
+            if (ids[t] != null) {
+                for (int d : ids[t]) {
+                    consumer.accept(d);
+                }
+            } else if (bits[t] != null) {
+                long[] words = bits[t];
+                for (int w = 0; w < words.length; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        consumer.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+
+        /** @return the diseases of the term except for those in {@code exclude} */
+        BitSet toBitSet(int t, BitSet exclude) {
+            BitSet result = new BitSet();
+            forEach(t, result::set);
+            result.andNot(exclude);
+            return result;
+        }
+
+        /**
+         * @return copy of these postings in which the lists of the terms in {@code edits} are replaced; all other
+         * lists are shared
+         */
+        Postings with(Map<Integer, BitSet> edits, int nDiseases) {
+            int[] newCounts = counts.clone();
+            int[][] newIds = ids.clone();
+            long[][] newBits = bits.clone();
+            for (Map.Entry<Integer, BitSet> e : edits.entrySet()) {
+                int t = e.getKey();
+                BitSet diseases = e.getValue();
+                int count = diseases.cardinality();
+                newCounts[t] = count;
+                newIds[t] = null;
+                newBits[t] = null;
+                if (count == 0) {
+                    continue;
+                }
+                if ((long) count * 32 > nDiseases) {
+                    newBits[t] = Arrays.copyOf(diseases.toLongArray(), (nDiseases + 63) >>> 6);
+                } else {
+                    newIds[t] = diseases.stream().toArray();
+                }
+            }
+            return new Postings(newCounts, newIds, newBits);
+        }
+
+        /** @return sorted disease numbers of the term (a new array for bitmaps, the stored array otherwise) */
+        int[] decode(int t) {
+            if (ids[t] != null) {
+                return ids[t];
+            }
+            int[] result = new int[counts[t]];
+            int[] k = {0};
+            forEach(t, d -> result[k[0]++] = d);
+            return result;
+        }
+
+        long bytes() {
+            long bytes = 0;
+            for (int t = 0; t < counts.length; t++) {
+                if (ids[t] != null) bytes += 4L * ids[t].length;
+                else if (bits[t] != null) bytes += 8L * bits[t].length;
+            }
+            return bytes;
+        }
+    }
+
+    /** Read-only list of the diseases in a posting list. */
+    private final class PostingList extends AbstractList<HpoDisease> implements RandomAccess {
+        private final int[] numbers;
+
+        PostingList(int[] numbers) {
+            this.numbers = numbers;
+        }
+
+        @Override
+        public HpoDisease get(int index) {
+            return diseases[numbers[index]];
+        }
+
+        @Override
+        public int size() {
+            return numbers.length;
+        }
+    }
+
+    /** Read-only map view of a set of posting lists, keyed by primary term id. */
+    private final class PostingMap extends AbstractMap<TermId, List<HpoDisease>> {
+        private final Postings postings;
+
+        PostingMap(Postings postings) {
+            this.postings = postings;
+        }
+
+        private int termIndex(Object key) {
+            if (!(key instanceof TermId tid)) {
+                return -1;
+            }
+            int idx = registry.index(tid);
+            // only primary ids are keys of the map
+            if (idx < 0 || postings.counts[idx] == 0 || !registry.termId(idx).equals(tid)) {
+                return -1;
+            }
+            return idx;
+        }
+
+        @Override
+        public List<HpoDisease> get(Object key) {
+            int idx = termIndex(key);
+            return idx < 0 ? null : new PostingList(postings.decode(idx));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return termIndex(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return postings.nonEmpty;
+        }
+
+        @Override
+        public Set<Entry<TermId, List<HpoDisease>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<TermId, List<HpoDisease>>> iterator() {
+                    return new Iterator<>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            int t = from;
+                            while (t < postings.counts.length && postings.counts[t] == 0) {
+                                t++;
+                            }
+                            return t;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < postings.counts.length;
+                        }
+
+                        @Override
+                        public Entry<TermId, List<HpoDisease>> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int t = next;
+                            next = advance(t + 1);
+                            return new SimpleImmutableEntry<>(registry.termId(t), new PostingList(postings.decode(t)));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return postings.nonEmpty;
+                }
+            };
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.monarchinitiative.hpoworkbench.io;
 
 
-import org.monarchinitiative.phenol.io.OntologyLoader;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,7 +26,7 @@ public class HPOParser {
             LOGGER.error(String.format("Unable to find HPO file at %s",path));
             return;
         }
-        this.hpo = OntologyLoader.loadOntology(new File(path));
+        this.hpo = ResidentResources.ontology(new File(path));
     }
 
     /** @return an initiliazed HPO ontology or null in case of errors. */
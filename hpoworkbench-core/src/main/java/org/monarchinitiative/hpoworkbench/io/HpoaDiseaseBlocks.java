@@ -0,0 +1,201 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoader;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The lines of phenotype.hpoa grouped by disease. Reading and grouping the file does not need the ontology and can
+ * therefore run while hp.json is still being loaded. Once the ontology is available, {@link #resolve(Ontology)}
+ * turns the blocks into {@link HpoDisease} objects with the phenol loader, several blocks at a time in parallel.
+ */
+public final class HpoaDiseaseBlocks {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HpoaDiseaseBlocks.class);
+    /** Minimum number of diseases handed to a single loader invocation. */
+    private static final int MIN_CHUNK_SIZE = 500;
+    /** Comment and metadata lines at the top of the file (e.g. {@code #date: 2022-06-11}). */
+    private final List<String> headerLines;
+    /** Key: disease id, e.g. OMIM:154700; value: all annotation lines of the disease, each terminated by a newline. */
+    private final Map<String, String> blocks;
+
+    private HpoaDiseaseBlocks(List<String> headerLines, Map<String, String> blocks) {
+        this.headerLines = List.copyOf(headerLines);
+        this.blocks = Collections.unmodifiableMap(blocks);
+    }
+
+    /**
+     * Read phenotype.hpoa and group the annotation lines by disease id.
+     *
+     * @param phenotypeHpoa path to phenotype.hpoa
+     */
+    public static HpoaDiseaseBlocks read(Path phenotypeHpoa) throws IOException {
+        try (BufferedReader br = Files.newBufferedReader(phenotypeHpoa, StandardCharsets.UTF_8)) {
+            return read(br);
+        }
+    }
+
+    /**
+     * Read phenotype.hpoa lines from {@code reader} and group them by disease id.
+     *
+     * @throws InterruptedIOException if the thread is interrupted, e.g. because the read was cancelled
+     */
+    public static HpoaDiseaseBlocks read(BufferedReader reader) throws IOException {
+        List<String> header = new ArrayList<>();
+        Map<String, StringBuilder> builders = new LinkedHashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Reading phenotype.hpoa was interrupted");
+            }
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#") || line.startsWith("database_id")) {
+                header.add(line);
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            if (tab < 0) {
+                LOGGER.warn("Skipping malformed phenotype.hpoa line: {}", line);
+                continue;
+            }
+            builders.computeIfAbsent(line.substring(0, tab), k -> new StringBuilder())
+                    .append(line).append('\n');
+        }
+        Map<String, String> blocks = new LinkedHashMap<>(builders.size() * 4 / 3 + 1);
+        for (Map.Entry<String, StringBuilder> e : builders.entrySet()) {
+            blocks.put(e.getKey(), e.getValue().toString());
+        }
+        return new HpoaDiseaseBlocks(header, blocks);
+    }
+
+    /** @return comment/metadata lines found at the top of the file. */
+    public List<String> headerLines() {
+        return headerLines;
+    }
+
+    /** @return map from disease id to the annotation lines (newline-terminated) of that disease */
+    public Map<String, String> blocks() {
+        return blocks;
+    }
+
+    /** @return number of diseases (all databases) in the file */
+    public int diseaseCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Compare the blocks with those of an earlier version of the file. A disease is changed if its block differs in
+     * any way (including the order of the lines), so that only the changed blocks need to be resolved again.
+     *
+     * @param previous blocks read from the earlier version of phenotype.hpoa
+     * @return the new or modified blocks and the ids of the diseases that are no longer present
+     */
+    public Changes changesSince(HpoaDiseaseBlocks previous) {
+        Map<String, String> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : blocks.entrySet()) {
+            if (!e.getValue().equals(previous.blocks.get(e.getKey()))) {
+                changed.put(e.getKey(), e.getValue());
+            }
+        }
+        Set<String> removed = new LinkedHashSet<>();
+        for (String diseaseId : previous.blocks.keySet()) {
+            if (!blocks.containsKey(diseaseId)) {
+                removed.add(diseaseId);
+            }
+        }
+        return new Changes(Collections.unmodifiableMap(changed), Collections.unmodifiableSet(removed));
+    }
+
+    /**
+     * Difference between two versions of phenotype.hpoa.
+     *
+     * @param changedBlocks key: id of a new or modified disease; value: the annotation lines of the disease
+     * @param removedDiseases ids of the diseases that were removed
+     */
+    public record Changes(Map<String, String> changedBlocks, Set<String> removedDiseases) {
+        public boolean isEmpty() {
+            return changedBlocks.isEmpty() && removedDiseases.isEmpty();
+        }
+    }
+
+    /** Resolve all blocks against the ontology using the default loader options. */
+    public HpoDiseases resolve(Ontology ontology) throws IOException {
+        return resolve(ontology, HpoDiseaseLoaderOptions.defaultOptions());
+    }
+
+    /**
+     * Resolve all blocks against the ontology. The blocks are split into chunks that are fed to a shared phenol
+     * loader in parallel; the resulting diseases are merged into a single {@link HpoDiseases} object.
+     */
+    public HpoDiseases resolve(Ontology ontology, HpoDiseaseLoaderOptions options) throws IOException {
+        return resolve(ontology, options, blocks.values());
+    }
+
+    /**
+     * Resolve a subset of the disease blocks, for instance the blocks that changed since the last time the file was
+     * read. Every chunk starts with the {@link #headerLines()} of this file, so the diseases and the release of the
+     * result are the same as if the phenol loader had read a file with just these blocks.
+     */
+    public HpoDiseases resolve(Ontology ontology, HpoDiseaseLoaderOptions options, Collection<String> blocks) throws IOException {
+        HpoDiseaseLoader loader = HpoDiseaseLoaders.defaultLoader(ontology, options);
+        List<String> all = List.copyOf(blocks);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (all.size() + parallelism - 1) / Math.max(1, parallelism));
+        return resolve(loader, all, chunkSize);
+    }
+
+    /** Resolve the blocks in chunks of {@code chunkSize} blocks; package-private so that tests can use small chunks. */
+    HpoDiseases resolve(HpoDiseaseLoader loader, List<String> all, int chunkSize) throws IOException {
+        // an empty subset still yields one chunk with the header, which carries the release of the file
+        int nChunks = Math.max(1, (all.size() + chunkSize - 1) / chunkSize);
+        try {
+            List<HpoDiseases> chunks = IntStream.range(0, nChunks)
+                    .parallel()
+                    .mapToObj(i -> loadChunk(loader, all.subList(Math.min(all.size(), i * chunkSize),
+                            Math.min(all.size(), (i + 1) * chunkSize))))
+                    .collect(Collectors.toList());
+            List<HpoDisease> diseases = chunks.stream()
+                    .flatMap(HpoDiseases::hpoDiseases)
+                    .collect(Collectors.toList());
+            return HpoDiseases.of(chunks.get(0).version().orElse(null), diseases);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private HpoDiseases loadChunk(HpoDiseaseLoader loader, List<String> chunk) {
+        int size = 0;
+        for (String line : headerLines) {
+            size += line.length() + 1;
+        }
+        for (String block : chunk) {
+            size += block.length();
+        }
+        StringBuilder sb = new StringBuilder(size);
+        for (String line : headerLines) {
+            sb.append(line).append('\n');
+        }
+        for (String block : chunk) {
+            sb.append(block);
+        }
+        try (InputStream is = new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8))) {
+            return loader.load(is);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+
+/**
+ * Fast scanner for the annotation lines of phenotype.hpoa, for code that only needs a few columns of each line and
+ * does not need {@code HpoDisease} objects. The file is memory-mapped and split into chunks at line boundaries; the
+ * chunks are scanned in parallel. Each chunk tokenizes its lines in place into a reusable {@link Line}, so that
+ * reading a line does not create any strings or arrays, and feeds them to its own container of a {@link Collector}
+ * (e.g. a set of counters). The containers of the chunks are combined in file order.
+ * <p>
+ * Comment lines ({@code #...}), the column header ({@code database_id ...}) and empty lines are skipped.
+ */
+public final class HpoaScanner {
+
+    public static final int DATABASE_ID = 0;
+    public static final int DISEASE_NAME = 1;
+    public static final int QUALIFIER = 2;
+    public static final int HPO_ID = 3;
+    public static final int REFERENCE = 4;
+    public static final int EVIDENCE = 5;
+    public static final int ONSET = 6;
+    public static final int FREQUENCY = 7;
+    public static final int SEX = 8;
+    public static final int MODIFIER = 9;
+    public static final int ASPECT = 10;
+    public static final int BIOCURATION = 11;
+
+    /** Chunks are not made smaller than this, so that small files are scanned by a single thread. */
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final byte[] HEADER_PREFIX = "database_id".getBytes(StandardCharsets.US_ASCII);
+
+    private HpoaScanner() {
+    }
+
+    /**
+     * One annotation line. The object is reused for the next line of the chunk, so it must not be retained by the
+     * collector; use {@link #field(int)} to keep the value of a field.
+     */
+    public static final class Line {
+        private final ByteBuffer buffer;
+        /** fieldStart[i] is the offset of field i; fieldStart[fieldCount] is one past the end of the last field. */
+        private int[] fieldStart = new int[16];
+        private int fieldCount;
+
+        private Line(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /** Tokenize the line {@code [start, end)} (without the line terminator). */
+        private void set(int start, int end) {
+            fieldCount = 0;
+            fieldStart[0] = start;
+            for (int i = start; i < end; i++) {
+                if (buffer.get(i) == '\t') {
+                    addField(i + 1);
+                }
+            }
+            addField(end + 1);
+        }
+
+        private void addField(int nextStart) {
+            fieldCount++;
+            if (fieldCount == fieldStart.length) {
+                fieldStart = Arrays.copyOf(fieldStart, 2 * fieldStart.length);
+            }
+            fieldStart[fieldCount] = nextStart;
+        }
+
+        public int fieldCount() {
+            return fieldCount;
+        }
+
+        private int start(int field) {
+            return fieldStart[field];
+        }
+
+        private int end(int field) {
+            return fieldStart[field + 1] - 1;
+        }
+
+        /** @return length of the field in bytes, 0 for an empty or missing field */
+        public int fieldLength(int field) {
+            return field < fieldCount ? end(field) - start(field) : 0;
+        }
+
+        /** @return true if the field starts with the (ASCII) prefix */
+        public boolean fieldStartsWith(int field, String prefix) {
+            if (fieldLength(field) < prefix.length()) {
+                return false;
+            }
+            int s = start(field);
+            for (int i = 0; i < prefix.length(); i++) {
+                if (buffer.get(s + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** @return true if the field is the (ASCII) value */
+        public boolean fieldEquals(int field, String value) {
+            return fieldLength(field) == value.length() && fieldStartsWith(field, value);
+        }
+
+        /** @return the field as a new string, or the empty string for a missing field */
+        public String field(int field) {
+            int length = fieldLength(field);
+            if (length == 0) {
+                return "";
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(start(field), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return the number of an id such as {@code HP:0001234} (1234) in the field, or -1 if the field does not
+         * hold an id with the prefix
+         */
+        public int idNumber(int field, String prefix) {
+            if (fieldLength(field) <= prefix.length() + 1 || !fieldStartsWith(field, prefix)
+                    || buffer.get(start(field) + prefix.length()) != ':') {
+                return -1;
+            }
+            int s = start(field) + prefix.length() + 1;
+            int e = end(field);
+            if (e - s > 9) {
+                return -1;
+            }
+            int number = 0;
+            for (int i = s; i < e; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                number = 10 * number + digit;
+            }
+            return number;
+        }
+
+        /** @return the number of the HPO term of the annotation (e.g. 1234 for HP:0001234), or -1 if it is invalid */
+        public int hpoIdNumber() {
+            return idNumber(HPO_ID, "HP");
+        }
+
+        /** @return true for a NOT annotation */
+        public boolean isNegated() {
+            return fieldEquals(QUALIFIER, "NOT");
+        }
+    }
+
+    /**
+     * Scan the annotation lines of the file.
+     *
+     * @param phenotypeHpoa path to phenotype.hpoa
+     * @param collector collects the lines of each chunk into a container; the containers are combined in file order
+     * @return the result of the collector
+     */
+    public static <A, R> R scan(Path phenotypeHpoa, Collector<Line, A, R> collector) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(phenotypeHpoa, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Annotation file is too large to be mapped: " + phenotypeHpoa);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return scan(buffer, collector);
+    }
+
+    /**
+     * Read the release of the file from its {@code #date: ...} or {@code #version: ...} header line.
+     *
+     * @param phenotypeHpoa path to phenotype.hpoa
+     * @return the release, or the empty string if the file has no such header line
+     */
+    public static String release(Path phenotypeHpoa) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(phenotypeHpoa, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null && line.startsWith("#")) {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String key = line.substring(1, colon).trim();
+                if (key.equals("date") || key.equals("version")) {
+                    return line.substring(colon + 1).trim();
+                }
+            }
+        }
+        return "";
+    }
+
+    /** Scan the annotation lines in the buffer (from position 0 to its limit). */
+    public static <A, R> R scan(ByteBuffer buffer, Collector<Line, A, R> collector) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int chunkBytes = Math.max(MIN_CHUNK_BYTES, (buffer.limit() + parallelism - 1) / Math.max(1, parallelism));
+        return scan(buffer, collector, chunkBytes);
+    }
+
+    /**
+     * Scan the annotation lines in the buffer in chunks of about {@code chunkBytes} bytes, e.g. to test chunks that
+     * end within a line.
+     */
+    static <A, R> R scan(ByteBuffer buffer, Collector<Line, A, R> collector, int chunkBytes) {
+        int[] bounds = chunkBounds(buffer, chunkBytes);
+        List<A> containers = IntStream.range(0, bounds.length - 1)
+                .parallel()
+                .mapToObj(i -> scanChunk(buffer, bounds[i], bounds[i + 1], collector))
+                .toList();
+        A result = containers.get(0);
+        for (int i = 1; i < containers.size(); i++) {
+            result = collector.combiner().apply(result, containers.get(i));
+        }
+        return collector.finisher().apply(result);
+    }
+
+    /**
+     * @return start offsets of the chunks, followed by the end of the buffer; a chunk that would end within a line is
+     * extended to the end of the line, so chunks start at the start of a line
+     */
+    private static int[] chunkBounds(ByteBuffer buffer, int chunkSize) {
+        int size = buffer.limit();
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        int next = chunkSize;
+        while (next < size) {
+            while (next < size && buffer.get(next - 1) != '\n') {
+                next++;
+            }
+            if (next < size) {
+                bounds.add(next);
+            }
+            next += chunkSize;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static <A> A scanChunk(ByteBuffer buffer, int from, int to, Collector<Line, A, ?> collector) {
+        A container = collector.supplier().get();
+        BiConsumer<A, Line> accumulator = collector.accumulator();
+        Line line = new Line(buffer);
+        int start = from;
+        while (start < to) {
+            int end = start;
+            while (end < to && buffer.get(end) != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end > start && buffer.get(start) != '#' && !startsWith(buffer, start, end, HEADER_PREFIX)) {
+                line.set(start, end);
+                accumulator.accept(container, line);
+            }
+            start = next;
+        }
+        return container;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,141 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of a parsed ontology that is stored next to the source file (e.g. {@code hp.json.snapshot}
+ * next to {@code hp.json}). Parsing hp.json dominates the start-up time of the GUI and of most CLI commands,
+ * whereas the snapshot can be read back through a memory-mapped buffer in a fraction of the time.
+ * <p>
+ * A snapshot is keyed by the size, the modification time and a CRC32C checksum of the source file. If size
+ * and modification time match, the snapshot is used directly. If only the modification time differs (e.g.
+ * the file was copied or touched), the checksum decides; if it matches, the new modification time is stored in the
+ * snapshot, so that later starts take the fast path again. In all other cases the source file is parsed with
+ * {@link OntologyLoader} and a fresh snapshot is written.
+ */
+public final class OntologySnapshot {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OntologySnapshot.class);
+    /** Suffix that is appended to the name of the source file to get the name of the snapshot file. */
+    public static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    static final long MAGIC = 0x4850_4F57_4253_4E50L; // "HPOWBSNP"
+    static final int FORMAT_VERSION = 1;
+    /** magic, version, source size, source mtime, source CRC */
+    static final int HEADER_SIZE = Long.BYTES + Integer.BYTES + 3 * Long.BYTES;
+    /** Position of the source mtime in the header. */
+    static final int MTIME_OFFSET = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    private OntologySnapshot() {
+    }
+
+    /**
+     * Load an ontology, using the binary snapshot if it is current and (re)writing it if not.
+     *
+     * @param ontologyFile path to hp.json (or any other file understood by {@link OntologyLoader})
+     * @return the ontology
+     */
+    public static Ontology loadOntology(File ontologyFile) {
+        Path source = ontologyFile.toPath();
+        Path snapshot = snapshotPath(source);
+        try {
+            if (isCurrent(source, snapshot)) {
+                long start = System.nanoTime();
+                Ontology ontology = OntologySnapshotReader.read(snapshot);
+                LOGGER.trace("Read ontology snapshot {} in {} ms", snapshot, (System.nanoTime() - start) / 1_000_000);
+                return ontology;
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not read ontology snapshot {}: {}", snapshot, e.getMessage());
+        }
+        Ontology ontology = OntologyLoader.loadOntology(ontologyFile);
+        try {
+            OntologySnapshotWriter.write(ontology, source, snapshot);
+            LOGGER.trace("Wrote ontology snapshot to {}", snapshot);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write ontology snapshot {}: {}", snapshot, e.getMessage());
+        }
+        return ontology;
+    }
+
+    /**
+     * @param source path to hp.json
+     * @return path of the snapshot file that belongs to {@code source}
+     */
+    public static Path snapshotPath(Path source) {
+        return source.resolveSibling(source.getFileName().toString() + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * @return true if {@code snapshot} exists and was created from the current version of {@code source}
+     */
+    static boolean isCurrent(Path source, Path snapshot) throws IOException {
+        if (!Files.isRegularFile(snapshot) || !Files.isRegularFile(source)) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return false;
+                }
+            }
+        }
+        header.flip();
+        if (header.getLong() != MAGIC || header.getInt() != FORMAT_VERSION) {
+            return false;
+        }
+        long size = header.getLong();
+        long mtime = header.getLong();
+        long crc = header.getLong();
+        if (size != Files.size(source)) {
+            return false;
+        }
+        long currentMtime = Files.getLastModifiedTime(source).toMillis();
+        if (mtime == currentMtime) {
+            return true;
+        }
+        if (crc != checksum(source)) {
+            return false;
+        }
+        updateMtime(snapshot, currentMtime);
+        return true;
+    }
+
+    /** Store the modification time of an unchanged source file in the header of its snapshot. */
+    private static void updateMtime(Path snapshot, long mtime) {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, mtime);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, MTIME_OFFSET + buffer.position());
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not update ontology snapshot {}: {}", snapshot, e.getMessage());
+        }
+    }
+
+    /** @return CRC32C checksum of the contents of {@code path}. */
+    static long checksum(Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(path)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+}
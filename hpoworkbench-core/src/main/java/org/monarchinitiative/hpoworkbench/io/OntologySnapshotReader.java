@@ -0,0 +1,169 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Reads an ontology snapshot that was written by {@link OntologySnapshotWriter}. The file is memory-mapped and
+ * decoded in a single pass; term ids are created once per distinct id string and shared between terms,
+ * alt ids and relationships.
+ */
+final class OntologySnapshotReader {
+
+    private final MappedByteBuffer buffer;
+    private String[] strings;
+    private TermId[] termIds;
+
+    private OntologySnapshotReader(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    static Ontology read(Path snapshot) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return new OntologySnapshotReader(buffer).readOntology();
+    }
+
+    private Ontology readOntology() throws IOException {
+        if (buffer.getLong() != OntologySnapshot.MAGIC || buffer.getInt() != OntologySnapshot.FORMAT_VERSION) {
+            throw new IOException("Not an ontology snapshot");
+        }
+        buffer.position(OntologySnapshot.HEADER_SIZE);
+        readStringTable();
+
+        int nMeta = buffer.getInt();
+        Map<String, String> metaInfo = new LinkedHashMap<>();
+        for (int i = 0; i < nMeta; i++) {
+            metaInfo.put(readString(), readString());
+        }
+        int nTerms = buffer.getInt();
+        List<Term> terms = new ArrayList<>(nTerms);
+        for (int i = 0; i < nTerms; i++) {
+            terms.add(readTerm());
+        }
+        int nRelationships = buffer.getInt();
+        List<Relationship> relationships = new ArrayList<>(nRelationships);
+        for (int i = 0; i < nRelationships; i++) {
+            TermId source = readTermId();
+            TermId target = readTermId();
+            int id = buffer.getInt();
+            String typeId = readString();
+            String typeLabel = readString();
+            RelationshipType type = RelationshipType.IS_A.getId().equals(typeId)
+                    ? RelationshipType.IS_A
+                    : RelationshipType.of(typeId, typeLabel);
+            relationships.add(new Relationship(source, target, id, type));
+        }
+        return ImmutableOntology.builder()
+                .metaInfo(metaInfo)
+                .terms(terms)
+                .relationships(relationships)
+                .build();
+    }
+
+    private void readStringTable() {
+        int n = buffer.getInt();
+        strings = new String[n];
+        termIds = new TermId[n];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < n; i++) {
+            int len = buffer.getInt();
+            if (len > scratch.length) {
+                scratch = new byte[Math.max(len, 2 * scratch.length)];
+            }
+            buffer.get(scratch, 0, len);
+            strings[i] = new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+    }
+
+    private Term readTerm() {
+        TermId id = readTermId();
+        String name = readString();
+        String definition = readString();
+        String comment = readString();
+        String createdBy = readString();
+        long creationDate = buffer.getLong();
+        boolean obsolete = buffer.get() != 0;
+
+        int nAlt = buffer.getInt();
+        List<TermId> altIds = new ArrayList<>(nAlt);
+        for (int i = 0; i < nAlt; i++) {
+            altIds.add(readTermId());
+        }
+        int nSubsets = buffer.getInt();
+        List<String> subsets = new ArrayList<>(nSubsets);
+        for (int i = 0; i < nSubsets; i++) {
+            subsets.add(readString());
+        }
+        int nSynonyms = buffer.getInt();
+        List<TermSynonym> synonyms = new ArrayList<>(nSynonyms);
+        TermSynonymScope[] scopes = TermSynonymScope.values();
+        for (int i = 0; i < nSynonyms; i++) {
+            String value = readString();
+            byte scope = buffer.get();
+            String typeName = readString();
+            String typeString = readString();
+            int nXrefs = buffer.getInt();
+            List<TermXref> termXrefs = new ArrayList<>(nXrefs);
+            for (int j = 0; j < nXrefs; j++) {
+                termXrefs.add(new TermXref(readTermId(), readString()));
+            }
+            synonyms.add(new TermSynonym(value, scope < 0 ? null : scopes[scope], typeName, termXrefs, typeString));
+        }
+        int nDatabaseXrefs = buffer.getInt();
+        List<SimpleXref> databaseXrefs = new ArrayList<>(nDatabaseXrefs);
+        for (int i = 0; i < nDatabaseXrefs; i++) {
+            databaseXrefs.add(new SimpleXref(readString()));
+        }
+        int nXrefs = buffer.getInt();
+        List<Dbxref> xrefs = new ArrayList<>(nXrefs);
+        for (int i = 0; i < nXrefs; i++) {
+            String xrefName = readString();
+            String description = readString();
+            int nModifiers = buffer.getInt();
+            Map<String, String> modifiers = nModifiers == 0 ? null : new HashMap<>();
+            for (int j = 0; j < nModifiers; j++) {
+                modifiers.put(readString(), readString());
+            }
+            xrefs.add(new Dbxref(xrefName, description, modifiers));
+        }
+        return Term.builder()
+                .id(id)
+                .name(name)
+                .definition(definition)
+                .comment(comment)
+                .createdBy(createdBy)
+                .creationDate(creationDate == OntologySnapshotWriter.NO_DATE ? null : new Date(creationDate))
+                .obsolete(obsolete)
+                .altTermIds(altIds)
+                .subsets(subsets)
+                .synonyms(synonyms)
+                .databaseXrefs(databaseXrefs)
+                .xrefs(xrefs)
+                .build();
+    }
+
+    private String readString() {
+        int idx = buffer.getInt();
+        return idx == OntologySnapshotWriter.NULL_STRING ? null : strings[idx];
+    }
+
+    private TermId readTermId() {
+        int idx = buffer.getInt();
+        TermId termId = termIds[idx];
+        if (termId == null) {
+            termId = TermId.of(strings[idx]);
+            termIds[idx] = termId;
+        }
+        return termId;
+    }
+}
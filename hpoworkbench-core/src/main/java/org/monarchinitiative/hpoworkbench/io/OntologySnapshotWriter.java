@@ -0,0 +1,201 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Serializes an {@link Ontology} to the binary snapshot format that is read by {@link OntologySnapshotReader}.
+ * All strings (including term ids) are stored once in a string table and referenced by their index, so that
+ * the ids that occur in many places (alt ids, relationships) do not inflate the file.
+ * <p>
+ * Layout: header (see {@link OntologySnapshot#HEADER_SIZE}), string table, meta info, terms, relationships.
+ */
+final class OntologySnapshotWriter {
+
+    /** Index that marks a {@code null} string. */
+    static final int NULL_STRING = -1;
+    /** Marks a term without a creation date. */
+    static final long NO_DATE = Long.MIN_VALUE;
+
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(1 << 20);
+    private final DataOutputStream body = new DataOutputStream(bodyBytes);
+
+    private OntologySnapshotWriter() {
+    }
+
+    /**
+     * Write a snapshot of {@code ontology} that was parsed from {@code source} to {@code snapshot}. The file is
+     * first written to a temporary file in the same directory and then moved in place, so that concurrent
+     * readers never see a partially written snapshot.
+     */
+    static void write(Ontology ontology, Path source, Path snapshot) throws IOException {
+        long size = Files.size(source);
+        long mtime = Files.getLastModifiedTime(source).toMillis();
+        long crc = OntologySnapshot.checksum(source);
+
+        OntologySnapshotWriter writer = new OntologySnapshotWriter();
+        writer.writeBody(ontology);
+
+        Path tmp = Files.createTempFile(snapshot.toAbsolutePath().getParent(), snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeLong(OntologySnapshot.MAGIC);
+                out.writeInt(OntologySnapshot.FORMAT_VERSION);
+                out.writeLong(size);
+                out.writeLong(mtime);
+                out.writeLong(crc);
+                out.writeInt(writer.strings.size());
+                for (String s : writer.strings) {
+                    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                writer.bodyBytes.writeTo(out);
+            }
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void writeBody(Ontology ontology) throws IOException {
+        Map<String, String> metaInfo = ontology.getMetaInfo();
+        body.writeInt(metaInfo.size());
+        for (Map.Entry<String, String> e : metaInfo.entrySet()) {
+            writeString(e.getKey());
+            writeString(e.getValue());
+        }
+        // getTerms() may contain the same term more than once (once per alt id), we only store primary terms
+        Map<TermId, Term> terms = new LinkedHashMap<>();
+        for (Term term : ontology.getTerms()) {
+            terms.putIfAbsent(term.id(), term);
+        }
+        body.writeInt(terms.size());
+        for (Term term : terms.values()) {
+            writeTerm(term);
+        }
+        Collection<Relationship> relationships = ontology.getRelationMap().values();
+        body.writeInt(relationships.size());
+        for (Relationship r : relationships) {
+            writeString(r.getSource().getValue());
+            writeString(r.getTarget().getValue());
+            body.writeInt(r.getId());
+            writeString(r.getRelationshipType().getId());
+            writeString(r.getRelationshipType().getLabel());
+        }
+        body.flush();
+    }
+
+    private void writeTerm(Term term) throws IOException {
+        writeString(term.id().getValue());
+        writeString(term.getName());
+        writeString(term.getDefinition());
+        writeString(term.getComment());
+        writeString(term.getCreatedBy());
+        body.writeLong(term.getCreationDate().map(Date::getTime).orElse(NO_DATE));
+        body.writeBoolean(term.isObsolete());
+
+        List<TermId> altIds = nullToEmpty(term.getAltTermIds());
+        body.writeInt(altIds.size());
+        for (TermId altId : altIds) {
+            writeString(altId.getValue());
+        }
+        List<String> subsets = nullToEmpty(term.getSubsets());
+        body.writeInt(subsets.size());
+        for (String subset : subsets) {
+            writeString(subset);
+        }
+        List<TermSynonym> synonyms = nullToEmpty(term.getSynonyms());
+        body.writeInt(synonyms.size());
+        for (TermSynonym synonym : synonyms) {
+            writeString(synonym.getValue());
+            body.writeByte(synonym.getScope() == null ? -1 : synonym.getScope().ordinal());
+            writeString(synonym.getSynonymTypeName());
+            writeString(synonymTypeString(synonym));
+            List<TermXref> termXrefs = nullToEmpty(synonym.getTermXrefs());
+            body.writeInt(termXrefs.size());
+            for (TermXref xref : termXrefs) {
+                writeString(xref.id().getValue());
+                writeString(xref.getDescription());
+            }
+        }
+        List<SimpleXref> databaseXrefs = nullToEmpty(term.getDatabaseXrefs());
+        body.writeInt(databaseXrefs.size());
+        for (SimpleXref xref : databaseXrefs) {
+            writeString(xref.getCurie());
+        }
+        List<Dbxref> xrefs = nullToEmpty(term.getXrefs());
+        body.writeInt(xrefs.size());
+        for (Dbxref xref : xrefs) {
+            writeString(xref.getName());
+            writeString(xref.getDescription());
+            Map<String, String> modifiers = xref.getTrailingModifiers() == null ? Map.of() : xref.getTrailingModifiers();
+            body.writeInt(modifiers.size());
+            for (Map.Entry<String, String> e : modifiers.entrySet()) {
+                writeString(e.getKey());
+                writeString(e.getValue());
+            }
+        }
+    }
+
+    /**
+     * The string that is stored for each synonym type. phenol does not expose the raw type string, so for every type
+     * we take the first candidate that {@code SynonymType.fromString} maps back to it, falling back to the enum name.
+     */
+    private static final Map<SynonymType, String> SYNONYM_TYPE_STRINGS = synonymTypeStrings();
+
+    private static Map<SynonymType, String> synonymTypeStrings() {
+        Map<SynonymType, String> strings = new EnumMap<>(SynonymType.class);
+        for (SynonymType type : SynonymType.values()) {
+            String lowerCase = type.name().toLowerCase(Locale.ROOT);
+            for (String candidate : List.of("layperson", "abbreviation", "UK spelling", "obsolete synonym",
+                    "plural form", lowerCase.replace('_', ' '), lowerCase, type.name())) {
+                if (fromString(candidate) == type) {
+                    strings.put(type, candidate);
+                    break;
+                }
+            }
+        }
+        return strings;
+    }
+
+    private static SynonymType fromString(String s) {
+        try {
+            return SynonymType.fromString(s);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** @return a string that {@code SynonymType.fromString} maps back to the type of the synonym */
+    private static String synonymTypeString(TermSynonym synonym) {
+        SynonymType type = synonym.getSynonymType();
+        return type == null ? null : SYNONYM_TYPE_STRINGS.getOrDefault(type, type.name());
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            body.writeInt(NULL_STRING);
+            return;
+        }
+        Integer idx = stringIndex.get(s);
+        if (idx == null) {
+            idx = strings.size();
+            strings.add(s);
+            stringIndex.put(s, idx);
+        }
+        body.writeInt(idx);
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+}
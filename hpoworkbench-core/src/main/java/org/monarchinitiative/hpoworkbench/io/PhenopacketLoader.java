@@ -0,0 +1,444 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import com.google.protobuf.util.JsonFormat;
+import org.phenopackets.schema.v2.Phenopacket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Reads the phenopacket JSON files ({@code *.json}) of a directory and all of its subdirectories, in the order of the
+ * directories and then of the file names. The JSON is parsed directly into the protobuf classes, in parallel. The
+ * files can be read in batches of a fixed number of packets (see {@link #load(Path, boolean, int, BatchConsumer)}),
+ * so that a caller that processes one batch at a time does not need much memory, however many packets there are.
+ * <p>
+ * Each directory keeps a cache of its packets in {@link #CACHE_NAME}: the packets as length-delimited protobuf
+ * messages, each with the name, modification time and size of its JSON file, in the order of the file names. A cached
+ * packet is used as long as its file has the same modification time and size, so repeated runs over the same cohort
+ * do not parse any JSON, and only new or modified files are parsed after a change. The cache is read and rewritten
+ * as a stream alongside the files, and only rewritten if a file was parsed or removed. A cache that cannot be read
+ * or written is logged and ignored.
+ */
+public final class PhenopacketLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PhenopacketLoader.class);
+
+    public static final String CACHE_NAME = ".phenopackets.pb";
+
+    static final long MAGIC = 0x4850_4F57_4250_5043L; // "HPOWBPPC"
+    private static final int FORMAT_VERSION = 2;
+    /** Written instead of a file name after the last packet of a cache. */
+    private static final String END_OF_CACHE = "";
+
+    /** A phenopacket and the JSON file it was read from. */
+    public record LoadedPhenopacket(Path file, Phenopacket phenopacket) {}
+
+    /** A JSON file that could not be read. */
+    public record Failure(Path file, String message) {}
+
+    /**
+     * @param phenopackets the packets, in the order of their files
+     * @param failures the files that could not be read
+     * @param cached number of packets that were taken from the caches
+     */
+    public record Result(List<LoadedPhenopacket> phenopackets, List<Failure> failures, int cached) {}
+
+    /** Receives the packets of one batch of files. */
+    @FunctionalInterface
+    public interface BatchConsumer {
+        void accept(Result batch) throws IOException;
+    }
+
+    /** Modification time and size of a JSON file when it was parsed. */
+    private record Stamp(long modified, long size) {
+        static Stamp of(Path file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new Stamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+        }
+    }
+
+    private PhenopacketLoader() {
+    }
+
+    /**
+     * Read all packets at once.
+     *
+     * @param path a directory, or a single JSON file (which is never cached)
+     * @param useCache false to parse all files without reading or writing the caches
+     */
+    public static Result load(Path path, boolean useCache) throws IOException {
+        List<LoadedPhenopacket> phenopackets = new ArrayList<>();
+        List<Failure> failures = new ArrayList<>();
+        int[] cached = {0};
+        load(path, useCache, Integer.MAX_VALUE, batch -> {
+            phenopackets.addAll(batch.phenopackets());
+            failures.addAll(batch.failures());
+            cached[0] += batch.cached();
+        });
+        return new Result(phenopackets, failures, cached[0]);
+    }
+
+    /**
+     * Read the packets in batches of {@code batchSize} files. Each batch is passed to {@code consumer} before the
+     * next one is read, and the packets of a batch are not referenced by the loader afterwards.
+     *
+     * @param path a directory, or a single JSON file (which is never cached)
+     * @param useCache false to parse all files without reading or writing the caches
+     * @param batchSize maximum number of files per batch
+     * @param consumer receives the batches, in the order of the files
+     */
+    public static void load(Path path, boolean useCache, int batchSize, BatchConsumer consumer) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive, was " + batchSize);
+        }
+        if (!Files.isDirectory(path)) {
+            try {
+                consumer.accept(new Result(List.of(new LoadedPhenopacket(path, parse(path))), List.of(), 0));
+            } catch (IOException e) {
+                consumer.accept(new Result(List.of(), List.of(new Failure(path, e.getMessage())), 0));
+            }
+            return;
+        }
+        SortedMap<Path, List<Path>> filesByDirectory = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.filter(p -> p.getFileName().toString().endsWith(".json") && Files.isRegularFile(p))
+                    .forEach(p -> filesByDirectory.computeIfAbsent(p.getParent(), d -> new ArrayList<>()).add(p));
+        }
+        List<Path> files = new ArrayList<>();
+        // lastFile[i] is true if files[i] is the last file of its directory
+        BitSet lastFile = new BitSet();
+        for (List<Path> directoryFiles : filesByDirectory.values()) {
+            directoryFiles.sort(Comparator.comparing(f -> f.getFileName().toString()));
+            files.addAll(directoryFiles);
+            lastFile.set(files.size() - 1);
+        }
+        // caches that were opened and not yet finished, and the cache of the directory of the last file looked up
+        List<DirectoryCache> open = new ArrayList<>();
+        DirectoryCache current = null;
+        try {
+            for (int from = 0; from < files.size(); from += batchSize) {
+                int n = (int) Math.min(batchSize, (long) files.size() - from);
+                List<Path> batch = files.subList(from, from + n);
+                Stamp[] stamps = new Stamp[n];
+                Phenopacket[] packets = new Phenopacket[n];
+                String[] errors = new String[n];
+                boolean[] fromCache = new boolean[n];
+                DirectoryCache[] caches = new DirectoryCache[n];
+                // the stamp is taken before parsing, so a file that changes while it is parsed is parsed again later
+                IntStream.range(0, n).parallel().forEach(i -> {
+                    try {
+                        stamps[i] = Stamp.of(batch.get(i));
+                    } catch (IOException e) {
+                        errors[i] = e.getMessage();
+                    }
+                });
+                // the caches are streams in the order of the file names, so they are read sequentially
+                for (int i = 0; i < n; i++) {
+                    Path file = batch.get(i);
+                    if (current == null || !current.directory.equals(file.getParent())) {
+                        current = DirectoryCache.open(file.getParent(), useCache);
+                        open.add(current);
+                    }
+                    caches[i] = current;
+                    if (stamps[i] != null) {
+                        packets[i] = current.cached(file.getFileName().toString(), stamps[i]);
+                        fromCache[i] = packets[i] != null;
+                    }
+                }
+                IntStream.range(0, n).parallel().filter(i -> stamps[i] != null && packets[i] == null).forEach(i -> {
+                    try {
+                        packets[i] = parse(batch.get(i));
+                    } catch (IOException e) {
+                        errors[i] = e.getMessage();
+                    }
+                });
+                List<LoadedPhenopacket> phenopackets = new ArrayList<>(n);
+                List<Failure> failures = new ArrayList<>();
+                int cached = 0;
+                for (int i = 0; i < n; i++) {
+                    Path file = batch.get(i);
+                    if (packets[i] != null) {
+                        phenopackets.add(new LoadedPhenopacket(file, packets[i]));
+                        caches[i].record(file.getFileName().toString(), stamps[i], packets[i], fromCache[i]);
+                        if (fromCache[i]) {
+                            cached++;
+                        }
+                    } else {
+                        failures.add(new Failure(file, errors[i]));
+                    }
+                    if (lastFile.get(from + i)) {
+                        caches[i].finish();
+                        open.remove(caches[i]);
+                    }
+                }
+                consumer.accept(new Result(phenopackets, failures, cached));
+            }
+        } finally {
+            for (DirectoryCache cache : open) {
+                cache.abort();
+            }
+        }
+    }
+
+    /** Parse one phenopacket JSON file. */
+    public static Phenopacket parse(Path file) throws IOException {
+        Phenopacket.Builder builder = Phenopacket.newBuilder();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            JsonFormat.parser().merge(reader, builder);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The cache of one directory while its files are read. The old cache is read as a stream alongside the files,
+     * which come in the same order. The new cache is only started once it differs from the old one, i.e. once a file
+     * was parsed or an entry of the old cache turned out to be stale or to belong to a file that is gone; the entries
+     * before that are then copied from the old cache. Not thread-safe.
+     */
+    private static final class DirectoryCache {
+        private final Path directory;
+        private final Path cache;
+        /** False if the cache is not used or could not be written. */
+        private boolean enabled;
+        /** The old cache, positioned before the packet of {@link #next}; null if it has no more entries. */
+        private DataInputStream in;
+        /** File name of the next entry of the old cache, null at its end. */
+        private String next;
+        private Stamp nextStamp;
+        /** True if the new cache differs from the old one. */
+        private boolean changed;
+        /** Number of packets that were taken from the old cache before the new cache was started. */
+        private int unchanged;
+        private int written;
+        private Path tmp;
+        private DataOutputStream out;
+
+        private DirectoryCache(Path directory, boolean enabled) {
+            this.directory = directory;
+            this.cache = directory.resolve(CACHE_NAME);
+            this.enabled = enabled;
+        }
+
+        static DirectoryCache open(Path directory, boolean useCache) {
+            DirectoryCache directoryCache = new DirectoryCache(directory, useCache);
+            if (useCache && Files.isRegularFile(directoryCache.cache)) {
+                directoryCache.openOld();
+            }
+            return directoryCache;
+        }
+
+        private void openOld() {
+            try {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cache), 1 << 16));
+                if (in.readLong() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    LOGGER.trace("Phenopacket cache {} has an old format", cache);
+                    closeOld();
+                    return;
+                }
+                advance();
+            } catch (IOException e) {
+                LOGGER.warn("Could not read phenopacket cache {}: {}", cache, e.getMessage());
+                closeOld();
+            }
+        }
+
+        /** Read the file name and stamp of the next entry of the old cache. */
+        private void advance() throws IOException {
+            String name = in.readUTF();
+            if (name.equals(END_OF_CACHE)) {
+                closeOld();
+                return;
+            }
+            next = name;
+            nextStamp = new Stamp(in.readLong(), in.readLong());
+        }
+
+        /** @return the cached packet of the file, or null if there is none or the file has changed since */
+        Phenopacket cached(String name, Stamp stamp) {
+            if (in == null) {
+                return null;
+            }
+            try {
+                // the entries of files that are gone
+                while (next != null && next.compareTo(name) < 0) {
+                    in.skipNBytes(readLength(in));
+                    changed = true;
+                    advance();
+                }
+                if (next == null || !next.equals(name)) {
+                    return null;
+                }
+                Phenopacket packet = null;
+                if (nextStamp.equals(stamp)) {
+                    packet = Phenopacket.parseFrom(readMessage(in));
+                } else {
+                    in.skipNBytes(readLength(in));
+                    changed = true;
+                }
+                advance();
+                return packet;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not read phenopacket cache {}: {}", cache, e.getMessage());
+                closeOld();
+                changed = true;
+                return null;
+            }
+        }
+
+        /** Add a packet that was read to the new cache; packets must be recorded in the order of their files. */
+        void record(String name, Stamp stamp, Phenopacket packet, boolean fromCache) {
+            if (!enabled) {
+                return;
+            }
+            changed |= !fromCache;
+            if (out == null) {
+                if (!changed) {
+                    unchanged++;
+                    return;
+                }
+                startWriting();
+            }
+            try {
+                if (out != null) {
+                    out.writeUTF(name);
+                    out.writeLong(stamp.modified());
+                    out.writeLong(stamp.size());
+                    packet.writeDelimitedTo(out);
+                    written++;
+                }
+            } catch (IOException e) {
+                writeFailed(e);
+            }
+        }
+
+        /** Called after the last file of the directory: move the new cache in place if it differs from the old one. */
+        void finish() {
+            // entries after the last file belong to files that are gone
+            changed |= next != null;
+            closeOld();
+            if (!enabled) {
+                return;
+            }
+            if (out == null && changed) {
+                startWriting();
+            }
+            if (out == null) {
+                return;
+            }
+            try {
+                out.writeUTF(END_OF_CACHE);
+                out.close();
+                out = null;
+                Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.trace("Wrote {} phenopackets to {}", written, cache);
+            } catch (IOException e) {
+                writeFailed(e);
+            }
+        }
+
+        /** Close the caches without writing the new one. */
+        void abort() {
+            closeOld();
+            discard();
+        }
+
+        /** Open the new cache and copy the unchanged entries of the old one. */
+        private void startWriting() {
+            try {
+                tmp = Files.createTempFile(cache.toAbsolutePath().getParent(), CACHE_NAME, ".tmp");
+                out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16));
+                out.writeLong(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                if (unchanged > 0) {
+                    InputStream oldCache = new BufferedInputStream(Files.newInputStream(cache), 1 << 16);
+                    try (DataInputStream old = new DataInputStream(oldCache)) {
+                        old.readLong();
+                        old.readInt();
+                        for (int i = 0; i < unchanged; i++) {
+                            out.writeUTF(old.readUTF());
+                            out.writeLong(old.readLong());
+                            out.writeLong(old.readLong());
+                            byte[] message = readMessage(old);
+                            writeLength(out, message.length);
+                            out.write(message);
+                        }
+                    }
+                }
+                written = unchanged;
+            } catch (IOException e) {
+                writeFailed(e);
+            }
+        }
+
+        private void writeFailed(IOException e) {
+            LOGGER.warn("Could not write phenopacket cache {}: {}", cache, e.getMessage());
+            enabled = false;
+            discard();
+        }
+
+        private void discard() {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+                if (tmp != null) {
+                    Files.deleteIfExists(tmp);
+                }
+            } catch (IOException e) {
+                LOGGER.trace("Could not delete {}: {}", tmp, e.getMessage());
+            }
+            out = null;
+            tmp = null;
+        }
+
+        private void closeOld() {
+            next = null;
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    LOGGER.trace("Could not close {}: {}", cache, e.getMessage());
+                }
+                in = null;
+            }
+        }
+    }
+
+    /** Read the message that follows a length in the format of {@link Phenopacket#writeDelimitedTo}. */
+    private static byte[] readMessage(DataInputStream in) throws IOException {
+        int length = readLength(in);
+        byte[] message = in.readNBytes(length);
+        if (message.length != length) {
+            throw new EOFException("Truncated phenopacket");
+        }
+        return message;
+    }
+
+    /** Read the varint length of a delimited protobuf message. */
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            length |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return length;
+            }
+        }
+        throw new IOException("Malformed message length");
+    }
+
+    private static void writeLength(DataOutputStream out, int length) throws IOException {
+        while ((length & ~0x7f) != 0) {
+            out.writeByte((length & 0x7f) | 0x80);
+            length >>>= 7;
+        }
+        out.writeByte(length);
+    }
+}
@@ -0,0 +1,122 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entry point for loading hp.json and phenotype.hpoa. By default every call loads the file again, with
+ * {@link OntologySnapshot#loadOntology(File)} and {@link HpoaDiseaseBlocks} respectively. In a long-running
+ * process that executes many commands (see the {@code serve} command of the CLI), {@link #enable()} turns on a
+ * cache so that each file is only loaded once and kept resident. A cached object is reused as long as the size and
+ * modification time of the file are unchanged; otherwise the file is loaded again and replaces the cached object.
+ */
+public final class ResidentResources {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResidentResources.class);
+
+    private static volatile boolean enabled = false;
+    /** Key: canonical path of hp.json. */
+    private static final Map<Path, Cached<Ontology>> ONTOLOGIES = new HashMap<>();
+    /** Key: canonical path of phenotype.hpoa. */
+    private static final Map<Path, Cached<HpoDiseases>> DISEASES = new HashMap<>();
+
+    /**
+     * A loaded resource.
+     *
+     * @param size size of the file when it was loaded
+     * @param lastModified modification time of the file when it was loaded
+     * @param ontology ontology the resource was loaded with, {@code null} for the ontology itself
+     * @param value the loaded resource
+     */
+    private record Cached<T>(long size, long lastModified, Ontology ontology, T value) {
+        boolean isCurrent(BasicFileAttributes attrs, Ontology currentOntology) {
+            return size == attrs.size()
+                    && lastModified == attrs.lastModifiedTime().toMillis()
+                    && ontology == currentOntology;
+        }
+    }
+
+    private ResidentResources() {
+    }
+
+    /** Keep loaded resources resident for the rest of the lifetime of the JVM. */
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Drop all cached resources. */
+    public static synchronized void clear() {
+        ONTOLOGIES.clear();
+        DISEASES.clear();
+    }
+
+    /**
+     * @param hpJson path to hp.json
+     * @return the ontology, from the cache if caching is enabled and the file did not change
+     */
+    public static Ontology ontology(File hpJson) {
+        if (!enabled) {
+            return OntologySnapshot.loadOntology(hpJson);
+        }
+        synchronized (ResidentResources.class) {
+            try {
+                Path path = hpJson.toPath().toRealPath();
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                Cached<Ontology> cached = ONTOLOGIES.get(path);
+                if (cached != null && cached.isCurrent(attrs, null)) {
+                    return cached.value();
+                }
+                LOGGER.info("Loading resident ontology from {}", path);
+                Ontology ontology = OntologySnapshot.loadOntology(path.toFile());
+                ONTOLOGIES.put(path, new Cached<>(attrs.size(), attrs.lastModifiedTime().toMillis(), null, ontology));
+                return ontology;
+            } catch (IOException e) {
+                // let the loader report the problem with the file
+                return OntologySnapshot.loadOntology(hpJson);
+            }
+        }
+    }
+
+    /**
+     * Load phenotype.hpoa with the default loader options. The file is always read with {@link HpoaDiseaseBlocks},
+     * whether caching is enabled or not, so that a command gets the same diseases locally and on the server.
+     *
+     * @param phenotypeHpoa path to phenotype.hpoa
+     * @param ontology the ontology the annotations are resolved against
+     * @return the diseases, from the cache if caching is enabled and neither the file nor the ontology changed
+     */
+    public static HpoDiseases diseases(Path phenotypeHpoa, Ontology ontology) throws IOException {
+        if (!enabled) {
+            return loadDiseases(phenotypeHpoa, ontology);
+        }
+        synchronized (ResidentResources.class) {
+            Path path = phenotypeHpoa.toRealPath();
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            Cached<HpoDiseases> cached = DISEASES.get(path);
+            if (cached != null && cached.isCurrent(attrs, ontology)) {
+                return cached.value();
+            }
+            LOGGER.info("Loading resident annotations from {}", path);
+            HpoDiseases diseases = loadDiseases(path, ontology);
+            DISEASES.put(path, new Cached<>(attrs.size(), attrs.lastModifiedTime().toMillis(), ontology, diseases));
+            return diseases;
+        }
+    }
+
+    private static HpoDiseases loadDiseases(Path phenotypeHpoa, Ontology ontology) throws IOException {
+        return HpoaDiseaseBlocks.read(phenotypeHpoa).resolve(ontology);
+    }
+}
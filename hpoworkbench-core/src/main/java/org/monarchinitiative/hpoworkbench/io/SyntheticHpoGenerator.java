@@ -0,0 +1,282 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates an HPO-shaped {@code hp.json} and a matching {@code phenotype.hpoa} of arbitrary size, e.g. to find out
+ * how the workbench behaves with ten times the current number of annotations. The files can be read with the same
+ * code as the real downloads.
+ * <p>
+ * The ontology has the real top-level terms (Phenotypic abnormality, Mode of inheritance with autosomal dominant and
+ * recessive inheritance, Clinical modifier, Clinical course and Frequency). The generated terms have the ids
+ * {@code HP:1000000}, {@code HP:1000001}, ... and form a tree below Phenotypic abnormality in which each term has
+ * {@code branching} children; the direct children of Phenotypic abnormality are labelled "Abnormality of ...", like
+ * the organ system terms of the HPO. A fraction of the terms (the multi-parent ratio) gets a second parent that was
+ * generated before the term itself, so that the graph stays acyclic. About two thirds of the terms have a
+ * definition, and terms have up to two synonyms.
+ * <p>
+ * Each disease has one mode of inheritance and {@code annotationsPerDisease} phenotypic annotations, which are skewed
+ * towards the more specific terms; about one in twenty annotations is negated and one in four has a frequency. The
+ * diseases are taken from OMIM, ORPHA and DECIPHER in the ratio 3:1:1. The output only depends on the settings, so
+ * two generators with the same settings produce identical files.
+ * <pre>
+ *     SyntheticHpoGenerator generator = new SyntheticHpoGenerator.Builder()
+ *             .terms(16_000)
+ *             .diseases(12_000)
+ *             .annotationsPerDisease(20)
+ *             .build();
+ *     generator.write(directory); // hp.json and phenotype.hpoa
+ * </pre>
+ */
+public final class SyntheticHpoGenerator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticHpoGenerator.class);
+
+    public static final String HP_JSON = "hp.json";
+    public static final String PHENOTYPE_HPOA = "phenotype.hpoa";
+    /** Numeric part of the id of the first generated term. */
+    public static final int FIRST_GENERATED_ID = 1_000_000;
+
+    private static final String PURL = "http://purl.obolibrary.org/obo/HP_";
+    private static final String PHENOTYPIC_ABNORMALITY = "0000118";
+    private static final String RELEASE = "2022-06-11";
+    /** Id, label and parent of the terms above the generated ones. */
+    private static final String[][] TOP_LEVEL = {
+            {"0000001", "All", null},
+            {PHENOTYPIC_ABNORMALITY, "Phenotypic abnormality", "0000001"},
+            {"0000005", "Mode of inheritance", "0000001"},
+            {"0000006", "Autosomal dominant inheritance", "0000005"},
+            {"0000007", "Autosomal recessive inheritance", "0000005"},
+            {"0012823", "Clinical modifier", "0000001"},
+            {"0031797", "Clinical course", "0000001"},
+            {"0040279", "Frequency", "0000001"}};
+    private static final String[] INHERITANCE = {"HP:0000006", "HP:0000007"};
+    private static final String[] DATABASES = {"OMIM", "OMIM", "OMIM", "ORPHA", "DECIPHER"};
+
+    private final int termCount;
+    private final int branching;
+    private final double multiParentRatio;
+    private final int diseaseCount;
+    private final int annotationsPerDisease;
+    private final long seed;
+
+    private SyntheticHpoGenerator(Builder builder) {
+        this.termCount = builder.terms;
+        this.branching = builder.branching;
+        this.multiParentRatio = builder.multiParentRatio;
+        this.diseaseCount = builder.diseases;
+        this.annotationsPerDisease = builder.annotationsPerDisease;
+        this.seed = builder.seed;
+    }
+
+    /** @return id of the {@code i}th generated term, e.g. {@code HP:1000000} for {@code i = 0} */
+    public static String termId(int i) {
+        return "HP:" + numericId(i);
+    }
+
+    private static String numericId(int i) {
+        return String.format(Locale.ROOT, "%07d", FIRST_GENERATED_ID + i);
+    }
+
+    /** @return number of generated terms (not counting the top-level terms) */
+    public int termCount() {
+        return termCount;
+    }
+
+    public int diseaseCount() {
+        return diseaseCount;
+    }
+
+    /**
+     * Write {@link #HP_JSON} and {@link #PHENOTYPE_HPOA} to {@code directory}, which is created if necessary.
+     */
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        writeOntology(directory.resolve(HP_JSON));
+        writeAnnotations(directory.resolve(PHENOTYPE_HPOA));
+    }
+
+    /** Write the ontology in the obographs JSON format of {@code hp.json}. */
+    public void writeOntology(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writeOntology(writer);
+        }
+        LOGGER.trace("Wrote {} synthetic terms to {}", termCount, path);
+    }
+
+    /** Write the annotations in the format of {@code phenotype.hpoa}. */
+    public void writeAnnotations(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writeAnnotations(writer);
+        }
+        LOGGER.trace("Wrote {} synthetic diseases to {}", diseaseCount, path);
+    }
+
+    public void writeOntology(Writer writer) throws IOException {
+        Random random = new Random(seed);
+        writer.write("{\"graphs\":[{\"id\":\"http://purl.obolibrary.org/obo/hp.json\",\"meta\":{\"version\":"
+                + "\"http://purl.obolibrary.org/obo/hp/releases/" + RELEASE + "/hp.json\",\"basicPropertyValues\":"
+                + "[{\"pred\":\"http://www.w3.org/2002/07/owl#versionInfo\",\"val\":\"" + RELEASE + "\"}]},\n");
+        writer.write("\"nodes\":[\n");
+        for (String[] term : TOP_LEVEL) {
+            writer.write("{\"id\":\"" + PURL + term[0] + "\",\"lbl\":\"" + term[1] + "\",\"type\":\"CLASS\"}");
+            writer.write(termCount > 0 || term != TOP_LEVEL[TOP_LEVEL.length - 1] ? ",\n" : "\n");
+        }
+        // the nodes and the edges use separate random streams so that the edges do not depend on the node metadata
+        Random metadata = new Random(random.nextLong());
+        for (int i = 0; i < termCount; i++) {
+            String label = i < branching ? "Abnormality of organ system " + i : "Synthetic phenotype " + i;
+            writer.write("{\"id\":\"" + PURL + numericId(i) + "\",\"lbl\":\"" + label + "\",\"type\":\"CLASS\"");
+            writeMetadata(writer, label, metadata);
+            writer.write(i + 1 < termCount ? "},\n" : "}\n");
+        }
+        writer.write("],\n\"edges\":[\n");
+        boolean first = true;
+        for (String[] term : TOP_LEVEL) {
+            if (term[2] != null) {
+                first = writeIsA(writer, term[0], term[2], first);
+            }
+        }
+        for (int i = 0; i < termCount; i++) {
+            int parent = i / branching - 1;
+            first = writeIsA(writer, numericId(i), parent < 0 ? PHENOTYPIC_ABNORMALITY : numericId(parent), first);
+            // a second parent that was generated before the parent keeps the graph acyclic
+            if (parent > 0 && random.nextDouble() < multiParentRatio) {
+                first = writeIsA(writer, numericId(i), numericId(random.nextInt(parent)), first);
+            }
+        }
+        writer.write("\n]}]}\n");
+    }
+
+    private static void writeMetadata(Writer writer, String label, Random random) throws IOException {
+        boolean definition = random.nextInt(3) > 0;
+        int synonyms = random.nextInt(3);
+        if (!definition && synonyms == 0) {
+            return;
+        }
+        writer.write(",\"meta\":{");
+        if (definition) {
+            writer.write("\"definition\":{\"val\":\"Definition of " + label + ".\"}");
+        }
+        if (synonyms > 0) {
+            writer.write(definition ? ",\"synonyms\":[" : "\"synonyms\":[");
+            for (int s = 0; s < synonyms; s++) {
+                writer.write(s > 0 ? "," : "");
+                writer.write("{\"pred\":\"hasExactSynonym\",\"val\":\"" + label + " synonym " + s + "\"}");
+            }
+            writer.write(']');
+        }
+        writer.write('}');
+    }
+
+    private static boolean writeIsA(Writer writer, String sub, String obj, boolean first) throws IOException {
+        if (!first) {
+            writer.write(",\n");
+        }
+        writer.write("{\"sub\":\"" + PURL + sub + "\",\"pred\":\"is_a\",\"obj\":\"" + PURL + obj + "\"}");
+        return false;
+    }
+
+    public void writeAnnotations(Writer writer) throws IOException {
+        Random random = new Random(seed + 1);
+        writer.write("#description: \"synthetic HPO annotations\"\n");
+        writer.write("#version: " + RELEASE + "\n");
+        writer.write("#DatabaseID\tdisease_name\tqualifier\thpo_id\treference\tevidence\tonset\tfrequency\tsex\tmodifier\taspect\tbiocuration\n");
+        for (int d = 0; d < diseaseCount; d++) {
+            String diseaseId = DATABASES[d % DATABASES.length] + ":" + (100_000 + d);
+            String name = "Synthetic disease " + d;
+            String inheritance = INHERITANCE[random.nextInt(INHERITANCE.length)];
+            writeAnnotation(writer, diseaseId, name, "", inheritance, "", "I");
+            if (termCount == 0) {
+                continue;
+            }
+            for (int a = 0; a < annotationsPerDisease; a++) {
+                // more annotations to the deeper (higher numbered) terms, as in the real annotations
+                int term = termCount - 1 - (int) (termCount * random.nextDouble() * random.nextDouble());
+                String qualifier = random.nextInt(20) == 0 ? "NOT" : "";
+                String frequency = random.nextInt(4) == 0 ? (1 + random.nextInt(5)) + "/5" : "";
+                writeAnnotation(writer, diseaseId, name, qualifier, termId(term), frequency, "P");
+            }
+        }
+    }
+
+    private static void writeAnnotation(Writer writer, String diseaseId, String name, String qualifier,
+                                        String hpoId, String frequency, String aspect) throws IOException {
+        writer.write(String.join("\t", diseaseId, name, qualifier, hpoId, diseaseId, "IEA", "", frequency,
+                "", "", aspect, "HPO:probinson[" + RELEASE + "]"));
+        writer.write('\n');
+    }
+
+    public static class Builder {
+        private int terms = 16_000;
+        private int branching = 6;
+        private double multiParentRatio = 0.1;
+        private int diseases = 12_000;
+        private int annotationsPerDisease = 20;
+        private long seed = 42L;
+
+        /** @param n number of generated terms below Phenotypic abnormality (default: 16000) */
+        public Builder terms(int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("Number of terms must not be negative: " + n);
+            }
+            terms = n;
+            return this;
+        }
+
+        /** @param n number of children of each term (default: 6) */
+        public Builder branching(int n) {
+            if (n < 1) {
+                throw new IllegalArgumentException("Branching must be at least 1: " + n);
+            }
+            branching = n;
+            return this;
+        }
+
+        /** @param ratio fraction of the terms that have a second parent (default: 0.1) */
+        public Builder multiParentRatio(double ratio) {
+            if (!(ratio >= 0.0 && ratio <= 1.0)) {
+                throw new IllegalArgumentException("Multi-parent ratio must be between 0 and 1: " + ratio);
+            }
+            multiParentRatio = ratio;
+            return this;
+        }
+
+        /** @param n number of diseases (default: 12000) */
+        public Builder diseases(int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("Number of diseases must not be negative: " + n);
+            }
+            diseases = n;
+            return this;
+        }
+
+        /** @param n number of phenotypic annotations of each disease (default: 20) */
+        public Builder annotationsPerDisease(int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("Number of annotations must not be negative: " + n);
+            }
+            annotationsPerDisease = n;
+            return this;
+        }
+
+        /** @param s seed of the random numbers (default: 42) */
+        public Builder seed(long s) {
+            seed = s;
+            return this;
+        }
+
+        public SyntheticHpoGenerator build() {
+            return new SyntheticHpoGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.monarchinitiative.hpoworkbench.exception.UncheckedException;
+import org.monarchinitiative.phenol.graph.IdLabeledEdge;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+/**
+ * Reflexive ancestor closure of an ontology, computed once in topological order. Terms are identified by their
+ * {@link TermRegistry} index. For each term, the indices of all of its ancestors (including the term itself) are
+ * stored as a sorted int array.
+ * <p>
+ * Code that repeatedly needs the ancestors of many terms (e.g., propagating disease annotations to all ancestors)
+ * should use this class instead of calling {@code OntologyAlgorithm.getAncestorTerms} over and over.
+ * The arrays that are returned by the accessors are shared and must not be modified.
+ */
+public final class AncestorClosure {
+    private final TermRegistry registry;
+    /** Indices of the direct parents of each term. */
+    private final int[][] parents;
+    /** Indices of the direct children of each term. */
+    private final int[][] children;
+    /** All term indices, parents come before their children. */
+    private final int[] topologicalOrder;
+    /** Sorted indices of all ancestors of each term, including the term itself. */
+    private final int[][] ancestors;
+
+    private AncestorClosure(Ontology ontology, TermRegistry registry) {
+        this.registry = registry;
+        DefaultDirectedGraph<TermId, IdLabeledEdge> graph = ontology.getGraph();
+        int n = registry.size();
+        // edges go from child to parent
+        this.parents = new int[n][];
+        this.children = new int[n][];
+        int[] pendingParents = new int[n];
+        int[] childCount = new int[n];
+        for (int i = 0; i < n; i++) {
+            TermId tid = registry.termId(i);
+            if (!graph.containsVertex(tid)) {
+                parents[i] = new int[0];
+                continue;
+            }
+            Set<IdLabeledEdge> out = graph.outgoingEdgesOf(tid);
+            int[] p = new int[out.size()];
+            int k = 0;
+            for (IdLabeledEdge edge : out) {
+                int parent = registry.index(graph.getEdgeTarget(edge));
+                p[k++] = parent;
+                childCount[parent]++;
+            }
+            parents[i] = p;
+            pendingParents[i] = p.length;
+        }
+        for (int i = 0; i < n; i++) {
+            children[i] = new int[childCount[i]];
+            childCount[i] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int p : parents[i]) {
+                children[p][childCount[p]++] = i;
+            }
+        }
+        // Kahn's algorithm, roots first
+        this.topologicalOrder = new int[n];
+        int head = 0, tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (pendingParents[i] == 0) {
+                topologicalOrder[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int t = topologicalOrder[head++];
+            for (int c : children[t]) {
+                if (--pendingParents[c] == 0) {
+                    topologicalOrder[tail++] = c;
+                }
+            }
+        }
+        if (tail != n) {
+            throw new UncheckedException(String.format("Ontology contains a cycle (%d of %d terms could be ordered)", tail, n));
+        }
+        // the ancestors of a term are the term itself plus the union of the ancestors of its parents
+        this.ancestors = new int[n][];
+        BitSet scratch = new BitSet(n);
+        for (int t : topologicalOrder) {
+            scratch.clear();
+            scratch.set(t);
+            for (int p : parents[t]) {
+                for (int a : ancestors[p]) {
+                    scratch.set(a);
+                }
+            }
+            ancestors[t] = scratch.stream().toArray();
+        }
+    }
+
+    public static AncestorClosure of(Ontology ontology) {
+        return of(ontology, TermRegistry.of(Objects.requireNonNull(ontology, "Ontology must not be null")));
+    }
+
+    /** Build the closure on top of an existing registry of the same ontology. */
+    public static AncestorClosure of(Ontology ontology, TermRegistry registry) {
+        return new AncestorClosure(Objects.requireNonNull(ontology, "Ontology must not be null"), registry);
+    }
+
+    public TermRegistry registry() {
+        return registry;
+    }
+
+    /** @return number of primary terms */
+    public int size() {
+        return registry.size();
+    }
+
+    /** @return index of the (primary or alternate) term id, or -1 if the term is not part of the ontology */
+    public int index(TermId termId) {
+        return registry.index(termId);
+    }
+
+    /** @return primary term id for the index */
+    public TermId termId(int index) {
+        return registry.termId(index);
+    }
+
+    /** @return sorted indices of the ancestors of the term, including the term itself */
+    public int[] ancestors(int index) {
+        return ancestors[index];
+    }
+
+    /** @return indices of the direct parents of the term */
+    public int[] parents(int index) {
+        return parents[index];
+    }
+
+    /** @return indices of the direct children of the term */
+    public int[] children(int index) {
+        return children[index];
+    }
+
+    /** @return all term indices ordered such that each term comes after all of its parents */
+    public int[] topologicalOrder() {
+        return topologicalOrder;
+    }
+
+    /** @return true if {@code ancestor} is {@code term} or one of its ancestors */
+    public boolean isAncestorOrSelf(int ancestor, int term) {
+        return Arrays.binarySearch(ancestors[term], ancestor) >= 0;
+    }
+
+    /** @return the term and all of its descendants */
+    public TermBitSet descendants(int index) {
+        TermBitSet result = new TermBitSet(registry);
+        result.add(index);
+        // a child always comes after its parents in topological order
+        for (int t : topologicalOrder) {
+            if (result.contains(t)) {
+                for (int c : children[t]) {
+                    result.add(c);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** @return number of descendants of the term, including the term itself */
+    public int descendantCount(int index) {
+        return descendants(index).size();
+    }
+
+    /** @return term ids of the ancestors of {@code termId} (including itself), or an empty set for unknown terms */
+    public Set<TermId> ancestorTermIds(TermId termId) {
+        int idx = index(termId);
+        if (idx < 0) {
+            return Set.of();
+        }
+        Set<TermId> result = new HashSet<>();
+        for (int a : ancestors[idx]) {
+            result.add(registry.termId(a));
+        }
+        return result;
+    }
+}
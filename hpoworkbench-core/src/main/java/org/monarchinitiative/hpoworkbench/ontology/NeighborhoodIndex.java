@@ -0,0 +1,98 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import java.util.Arrays;
+
+/**
+ * The terms within {@code k} hops of each term of an {@link AncestorClosure}, upwards (parents, grandparents, ...)
+ * and downwards (children, grandchildren, ...), grouped by their distance. The distance of two terms is the length of
+ * the shortest path along is-a edges in one direction, so a term that is both a parent and a grandparent of another
+ * term is only listed as its parent.
+ * <p>
+ * The neighborhoods of all terms are computed once, level by level from the parents and children of the closure, so
+ * that code that looks at the neighborhoods of many terms (e.g. matching the annotations of thousands of diseases
+ * against a set of terms) does not walk the graph again for every term. The arrays that are returned by the
+ * accessors are shared and must not be modified.
+ */
+public final class NeighborhoodIndex {
+    private static final int[] EMPTY = new int[0];
+
+    private final AncestorClosure closure;
+    private final int k;
+    /** up[d - 1][t] are the sorted indices of the terms d hops above t. */
+    private final int[][][] up;
+    /** down[d - 1][t] are the sorted indices of the terms d hops below t. */
+    private final int[][][] down;
+
+    private NeighborhoodIndex(AncestorClosure closure, int k) {
+        this.closure = closure;
+        this.k = k;
+        this.up = levels(closure, k, true);
+        this.down = levels(closure, k, false);
+    }
+
+    /**
+     * @param closure ancestor closure of the ontology
+     * @param k maximum number of hops, at least 0
+     */
+    public static NeighborhoodIndex of(AncestorClosure closure, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Number of hops must not be negative: " + k);
+        }
+        return new NeighborhoodIndex(closure, k);
+    }
+
+    private static int[][][] levels(AncestorClosure closure, int k, boolean upwards) {
+        int n = closure.size();
+        int[][][] levels = new int[k][n][];
+        // seen[x] == t + 1 if x was already reached from t, so that every term is only listed at its shortest distance
+        int[] seen = new int[n];
+        int[] next = new int[n];
+        for (int t = 0; t < n; t++) {
+            seen[t] = t + 1;
+            int[] previous = new int[]{t};
+            for (int d = 0; d < k; d++) {
+                int count = 0;
+                for (int x : previous) {
+                    for (int y : upwards ? closure.parents(x) : closure.children(x)) {
+                        if (seen[y] != t + 1) {
+                            seen[y] = t + 1;
+                            next[count++] = y;
+                        }
+                    }
+                }
+                int[] level = count == 0 ? EMPTY : Arrays.copyOf(next, count);
+                Arrays.sort(level);
+                levels[d][t] = level;
+                previous = level;
+            }
+        }
+        return levels;
+    }
+
+    public AncestorClosure closure() {
+        return closure;
+    }
+
+    /** @return the maximum number of hops */
+    public int k() {
+        return k;
+    }
+
+    /**
+     * @param index index of a term
+     * @param hops distance between 1 and {@link #k()}
+     * @return sorted indices of the terms exactly {@code hops} hops above the term, e.g. its parents for 1
+     */
+    public int[] up(int index, int hops) {
+        return up[hops - 1][index];
+    }
+
+    /**
+     * @param index index of a term
+     * @param hops distance between 1 and {@link #k()}
+     * @return sorted indices of the terms exactly {@code hops} hops below the term, e.g. its children for 1
+     */
+    public int[] down(int index, int hops) {
+        return down[hops - 1][index];
+    }
+}
@@ -0,0 +1,122 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A set of ontology terms, stored as a bit set over the indices of a {@link TermRegistry}. Alternate ids are
+ * resolved to their primary term, ids that are not part of the ontology are never contained in the set.
+ */
+public final class TermBitSet {
+
+    private final TermRegistry registry;
+    private final BitSet bits;
+
+    public TermBitSet(TermRegistry registry) {
+        this.registry = registry;
+        this.bits = new BitSet(registry.size());
+    }
+
+    private TermBitSet(TermRegistry registry, BitSet bits) {
+        this.registry = registry;
+        this.bits = bits;
+    }
+
+    public TermRegistry registry() {
+        return registry;
+    }
+
+    /** @return true if the term was not already in the set; false if it was present or is unknown */
+    public boolean add(TermId termId) {
+        int idx = registry.index(termId);
+        if (idx < 0 || bits.get(idx)) {
+            return false;
+        }
+        bits.set(idx);
+        return true;
+    }
+
+    public void add(int index) {
+        bits.set(index);
+    }
+
+    public void addAll(TermBitSet other) {
+        bits.or(other.bits);
+    }
+
+    public void retainAll(TermBitSet other) {
+        bits.and(other.bits);
+    }
+
+    public void removeAll(TermBitSet other) {
+        bits.andNot(other.bits);
+    }
+
+    public void remove(int index) {
+        bits.clear(index);
+    }
+
+    public boolean contains(TermId termId) {
+        int idx = registry.index(termId);
+        return idx >= 0 && bits.get(idx);
+    }
+
+    public boolean contains(int index) {
+        return bits.get(index);
+    }
+
+    public boolean intersects(TermBitSet other) {
+        return bits.intersects(other.bits);
+    }
+
+    /** @return number of terms in the set */
+    public int size() {
+        return bits.cardinality();
+    }
+
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    public void clear() {
+        bits.clear();
+    }
+
+    /** @return the smallest index in the set that is {@code >= from}, or -1 if there is none */
+    public int nextIndex(int from) {
+        return bits.nextSetBit(from);
+    }
+
+    /** Call {@code consumer} with the index of each term in the set, in ascending order. */
+    public void forEach(IntConsumer consumer) {
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            consumer.accept(i);
+        }
+    }
+
+    /** @return the indices of the terms in the set, in ascending order */
+    public IntStream indices() {
+        return bits.stream();
+    }
+
+    /** @return the primary term ids of the terms in the set */
+    public Set<TermId> toTermIds() {
+        Set<TermId> result = new LinkedHashSet<>();
+        forEach(i -> result.add(registry.termId(i)));
+        return result;
+    }
+
+    public TermBitSet copy() {
+        return new TermBitSet(registry, (BitSet) bits.clone());
+    }
+
+    @Override
+    public String toString() {
+        return "TermBitSet{size=" + size() + "}";
+    }
+}
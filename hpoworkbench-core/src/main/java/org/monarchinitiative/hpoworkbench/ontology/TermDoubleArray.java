@@ -0,0 +1,61 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.Arrays;
+
+/**
+ * One double per term of a {@link TermRegistry}, e.g. for frequency-weighted annotation counts. Replaces
+ * {@code Map<TermId, Double>}.
+ */
+public final class TermDoubleArray {
+
+    private final TermRegistry registry;
+    private final double[] values;
+
+    public TermDoubleArray(TermRegistry registry) {
+        this.registry = registry;
+        this.values = new double[registry.size()];
+    }
+
+    public TermRegistry registry() {
+        return registry;
+    }
+
+    public double get(int index) {
+        return values[index];
+    }
+
+    /** @return the value for the term or 0 if the term is not part of the ontology */
+    public double get(TermId termId) {
+        int idx = registry.index(termId);
+        return idx < 0 ? 0D : values[idx];
+    }
+
+    public void set(int index, double value) {
+        values[index] = value;
+    }
+
+    public void add(int index, double delta) {
+        values[index] += delta;
+    }
+
+    /** Add the values of {@code other} to this array. */
+    public void addAll(TermDoubleArray other) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] += other.values[i];
+        }
+    }
+
+    public double sum() {
+        double sum = 0D;
+        for (double v : values) {
+            sum += v;
+        }
+        return sum;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0D);
+    }
+}
@@ -0,0 +1,116 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * One int per term of a {@link TermRegistry}, typically used as a counter (e.g., number of annotations per term).
+ * Replaces {@code Map<TermId, Integer>} in counting code.
+ */
+public final class TermIntArray {
+
+    private final TermRegistry registry;
+    private final int[] values;
+
+    public TermIntArray(TermRegistry registry) {
+        this.registry = registry;
+        this.values = new int[registry.size()];
+    }
+
+    public TermRegistry registry() {
+        return registry;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    /** @return the value for the term or 0 if the term is not part of the ontology */
+    public int get(TermId termId) {
+        int idx = registry.index(termId);
+        return idx < 0 ? 0 : values[idx];
+    }
+
+    public void set(int index, int value) {
+        values[index] = value;
+    }
+
+    public void increment(int index) {
+        values[index]++;
+    }
+
+    public void add(int index, int delta) {
+        values[index] += delta;
+    }
+
+    /** @return false if the term is not part of the ontology (nothing is counted in this case) */
+    public boolean increment(TermId termId) {
+        int idx = registry.index(termId);
+        if (idx < 0) {
+            return false;
+        }
+        values[idx]++;
+        return true;
+    }
+
+    /** Add the values of {@code other} to this array. */
+    public void addAll(TermIntArray other) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] += other.values[i];
+        }
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int v : values) {
+            sum += v;
+        }
+        return sum;
+    }
+
+    /** @return number of terms with a non-zero value */
+    public int countNonZero() {
+        int n = 0;
+        for (int v : values) {
+            if (v != 0) n++;
+        }
+        return n;
+    }
+
+    /**
+     * @param k maximum number of indices to return
+     * @return indices of the (at most) {@code k} terms with the highest non-zero values, highest first. Ties are
+     * broken by index.
+     */
+    public int[] topIndices(int k) {
+        return IntStream.range(0, values.length)
+                .filter(i -> values[i] != 0)
+                .boxed()
+                .sorted((a, b) -> values[a] != values[b] ? Integer.compare(values[b], values[a]) : Integer.compare(a, b))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * @param terms the terms to consider, e.g. the descendants of a term
+     * @param k maximum number of indices to return
+     * @return indices of the (at most) {@code k} terms of {@code terms} with the highest non-zero values, highest
+     * first. Ties are broken by index.
+     */
+    public int[] topIndices(TermBitSet terms, int k) {
+        return terms.indices()
+                .filter(i -> values[i] != 0)
+                .boxed()
+                .sorted((a, b) -> values[a] != values[b] ? Integer.compare(values[b], values[a]) : Integer.compare(a, b))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0);
+    }
+}
@@ -0,0 +1,137 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+
+/**
+ * Dense int interning of the terms of an ontology. Every primary term gets an index in {@code [0, size())}, ordered
+ * by term id; alternate ids resolve to the index of their primary term. Lookups use an open-addressing table with
+ * primitive values, so that resolving a {@link TermId} does not allocate.
+ * <p>
+ * Hot loops should resolve term ids once with {@link #index(TermId)} and then work with the int indices, e.g. with
+ * {@link TermBitSet}, {@link TermIntArray} or {@link TermDoubleArray}.
+ */
+public final class TermRegistry {
+    /** Primary term ids, sorted. */
+    private final TermId[] termIds;
+    /** Primary terms, in the same order as {@link #termIds}. */
+    private final Term[] terms;
+    /** Open-addressing hash table: keys (primary and alternate ids) and the corresponding index. */
+    private final TermId[] tableKeys;
+    private final int[] tableValues;
+    private final int mask;
+    /** Number of alternate ids that resolve to a primary term. */
+    private final int alternateIdCount;
+
+    private TermRegistry(Ontology ontology) {
+        SortedMap<TermId, Term> primary = new TreeMap<>();
+        for (Term term : ontology.getTerms()) {
+            primary.putIfAbsent(term.id(), term);
+        }
+        // terms that are part of the graph but have no Term object should never occur, but do not lose them
+        for (TermId tid : ontology.getGraph().vertexSet()) {
+            if (!primary.containsKey(tid)) {
+                primary.put(tid, ontology.getTermMap().get(tid));
+            }
+        }
+        int n = primary.size();
+        this.termIds = primary.keySet().toArray(new TermId[0]);
+        this.terms = primary.values().toArray(new Term[0]);
+        int altCount = 0;
+        for (Term term : terms) {
+            if (term != null) {
+                altCount += term.getAltTermIds().size();
+            }
+        }
+        int capacity = Integer.highestOneBit(Math.max(4, 2 * (n + altCount)) - 1) << 1;
+        this.tableKeys = new TermId[capacity];
+        this.tableValues = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < n; i++) {
+            put(termIds[i], i);
+        }
+        int alternates = 0;
+        for (int i = 0; i < n; i++) {
+            if (terms[i] == null) {
+                continue;
+            }
+            for (TermId alt : terms[i].getAltTermIds()) {
+                if (put(alt, i)) {
+                    alternates++;
+                }
+            }
+        }
+        this.alternateIdCount = alternates;
+    }
+
+    public static TermRegistry of(Ontology ontology) {
+        return new TermRegistry(Objects.requireNonNull(ontology, "Ontology must not be null"));
+    }
+
+    /** @return true if the key was inserted, false if it was already present */
+    private boolean put(TermId key, int value) {
+        int slot = key.hashCode() & mask;
+        while (tableKeys[slot] != null) {
+            if (tableKeys[slot].equals(key)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        tableKeys[slot] = key;
+        tableValues[slot] = value;
+        return true;
+    }
+
+    /** @return number of primary terms */
+    public int size() {
+        return termIds.length;
+    }
+
+    /** @return number of alternate ids that resolve to one of the primary terms */
+    public int alternateIdCount() {
+        return alternateIdCount;
+    }
+
+    /**
+     * @param termId a primary or alternate term id
+     * @return index of the (primary) term, or -1 if the id does not belong to the ontology
+     */
+    public int index(TermId termId) {
+        if (termId == null) {
+            return -1;
+        }
+        int slot = termId.hashCode() & mask;
+        TermId key;
+        while ((key = tableKeys[slot]) != null) {
+            if (key.equals(termId)) {
+                return tableValues[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** @return true if the primary or alternate id belongs to the ontology */
+    public boolean contains(TermId termId) {
+        return index(termId) >= 0;
+    }
+
+    /** @return primary term id of the term with the given index */
+    public TermId termId(int index) {
+        return termIds[index];
+    }
+
+    /** @return the term with the given index */
+    public Term term(int index) {
+        return terms[index];
+    }
+
+    /** @return label of the term with the given index */
+    public String label(int index) {
+        Term term = terms[index];
+        return term == null ? termIds[index].getValue() : term.getName();
+    }
+}
@@ -0,0 +1,30 @@
+package org.monarchinitiative.hpoworkbench.profile;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event for one {@link Profiler} phase. The event is committed for every phase, whether or not the
+ * profiler is active; the JFR runtime discards it at almost no cost unless a recording is running, e.g. with
+ * {@code java -XX:StartFlightRecording=filename=hpowb.jfr -jar ...}.
+ */
+@Name("org.monarchinitiative.hpoworkbench.Phase")
+@Label("HPO Workbench Phase")
+@Category("HPO Workbench")
+@Description("A named phase of an HPO Workbench command, e.g. loading or indexing")
+@StackTrace(false)
+class PhaseEvent extends Event {
+
+    @Label("Command")
+    String command;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    @Label("Peak Heap")
+    @DataAmount
+    long peakHeapBytes;
+}
@@ -0,0 +1,13 @@
+package org.monarchinitiative.hpoworkbench.profile;
+
+/**
+ * Resources used by one phase of a command.
+ *
+ * @param name name of the phase, e.g. {@code load}
+ * @param wallNanos elapsed time
+ * @param cpuNanos CPU time of the whole process (all threads, including GC) while the phase was running
+ * @param allocatedBytes bytes allocated on the heap by all threads while the phase was running (approximate)
+ * @param peakHeapBytes highest heap usage observed while the phase was running
+ */
+public record PhaseStats(String name, long wallNanos, long cpuNanos, long allocatedBytes, long peakHeapBytes) {
+}
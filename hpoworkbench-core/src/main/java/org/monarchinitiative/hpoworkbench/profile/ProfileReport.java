@@ -0,0 +1,108 @@
+package org.monarchinitiative.hpoworkbench.profile;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The phases recorded by the {@link Profiler} for one command, plus the totals for the whole command.
+ */
+public final class ProfileReport {
+    private static final double MILLIS = 1_000_000D;
+    private static final double MEGABYTES = 1024D * 1024D;
+
+    private final String command;
+    private final List<PhaseStats> phases;
+    private final PhaseStats total;
+
+    ProfileReport(String command, List<PhaseStats> phases, PhaseStats total) {
+        this.command = command;
+        this.phases = List.copyOf(phases);
+        this.total = total;
+    }
+
+    public String command() {
+        return command;
+    }
+
+    /** @return the phases in the order in which they ended */
+    public List<PhaseStats> phases() {
+        return phases;
+    }
+
+    /** @return resources used by the command as a whole */
+    public PhaseStats total() {
+        return total;
+    }
+
+    /** @return human-readable table with one row per phase and a final row with the totals */
+    public String toTable() {
+        int width = "total".length();
+        for (PhaseStats phase : phases) {
+            width = Math.max(width, phase.name().length());
+        }
+        String format = "%-" + width + "s %12s %12s %14s %14s%n";
+        StringBuilder sb = new StringBuilder();
+        sb.append("Profile of ").append(command).append('\n');
+        sb.append(String.format(Locale.ROOT, format, "phase", "wall [ms]", "cpu [ms]", "alloc [MB]", "peak heap [MB]"));
+        for (PhaseStats phase : phases) {
+            appendRow(sb, format, phase);
+        }
+        appendRow(sb, format, total);
+        return sb.toString();
+    }
+
+    private static void appendRow(StringBuilder sb, String format, PhaseStats stats) {
+        sb.append(String.format(Locale.ROOT, format, stats.name(),
+                String.format(Locale.ROOT, "%.1f", stats.wallNanos() / MILLIS),
+                String.format(Locale.ROOT, "%.1f", stats.cpuNanos() / MILLIS),
+                String.format(Locale.ROOT, "%.1f", stats.allocatedBytes() / MEGABYTES),
+                String.format(Locale.ROOT, "%.1f", stats.peakHeapBytes() / MEGABYTES)));
+    }
+
+    /** @return the report as a JSON object with times in nanoseconds and memory in bytes */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"command\": ").append(quote(command)).append(",\n  \"phases\": [");
+        for (int i = 0; i < phases.size(); i++) {
+            sb.append(i == 0 ? "\n    " : ",\n    ");
+            appendJson(sb, phases.get(i));
+        }
+        sb.append(phases.isEmpty() ? "],\n" : "\n  ],\n");
+        sb.append("  \"total\": ");
+        appendJson(sb, total);
+        sb.append("\n}\n");
+        return sb.toString();
+    }
+
+    private static void appendJson(StringBuilder sb, PhaseStats stats) {
+        sb.append("{\"name\": ").append(quote(stats.name()))
+                .append(", \"wallNanos\": ").append(stats.wallNanos())
+                .append(", \"cpuNanos\": ").append(stats.cpuNanos())
+                .append(", \"allocatedBytes\": ").append(stats.allocatedBytes())
+                .append(", \"peakHeapBytes\": ").append(stats.peakHeapBytes())
+                .append('}');
+    }
+
+    private static String quote(String s) {
+        if (s == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,224 @@
+package org.monarchinitiative.hpoworkbench.profile;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+
+/**
+ * Lightweight instrumentation of the phases of a command. Code marks a phase with
+ * <pre>
+ *     try (Profiler.Phase phase = Profiler.phase("load")) {
+ *         ...
+ *     }
+ * </pre>
+ * Each phase emits a JFR event ({@link PhaseEvent}). While a profiling session is active (between {@link #start(String)}
+ * and {@link #stop()}), the wall time, CPU time, allocated bytes and peak heap of each phase are also recorded and
+ * returned as a {@link ProfileReport}. Outside of a session and without a JFR recording, a phase costs little more
+ * than an object allocation.
+ * <p>
+ * There is one session per JVM; commands are expected to run one at a time. Phases may be nested.
+ * <p>
+ * The phase variable is usually not referenced inside the block, which {@code javac -Xlint:try} reports; classes
+ * that mark phases this way are annotated with {@code @SuppressWarnings("try")}.
+ */
+public final class Profiler {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+
+    private static Session session = null;
+
+    private Profiler() {
+    }
+
+    /** The phases of one command. */
+    private static final class Session {
+        private final String command;
+        private final Phase total;
+        private final List<PhaseStats> phases = new ArrayList<>();
+        /** Phases that have been started but not yet closed, innermost last. */
+        private final Deque<Phase> open = new ArrayDeque<>();
+
+        Session(String command) {
+            this.command = command;
+            this.total = new Phase("total", command, this);
+        }
+    }
+
+    /**
+     * Start a profiling session, replacing a session that may still be active.
+     *
+     * @param command name of the command that is being profiled
+     */
+    public static synchronized void start(String command) {
+        session = new Session(command);
+        session.total.begin();
+    }
+
+    /** @return true if a profiling session is active */
+    public static synchronized boolean isActive() {
+        return session != null;
+    }
+
+    /**
+     * End the profiling session.
+     *
+     * @return the phases recorded since {@link #start(String)}, or {@code null} if no session was active
+     */
+    public static synchronized ProfileReport stop() {
+        if (session == null) {
+            return null;
+        }
+        Session ended = session;
+        // close phases that were left open, e.g. by an exception
+        while (!ended.open.isEmpty()) {
+            ended.open.peekLast().close();
+        }
+        session = null;
+        return new ProfileReport(ended.command, ended.phases, ended.total.stats);
+    }
+
+    /**
+     * Start a named phase. Close the returned phase (ideally with try-with-resources) when the phase ends.
+     *
+     * @param name name of the phase, e.g. {@code load}, {@code index}, {@code compute}, {@code output}
+     */
+    public static synchronized Phase phase(String name) {
+        Phase phase = new Phase(name, session == null ? null : session.command, session);
+        phase.begin();
+        return phase;
+    }
+
+    /** A running phase. */
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final Session owner;
+        private final PhaseEvent event;
+        /** True if the resource usage is measured, i.e. if the phase is profiled or a JFR recording is running. */
+        private boolean measure;
+        private long startWall;
+        private long startCpu;
+        private Map<Long, Long> startAllocated;
+        private long peakHeap;
+        private boolean closed = false;
+        private PhaseStats stats;
+
+        private Phase(String name, String command, Session owner) {
+            this.name = name;
+            this.owner = owner;
+            this.event = new PhaseEvent();
+            event.command = command;
+            event.phase = name;
+        }
+
+        private void begin() {
+            measure = owner != null || event.isEnabled();
+            if (measure) {
+                if (owner != null) {
+                    // the enclosing phases must not lose the peak that was reached before the pools are reset
+                    long current = heapPeak();
+                    for (Phase enclosing : owner.open) {
+                        enclosing.peakHeap = Math.max(enclosing.peakHeap, current);
+                    }
+                    owner.open.addLast(this);
+                }
+                resetHeapPeak();
+                startAllocated = allocatedBytesByThread();
+                startCpu = cpuTime();
+                startWall = System.nanoTime();
+            }
+            event.begin();
+        }
+
+        @Override
+        public void close() {
+            synchronized (Profiler.class) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                event.end();
+                if (!measure) {
+                    return;
+                }
+                long wall = System.nanoTime() - startWall;
+                long cpu = cpuTime() - startCpu;
+                long allocated = allocatedSince(startAllocated);
+                long peak = Math.max(peakHeap, heapPeak());
+                if (owner != null) {
+                    owner.open.remove(this);
+                    for (Phase enclosing : owner.open) {
+                        enclosing.peakHeap = Math.max(enclosing.peakHeap, peak);
+                    }
+                }
+                stats = new PhaseStats(name, wall, cpu, allocated, peak);
+                if (owner != null && this != owner.total) {
+                    owner.phases.add(stats);
+                }
+                if (event.shouldCommit()) {
+                    event.allocatedBytes = allocated;
+                    event.peakHeapBytes = peak;
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    /** @return CPU time of the process, or of the current thread if the process CPU time is not available */
+    private static long cpuTime() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            long cpu = os.getProcessCpuTime();
+            if (cpu >= 0) {
+                return cpu;
+            }
+        }
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0L;
+    }
+
+    /** @return bytes allocated so far by each live thread; empty if the JVM does not support the measurement */
+    private static Map<Long, Long> allocatedBytesByThread() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean threads) || !threads.isThreadAllocatedMemoryEnabled()) {
+            return Map.of();
+        }
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> result = new HashMap<>(2 * ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                result.put(ids[i], bytes[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return bytes allocated by the threads that are still alive since {@code start}; allocations of threads that
+     * terminated in the meantime are not counted
+     */
+    private static long allocatedSince(Map<Long, Long> start) {
+        long total = 0L;
+        for (Map.Entry<Long, Long> e : allocatedBytesByThread().entrySet()) {
+            total += e.getValue() - start.getOrDefault(e.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private static void resetHeapPeak() {
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    /** @return sum of the peak usage of the heap pools since their last reset */
+    private static long heapPeak() {
+        long peak = 0L;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
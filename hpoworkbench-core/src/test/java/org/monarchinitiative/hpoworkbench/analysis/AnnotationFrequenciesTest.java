@@ -0,0 +1,97 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+/**
+ * Compares the counts with sums over the annotations of each term and its descendants. On the tiny ontology, T4 and
+ * T5 have the two parents T0 and T1, so their annotations must be counted once (not twice) in Phenotypic abnormality.
+ */
+public class AnnotationFrequenciesTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testTinyOntology() throws IOException {
+        writeTinyOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON));
+        Path annotations = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        writeAnnotations(annotations,
+                new String[]{"OMIM:100001", T4, "", "1/2"}, new String[]{"OMIM:100001", T2},
+                new String[]{"OMIM:100002", T4, "", "3/4"}, new String[]{"OMIM:100002", T5, "", "25%"},
+                new String[]{"OMIM:100003", T1}, new String[]{"OMIM:100003", T3, "", "1/4"},
+                new String[]{"OMIM:100004", T0});
+        Ontology ontology = loadOntology(directory);
+        Collection<HpoDisease> diseases = loadDiseases(ontology, annotations);
+        AnnotationFrequencies frequencies = AnnotationFrequencies.count(AncestorClosure.of(ontology), diseases);
+
+        assertEquals(2, frequencies.direct().get(TermId.of(T4)));
+        assertEquals(0.5 + 0.75, frequencies.directWeighted().get(TermId.of(T4)), 1e-6);
+        assertEquals(1, frequencies.direct().get(TermId.of(T0)));
+        // T0, T2, T3, T4 twice and T5
+        assertEquals(6, frequencies.propagated().get(TermId.of(T0)));
+        // T1, T4 twice and T5
+        assertEquals(4, frequencies.propagated().get(TermId.of(T1)));
+        assertEquals(0.5 + 0.75 + 0.25 + frequencies.directWeighted().get(TermId.of(T1)),
+                frequencies.propagatedWeighted().get(TermId.of(T1)), 1e-6);
+        // every annotation once, although T4 and T5 are below both T0 and T1
+        assertEquals(7, frequencies.propagated().get(TermId.of("HP:0000118")));
+        assertEquals(0, frequencies.direct().get(TermId.of("HP:0000118")));
+        assertEquals(0, frequencies.propagated().get(TermId.of("HP:0000005")));
+        assertEqualsNaiveSums(ontology, diseases, frequencies);
+    }
+
+    /** The same comparison on generated annotations with frequencies, excluded annotations and many second parents. */
+    @Test
+    public void testGeneratedAnnotations() throws IOException {
+        generator(42).multiParentRatio(0.3).build().write(directory);
+        Ontology ontology = loadOntology(directory);
+        Collection<HpoDisease> diseases = loadDiseases(ontology, directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA));
+        AnnotationFrequencies frequencies = AnnotationFrequencies.count(AncestorClosure.of(ontology), diseases);
+        assertEqualsNaiveSums(ontology, diseases, frequencies);
+    }
+
+    private static void assertEqualsNaiveSums(Ontology ontology, Collection<HpoDisease> diseases,
+                                              AnnotationFrequencies frequencies) {
+        AncestorClosure closure = frequencies.closure();
+        for (int t = 0; t < closure.size(); t++) {
+            TermId termId = closure.termId(t);
+            Set<TermId> descendants = new HashSet<>(OntologyAlgorithm.getDescendents(ontology, termId));
+            descendants.add(termId);
+            int direct = 0, propagated = 0;
+            double directWeighted = 0D, propagatedWeighted = 0D;
+            for (HpoDisease disease : diseases) {
+                for (HpoDiseaseAnnotation annotation : disease.annotations()) {
+                    if (annotation.id().equals(termId)) {
+                        direct++;
+                        directWeighted += annotation.frequency();
+                    }
+                    if (descendants.contains(annotation.id())) {
+                        propagated++;
+                        propagatedWeighted += annotation.frequency();
+                    }
+                }
+            }
+            assertEquals(direct, frequencies.direct().get(t), termId.getValue());
+            assertEquals(directWeighted, frequencies.directWeighted().get(t), 1e-6, termId.getValue());
+            assertEquals(propagated, frequencies.propagated().get(t), termId.getValue());
+            assertEquals(propagatedWeighted, frequencies.propagatedWeighted().get(t), 1e-6, termId.getValue());
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.ontology.TermBitSet;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+/**
+ * The built-in rules on the tiny ontology, in which T0 and T1 ("Abnormality of organ system 0" and "... 1") are one
+ * level below Phenotypic abnormality and all other terms two levels. The diseases are
+ * <ul>
+ *     <li>OMIM:100001: T2, T4, T5</li>
+ *     <li>OMIM:100002: T0, T2</li>
+ *     <li>OMIM:100003: T1, T3, T5, NOT T0</li>
+ *     <li>OMIM:100004: T3</li>
+ *     <li>ORPHA:100005: T0, T1, T2</li>
+ * </ul>
+ */
+public class AnnotationQcTest {
+
+    private static final TermId PHENOTYPIC_ABNORMALITY = TermId.of("HP:0000118");
+
+    @TempDir
+    Path directory;
+
+    private Ontology ontology;
+    private AncestorClosure closure;
+    private Collection<HpoDisease> diseases;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        writeTinyOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON));
+        Path annotations = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        writeAnnotations(annotations,
+                new String[]{"OMIM:100001", T2}, new String[]{"OMIM:100001", T4}, new String[]{"OMIM:100001", T5},
+                new String[]{"OMIM:100002", T0}, new String[]{"OMIM:100002", T2},
+                new String[]{"OMIM:100003", T1}, new String[]{"OMIM:100003", T3}, new String[]{"OMIM:100003", T5},
+                new String[]{"OMIM:100003", T0, "NOT"},
+                new String[]{"OMIM:100004", T3},
+                new String[]{"ORPHA:100005", T0}, new String[]{"ORPHA:100005", T1}, new String[]{"ORPHA:100005", T2});
+        ontology = loadOntology(directory);
+        closure = AncestorClosure.of(ontology);
+        diseases = loadDiseases(ontology, annotations);
+        assertEquals(5, diseases.size());
+    }
+
+    @Test
+    public void testFewerAnnotationsThan() {
+        assertEquals(Map.of("OMIM:100002", Set.of("2"), "OMIM:100004", Set.of("1")),
+                flagged(AnnotationQcRule.fewerAnnotationsThan(3)));
+        assertEquals(Map.of("OMIM:100004", Set.of("1")), flagged(AnnotationQcRule.fewerAnnotationsThan(2)));
+        assertEquals(Map.of(), flagged(AnnotationQcRule.fewerAnnotationsThan(1)));
+    }
+
+    /** Only T0 and T1 have labels with "Abnormality of"; the excluded T0 of OMIM:100003 is not flagged. */
+    @Test
+    public void testLabelContains() {
+        assertEquals(Map.of("OMIM:100002", Set.of(label(T0)), "OMIM:100003", Set.of(label(T1)),
+                        "ORPHA:100005", Set.of(label(T0), label(T1))),
+                flagged(AnnotationQcRule.labelContains("Abnormality of")));
+        assertEquals(Map.of("OMIM:100003", Set.of(label(T1)), "ORPHA:100005", Set.of(label(T1))),
+                flagged(AnnotationQcRule.labelContains("organ system 1")));
+        assertEquals(Map.of(), flagged(AnnotationQcRule.labelContains("no such label")));
+    }
+
+    @Test
+    public void testWithinDepth() {
+        assertEquals(Map.of("OMIM:100002", Set.of(label(T0)), "OMIM:100003", Set.of(label(T1)),
+                        "ORPHA:100005", Set.of(label(T0), label(T1))),
+                flagged(AnnotationQcRule.withinDepth(PHENOTYPIC_ABNORMALITY, 1)));
+        // nobody is annotated to the root itself
+        assertEquals(Map.of(), flagged(AnnotationQcRule.withinDepth(PHENOTYPIC_ABNORMALITY, 0)));
+        // every annotated term is at most two levels below the root
+        assertEquals(Set.of("OMIM:100001", "OMIM:100002", "OMIM:100003", "OMIM:100004", "ORPHA:100005"),
+                flagged(AnnotationQcRule.withinDepth(PHENOTYPIC_ABNORMALITY, 2)).keySet());
+        // T4 and T5 are children of T1 and of T0, so they are one level below either root
+        assertEquals(Map.of("OMIM:100001", Set.of(label(T4), label(T5)), "OMIM:100003", Set.of(label(T1), label(T5)),
+                        "ORPHA:100005", Set.of(label(T1))),
+                flagged(AnnotationQcRule.withinDepth(TermId.of(T1), 1)));
+        assertEquals(Map.of("OMIM:100001", Set.of(label(T2), label(T4), label(T5)),
+                        "OMIM:100002", Set.of(label(T0), label(T2)), "OMIM:100003", Set.of(label(T3), label(T5)),
+                        "OMIM:100004", Set.of(label(T3)), "ORPHA:100005", Set.of(label(T0), label(T2))),
+                flagged(AnnotationQcRule.withinDepth(TermId.of(T0), 1)));
+        assertEquals(Map.of(), flagged(AnnotationQcRule.withinDepth(TermId.of("HP:9999999"), 5)));
+    }
+
+    /** A curated term flags the annotations to the term only, not those to its descendants or ancestors. */
+    @Test
+    public void testCuratedTerms() {
+        AnnotationQcRule rule = AnnotationQcRule.curatedTerms("Curated", "Entries with curated terms",
+                List.of(TermId.of(T3), TermId.of(T1), TermId.of("HP:9999999")));
+        assertEquals("Curated", rule.name());
+        assertEquals("Entries with curated terms", rule.description());
+        assertEquals(Map.of("OMIM:100003", Set.of(label(T1), label(T3)), "OMIM:100004", Set.of(label(T3)),
+                        "ORPHA:100005", Set.of(label(T1))),
+                flagged(rule));
+        // NOT T0 of OMIM:100003 is the only annotation of T0 that is not flagged
+        assertEquals(Set.of("OMIM:100002", "ORPHA:100005"),
+                flagged(AnnotationQcRule.curatedTerms("T0", "T0", List.of(TermId.of(T0)))).keySet());
+    }
+
+    /** A term set rule joins the labels and ids of the flagged annotations, in the order of the annotations. */
+    @Test
+    public void testTermSetRuleDetail() {
+        TermSetRule rule = new TermSetRule("Two terms", "T0 and T1", c -> {
+            TermBitSet terms = new TermBitSet(c.registry());
+            terms.add(TermId.of(T0));
+            terms.add(TermId.of(T1));
+            return terms;
+        });
+        HpoDisease orpha = disease("ORPHA:100005");
+        String detail = rule.compile(closure).apply(orpha);
+        List<String> expected = new ArrayList<>();
+        orpha.annotations().forEach(a -> {
+            if (!a.id().getValue().equals(T2)) {
+                expected.add(label(a.id().getValue()));
+            }
+        });
+        assertEquals(String.join("; ", expected), detail);
+        assertNull(rule.compile(closure).apply(disease("OMIM:100004")));
+    }
+
+    /** The findings are grouped by rule in the order of the rules, and a rule that flags nothing has no findings. */
+    @Test
+    public void testEvaluateGroupsFindingsByRule() {
+        AnnotationQcRule none = AnnotationQcRule.fewerAnnotationsThan(1);
+        AnnotationQcRule under = AnnotationQcRule.fewerAnnotationsThan(3);
+        AnnotationQcRule general = AnnotationQcRule.withinDepth(PHENOTYPIC_ABNORMALITY, 1);
+        AnnotationQc qc = AnnotationQc.evaluate(closure, diseases, List.of(general, none, under));
+        assertEquals(List.of(general, none, under), List.copyOf(qc.findings().keySet()));
+        assertTrue(qc.findings(none).isEmpty());
+        assertEquals(2, qc.findings(under).size());
+        assertEquals(3, qc.findings(general).size());
+        assertTrue(qc.findings(AnnotationQcRule.labelContains("Abnormality of")).isEmpty());
+
+        AnnotationQc.Finding finding = qc.findings(under).stream()
+                .filter(f -> f.disease().id().getValue().equals("OMIM:100004")).findFirst().orElseThrow();
+        assertEquals("Disease OMIM:100004 [OMIM:100004]", finding.diseaseLabel());
+        assertEquals("1", finding.detail());
+    }
+
+    /**
+     * The default rules flag diseases of every database, and a disease can be flagged by both: OMIM:100002 is
+     * underannotated and also annotated to an organ system term.
+     */
+    @Test
+    public void testDefaultRules() {
+        Map<TermId, HpoDisease> byId = diseases.stream().collect(Collectors.toMap(HpoDisease::id, Function.identity()));
+        AnnotationTlc tlc = new AnnotationTlc(ontology, byId);
+        assertEquals(AnnotationTlc.DEFAULT_RULES, List.copyOf(tlc.getFindings().keySet()));
+        assertEquals(Map.of("OMIM:100002", Set.of("2"), "OMIM:100004", Set.of("1")),
+                flagged(tlc.getFindings(AnnotationTlc.UNDERANNOTATED)));
+        assertEquals(Map.of("OMIM:100002", Set.of(label(T0)), "OMIM:100003", Set.of(label(T1)),
+                        "ORPHA:100005", Set.of(label(T0), label(T1))),
+                flagged(tlc.getFindings(AnnotationTlc.TOO_GENERAL)));
+    }
+
+    /** @return the details of the findings of the rule by disease id, each split into its parts */
+    private Map<String, Set<String>> flagged(AnnotationQcRule rule) {
+        return flagged(AnnotationQc.evaluate(closure, diseases, List.of(rule)).findings(rule));
+    }
+
+    private static Map<String, Set<String>> flagged(List<AnnotationQc.Finding> findings) {
+        Map<String, Set<String>> flagged = new HashMap<>();
+        for (AnnotationQc.Finding finding : findings) {
+            Set<String> parts = Set.of(finding.detail().split("; "));
+            assertNull(flagged.put(finding.disease().id().getValue(), parts), "flagged twice");
+        }
+        return flagged;
+    }
+
+    private HpoDisease disease(String id) {
+        return diseases.stream().filter(d -> d.id().getValue().equals(id)).findFirst().orElseThrow();
+    }
+
+    /** @return the label and id of the term as shown in a finding */
+    private String label(String termId) {
+        return String.format("%s [%s]", ontology.getTermMap().get(TermId.of(termId)).getName(), termId);
+    }
+}
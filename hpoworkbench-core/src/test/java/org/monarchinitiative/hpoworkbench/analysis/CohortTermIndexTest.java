@@ -0,0 +1,138 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+/**
+ * Compares the counts of the index with a scan of the samples for every range of sample numbers, on 200 samples
+ * (three full 64-bit words and a partial one) annotated to the terms of the tiny ontology.
+ */
+public class CohortTermIndexTest {
+
+    private static final int SAMPLES = 200;
+    private static final TermId PHENOTYPIC_ABNORMALITY = TermId.of("HP:0000118");
+    /** A term that is not part of the ontology. */
+    private static final TermId UNKNOWN = TermId.of("HP:9999999");
+
+    @TempDir
+    Path directory;
+
+    private AncestorClosure closure;
+    private List<List<TermId>> samples;
+    /** The ancestors of each term of the tiny ontology below Phenotypic abnormality, including the term itself. */
+    private Map<TermId, Set<TermId>> ancestors;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        writeTinyOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON));
+        closure = AncestorClosure.of(loadOntology(directory));
+        TermId t0 = TermId.of(T0), t1 = TermId.of(T1), t2 = TermId.of(T2), t3 = TermId.of(T3), t4 = TermId.of(T4),
+                t5 = TermId.of(T5);
+        ancestors = Map.of(t0, Set.of(t0), t1, Set.of(t1), t2, Set.of(t2, t0), t3, Set.of(t3, t0),
+                t4, Set.of(t4, t1, t0), t5, Set.of(t5, t1, t0));
+        Random random = new Random(42);
+        samples = new ArrayList<>();
+        for (int s = 0; s < SAMPLES; s++) {
+            List<TermId> terms = new ArrayList<>();
+            // dense: stored as bitmaps
+            if (s % 3 == 0) {
+                terms.add(t2);
+                terms.add(t2);
+            }
+            if (random.nextBoolean()) {
+                terms.add(t4);
+            }
+            // sparse: stored as id arrays, some of them at the first and last sample of a word
+            if (s == 5 || s == 130) {
+                terms.add(t3);
+            }
+            if (s == 63 || s == 64 || s == 127 || s == 128 || s == 199) {
+                terms.add(t5);
+            }
+            if (s % 64 == 0) {
+                terms.add(t1);
+            }
+            if (s == 70) {
+                terms.add(UNKNOWN);
+                terms.add(UNKNOWN);
+            }
+            samples.add(terms);
+        }
+    }
+
+    @Test
+    public void testDirectCountsEqualScan() {
+        CohortTermIndex index = CohortTermIndex.of(samples, null);
+        assertFalse(index.isPropagated());
+        assertThrows(IllegalStateException.class, () -> index.count(TermId.of(T0), true));
+        Set<TermId> terms = new HashSet<>(ancestors.keySet());
+        terms.add(UNKNOWN);
+        for (TermId term : terms) {
+            boolean[] annotated = new boolean[SAMPLES];
+            for (int s = 0; s < SAMPLES; s++) {
+                annotated[s] = samples.get(s).contains(term);
+            }
+            assertCountsEqualScan(index, term, false, annotated);
+        }
+        // T0 is never annotated directly
+        assertFalse(index.terms(false).contains(TermId.of(T0)));
+    }
+
+    @Test
+    public void testPropagatedCountsEqualScan() {
+        CohortTermIndex index = CohortTermIndex.of(samples, closure);
+        assertTrue(index.isPropagated());
+        Set<TermId> terms = new HashSet<>(ancestors.keySet());
+        terms.add(UNKNOWN);
+        terms.add(PHENOTYPIC_ABNORMALITY);
+        for (TermId term : terms) {
+            boolean[] annotated = new boolean[SAMPLES];
+            for (int s = 0; s < SAMPLES; s++) {
+                for (TermId sampleTerm : samples.get(s)) {
+                    annotated[s] |= sampleTerm.equals(term)
+                            || ancestors.getOrDefault(sampleTerm, Set.of()).contains(term)
+                            || (term.equals(PHENOTYPIC_ABNORMALITY) && ancestors.containsKey(sampleTerm));
+                }
+            }
+            assertCountsEqualScan(index, term, true, annotated);
+        }
+        // the direct postings are the same as without an ontology
+        CohortTermIndex direct = CohortTermIndex.of(samples, null);
+        for (TermId term : direct.terms(false)) {
+            assertEquals(direct.count(term, false), index.count(term, false));
+        }
+    }
+
+    /** Compare the count of every range {@code from..to-1}, including empty and reversed ranges, with a scan. */
+    private static void assertCountsEqualScan(CohortTermIndex index, TermId term, boolean propagated, boolean[] annotated) {
+        int total = 0;
+        for (boolean a : annotated) {
+            total += a ? 1 : 0;
+        }
+        assertEquals(total, index.count(term, propagated), term.getValue());
+        assertEquals(total > 0, index.terms(propagated).contains(term), term.getValue());
+        for (int from = 0; from <= SAMPLES; from++) {
+            int expected = 0;
+            assertEquals(0, index.count(term, propagated, from, from));
+            for (int to = from + 1; to <= SAMPLES; to++) {
+                if (annotated[to - 1]) {
+                    expected++;
+                }
+                assertEquals(expected, index.count(term, propagated, from, to),
+                        term.getValue() + " in " + from + ".." + to);
+                assertEquals(0, index.count(term, propagated, to, from));
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+/**
+ * Rankings on the tiny ontology that are worked out by hand. Each of the four diseases is annotated to one leaf, so
+ * T0 (an ancestor of all leaves) has an information content of 0, T1 (the parent of T4 and T5) ln 2 and every leaf
+ * ln 4.
+ */
+public class DiseaseRankerTest {
+
+    private static final double LN2 = Math.log(2);
+    private static final double LN4 = Math.log(4);
+
+    @TempDir
+    Path directory;
+
+    private DiseaseRanker ranker;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        writeTinyOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON));
+        Path annotations = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        writeAnnotations(annotations, new String[]{"OMIM:100001", T2}, new String[]{"OMIM:100002", T4},
+                new String[]{"OMIM:100003", T5}, new String[]{"OMIM:100004", T3});
+        Ontology ontology = loadOntology(directory);
+        InformationContent ic = InformationContent.compute(AncestorClosure.of(ontology), loadDiseases(ontology, annotations));
+        assertEquals(0D, ic.ic(TermId.of(T0)), 1e-12);
+        assertEquals(LN2, ic.ic(TermId.of(T1)), 1e-12);
+        assertEquals(LN4, ic.ic(TermId.of(T4)), 1e-12);
+        ranker = DiseaseRanker.of(ic, loadDiseases(ontology, annotations));
+    }
+
+    /**
+     * T4 credits its own disease with ln 4, and the disease of T5 with ln 2 through T1. The disease of T4 is not
+     * credited again at T1, and T0 has no information content, so the walk stops there and the diseases of T2 and T3
+     * are not credited at all.
+     */
+    @Test
+    public void testBestMatchIsCreditedOncePerObservedTerm() {
+        List<DiseaseRanker.RankedDisease> ranking = ranker.rank(List.of(TermId.of(T4)), List.of(), 4);
+        assertRanking(ranking, "OMIM:100002", LN4, "OMIM:100003", LN2, "OMIM:100001", 0D, "OMIM:100004", 0D);
+    }
+
+    /**
+     * The diseases of T4 and T5 get ln 4 for one observed term and ln 2 for the other, so each disease is credited
+     * once per observed term, and the two equal scores are ranked by disease id.
+     */
+    @Test
+    public void testScoreIsAverageOverObservedTerms() {
+        List<DiseaseRanker.RankedDisease> ranking = ranker.rank(List.of(TermId.of(T5), TermId.of(T4)), List.of(), 3);
+        double both = (LN4 + LN2) / 2;
+        assertRanking(ranking, "OMIM:100002", both, "OMIM:100003", both, "OMIM:100001", 0D);
+    }
+
+    /** An excluded term subtracts its information content from every disease annotated to it or a descendant. */
+    @Test
+    public void testExcludedTermPenalty() {
+        List<DiseaseRanker.RankedDisease> ranking = ranker.rank(List.of(TermId.of(T4)), List.of(TermId.of(T1)), 4);
+        assertRanking(ranking, "OMIM:100002", LN4 - LN2, "OMIM:100001", 0D, "OMIM:100003", 0D, "OMIM:100004", 0D);
+
+        // the penalty is averaged over the observed terms like the credits
+        ranking = ranker.rank(List.of(TermId.of(T4), TermId.of(T5)), List.of(TermId.of(T2)), 4);
+        double both = (LN4 + LN2) / 2;
+        assertRanking(ranking, "OMIM:100002", both, "OMIM:100003", both, "OMIM:100004", 0D, "OMIM:100001", -LN4 / 2);
+    }
+
+    /** Ties are broken by disease id, also when the heap has to replace one of several equal diseases. */
+    @Test
+    public void testTopKTieBreak() {
+        List<TermId> t2 = List.of(TermId.of(T2));
+        assertRanking(ranker.rank(t2, List.of(), 1), "OMIM:100001", LN4);
+        assertRanking(ranker.rank(t2, List.of(), 2), "OMIM:100001", LN4, "OMIM:100002", 0D);
+        assertRanking(ranker.rank(t2, List.of(), 3), "OMIM:100001", LN4, "OMIM:100002", 0D, "OMIM:100003", 0D);
+        assertEquals(4, ranker.rank(t2, List.of(), 10).size());
+        assertTrue(ranker.rank(t2, List.of(), 0).isEmpty());
+        assertTrue(ranker.rank(List.of(TermId.of("HP:9999999")), List.of(), 3).isEmpty());
+    }
+
+    /** @param expected disease ids, each followed by its score */
+    private static void assertRanking(List<DiseaseRanker.RankedDisease> ranking, Object... expected) {
+        assertEquals(expected.length / 2, ranking.size());
+        for (int i = 0; i < ranking.size(); i++) {
+            assertEquals(expected[2 * i], ranking.get(i).disease().id().getValue(), "rank " + (i + 1));
+            assertEquals((double) expected[2 * i + 1], ranking.get(i).score(), 1e-12, "rank " + (i + 1));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+public class InformationContentTest {
+
+    @TempDir
+    Path directory;
+
+    private Path phenotypeHpoa;
+    private Path cache;
+    private Ontology ontology;
+    private AncestorClosure closure;
+    /** Number of times the diseases were supplied, i.e. the information content was computed. */
+    private int parses;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        generator(42).build().write(directory);
+        phenotypeHpoa = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        cache = InformationContent.cachePath(phenotypeHpoa);
+        ontology = loadOntology(directory);
+        closure = AncestorClosure.of(ontology);
+    }
+
+    @Test
+    public void testCacheRoundTrip() throws IOException {
+        InformationContent computed = load();
+        assertEquals(1, parses);
+        assertTrue(Files.isRegularFile(cache));
+
+        InformationContent cached = load();
+        assertEquals(1, parses);
+        assertSameValues(computed, cached);
+    }
+
+    @Test
+    public void testTouchedAnnotationsRecompute() throws IOException {
+        load();
+        FileTime touched = FileTime.fromMillis(Files.getLastModifiedTime(phenotypeHpoa).toMillis() + 60_000L);
+        Files.setLastModifiedTime(phenotypeHpoa, touched);
+
+        load();
+        assertEquals(2, parses);
+        load();
+        assertEquals(2, parses);
+    }
+
+    @Test
+    public void testChangedAnnotationsRecompute() throws IOException {
+        load();
+        generator(7).build().writeAnnotations(phenotypeHpoa);
+
+        InformationContent reloaded = load();
+        assertEquals(2, parses);
+        assertSameValues(InformationContent.compute(closure, diseases().get()), reloaded);
+    }
+
+    @Test
+    public void testValuesOfTinyOntology() throws IOException {
+        Path tiny = Files.createDirectory(directory.resolve("tiny"));
+        writeTinyOntology(tiny.resolve(SyntheticHpoGenerator.HP_JSON));
+        Path annotations = tiny.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        writeAnnotations(annotations, new String[]{"OMIM:100001", T2}, new String[]{"OMIM:100002", T3},
+                new String[]{"OMIM:100003", T4}, new String[]{"OMIM:100004", T5}, new String[]{"OMIM:100004", T4});
+        Ontology tinyOntology = loadOntology(tiny);
+        AncestorClosure tinyClosure = AncestorClosure.of(tinyOntology);
+        InformationContent ic = InformationContent.compute(tinyClosure, loadDiseases(tinyOntology, annotations));
+
+        assertEquals(4, ic.diseaseCount());
+        // all four diseases are below T0, two of them (OMIM:100004 only once) below T1
+        assertEquals(4, ic.diseaseCount(tinyClosure.index(TermId.of(T0))));
+        assertEquals(0D, ic.ic(tinyClosure.index(TermId.of(T0))), 1e-12);
+        assertEquals(2, ic.diseaseCount(tinyClosure.index(TermId.of(T1))));
+        assertEquals(Math.log(2), ic.ic(tinyClosure.index(TermId.of(T1))), 1e-12);
+        assertEquals(Math.log(4), ic.ic(tinyClosure.index(TermId.of(T2))), 1e-12);
+        assertEquals(Math.log(2), ic.ic(tinyClosure.index(TermId.of(T4))), 1e-12);
+        // a term without diseases gets the IC of a term with one disease
+        assertEquals(0, ic.diseaseCount(tinyClosure.index(TermId.of("HP:0000006"))));
+        assertEquals(Math.log(4), ic.ic(tinyClosure.index(TermId.of("HP:0000006"))), 1e-12);
+    }
+
+    private InformationContent load() throws IOException {
+        Supplier<Collection<HpoDisease>> diseases = diseases();
+        return InformationContent.load(cache, closure, InformationContent.Version.of(ontology, phenotypeHpoa), () -> {
+            parses++;
+            return diseases.get();
+        });
+    }
+
+    private Supplier<Collection<HpoDisease>> diseases() {
+        return () -> {
+            try {
+                return loadDiseases(ontology, phenotypeHpoa);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static void assertSameValues(InformationContent expected, InformationContent actual) {
+        assertEquals(expected.diseaseCount(), actual.diseaseCount());
+        for (int t = 0; t < expected.closure().size(); t++) {
+            assertEquals(expected.ic(t), actual.ic(t));
+            assertEquals(expected.diseaseCount(t), actual.diseaseCount(t));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+/**
+ * Redundant annotations on the tiny ontology, in which Phenotypic abnormality is the grandparent of T2 and T0 and T1
+ * are both parents of T4 and T5.
+ */
+public class RedundantAnnotationsTest {
+
+    private static final String PHENOTYPIC_ABNORMALITY = "HP:0000118";
+
+    @TempDir
+    Path directory;
+
+    private RedundantAnnotations redundant;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        writeTinyOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON));
+        Path annotations = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        writeAnnotations(annotations,
+                // a term and its grandparent
+                new String[]{"OMIM:100001", T2}, new String[]{"OMIM:100001", PHENOTYPIC_ABNORMALITY},
+                // an excluded descendant does not make its ancestor redundant, and an excluded ancestor is not redundant
+                new String[]{"OMIM:100002", T0}, new String[]{"OMIM:100002", T2, "NOT"},
+                new String[]{"OMIM:100003", T3}, new String[]{"OMIM:100003", T0, "NOT"},
+                // the same term twice
+                new String[]{"OMIM:100004", T4}, new String[]{"OMIM:100004", T4}, new String[]{"OMIM:100004", T1},
+                // T0 and T1 are each implied by both T4 and T5
+                new String[]{"OMIM:100005", T4}, new String[]{"OMIM:100005", T5}, new String[]{"OMIM:100005", T1},
+                new String[]{"OMIM:100005", T0},
+                // siblings
+                new String[]{"OMIM:100006", T2}, new String[]{"OMIM:100006", T3});
+        Ontology ontology = loadOntology(directory);
+        redundant = RedundantAnnotations.find(AncestorClosure.of(ontology), loadDiseases(ontology, annotations));
+    }
+
+    @Test
+    public void testRedundantPairs() {
+        List<RedundantAnnotations.DiseaseRedundancies> diseases = redundant.diseases();
+        assertEquals(List.of("OMIM:100001", "OMIM:100004", "OMIM:100005"),
+                diseases.stream().map(d -> d.disease().id().getValue()).toList());
+        assertEquals(Set.of(redundancy(PHENOTYPIC_ABNORMALITY, T2)), redundancies(diseases.get(0)));
+        // the duplicate annotation to T4 is reported once
+        assertEquals(List.of(redundancy(T1, T4)), diseases.get(1).redundancies());
+        assertEquals(Set.of(redundancy(T0, T4), redundancy(T1, T4), redundancy(T0, T5), redundancy(T1, T5)),
+                redundancies(diseases.get(2)));
+        assertEquals(4, diseases.get(2).redundancies().size());
+    }
+
+    /** T0 and T1 of OMIM:100005 are counted once each, although each of them is implied by two annotations. */
+    @Test
+    public void testRedundantAnnotationCount() {
+        assertEquals(1 + 1 + 2, redundant.redundantAnnotationCount());
+    }
+
+    private static RedundantAnnotations.Redundancy redundancy(String ancestor, String descendant) {
+        return new RedundantAnnotations.Redundancy(TermId.of(ancestor), TermId.of(descendant));
+    }
+
+    private static Set<RedundantAnnotations.Redundancy> redundancies(RedundantAnnotations.DiseaseRedundancies disease) {
+        return new HashSet<>(disease.redundancies());
+    }
+}
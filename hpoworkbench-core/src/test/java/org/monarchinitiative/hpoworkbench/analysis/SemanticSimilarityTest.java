@@ -0,0 +1,80 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+/**
+ * Compares the cached MICA rows with the merge of the ancestor arrays on the tiny ontology, in which T4 and T5 have
+ * two parents (T1 and T0).
+ */
+public class SemanticSimilarityTest {
+
+    @TempDir
+    Path directory;
+
+    private AncestorClosure closure;
+    private InformationContent ic;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        writeTinyOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON));
+        Path annotations = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        writeAnnotations(annotations, new String[]{"OMIM:100001", T2}, new String[]{"OMIM:100002", T3},
+                new String[]{"OMIM:100003", T4}, new String[]{"OMIM:100004", T5});
+        Ontology ontology = loadOntology(directory);
+        closure = AncestorClosure.of(ontology);
+        ic = InformationContent.compute(closure, loadDiseases(ontology, annotations));
+    }
+
+    @Test
+    public void testHandComputedValues() {
+        SemanticSimilarity similarity = new SemanticSimilarity(ic, 0);
+        // the MICA of T4 and T5 is T1 (two of four diseases), not T0 (all four)
+        assertEquals(index(T1), similarity.mica(index(T4), index(T5)));
+        assertEquals(Math.log(2), similarity.resnik(index(T4), index(T5)), 1e-12);
+        assertEquals(0.5, similarity.lin(index(T4), index(T5)), 1e-12);
+        assertEquals(0D, similarity.resnik(index(T2), index(T4)), 1e-12);
+        assertEquals(1D, similarity.lin(index(T2), index(T2)), 1e-12);
+    }
+
+    @Test
+    public void testCachedRowsEqualMerge() {
+        SemanticSimilarity merged = new SemanticSimilarity(ic, 0);
+        SemanticSimilarity cached = new SemanticSimilarity(ic, closure.size());
+        int[] all = IntStream.range(0, closure.size()).toArray();
+        // computes and caches the MICA row of every term
+        cached.bestMatchAverage(SemanticSimilarity.Measure.RESNIK, all, all);
+        for (int a = 0; a < closure.size(); a++) {
+            for (int b = 0; b < closure.size(); b++) {
+                assertEquals(merged.resnik(a, b), cached.resnik(a, b), 1e-12);
+                assertEquals(merged.lin(a, b), cached.lin(a, b), 1e-12);
+            }
+        }
+        int[][] sets = {{index(T2)}, {index(T4), index(T5)}, {index(T2), index(T3), index(T5)}, all};
+        for (SemanticSimilarity.Measure measure : SemanticSimilarity.Measure.values()) {
+            for (int[] query : sets) {
+                for (int[] target : sets) {
+                    // a fresh instance without rows answers every pair by merging the ancestor arrays
+                    assertEquals(new SemanticSimilarity(ic, 0).bestMatchAverage(measure, query, target),
+                            cached.bestMatchAverage(measure, query, target), 1e-12);
+                }
+            }
+        }
+    }
+
+    private int index(String termId) {
+        return closure.index(TermId.of(termId));
+    }
+}
@@ -0,0 +1,133 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+public class StatsSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private Path phenotypeHpoa;
+    private Ontology ontology;
+    private AncestorClosure closure;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        generator(42).build().write(directory);
+        phenotypeHpoa = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        ontology = loadOntology(directory);
+        closure = AncestorClosure.of(ontology);
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        StatsSnapshot written = snapshot();
+        Path path = directory.resolve("stats.bin");
+        written.write(path);
+
+        StatsSnapshot read = StatsSnapshot.read(path);
+        assertEquals(written.metadata(), read.metadata());
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.termId(i), read.termId(i));
+            assertEquals(written.label(i), read.label(i));
+            assertEquals(written.isObsolete(i), read.isObsolete(i));
+            assertArrayEquals(written.parents(i), read.parents(i));
+            for (StatsSnapshot.Count count : StatsSnapshot.Count.values()) {
+                assertEquals(written.count(i, count), read.count(i, count));
+            }
+        }
+        assertFalse(StatsSnapshotDiff.of(written, read, StatsSnapshotDiff.HPO_ROOT).totals().changed());
+    }
+
+    @Test
+    public void testChangedAnnotationsChangeSnapshot() throws IOException {
+        StatsSnapshot before = snapshot();
+        Path path = directory.resolve("stats.bin");
+        before.write(path);
+        generator(7).diseases(80).build().writeAnnotations(phenotypeHpoa);
+
+        StatsSnapshot after = snapshot();
+        StatsSnapshotDiff diff = StatsSnapshotDiff.of(StatsSnapshot.read(path), after, StatsSnapshotDiff.HPO_ROOT);
+        assertTrue(diff.totals().changed());
+        assertEquals(30, diff.totals().delta(StatsSnapshot.Count.DISEASES));
+    }
+
+    @Test
+    public void testTruncatedSnapshotIsRejected() throws IOException {
+        Path path = directory.resolve("stats.bin");
+        snapshot().write(path);
+        byte[] content = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(content, content.length / 2));
+
+        assertThrows(IOException.class, () -> StatsSnapshot.read(path));
+    }
+
+    @Test
+    public void testBranchDeltasOfTinyOntology() throws IOException {
+        Path tiny = Files.createDirectory(directory.resolve("tiny"));
+        writeTinyOntology(tiny.resolve(SyntheticHpoGenerator.HP_JSON));
+        Path annotations = tiny.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        Ontology tinyOntology = loadOntology(tiny);
+        AncestorClosure tinyClosure = AncestorClosure.of(tinyOntology);
+        writeAnnotations(annotations, new String[]{"OMIM:100001", T2}, new String[]{"OMIM:100002", T5});
+        StatsSnapshot before = snapshot(tinyOntology, tinyClosure, annotations);
+        // a new disease with two annotations below T0, one of them also below T1, and a disease that moves to T4
+        writeAnnotations(annotations, new String[]{"OMIM:100001", T4}, new String[]{"OMIM:100002", T5},
+                new String[]{"OMIM:100003", T3}, new String[]{"OMIM:100003", T4});
+        StatsSnapshot after = snapshot(tinyOntology, tinyClosure, annotations);
+
+        StatsSnapshotDiff diff = StatsSnapshotDiff.of(before, after, TermId.of("HP:0000118"));
+        assertEquals(1, diff.totals().delta(StatsSnapshot.Count.DISEASES));
+        assertEquals(0, diff.totals().delta(StatsSnapshot.Count.TERMS));
+        assertTrue(diff.newTerms().isEmpty());
+        assertTrue(diff.obsoleteTerms().isEmpty());
+        List<StatsSnapshotDiff.TermDelta> branches = diff.branches();
+        assertEquals(2, branches.size());
+        StatsSnapshotDiff.TermDelta t0 = branch(branches, T0);
+        StatsSnapshotDiff.TermDelta t1 = branch(branches, T1);
+        // T0: OMIM:100001 and OMIM:100002 before, all three diseases after
+        assertEquals(2, t0.before(StatsSnapshot.Count.DISEASES));
+        assertEquals(1, t0.delta(StatsSnapshot.Count.DISEASES));
+        assertEquals(2, t0.delta(StatsSnapshot.Count.OMIM_ANNOTATIONS));
+        // T1: OMIM:100002 before, and OMIM:100001 and OMIM:100003 as well after
+        assertEquals(1, t1.before(StatsSnapshot.Count.DISEASES));
+        assertEquals(2, t1.delta(StatsSnapshot.Count.OMIM_DISEASES));
+        assertEquals(3, t1.delta(StatsSnapshot.Count.OMIM_ANNOTATIONS));
+        // T0 has T2 to T5 below it, T1 only T4 and T5
+        assertEquals(5, t0.after(StatsSnapshot.Count.TERMS));
+        assertEquals(3, t1.after(StatsSnapshot.Count.TERMS));
+    }
+
+    private static StatsSnapshotDiff.TermDelta branch(List<StatsSnapshotDiff.TermDelta> branches, String termId) {
+        return branches.stream()
+                .filter(b -> b.termId().getValue().equals(termId))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private StatsSnapshot snapshot() throws IOException {
+        return snapshot(ontology, closure, phenotypeHpoa);
+    }
+
+    private static StatsSnapshot snapshot(Ontology ontology, AncestorClosure closure, Path phenotypeHpoa) throws IOException {
+        TermStatistics stats = TermStatistics.of(closure, loadDiseases(ontology, phenotypeHpoa));
+        return StatsSnapshot.of(stats, Map.of(StatsSnapshot.ANNOTATIONS, phenotypeHpoa.getFileName().toString()));
+    }
+}
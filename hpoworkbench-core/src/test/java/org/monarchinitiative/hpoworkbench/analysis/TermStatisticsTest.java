@@ -0,0 +1,86 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+public class TermStatisticsTest {
+
+    @TempDir
+    Path directory;
+
+    private AncestorClosure closure;
+    private List<HpoDisease> diseases;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        generator(42).build().write(directory);
+        Ontology ontology = loadOntology(directory);
+        closure = AncestorClosure.of(ontology);
+        diseases = List.copyOf(loadDiseases(ontology, directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA)));
+    }
+
+    /**
+     * Count the diseases in chunks of one disease (so that every disease starts a new chunk), of a few sizes that do
+     * not divide the number of diseases, and in a single chunk, and compare the counts with those of a plain serial
+     * pass over the diseases.
+     */
+    @Test
+    public void testChunkedCountsEqualSerialCounts() {
+        Map<TermStatistics.Database, int[]> serialDiseases = new EnumMap<>(TermStatistics.Database.class);
+        Map<TermStatistics.Database, int[]> serialAnnotations = new EnumMap<>(TermStatistics.Database.class);
+        for (TermStatistics.Database database : TermStatistics.Database.values()) {
+            serialDiseases.put(database, new int[closure.size()]);
+            serialAnnotations.put(database, new int[closure.size()]);
+        }
+        int[] serialTotal = new int[closure.size()];
+        boolean sharedAncestors = false;
+        for (HpoDisease disease : diseases) {
+            // every disease is counted once per term, however many of its annotations are below the term
+            Set<Integer> terms = new HashSet<>();
+            int annotated = 0;
+            for (HpoDiseaseAnnotation annotation : disease.annotations()) {
+                int idx = closure.index(annotation.id());
+                if (idx >= 0) {
+                    annotated++;
+                    for (int a : closure.ancestors(idx)) {
+                        terms.add(a);
+                    }
+                }
+            }
+            sharedAncestors |= annotated > 1;
+            TermStatistics.Database database = TermStatistics.Database.of(disease.id().getPrefix());
+            for (int t : terms) {
+                serialTotal[t]++;
+                serialDiseases.get(database)[t]++;
+                serialAnnotations.get(database)[t] += disease.annotationCount();
+            }
+        }
+        assertTrue(sharedAncestors);
+
+        for (int chunkSize : new int[]{1, 3, 7, 16, diseases.size()}) {
+            TermStatistics stats = TermStatistics.of(closure, diseases, chunkSize);
+            for (int t = 0; t < closure.size(); t++) {
+                assertEquals(serialTotal[t], stats.diseaseCount(t), "chunk size " + chunkSize);
+                for (TermStatistics.Database database : TermStatistics.Database.values()) {
+                    assertEquals(serialDiseases.get(database)[t], stats.diseaseCount(database, t));
+                    assertEquals(serialAnnotations.get(database)[t], stats.annotationCount(database, t));
+                }
+            }
+        }
+        int root = closure.index(StatsSnapshotDiff.HPO_ROOT);
+        assertEquals(diseases.size(), TermStatistics.of(closure, diseases, 1).diseaseCount(root));
+    }
+}
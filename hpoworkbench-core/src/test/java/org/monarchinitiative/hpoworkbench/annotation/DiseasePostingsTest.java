@@ -0,0 +1,146 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+public class DiseasePostingsTest {
+
+    @TempDir
+    Path directory;
+
+    private AncestorClosure closure;
+    /** The diseases of the original annotations, by id. */
+    private Map<TermId, HpoDisease> original;
+    /** The same ids with other annotations, and ten more diseases. */
+    private Map<TermId, HpoDisease> modified;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        generator(42).build().write(directory);
+        Ontology ontology = loadOntology(directory);
+        closure = AncestorClosure.of(ontology);
+        original = byId(loadDiseases(ontology, directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA)));
+        Path modifiedHpoa = directory.resolve("modified.hpoa");
+        generator(7).diseases(60).build().writeAnnotations(modifiedHpoa);
+        modified = byId(loadDiseases(ontology, modifiedHpoa));
+    }
+
+    @Test
+    public void testUpdateEqualsBuild() {
+        List<HpoDisease> diseases = new ArrayList<>(original.values());
+        DiseasePostings postings = DiseasePostings.build(closure, diseases);
+        // change the first ten diseases, add ten new ones and remove five
+        List<HpoDisease> changed = new ArrayList<>();
+        for (int d = 0; d < 60; d++) {
+            if (d < 10 || d >= 50) {
+                changed.add(modified.get(diseaseId(d)));
+            }
+        }
+        List<TermId> removed = new ArrayList<>();
+        for (int d = 20; d < 25; d++) {
+            removed.add(diseaseId(d));
+        }
+        Map<TermId, HpoDisease> expected = new LinkedHashMap<>(original);
+        removed.forEach(expected::remove);
+        changed.forEach(disease -> expected.put(disease.id(), disease));
+
+        DiseasePostings updated = postings.update(changed, removed);
+        assertSamePostings(DiseasePostings.build(closure, expected.values()), updated);
+        // the original postings are not changed by the update
+        assertSamePostings(DiseasePostings.build(closure, diseases), postings);
+    }
+
+    @Test
+    public void testUpdateOfRemovedDiseases() {
+        DiseasePostings postings = DiseasePostings.build(closure, original.values());
+        // a disease that is removed and changed at the same time is kept with its new annotations
+        List<HpoDisease> changed = List.of(modified.get(diseaseId(3)));
+        List<TermId> removed = List.of(diseaseId(3), diseaseId(4), diseaseId(5), TermId.of("OMIM:999999"));
+        Map<TermId, HpoDisease> expected = new LinkedHashMap<>(original);
+        expected.remove(diseaseId(4));
+        expected.remove(diseaseId(5));
+        expected.put(diseaseId(3), modified.get(diseaseId(3)));
+
+        DiseasePostings updated = postings.update(changed, removed);
+        assertEquals(-1, updated.diseaseNumber(diseaseId(4)));
+        assertSamePostings(DiseasePostings.build(closure, expected.values()), updated);
+    }
+
+    @Test
+    public void testUpdateThatRemovesMostDiseases() {
+        DiseasePostings postings = DiseasePostings.build(closure, original.values());
+        List<TermId> removed = new ArrayList<>();
+        for (int d = 0; d < 40; d++) {
+            removed.add(diseaseId(d));
+        }
+        Map<TermId, HpoDisease> expected = new LinkedHashMap<>(original);
+        removed.forEach(expected::remove);
+
+        DiseasePostings updated = postings.update(List.of(), removed);
+        assertEquals(10, updated.diseaseCount());
+        assertSamePostings(DiseasePostings.build(closure, expected.values()), updated);
+    }
+
+    /** @return id of the {@code d}th disease of {@link SyntheticHpoGenerator}, e.g. ORPHA:100003 */
+    private static TermId diseaseId(int d) {
+        String[] databases = {"OMIM", "OMIM", "OMIM", "ORPHA", "DECIPHER"};
+        return TermId.of(databases[d % databases.length] + ":" + (100_000 + d));
+    }
+
+    private static Map<TermId, HpoDisease> byId(Collection<HpoDisease> diseases) {
+        Map<TermId, HpoDisease> map = new LinkedHashMap<>();
+        for (HpoDisease disease : diseases) {
+            map.put(disease.id(), disease);
+        }
+        return map;
+    }
+
+    /**
+     * The disease numbers of the two postings may differ, so the posting lists are compared as the sets of the ids
+     * of their diseases.
+     */
+    private static void assertSamePostings(DiseasePostings expected, DiseasePostings actual) {
+        assertEquals(expected.diseaseCount(), actual.diseaseCount());
+        assertEquals(byId(expected.diseases()), byId(actual.diseases()));
+        for (HpoDisease disease : expected.diseases()) {
+            int n = actual.diseaseNumber(disease.id());
+            assertTrue(n >= 0);
+            assertSame(disease, actual.disease(n));
+        }
+        for (int t = 0; t < expected.closure().size(); t++) {
+            TermId termId = expected.registry().termId(t);
+            assertEquals(expected.directCount(termId), actual.directCount(termId), termId.getValue());
+            assertEquals(expected.indirectCount(t), actual.indirectCount(t), termId.getValue());
+            assertEquals(diseaseIds(expected, t, DiseasePostings::forEachDirect),
+                    diseaseIds(actual, t, DiseasePostings::forEachDirect), termId.getValue());
+            assertEquals(diseaseIds(expected, t, DiseasePostings::forEachIndirect),
+                    diseaseIds(actual, t, DiseasePostings::forEachIndirect), termId.getValue());
+        }
+        assertEquals(expected.directAnnotMap().keySet(), actual.directAnnotMap().keySet());
+        assertEquals(expected.indirectAnnotMap().keySet(), actual.indirectAnnotMap().keySet());
+    }
+
+    private interface PostingWalk {
+        void forEach(DiseasePostings postings, int term, IntConsumer consumer);
+    }
+
+    private static Set<TermId> diseaseIds(DiseasePostings postings, int term, PostingWalk walk) {
+        Set<TermId> ids = new HashSet<>();
+        walk.forEach(postings, term, d -> assertTrue(ids.add(postings.disease(d).id())));
+        return ids;
+    }
+}
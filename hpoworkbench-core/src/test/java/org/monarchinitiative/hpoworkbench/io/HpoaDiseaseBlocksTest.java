@@ -0,0 +1,131 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoader;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+public class HpoaDiseaseBlocksTest {
+
+    @TempDir
+    Path directory;
+
+    private Ontology ontology;
+    private Path phenotypeHpoa;
+    private HpoDiseaseLoader loader;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        generator(42).build().write(directory);
+        ontology = loadOntology(directory);
+        phenotypeHpoa = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        loader = HpoDiseaseLoaders.defaultLoader(ontology, HpoDiseaseLoaderOptions.defaultOptions());
+    }
+
+    /**
+     * Resolve the blocks in chunks of one disease, of a size that does not divide the number of diseases and in a
+     * single chunk, and compare the diseases and the release with those of the phenol loader reading the whole file.
+     */
+    @Test
+    public void testResolvedChunksEqualLoader() throws IOException {
+        HpoDiseases expected = loader.load(phenotypeHpoa);
+        assertTrue(expected.version().isPresent());
+        HpoaDiseaseBlocks blocks = HpoaDiseaseBlocks.read(phenotypeHpoa);
+        List<String> all = List.copyOf(blocks.blocks().values());
+        for (int chunkSize : new int[]{1, 7, all.size()}) {
+            assertSameDiseases(expected, blocks.resolve(loader, all, chunkSize));
+        }
+        assertSameDiseases(expected, blocks.resolve(ontology));
+    }
+
+    @Test
+    public void testResolvedSubsetKeepsRelease() throws IOException {
+        HpoDiseases expected = loader.load(phenotypeHpoa);
+        HpoaDiseaseBlocks blocks = HpoaDiseaseBlocks.read(phenotypeHpoa);
+        List<String> subset = List.copyOf(blocks.blocks().values()).subList(10, 13);
+        HpoDiseases resolved = blocks.resolve(ontology, HpoDiseaseLoaderOptions.defaultOptions(), subset);
+        assertEquals(expected.version(), resolved.version());
+        assertEquals(3, resolved.diseaseById().size());
+
+        HpoDiseases none = blocks.resolve(ontology, HpoDiseaseLoaderOptions.defaultOptions(), List.of());
+        assertEquals(expected.version(), none.version());
+        assertTrue(none.diseaseById().isEmpty());
+    }
+
+    /**
+     * OMIM:1 keeps its lines, OMIM:2 gets another line, the two lines of OMIM:3 swap places, OMIM:4 is removed and
+     * OMIM:5 is added. The blocks of OMIM:1 and OMIM:6 move in the file without any change of their own lines.
+     */
+    @Test
+    public void testChangesSince() throws IOException {
+        HpoaDiseaseBlocks previous = blocks("2022-04-14",
+                line(1, T0), line(2, T1), line(3, T2), line(3, T3), line(4, T4), line(6, T5));
+        HpoaDiseaseBlocks current = blocks("2022-06-11",
+                line(6, T5), line(2, T1), line(3, T3), line(5, T4), line(1, T0), line(3, T2), line(2, T2));
+        HpoaDiseaseBlocks.Changes changes = current.changesSince(previous);
+        assertEquals(List.of("OMIM:2", "OMIM:3", "OMIM:5"), List.copyOf(changes.changedBlocks().keySet()));
+        assertEquals(line(2, T1) + line(2, T2), changes.changedBlocks().get("OMIM:2"));
+        assertEquals(line(3, T3) + line(3, T2), changes.changedBlocks().get("OMIM:3"));
+        assertEquals(line(5, T4), changes.changedBlocks().get("OMIM:5"));
+        assertEquals(Set.of("OMIM:4"), changes.removedDiseases());
+        assertFalse(changes.isEmpty());
+
+        // a new header alone does not change any disease
+        HpoaDiseaseBlocks sameLines = blocks("2022-08-01",
+                line(1, T0), line(2, T1), line(3, T2), line(3, T3), line(4, T4), line(6, T5));
+        assertTrue(sameLines.changesSince(previous).isEmpty());
+        assertTrue(previous.changesSince(previous).isEmpty());
+    }
+
+    private static HpoaDiseaseBlocks blocks(String release, String... lines) throws IOException {
+        String content = "#version: " + release + "\n" + String.join("", lines);
+        return HpoaDiseaseBlocks.read(new BufferedReader(new StringReader(content)));
+    }
+
+    /** @return the newline-terminated annotation line of disease OMIM:{@code d} with the term */
+    private static String line(int d, String termId) {
+        String diseaseId = "OMIM:" + d;
+        return String.join("\t", diseaseId, "Disease " + d, "", termId, diseaseId, "IEA", "", "", "", "", "P",
+                "HPO:probinson[2022-06-11]") + "\n";
+    }
+
+    private static void assertSameDiseases(HpoDiseases expected, HpoDiseases actual) {
+        assertEquals(expected.version(), actual.version());
+        Map<TermId, HpoDisease> expectedById = expected.diseaseById();
+        Map<TermId, HpoDisease> actualById = actual.diseaseById();
+        assertEquals(expectedById.keySet(), actualById.keySet());
+        for (HpoDisease disease : expectedById.values()) {
+            HpoDisease other = actualById.get(disease.id());
+            assertEquals(disease.diseaseName(), other.diseaseName());
+            assertEquals(annotations(disease), annotations(other), disease.id().getValue());
+        }
+    }
+
+    /** @return the term, negation and frequency of each annotation, in the order of the disease */
+    private static List<String> annotations(HpoDisease disease) {
+        List<String> annotations = new ArrayList<>();
+        for (HpoDiseaseAnnotation annotation : disease.annotations()) {
+            annotations.add(annotation.id().getValue() + (annotation.isAbsent() ? " NOT " : " ") + annotation.frequency());
+        }
+        return annotations;
+    }
+}
@@ -0,0 +1,82 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collector;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.generator;
+
+public class HpoaScannerTest {
+
+    @TempDir
+    Path directory;
+
+    private Path phenotypeHpoa;
+
+    @BeforeEach
+    public void writeAnnotations() throws IOException {
+        phenotypeHpoa = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        generator(42).build().writeAnnotations(phenotypeHpoa);
+    }
+
+    /**
+     * Chunks of a few bytes end within almost every line, so each chunk boundary has to be moved to the end of the
+     * line; the lines must be scanned exactly once and in file order.
+     */
+    @Test
+    public void testSmallChunksYieldTheDiseaseBlocks() throws IOException {
+        Map<String, String> expected = HpoaDiseaseBlocks.read(phenotypeHpoa).blocks();
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(phenotypeHpoa));
+        for (int chunkBytes : new int[]{1, 7, 100, 1000, buffer.limit()}) {
+            Map<String, String> blocks = HpoaScanner.scan(buffer, blockCollector(), chunkBytes);
+            assertEquals(expected, blocks, "chunks of " + chunkBytes + " bytes");
+            assertEquals(List.copyOf(expected.keySet()), List.copyOf(blocks.keySet()));
+        }
+        assertEquals(expected, HpoaScanner.scan(phenotypeHpoa, blockCollector()));
+    }
+
+    @Test
+    public void testCrLfAndMissingFinalNewline() throws IOException {
+        Map<String, String> expected = HpoaDiseaseBlocks.read(phenotypeHpoa).blocks();
+        String content = Files.readString(phenotypeHpoa).strip().replace("\n", "\r\n");
+        ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        for (int chunkBytes : new int[]{1, 50, buffer.limit()}) {
+            assertEquals(expected, HpoaScanner.scan(buffer, blockCollector(), chunkBytes));
+        }
+    }
+
+    /** Group the lines by disease id, like {@link HpoaDiseaseBlocks}. */
+    private static Collector<HpoaScanner.Line, ?, Map<String, String>> blockCollector() {
+        return Collector.<HpoaScanner.Line, Map<String, StringBuilder>, Map<String, String>>of(
+                LinkedHashMap::new,
+                (blocks, line) -> {
+                    List<String> fields = new ArrayList<>();
+                    for (int i = 0; i < line.fieldCount(); i++) {
+                        fields.add(line.field(i));
+                    }
+                    blocks.computeIfAbsent(line.field(HpoaScanner.DATABASE_ID), k -> new StringBuilder())
+                            .append(String.join("\t", fields)).append('\n');
+                },
+                (left, right) -> {
+                    right.forEach((id, block) -> left.merge(id, block, StringBuilder::append));
+                    return left;
+                },
+                blocks -> {
+                    Map<String, String> result = new LinkedHashMap<>();
+                    blocks.forEach((id, block) -> result.put(id, block.toString()));
+                    return result;
+                });
+    }
+}
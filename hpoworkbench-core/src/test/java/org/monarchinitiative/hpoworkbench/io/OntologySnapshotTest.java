@@ -0,0 +1,183 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenol.ontology.data.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OntologySnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private Path hpJson;
+    private Path snapshot;
+
+    @BeforeEach
+    public void writeOntology() throws IOException {
+        hpJson = directory.resolve(SyntheticHpoGenerator.HP_JSON);
+        snapshot = OntologySnapshot.snapshotPath(hpJson);
+        new SyntheticHpoGenerator.Builder().terms(200).diseases(0).build().writeOntology(hpJson);
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        Ontology parsed = OntologySnapshot.loadOntology(hpJson.toFile());
+        assertTrue(OntologySnapshot.isCurrent(hpJson, snapshot));
+
+        Ontology fromSnapshot = OntologySnapshot.loadOntology(hpJson.toFile());
+        assertEquals(parsed.countNonObsoleteTerms(), fromSnapshot.countNonObsoleteTerms());
+        assertEquals(parsed.getTermMap().keySet(), fromSnapshot.getTermMap().keySet());
+        TermId first = TermId.of(SyntheticHpoGenerator.termId(0));
+        assertEquals(parsed.getTermMap().get(first).getName(), fromSnapshot.getTermMap().get(first).getName());
+        assertEquals(parsed.getParentTermIds(first), fromSnapshot.getParentTermIds(first));
+    }
+
+    /**
+     * The synthetic ontology has untyped synonyms only, so this one is written by hand: synonyms of several types
+     * (including one that is not among the types HPO uses most) with xrefs of their own, and terms with database
+     * xrefs, definition xrefs and graph metadata.
+     */
+    @Test
+    public void testSynonymTypesXrefsAndMetadataRoundTrip() throws IOException {
+        Files.writeString(hpJson, TYPED_ONTOLOGY, StandardCharsets.UTF_8);
+        Ontology parsed = OntologySnapshot.loadOntology(hpJson.toFile());
+        assertTrue(OntologySnapshot.isCurrent(hpJson, snapshot));
+        Ontology fromSnapshot = OntologySnapshot.loadOntology(hpJson.toFile());
+
+        assertFalse(parsed.getMetaInfo().isEmpty());
+        assertEquals(parsed.getMetaInfo(), fromSnapshot.getMetaInfo());
+        assertEquals(parsed.getTermMap().keySet(), fromSnapshot.getTermMap().keySet());
+        Term cardiovascular = parsed.getTermMap().get(TermId.of("HP:0001626"));
+        assertEquals(4, cardiovascular.getSynonyms().size());
+        for (TermId id : parsed.getTermMap().keySet()) {
+            Term expected = parsed.getTermMap().get(id);
+            Term actual = fromSnapshot.getTermMap().get(id);
+            assertEquals(synonyms(expected), synonyms(actual), id.getValue());
+            assertEquals(databaseXrefs(expected), databaseXrefs(actual), id.getValue());
+            assertEquals(xrefs(expected), xrefs(actual), id.getValue());
+        }
+    }
+
+    @Test
+    public void testTouchedSourceUpdatesStoredMtime() throws IOException {
+        OntologySnapshot.loadOntology(hpJson.toFile());
+        FileTime touched = FileTime.fromMillis(Files.getLastModifiedTime(hpJson).toMillis() + 60_000L);
+        Files.setLastModifiedTime(hpJson, touched);
+
+        assertTrue(OntologySnapshot.isCurrent(hpJson, snapshot));
+        assertEquals(touched.toMillis(), storedMtime());
+    }
+
+    @Test
+    public void testChangedSourceRebuildsSnapshot() throws IOException {
+        OntologySnapshot.loadOntology(hpJson.toFile());
+        new SyntheticHpoGenerator.Builder().terms(300).diseases(0).build().writeOntology(hpJson);
+        assertFalse(OntologySnapshot.isCurrent(hpJson, snapshot));
+
+        Ontology ontology = OntologySnapshot.loadOntology(hpJson.toFile());
+        assertTrue(ontology.getTermMap().containsKey(TermId.of(SyntheticHpoGenerator.termId(299))));
+        assertTrue(OntologySnapshot.isCurrent(hpJson, snapshot));
+    }
+
+    /** @return the value, scope, type and xrefs of each synonym of the term */
+    private static List<String> synonyms(Term term) {
+        List<String> synonyms = new ArrayList<>();
+        for (TermSynonym synonym : term.getSynonyms()) {
+            List<String> xrefs = new ArrayList<>();
+            for (TermXref xref : synonym.getTermXrefs()) {
+                xrefs.add(xref.id().getValue() + " " + xref.getDescription());
+            }
+            synonyms.add(String.join(" | ", synonym.getValue(), String.valueOf(synonym.getScope()),
+                    String.valueOf(synonym.getSynonymTypeName()), String.valueOf(synonym.getSynonymType()),
+                    String.valueOf(synonym.isLayperson()), String.valueOf(synonym.isAbbreviation()),
+                    String.valueOf(synonym.isUKspelling()), String.valueOf(synonym.isObsoleteSynonym()),
+                    String.valueOf(synonym.isPluralForm()), String.valueOf(xrefs)));
+        }
+        return synonyms;
+    }
+
+    private static List<String> databaseXrefs(Term term) {
+        List<String> xrefs = new ArrayList<>();
+        for (SimpleXref xref : term.getDatabaseXrefs()) {
+            xrefs.add(xref.getCurie());
+        }
+        return xrefs;
+    }
+
+    private static List<String> xrefs(Term term) {
+        List<String> xrefs = new ArrayList<>();
+        for (Dbxref xref : term.getXrefs()) {
+            xrefs.add(xref.getName() + " " + xref.getDescription() + " " + xref.getTrailingModifiers());
+        }
+        return xrefs;
+    }
+
+    private long storedMtime() throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot))) {
+            in.skipNBytes(OntologySnapshot.MTIME_OFFSET);
+            return in.readLong();
+        }
+    }
+
+    private static final String TYPED_ONTOLOGY = """
+            {"graphs": [{
+              "id": "http://purl.obolibrary.org/obo/hp.json",
+              "meta": {
+                "version": "http://purl.obolibrary.org/obo/hp/releases/2022-06-11/hp.json",
+                "basicPropertyValues": [
+                  {"pred": "http://www.w3.org/2002/07/owl#versionInfo", "val": "2022-06-11"},
+                  {"pred": "http://purl.org/dc/elements/1.1/title", "val": "Human Phenotype Ontology"}
+                ]
+              },
+              "nodes": [
+                {"id": "http://purl.obolibrary.org/obo/HP_0000001", "lbl": "All", "type": "CLASS"},
+                {"id": "http://purl.obolibrary.org/obo/HP_0000118", "lbl": "Phenotypic abnormality", "type": "CLASS",
+                  "meta": {"xrefs": [{"val": "UMLS:C4021819"}]}},
+                {"id": "http://purl.obolibrary.org/obo/HP_0001626", "lbl": "Abnormality of the cardiovascular system",
+                  "type": "CLASS",
+                  "meta": {
+                    "definition": {"val": "Any abnormality of the cardiovascular system.", "xrefs": ["HPO:probinson"]},
+                    "synonyms": [
+                      {"pred": "hasExactSynonym", "val": "Cardiovascular disease", "xrefs": ["HPO:skoehler"],
+                        "synonymType": "http://purl.obolibrary.org/obo/hp#layperson"},
+                      {"pred": "hasRelatedSynonym", "val": "CVS abnormality",
+                        "synonymType": "http://purl.obolibrary.org/obo/hp#abbreviation"},
+                      {"pred": "hasBroadSynonym", "val": "Cardiovascular abnormalities",
+                        "synonymType": "http://purl.obolibrary.org/obo/hp#plural_form"},
+                      {"pred": "hasExactSynonym", "val": "Cardiovascular anomaly", "xrefs": ["HPO:probinson"]}
+                    ],
+                    "xrefs": [{"val": "UMLS:C0243050"}, {"val": "MSH:D002318"}]
+                  }},
+                {"id": "http://purl.obolibrary.org/obo/HP_0030680", "lbl": "Abnormality of cardiovascular system morphology",
+                  "type": "CLASS",
+                  "meta": {
+                    "synonyms": [
+                      {"pred": "hasExactSynonym", "val": "Abnormality of cardiovascular system morphology",
+                        "synonymType": "http://purl.obolibrary.org/obo/hp#uk_spelling"},
+                      {"pred": "hasRelatedSynonym", "val": "Cardiovascular malformation",
+                        "synonymType": "http://purl.obolibrary.org/obo/hp#obsolete_synonym"},
+                      {"pred": "hasNarrowSynonym", "val": "Cardiovascular defect",
+                        "synonymType": "http://purl.obolibrary.org/obo/hp#allelic_requirement"}
+                    ]
+                  }}
+              ],
+              "edges": [
+                {"sub": "http://purl.obolibrary.org/obo/HP_0000118", "pred": "is_a", "obj": "http://purl.obolibrary.org/obo/HP_0000001"},
+                {"sub": "http://purl.obolibrary.org/obo/HP_0001626", "pred": "is_a", "obj": "http://purl.obolibrary.org/obo/HP_0000118"},
+                {"sub": "http://purl.obolibrary.org/obo/HP_0030680", "pred": "is_a", "obj": "http://purl.obolibrary.org/obo/HP_0001626"}
+              ]
+            }]}
+            """;
+}
@@ -0,0 +1,140 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import com.google.protobuf.util.JsonFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.phenopackets.schema.v2.Phenopacket;
+import org.phenopackets.schema.v2.core.OntologyClass;
+import org.phenopackets.schema.v2.core.PhenotypicFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhenopacketLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    private Path subdirectory;
+
+    @BeforeEach
+    public void writePhenopackets() throws IOException {
+        subdirectory = Files.createDirectory(directory.resolve("sub"));
+        for (int i = 0; i < 10; i++) {
+            writePacket(directory, i, "HP:0001626");
+        }
+        for (int i = 10; i < 15; i++) {
+            writePacket(subdirectory, i, "HP:0000707");
+        }
+    }
+
+    @Test
+    public void testCacheRoundTrip() throws IOException {
+        PhenopacketLoader.Result parsed = PhenopacketLoader.load(directory, true);
+        assertEquals(15, parsed.phenopackets().size());
+        assertEquals(0, parsed.cached());
+        assertTrue(parsed.failures().isEmpty());
+        assertTrue(Files.isRegularFile(directory.resolve(PhenopacketLoader.CACHE_NAME)));
+        assertTrue(Files.isRegularFile(subdirectory.resolve(PhenopacketLoader.CACHE_NAME)));
+
+        PhenopacketLoader.Result cached = PhenopacketLoader.load(directory, true);
+        assertEquals(15, cached.cached());
+        assertEquals(parsed.phenopackets(), cached.phenopackets());
+        assertEquals(List.of("p00", "p01"), ids(cached).subList(0, 2));
+        assertEquals("p14", ids(cached).get(14));
+    }
+
+    @Test
+    public void testChangedFilesAreParsedAgain() throws IOException {
+        PhenopacketLoader.load(directory, true);
+        setModified(directory.resolve("p03.json"), 60_000L);
+        writePacket(subdirectory, 12, "HP:0001250");
+        setModified(subdirectory.resolve("p12.json"), 120_000L);
+
+        PhenopacketLoader.Result reloaded = PhenopacketLoader.load(directory, true);
+        assertEquals(13, reloaded.cached());
+        assertEquals("HP:0001250", reloaded.phenopackets().get(12).phenopacket().getPhenotypicFeatures(0).getType().getId());
+
+        PhenopacketLoader.Result cached = PhenopacketLoader.load(directory, true);
+        assertEquals(15, cached.cached());
+        assertEquals(reloaded.phenopackets(), cached.phenopackets());
+    }
+
+    @Test
+    public void testAddedAndRemovedFiles() throws IOException {
+        PhenopacketLoader.load(directory, true);
+        Files.delete(directory.resolve("p05.json"));
+        writePacket(subdirectory, 20, "HP:0001250");
+
+        PhenopacketLoader.Result reloaded = PhenopacketLoader.load(directory, true);
+        assertEquals(15, reloaded.phenopackets().size());
+        assertEquals(14, reloaded.cached());
+        assertFalse(ids(reloaded).contains("p05"));
+        assertEquals("p20", ids(reloaded).get(14));
+
+        assertEquals(15, PhenopacketLoader.load(directory, true).cached());
+    }
+
+    @Test
+    public void testBatchesCoverAllFiles() throws IOException {
+        PhenopacketLoader.Result all = PhenopacketLoader.load(directory, false);
+        for (int round = 0; round < 2; round++) {
+            List<PhenopacketLoader.LoadedPhenopacket> batched = new ArrayList<>();
+            int[] cached = {0};
+            PhenopacketLoader.load(directory, true, 4, batch -> {
+                assertTrue(batch.phenopackets().size() <= 4);
+                batched.addAll(batch.phenopackets());
+                cached[0] += batch.cached();
+            });
+            assertEquals(all.phenopackets(), batched);
+            assertEquals(round == 0 ? 0 : 15, cached[0]);
+        }
+    }
+
+    @Test
+    public void testNoCache() throws IOException {
+        PhenopacketLoader.Result parsed = PhenopacketLoader.load(directory, false);
+        assertEquals(15, parsed.phenopackets().size());
+        assertFalse(Files.exists(directory.resolve(PhenopacketLoader.CACHE_NAME)));
+        assertFalse(Files.exists(subdirectory.resolve(PhenopacketLoader.CACHE_NAME)));
+    }
+
+    @Test
+    public void testMalformedFileIsReported() throws IOException {
+        Files.writeString(directory.resolve("p99.json"), "{\"id\": ");
+
+        PhenopacketLoader.Result result = PhenopacketLoader.load(directory, true);
+        assertEquals(15, result.phenopackets().size());
+        assertEquals(1, result.failures().size());
+        assertEquals(directory.resolve("p99.json"), result.failures().get(0).file());
+    }
+
+    private static void writePacket(Path dir, int i, String termId) throws IOException {
+        Phenopacket packet = Phenopacket.newBuilder()
+                .setId(String.format("p%02d", i))
+                .addPhenotypicFeatures(PhenotypicFeature.newBuilder()
+                        .setType(OntologyClass.newBuilder().setId(termId).setLabel(termId)))
+                .build();
+        Files.writeString(dir.resolve(String.format("p%02d.json", i)), JsonFormat.printer().print(packet));
+    }
+
+    /** Move the modification time of a file, e.g. of a rewritten file in case it was written within the same millisecond. */
+    private static void setModified(Path file, long offset) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + offset));
+    }
+
+    private static List<String> ids(PhenopacketLoader.Result result) {
+        List<String> ids = new ArrayList<>();
+        for (PhenopacketLoader.LoadedPhenopacket loaded : result.phenopackets()) {
+            ids.add(loaded.phenopacket().getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,78 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Synthetic HPO files shared by the tests. {@link #generator(long)} creates the small ontology with random
+ * annotations that most tests use. {@link #writeTinyOntology(Path)} and {@link #writeAnnotations(Path, String[]...)}
+ * write an ontology and annotations that are small enough to work out the expected values by hand.
+ */
+public final class SyntheticResources {
+
+    /**
+     * The terms of the tiny ontology. T0 and T1 are the children of Phenotypic abnormality, T2 and T3 the children of
+     * T0, and T4 and T5 the children of both T1 and T0.
+     */
+    public static final String T0 = SyntheticHpoGenerator.termId(0);
+    public static final String T1 = SyntheticHpoGenerator.termId(1);
+    public static final String T2 = SyntheticHpoGenerator.termId(2);
+    public static final String T3 = SyntheticHpoGenerator.termId(3);
+    public static final String T4 = SyntheticHpoGenerator.termId(4);
+    public static final String T5 = SyntheticHpoGenerator.termId(5);
+
+    private SyntheticResources() {
+    }
+
+    /** @return generator of 200 terms and 50 diseases with 5 annotations each */
+    public static SyntheticHpoGenerator.Builder generator(long seed) {
+        return new SyntheticHpoGenerator.Builder().terms(200).diseases(50).annotationsPerDisease(5).seed(seed);
+    }
+
+    /** Write the ontology of the terms {@link #T0} to {@link #T5} to {@code hpJson}. */
+    public static void writeTinyOntology(Path hpJson) throws IOException {
+        // with two children per term, T4 and T5 are below T1, and every term below T1 gets T0 as its second parent
+        new SyntheticHpoGenerator.Builder().terms(6).branching(2).multiParentRatio(1.0).diseases(0).build()
+                .writeOntology(hpJson);
+    }
+
+    /**
+     * Write a phenotype.hpoa with one line per annotation.
+     *
+     * @param annotations pairs of a disease id and an HPO term id, e.g. {@code {"OMIM:100000", T2}}, optionally
+     *                    followed by a qualifier, e.g. {@code {"OMIM:100000", T0, "NOT"}}, and a frequency, e.g.
+     *                    {@code {"OMIM:100000", T2, "", "1/2"}}
+     */
+    public static void writeAnnotations(Path phenotypeHpoa, String[]... annotations) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(phenotypeHpoa, StandardCharsets.UTF_8)) {
+            writer.write("#description: \"hand-written HPO annotations\"\n");
+            writer.write("#version: 2022-06-11\n");
+            for (String[] annotation : annotations) {
+                writer.write(String.join("\t", annotation[0], "Disease " + annotation[0],
+                        annotation.length > 2 ? annotation[2] : "", annotation[1],
+                        annotation[0], "IEA", "", annotation.length > 3 ? annotation[3] : "", "", "", "P",
+                        "HPO:probinson[2022-06-11]"));
+                writer.write('\n');
+            }
+        }
+    }
+
+    /** @return the ontology in the {@link SyntheticHpoGenerator#HP_JSON} of the directory */
+    public static Ontology loadOntology(Path directory) {
+        return OntologySnapshot.loadOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON).toFile());
+    }
+
+    public static Collection<HpoDisease> loadDiseases(Ontology ontology, Path phenotypeHpoa) throws IOException {
+        return HpoDiseaseLoaders.defaultLoader(ontology, HpoDiseaseLoaderOptions.defaultOptions())
+                .load(phenotypeHpoa).diseaseById().values();
+    }
+}
@@ -0,0 +1,125 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+public class AncestorClosureTest {
+
+    private static final TermId ALL = TermId.of("HP:0000001");
+    private static final TermId PHENOTYPIC_ABNORMALITY = TermId.of("HP:0000118");
+
+    @TempDir
+    Path directory;
+
+    private Ontology ontology;
+    private AncestorClosure closure;
+
+    @BeforeEach
+    public void writeOntology() throws IOException {
+        writeTinyOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON));
+        ontology = loadOntology(directory);
+        closure = AncestorClosure.of(ontology);
+    }
+
+    /** T4 has the two parents T1 and T0, so its ancestors are the union of theirs. */
+    @Test
+    public void testAncestorsOfTinyOntology() {
+        assertEquals(Set.of(TermId.of(T4), TermId.of(T1), TermId.of(T0), PHENOTYPIC_ABNORMALITY, ALL),
+                closure.ancestorTermIds(TermId.of(T4)));
+        assertEquals(Set.of(TermId.of(T2), TermId.of(T0), PHENOTYPIC_ABNORMALITY, ALL),
+                closure.ancestorTermIds(TermId.of(T2)));
+        assertEquals(Set.of(ALL), closure.ancestorTermIds(ALL));
+        assertEquals(Set.of(), closure.ancestorTermIds(TermId.of("HP:9999999")));
+        assertEquals(Set.of(closure.index(TermId.of(T1)), closure.index(TermId.of(T0))),
+                indices(closure.parents(closure.index(TermId.of(T4)))));
+        assertEquals(Set.of(closure.index(TermId.of(T4)), closure.index(TermId.of(T5))),
+                indices(closure.children(closure.index(TermId.of(T1)))));
+    }
+
+    /** The ancestors of every term are sorted, include the term itself and are the same as those found by phenol. */
+    @Test
+    public void testAncestorsAreSortedAndReflexive() {
+        // the eight top-level terms of the generator and T0 to T5
+        assertEquals(14, closure.size());
+        for (int t = 0; t < closure.size(); t++) {
+            int[] ancestors = closure.ancestors(t);
+            for (int i = 1; i < ancestors.length; i++) {
+                assertTrue(ancestors[i - 1] < ancestors[i], "not sorted: " + Arrays.toString(ancestors));
+            }
+            assertTrue(Arrays.binarySearch(ancestors, t) >= 0);
+            assertTrue(closure.isAncestorOrSelf(t, t));
+            TermId termId = closure.termId(t);
+            assertEquals(OntologyAlgorithm.getAncestorTerms(ontology, termId, true), closure.ancestorTermIds(termId),
+                    termId.getValue());
+        }
+        int t4 = closure.index(TermId.of(T4));
+        assertTrue(closure.isAncestorOrSelf(closure.index(TermId.of(T0)), t4));
+        assertFalse(closure.isAncestorOrSelf(t4, closure.index(TermId.of(T0))));
+        assertFalse(closure.isAncestorOrSelf(closure.index(TermId.of(T2)), t4));
+    }
+
+    /** Every term comes exactly once and after all of its parents, also on a larger ontology with many second parents. */
+    @Test
+    public void testTopologicalOrder() throws IOException {
+        assertTopologicalOrder(closure);
+        Path larger = directory.resolve("larger");
+        generator(7).multiParentRatio(0.5).build().write(larger);
+        assertTopologicalOrder(AncestorClosure.of(loadOntology(larger)));
+    }
+
+    @Test
+    public void testDescendants() {
+        int t0 = closure.index(TermId.of(T0));
+        assertEquals(Set.of(TermId.of(T0), TermId.of(T2), TermId.of(T3), TermId.of(T4), TermId.of(T5)),
+                closure.descendants(t0).toTermIds());
+        assertEquals(7, closure.descendantCount(closure.index(PHENOTYPIC_ABNORMALITY)));
+        assertEquals(1, closure.descendantCount(closure.index(TermId.of(T5))));
+        // the descendants are exactly the terms that have the term as an ancestor
+        for (int t = 0; t < closure.size(); t++) {
+            TermBitSet descendants = closure.descendants(t);
+            for (int d = 0; d < closure.size(); d++) {
+                assertEquals(closure.isAncestorOrSelf(t, d), descendants.contains(d));
+            }
+        }
+    }
+
+    private static void assertTopologicalOrder(AncestorClosure closure) {
+        int[] order = closure.topologicalOrder();
+        assertEquals(closure.size(), order.length);
+        int[] position = new int[closure.size()];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < order.length; i++) {
+            assertEquals(-1, position[order[i]], "listed twice: " + closure.termId(order[i]).getValue());
+            position[order[i]] = i;
+        }
+        for (int t = 0; t < closure.size(); t++) {
+            for (int p : closure.parents(t)) {
+                assertTrue(position[p] < position[t], closure.termId(p).getValue() + " after " + closure.termId(t).getValue());
+                assertTrue(indices(closure.children(p)).contains(t));
+            }
+            for (int c : closure.children(t)) {
+                assertTrue(indices(closure.parents(c)).contains(t));
+            }
+        }
+    }
+
+    private static Set<Integer> indices(int[] indices) {
+        Set<Integer> result = new HashSet<>();
+        for (int i : indices) {
+            result.add(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,110 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.*;
+
+public class NeighborhoodIndexTest {
+
+    private static final int K = 3;
+
+    @TempDir
+    Path directory;
+
+    /** The parents and children are the first level of the tiny ontology, Phenotypic abnormality the second of T4. */
+    @Test
+    public void testTinyOntology() throws IOException {
+        writeTinyOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON));
+        AncestorClosure closure = AncestorClosure.of(loadOntology(directory));
+        NeighborhoodIndex index = NeighborhoodIndex.of(closure, 2);
+        int t4 = closure.index(TermId.of(T4));
+        int t0 = closure.index(TermId.of(T0));
+        assertEquals(sorted(closure.parents(t4)), box(index.up(t4, 1)));
+        // Phenotypic abnormality is two hops above T4 along both parents, and listed once
+        assertArrayEquals(new int[]{closure.index(TermId.of("HP:0000118"))}, index.up(t4, 2));
+        assertEquals(sorted(closure.children(t0)), box(index.down(t0, 1)));
+        assertArrayEquals(new int[0], index.down(t0, 2));
+    }
+
+    /**
+     * On a generated ontology in which half of the terms have a second parent, many terms reach an ancestor along
+     * paths of different lengths. Every neighbor must be listed at the shortest of them only, in both directions.
+     */
+    @Test
+    public void testNeighborsAreListedAtShortestDistance() throws IOException {
+        generator(7).multiParentRatio(0.5).build().write(directory);
+        AncestorClosure closure = AncestorClosure.of(loadOntology(directory));
+        NeighborhoodIndex index = NeighborhoodIndex.of(closure, K);
+        assertEquals(K, index.k());
+        assertSame(closure, index.closure());
+        int[] multipleDistances = new int[2];
+        for (int t = 0; t < closure.size(); t++) {
+            for (boolean upwards : new boolean[]{true, false}) {
+                Map<Integer, Set<Integer>> distances = new HashMap<>();
+                pathLengths(closure, t, upwards, 0, distances);
+                for (int d = 1; d <= K; d++) {
+                    Set<Integer> expected = new TreeSet<>();
+                    for (Map.Entry<Integer, Set<Integer>> e : distances.entrySet()) {
+                        if (Collections.min(e.getValue()) == d) {
+                            expected.add(e.getKey());
+                        }
+                    }
+                    int[] level = upwards ? index.up(t, d) : index.down(t, d);
+                    assertEquals(List.copyOf(expected), box(level),
+                            (upwards ? "up " : "down ") + d + " from " + closure.termId(t).getValue());
+                }
+                for (Set<Integer> lengths : distances.values()) {
+                    if (lengths.size() > 1) {
+                        multipleDistances[upwards ? 0 : 1]++;
+                    }
+                }
+            }
+        }
+        // make sure that the ontology has terms at several distances at all
+        assertTrue(multipleDistances[0] > 0, "no ancestor at several distances");
+        assertTrue(multipleDistances[1] > 0, "no descendant at several distances");
+    }
+
+    @Test
+    public void testZeroHops() throws IOException {
+        writeTinyOntology(directory.resolve(SyntheticHpoGenerator.HP_JSON));
+        AncestorClosure closure = AncestorClosure.of(loadOntology(directory));
+        NeighborhoodIndex index = NeighborhoodIndex.of(closure, 0);
+        assertEquals(0, index.k());
+        assertThrows(IllegalArgumentException.class, () -> NeighborhoodIndex.of(closure, -1));
+    }
+
+    /** Add the lengths of all paths of at most {@link #K} hops from {@code t}, by the term they end at. */
+    private static void pathLengths(AncestorClosure closure, int t, boolean upwards, int length,
+                                    Map<Integer, Set<Integer>> distances) {
+        if (length == K) {
+            return;
+        }
+        for (int next : upwards ? closure.parents(t) : closure.children(t)) {
+            distances.computeIfAbsent(next, x -> new HashSet<>()).add(length + 1);
+            pathLengths(closure, next, upwards, length + 1, distances);
+        }
+    }
+
+    private static List<Integer> sorted(int[] indices) {
+        List<Integer> sorted = box(indices);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private static List<Integer> box(int[] indices) {
+        List<Integer> boxed = new ArrayList<>();
+        for (int i : indices) {
+            boxed.add(i);
+        }
+        return boxed;
+    }
+}
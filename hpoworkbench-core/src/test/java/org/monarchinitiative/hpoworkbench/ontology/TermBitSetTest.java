@@ -0,0 +1,96 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.ontology.TermRegistryTest.*;
+
+public class TermBitSetTest {
+
+    @TempDir
+    Path directory;
+
+    private TermRegistry registry;
+
+    @BeforeEach
+    public void writeOntology() throws IOException {
+        registry = TermRegistry.of(altIdOntology(directory));
+    }
+
+    @Test
+    public void testAddResolvesAlternateIds() {
+        TermBitSet set = new TermBitSet(registry);
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(A_ALT1));
+        assertFalse(set.add(A));
+        assertFalse(set.add(A_ALT2));
+        assertFalse(set.add(UNKNOWN));
+        assertTrue(set.contains(A));
+        assertTrue(set.contains(A_ALT2));
+        assertFalse(set.contains(UNKNOWN));
+        assertEquals(1, set.size());
+        assertEquals(Set.of(A), set.toTermIds());
+    }
+
+    /** All ways of iterating return the indices in ascending order, and the term ids in the same order. */
+    @Test
+    public void testIterationIsAscending() {
+        TermBitSet set = new TermBitSet(registry);
+        set.add(C);
+        set.add(ALL);
+        set.add(B_ALT);
+        int[] expected = {registry.index(ALL), registry.index(B), registry.index(C)};
+        assertArrayEquals(expected, set.indices().toArray());
+        List<Integer> visited = new ArrayList<>();
+        set.forEach(visited::add);
+        assertEquals(List.of(expected[0], expected[1], expected[2]), visited);
+        List<Integer> next = new ArrayList<>();
+        for (int i = set.nextIndex(0); i >= 0; i = set.nextIndex(i + 1)) {
+            next.add(i);
+        }
+        assertEquals(visited, next);
+        assertEquals(-1, set.nextIndex(expected[2] + 1));
+        assertEquals(List.of(ALL, B, C), List.copyOf(set.toTermIds()));
+    }
+
+    @Test
+    public void testSetOperations() {
+        TermBitSet ab = new TermBitSet(registry);
+        ab.add(A);
+        ab.add(B);
+        TermBitSet bc = new TermBitSet(registry);
+        bc.add(B);
+        bc.add(C);
+        TermBitSet all = new TermBitSet(registry);
+        all.add(ALL);
+
+        assertTrue(ab.intersects(bc));
+        assertFalse(ab.intersects(all));
+
+        TermBitSet union = ab.copy();
+        union.addAll(bc);
+        assertEquals(Set.of(A, B, C), union.toTermIds());
+        // the copy does not share the bits of the original
+        assertEquals(Set.of(B, A), ab.toTermIds());
+
+        TermBitSet intersection = ab.copy();
+        intersection.retainAll(bc);
+        assertEquals(Set.of(B), intersection.toTermIds());
+
+        TermBitSet difference = ab.copy();
+        difference.removeAll(bc);
+        assertEquals(Set.of(A), difference.toTermIds());
+        difference.remove(registry.index(A));
+        assertTrue(difference.isEmpty());
+
+        union.clear();
+        assertEquals(0, union.size());
+        assertEquals(2, bc.size());
+    }
+}
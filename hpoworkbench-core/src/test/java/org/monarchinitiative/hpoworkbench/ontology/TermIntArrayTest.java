@@ -0,0 +1,93 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.ontology.TermRegistryTest.*;
+
+/** {@link TermIntArray} and {@link TermDoubleArray} on the ontology with alternate ids of {@link TermRegistryTest}. */
+public class TermIntArrayTest {
+
+    @TempDir
+    Path directory;
+
+    private TermRegistry registry;
+
+    @BeforeEach
+    public void writeOntology() throws IOException {
+        registry = TermRegistry.of(altIdOntology(directory));
+    }
+
+    @Test
+    public void testCountsByPrimaryTerm() {
+        TermIntArray counts = new TermIntArray(registry);
+        assertTrue(counts.increment(A));
+        assertTrue(counts.increment(A_ALT1));
+        assertTrue(counts.increment(A_ALT2));
+        assertFalse(counts.increment(UNKNOWN));
+        counts.add(registry.index(C), 5);
+        counts.increment(registry.index(B));
+        assertEquals(3, counts.get(A));
+        assertEquals(3, counts.get(A_ALT1));
+        assertEquals(0, counts.get(UNKNOWN));
+        assertEquals(5, counts.get(registry.index(C)));
+        assertEquals(9, counts.sum());
+        assertEquals(3, counts.countNonZero());
+
+        TermIntArray other = new TermIntArray(registry);
+        other.set(registry.index(ALL), 2);
+        other.set(registry.index(C), 1);
+        counts.addAll(other);
+        assertEquals(2, counts.get(ALL));
+        assertEquals(6, counts.get(C));
+        counts.clear();
+        assertEquals(0, counts.sum());
+        assertEquals(0, counts.countNonZero());
+    }
+
+    /** Highest first, ties by index, zero counts are left out, and at most {@code k} indices are returned. */
+    @Test
+    public void testTopIndices() {
+        TermIntArray counts = new TermIntArray(registry);
+        counts.set(registry.index(ALL), 1);
+        counts.set(registry.index(B), 4);
+        counts.set(registry.index(A), 4);
+        counts.set(registry.index(C), 7);
+        int all = registry.index(ALL), b = registry.index(B), a = registry.index(A), c = registry.index(C);
+        assertTrue(b < a);
+        assertArrayEquals(new int[]{c, b, a, all}, counts.topIndices(10));
+        assertArrayEquals(new int[]{c, b}, counts.topIndices(2));
+        assertArrayEquals(new int[0], counts.topIndices(0));
+
+        TermBitSet terms = new TermBitSet(registry);
+        terms.add(A);
+        terms.add(ALL);
+        terms.add(PHENOTYPIC_ABNORMALITY);
+        assertArrayEquals(new int[]{a, all}, counts.topIndices(terms, 5));
+        assertArrayEquals(new int[]{a}, counts.topIndices(terms, 1));
+    }
+
+    @Test
+    public void testDoubleArray() {
+        TermDoubleArray sums = new TermDoubleArray(registry);
+        sums.add(registry.index(A_ALT1), 0.5);
+        sums.add(registry.index(A), 0.25);
+        sums.set(registry.index(C), 2D);
+        assertEquals(0.75, sums.get(A_ALT2), 1e-12);
+        assertEquals(0D, sums.get(UNKNOWN));
+        assertEquals(2D, sums.get(registry.index(C)));
+        assertEquals(2.75, sums.sum(), 1e-12);
+
+        TermDoubleArray other = new TermDoubleArray(registry);
+        other.set(registry.index(A), 1D);
+        sums.addAll(other);
+        assertEquals(1.75, sums.get(A), 1e-12);
+        sums.clear();
+        assertEquals(0D, sums.sum());
+    }
+}
@@ -0,0 +1,139 @@
+package org.monarchinitiative.hpoworkbench.ontology;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.generator;
+import static org.monarchinitiative.hpoworkbench.io.SyntheticResources.loadOntology;
+
+/**
+ * The registry and the term collections on a hand-written ontology with alternate ids (the synthetic ontology has
+ * none): HP:0000200 has the alternate ids HP:0000201 and HP:0000202, and HP:0000100 has HP:0000101.
+ */
+public class TermRegistryTest {
+
+    static final TermId ALL = TermId.of("HP:0000001");
+    static final TermId B = TermId.of("HP:0000100");
+    static final TermId B_ALT = TermId.of("HP:0000101");
+    static final TermId PHENOTYPIC_ABNORMALITY = TermId.of("HP:0000118");
+    static final TermId A = TermId.of("HP:0000200");
+    static final TermId A_ALT1 = TermId.of("HP:0000201");
+    static final TermId A_ALT2 = TermId.of("HP:0000202");
+    static final TermId C = TermId.of("HP:0000300");
+    static final TermId UNKNOWN = TermId.of("HP:9999999");
+
+    @TempDir
+    Path directory;
+
+    private TermRegistry registry;
+
+    @BeforeEach
+    public void writeOntology() throws IOException {
+        registry = TermRegistry.of(altIdOntology(directory));
+    }
+
+    /** The primary terms are numbered in the order of their ids. */
+    @Test
+    public void testPrimaryTermsAreSorted() {
+        assertEquals(5, registry.size());
+        assertEquals(List.of(ALL, B, PHENOTYPIC_ABNORMALITY, A, C), termIds(registry));
+        for (int i = 0; i < registry.size(); i++) {
+            assertEquals(i, registry.index(registry.termId(i)));
+            assertEquals(registry.termId(i), registry.term(i).id());
+            assertEquals(registry.term(i).getName(), registry.label(i));
+        }
+        assertEquals("Abnormality C", registry.label(registry.index(C)));
+    }
+
+    @Test
+    public void testAlternateIdsResolveToPrimaryTerm() {
+        assertEquals(3, registry.alternateIdCount());
+        assertEquals(registry.index(A), registry.index(A_ALT1));
+        assertEquals(registry.index(A), registry.index(A_ALT2));
+        assertEquals(registry.index(B), registry.index(B_ALT));
+        assertTrue(registry.contains(A_ALT2));
+        assertEquals(-1, registry.index(UNKNOWN));
+        assertEquals(-1, registry.index(null));
+        assertFalse(registry.contains(UNKNOWN));
+        // alternate ids are never returned as the id of a term
+        assertFalse(termIds(registry).contains(A_ALT1));
+    }
+
+    /** Every id of a larger ontology resolves to its own index, also where the open-addressing table has collisions. */
+    @Test
+    public void testLookupOnGeneratedOntology() throws IOException {
+        generator(42).terms(5_000).diseases(0).build().write(directory.resolve("generated"));
+        Ontology ontology = loadOntology(directory.resolve("generated"));
+        TermRegistry generated = TermRegistry.of(ontology);
+        assertEquals(5_000 + 8, generated.size());
+        for (Term term : ontology.getTerms()) {
+            int index = generated.index(term.id());
+            assertTrue(index >= 0, term.id().getValue());
+            assertEquals(term.id(), generated.termId(index));
+        }
+        List<TermId> ids = termIds(generated);
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+        }
+        assertEquals(-1, generated.index(TermId.of(SyntheticHpoGenerator.termId(5_000))));
+    }
+
+    private static List<TermId> termIds(TermRegistry registry) {
+        List<TermId> termIds = new ArrayList<>();
+        for (int i = 0; i < registry.size(); i++) {
+            termIds.add(registry.termId(i));
+        }
+        return termIds;
+    }
+
+    /** @return the ontology with alternate ids, written to {@code hp.json} in the directory and parsed */
+    static Ontology altIdOntology(Path directory) throws IOException {
+        Path hpJson = directory.resolve(SyntheticHpoGenerator.HP_JSON);
+        Files.writeString(hpJson, ALT_ID_ONTOLOGY, StandardCharsets.UTF_8);
+        Ontology ontology = OntologySnapshot.loadOntology(hpJson.toFile());
+        assertEquals(List.of(A_ALT1, A_ALT2), ontology.getTermMap().get(A).getAltTermIds());
+        return ontology;
+    }
+
+    private static final String ALT_ID_ONTOLOGY = """
+            {"graphs": [{
+              "id": "http://purl.obolibrary.org/obo/hp.json",
+              "meta": {"version": "http://purl.obolibrary.org/obo/hp/releases/2022-06-11/hp.json"},
+              "nodes": [
+                {"id": "http://purl.obolibrary.org/obo/HP_0000001", "lbl": "All", "type": "CLASS"},
+                {"id": "http://purl.obolibrary.org/obo/HP_0000118", "lbl": "Phenotypic abnormality", "type": "CLASS"},
+                {"id": "http://purl.obolibrary.org/obo/HP_0000200", "lbl": "Abnormality A", "type": "CLASS",
+                  "meta": {"basicPropertyValues": [
+                    {"pred": "http://www.geneontology.org/formats/oboInOwl#hasAlternativeId", "val": "HP:0000201"},
+                    {"pred": "http://www.geneontology.org/formats/oboInOwl#hasAlternativeId", "val": "HP:0000202"}
+                  ]}},
+                {"id": "http://purl.obolibrary.org/obo/HP_0000100", "lbl": "Abnormality B", "type": "CLASS",
+                  "meta": {"basicPropertyValues": [
+                    {"pred": "http://www.geneontology.org/formats/oboInOwl#hasAlternativeId", "val": "HP:0000101"}
+                  ]}},
+                {"id": "http://purl.obolibrary.org/obo/HP_0000300", "lbl": "Abnormality C", "type": "CLASS"}
+              ],
+              "edges": [
+                {"sub": "http://purl.obolibrary.org/obo/HP_0000118", "pred": "is_a", "obj": "http://purl.obolibrary.org/obo/HP_0000001"},
+                {"sub": "http://purl.obolibrary.org/obo/HP_0000200", "pred": "is_a", "obj": "http://purl.obolibrary.org/obo/HP_0000118"},
+                {"sub": "http://purl.obolibrary.org/obo/HP_0000100", "pred": "is_a", "obj": "http://purl.obolibrary.org/obo/HP_0000118"},
+                {"sub": "http://purl.obolibrary.org/obo/HP_0000300", "pred": "is_a", "obj": "http://purl.obolibrary.org/obo/HP_0000200"},
+                {"sub": "http://purl.obolibrary.org/obo/HP_0000300", "pred": "is_a", "obj": "http://purl.obolibrary.org/obo/HP_0000100"}
+              ]
+            }]}
+            """;
+}
@@ -3,13 +3,19 @@ package org.monarchinitiative.hpoworkbench;
 import javafx.concurrent.Task;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoResource;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoaResource;
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.HpoaDiseaseBlocks;
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Initialization of the GUI resources is being done here. Information from {@link Properties} parsed from
@@ -48,7 +54,10 @@ public final class StartupTask extends Task<Void> {
      *
      * <ul>
      * <li>HPO ontology</li>
+     * <li>phenotype.hpoa annotations</li>
      * </ul>
+     * phenotype.hpoa is read and grouped by disease on a second worker while the ontology is loaded; the
+     * ontology-dependent resolution of the annotations starts as soon as the ontology is available.
      *
      * @return nothing
      */
@@ -66,6 +75,8 @@ public final class StartupTask extends Task<Void> {
         String hpoAnnotPath = pgProperties.getProperty(OptionalHpoaResource.HPOA_PATH_PROPERTY);
         LOGGER.trace("StartupTask hpoAnnotPath: {}", hpoAnnotPath);
         updateProgress(0.02, 1);
+        // Stage 1: read and tokenize phenotype.hpoa on a second worker while the ontology is being loaded
+        final FutureTask<HpoaDiseaseBlocks> hpoaBlocks = startReadingAnnotations(hpoAnnotPath);
         if (hpoJsonPath != null) {
             final File hpJsonFile = new File(hpoJsonPath);
             updateProgress(0.03, 1);
@@ -73,7 +84,7 @@ public final class StartupTask extends Task<Void> {
                 String msg = String.format("Loading HPO from file '%s'", hpJsonFile.getAbsoluteFile());
                 updateMessage(msg);
                 LOGGER.trace(msg);
-                final Ontology ontology = OntologyLoader.loadOntology(hpJsonFile);
+                final Ontology ontology = OntologySnapshot.loadOntology(hpJsonFile);
                 LOGGER.trace("Loaded ontology with {} terms", ontology.countAllTerms());
                 updateProgress(0.25, 1);
                 optionalHpoResource.setOntology(ontology);
@@ -90,20 +101,46 @@ public final class StartupTask extends Task<Void> {
             optionalHpoResource.setOntology(null);
         }
         if (hpoAnnotPath != null) {
-            String msg = String.format("Loading phenotype.hpoa from file '%s'", hpoAnnotPath);
-            updateMessage(msg);
-            LOGGER.trace(msg);
-            final File hpoAnnotFile = new File(hpoAnnotPath);
-            updateProgress(0.71, 1);
-            if (optionalHpoResource.getOntology() == null) {
+            final Ontology ontology = optionalHpoResource.getOntology();
+            if (ontology == null) {
                 LOGGER.error("Cannot load phenotype.hpoa because HP ontology not loaded");
+                if (hpoaBlocks != null) {
+                    // interrupts the reader thread, which stops reading the file
+                    hpoaBlocks.cancel(true);
+                }
                 return null;
             }
-            if (hpoAnnotFile.isFile()) {
-                updateProgress(0.78, 1);
-                this.optionalHpoaResource.setAnnotationResources(hpoAnnotPath, optionalHpoResource.getOntology());
-                updateProgress(0.95, 1);
-                LOGGER.trace("Loaded HPOA file");
+            if (hpoaBlocks != null) {
+                try {
+                    // Stage 2: wait for the tokenized annotation file
+                    updateMessage(String.format("Loading phenotype.hpoa from file '%s'", hpoAnnotPath));
+                    updateProgress(0.35, 1);
+                    HpoaDiseaseBlocks blocks = hpoaBlocks.get();
+                    updateProgress(0.45, 1);
+                    // Stage 3: resolve the disease blocks against the ontology
+                    String msg = String.format("Resolving annotations of %d diseases", blocks.diseaseCount());
+                    updateMessage(msg);
+                    LOGGER.trace(msg);
+                    HpoDiseases diseases = blocks.resolve(ontology);
+                    updateProgress(0.78, 1);
+                    // Stage 4: build the direct/indirect annotation maps
+                    updateMessage("Indexing disease annotations");
+                    this.optionalHpoaResource.setAnnotationResources(blocks, diseases, ontology);
+                    updateProgress(0.95, 1);
+                    updateMessage("phenotype.hpoa loaded");
+                    LOGGER.trace("Loaded HPOA file");
+                } catch (ExecutionException e) {
+                    optionalHpoaResource.initializeWithEmptyMaps();
+                    LOGGER.error("Could not load phenotype.hpoa: {}", e.getCause().getMessage());
+                } catch (IOException e) {
+                    optionalHpoaResource.initializeWithEmptyMaps();
+                    LOGGER.error("Could not load phenotype.hpoa: {}", e.getMessage());
+                } catch (InterruptedException e) {
+                    hpoaBlocks.cancel(true);
+                    optionalHpoaResource.initializeWithEmptyMaps();
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
             } else {
                 optionalHpoaResource.initializeWithEmptyMaps();
                 LOGGER.error("Cannot load phenotype.hpoa File was null");
@@ -115,4 +152,25 @@ public final class StartupTask extends Task<Void> {
         LOGGER.trace("Done StartupTask");
         return null;
     }
+
+    /**
+     * Start reading phenotype.hpoa on a daemon thread. Cancelling the returned task interrupts the thread, and
+     * {@link HpoaDiseaseBlocks#read(Path)} stops at the next line.
+     *
+     * @return task with the disease blocks of phenotype.hpoa or {@code null} if the file does not exist
+     */
+    private static FutureTask<HpoaDiseaseBlocks> startReadingAnnotations(String hpoAnnotPath) {
+        if (hpoAnnotPath == null || !new File(hpoAnnotPath).isFile()) {
+            return null;
+        }
+        FutureTask<HpoaDiseaseBlocks> task = new FutureTask<>(() -> {
+            HpoaDiseaseBlocks blocks = HpoaDiseaseBlocks.read(Path.of(hpoAnnotPath));
+            LOGGER.trace("Read {} disease blocks from {}", blocks.diseaseCount(), hpoAnnotPath);
+            return blocks;
+        });
+        Thread reader = new Thread(task, "hpoa-reader");
+        reader.setDaemon(true);
+        reader.start();
+        return task;
+    }
 }
@@ -2,6 +2,7 @@ package org.monarchinitiative.hpoworkbench.config;
 
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoResource;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoaResource;
+import org.monarchinitiative.hpoworkbench.resources.ResourceFileWatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -27,6 +28,12 @@ public class HpoWorkbenchConfig {
     @Bean
     public OptionalHpoaResource optionalHpoaResource() { return new OptionalHpoaResource(); }
 
+    @Bean
+    public ResourceFileWatcher resourceFileWatcher(OptionalHpoResource optionalHpoResource,
+                                                   OptionalHpoaResource optionalHpoaResource) {
+        return new ResourceFileWatcher(optionalHpoResource, optionalHpoaResource);
+    }
+
     @Bean
     public ExecutorService executorService() {
         return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
@@ -4,6 +4,7 @@ import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.concurrent.Worker;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -20,6 +21,7 @@ import javafx.stage.Stage;
 import org.monarchinitiative.hpoworkbench.StartupTask;
 import org.monarchinitiative.hpoworkbench.analysis.AnnotationTlc;
 import org.monarchinitiative.hpoworkbench.analysis.HpoStats;
+import org.monarchinitiative.hpoworkbench.analysis.RedundantAnnotations;
 import org.monarchinitiative.hpoworkbench.excel.HierarchicalExcelExporter;
 import org.monarchinitiative.hpoworkbench.excel.Hpo2ExcelExporter;
 import org.monarchinitiative.hpoworkbench.exception.HPOException;
@@ -32,9 +34,11 @@ import org.monarchinitiative.hpoworkbench.gui.webviewerutil.WebViewerPopup;
 import org.monarchinitiative.hpoworkbench.html.AnnotationTlcHtmlGenerator;
 import org.monarchinitiative.hpoworkbench.html.HpoStatsHtmlGenerator;
 import org.monarchinitiative.hpoworkbench.io.*;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
 import org.monarchinitiative.hpoworkbench.resources.HostServicesWrapper;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoResource;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoaResource;
+import org.monarchinitiative.hpoworkbench.resources.ResourceFileWatcher;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.Term;
@@ -51,6 +55,7 @@ import org.w3c.dom.html.HTMLAnchorElement;
 
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
@@ -134,6 +139,10 @@ public class MainController {
     @Autowired
     private HostServicesWrapper hostServicesWrapper;
 
+    /** Reloads the resources when hp.json or phenotype.hpoa change on disk. */
+    @Autowired
+    private ResourceFileWatcher resourceFileWatcher;
+
     @Autowired
     public MainController(OptionalHpoResource optionalHpoResource,
                           OptionalHpoaResource optionalHpoaResource,
@@ -160,6 +169,7 @@ public class MainController {
         task.setOnSucceeded(e -> {
             publishMessage("Successfully loaded files");
             window.close();
+            watchResourceFiles();
         });
         task.setOnFailed(e -> {
             publishMessage("Unable to load ontologies/annotations", MessageType.ERROR);
@@ -169,14 +179,39 @@ public class MainController {
         String ver = MainController.getVersion();
         copyrightLabel.setText("HPO Workbench, v. " + ver + ", \u00A9 Monarch Initiative 2017-2022");
         ChangeListener<? super Object> listener = (obs, oldval, newval) -> activateIfResourcesAvailable();
+        // activate when annotations become available, whether they were missing or initialized with empty maps;
+        // when annotations are reloaded, the tree stays as is and only the term description is refreshed
+        ChangeListener<Map<TermId, List<HpoDisease>>> annotationListener = (obs, oldval, newval) -> {
+            if (newval != null && !newval.isEmpty() && (oldval == null || oldval.isEmpty())) {
+                activateIfResourcesAvailable();
+            }
+        };
         optionalHpoResource.ontologyProperty().addListener(listener);
-        optionalHpoaResource.directAnnotMapProperty().addListener(listener);
-        optionalHpoaResource.indirectAnnotMapProperty().addListener(listener);
+        optionalHpoaResource.directAnnotMapProperty().addListener(annotationListener);
+        optionalHpoaResource.indirectAnnotMapProperty().addListener(annotationListener);
+        optionalHpoaResource.diseasePostingsProperty().addListener((obs, oldval, newval) -> {
+            if (oldval != null && newval != null) {
+                publishMessage("Reloaded phenotype.hpoa");
+                updateDescription(getSelectedTerm());
+            }
+        });
         logger.info("Done initialization");
         checkAll();
         logger.info("done activate");
     }
 
+    /**
+     * Start watching hp.json and phenotype.hpoa so that changes to the files are picked up without restarting.
+     */
+    private void watchResourceFiles() {
+        try {
+            resourceFileWatcher.watch(pgProperties.getProperty(OptionalHpoResource.HP_JSON_PATH_PROPERTY),
+                    pgProperties.getProperty(OptionalHpoaResource.HPOA_PATH_PROPERTY));
+        } catch (IOException e) {
+            logger.warn("Could not watch resource files for changes: {}", e.getMessage());
+        }
+    }
+
     private void activateIfResourcesAvailable() {
         if (optionalHpoResource.getOntology() != null) { // hpo obo file is missing
             activateOntologyTree();
@@ -396,6 +431,40 @@ public class MainController {
 
     }
 
+    @FXML
+    private void showEntriesWithRedundantAnnotations(ActionEvent e) {
+        e.consume();
+        Ontology hpo = optionalHpoResource.getOntology();
+        if (hpo == null) {
+            logger.error("Attempt to show redundant annotations before initializing HPO ontology object");
+            return;
+        }
+        if (optionalHpoaResource.getId2diseaseModelMap() == null) {
+            logger.error("Attempt to show redundant annotations but id2diseaseModel map was empty");
+            return;
+        }
+        Collection<HpoDisease> diseases = optionalHpoaResource.getId2diseaseModelMap().values();
+        // building the ancestor closure and checking all diseases takes a while, so keep it off the FX thread
+        Task<String> task = new Task<>() {
+            @Override
+            protected String call() {
+                RedundantAnnotations redundant = RedundantAnnotations.find(AncestorClosure.of(hpo), diseases);
+                return AnnotationTlcHtmlGenerator.getHTMLRedundantAnnotations(redundant, hpo);
+            }
+        };
+        task.setOnSucceeded(event -> {
+            Stage stage = (Stage) this.copyrightLabel.getScene().getWindow();
+            WebViewerPopup popup = WebViewerFactory.entriesWithRedundantAnnotations(task.getValue(), stage);
+            popup.popup();
+        });
+        task.setOnFailed(event -> {
+            logger.error("Could not find redundant annotations", task.getException());
+            publishMessage("Could not find redundant annotations", MessageType.ERROR);
+        });
+        publishMessage("Looking for redundant annotations");
+        this.executor.submit(task);
+    }
+
     @FXML
     public void goButtonAction() {
         TermId id = ontologyLabelsAndTermIdMap.get(autocompleteTextfield.getText());
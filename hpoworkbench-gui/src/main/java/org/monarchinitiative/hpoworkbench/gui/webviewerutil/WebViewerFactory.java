@@ -30,4 +30,9 @@ public class WebViewerFactory {
         String title = "HPO disease entries that may need more specific annotations";
         return new SimpleWebViewerPopup(title, html, stage);
     }
+
+    public static WebViewerPopup entriesWithRedundantAnnotations(String html, Stage stage) {
+        String title = "HPO disease entries with redundant annotations";
+        return new SimpleWebViewerPopup(title, html, stage);
+    }
 }
@@ -1,6 +1,13 @@
 package org.monarchinitiative.hpoworkbench.html;
 
+import org.monarchinitiative.hpoworkbench.analysis.AnnotationQc;
+import org.monarchinitiative.hpoworkbench.analysis.AnnotationQcRule;
 import org.monarchinitiative.hpoworkbench.analysis.AnnotationTlc;
+import org.monarchinitiative.hpoworkbench.analysis.RedundantAnnotations;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -17,39 +24,58 @@ public class AnnotationTlcHtmlGenerator {
             </body></html>""";
 
 
+    /** @return the entries that were flagged by {@link AnnotationTlc#UNDERANNOTATED} */
     public static String getHTML(AnnotationTlc tlc) {
-        return String.format(HTML_TEMPLATE,Css.getCSS(),getAnnotationTlc(tlc));
+        return getHTML(tlc, AnnotationTlc.UNDERANNOTATED);
     }
 
 
+    /** @return the entries that were flagged by {@link AnnotationTlc#TOO_GENERAL} */
     public static String getHTMLSpecificTerms(AnnotationTlc tlc) {
-        return String.format(HTML_TEMPLATE,Css.getCSS(),getAnnotationTlc2(tlc));
+        return getHTML(tlc, AnnotationTlc.TOO_GENERAL);
     }
 
-    private static String getAnnotationTlc(AnnotationTlc tlc) {
+    /** @return the entries that were flagged by one of the rules */
+    public static String getHTML(AnnotationTlc tlc, AnnotationQcRule rule) {
         StringBuilder sb = new StringBuilder();
         sb.append("<h1>Entries that might need better annotations</h1>");
-        sb.append("<p>Entries with less than three annotations</p>");
-        sb.append("<ol>");
+        appendFindings(sb, rule, tlc.getFindings(rule));
+        return String.format(HTML_TEMPLATE,Css.getCSS(),sb);
+    }
 
-        for (String key : tlc.getUnderannotatedDiseases().keySet()) {
-            sb.append("<li>").append(key).append(": ").append(tlc.getUnderannotatedDiseases().get(key)).append("</li>");
+    /** @return the diseases that are annotated to a term and to one of its ancestors */
+    public static String getHTMLRedundantAnnotations(RedundantAnnotations redundant, Ontology ontology) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<h1>Entries with redundant annotations</h1>");
+        sb.append("<p>Entries that are annotated to a term and to one of its ancestors (n=")
+                .append(redundant.diseases().size()).append(")</p>");
+        sb.append("<ol>");
+        for (RedundantAnnotations.DiseaseRedundancies d : redundant.diseases()) {
+            HpoDisease disease = d.disease();
+            sb.append("<li>").append(String.format("%s [%s]", disease.diseaseName(), disease.id().getValue())).append("<ul>");
+            for (RedundantAnnotations.Redundancy r : d.redundancies()) {
+                sb.append("<li>").append(termLabel(ontology, r.ancestor())).append(" is implied by ")
+                        .append(termLabel(ontology, r.descendant())).append("</li>");
+            }
+            sb.append("</ul></li>");
         }
         sb.append("</ol>");
-        return sb.toString();
+        return String.format(HTML_TEMPLATE,Css.getCSS(),sb);
     }
 
-    private static String getAnnotationTlc2(AnnotationTlc tlc) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<h1>Entries that might need better annotations</h1>");
-        sb.append("<p>Entries with unspecific annotations</p>");
-        sb.append("<ol>");
+    private static String termLabel(Ontology ontology, TermId tid) {
+        Term term = ontology.getTermMap().get(tid);
+        String label = term == null ? "n/a" : term.getName();
+        return String.format("%s [%s]", label, tid.getValue());
+    }
 
-        for (String key : tlc.getDiseasesWithTooGeneralAnnotations().keySet()) {
-            sb.append("<li>").append(key).append(": ").append(tlc.getDiseasesWithTooGeneralAnnotations().get(key)).append("</li>");
+    private static void appendFindings(StringBuilder sb, AnnotationQcRule rule, List<AnnotationQc.Finding> findings) {
+        sb.append("<p>").append(rule.description()).append(" (n=").append(findings.size()).append(")</p>");
+        sb.append("<ol>");
+        for (AnnotationQc.Finding finding : findings) {
+            sb.append("<li>").append(finding.diseaseLabel()).append(": ").append(finding.detail()).append("</li>");
         }
         sb.append("</ol>");
-        return sb.toString();
     }
 
 
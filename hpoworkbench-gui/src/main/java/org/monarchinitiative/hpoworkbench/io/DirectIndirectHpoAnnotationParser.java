@@ -1,14 +1,12 @@
 package org.monarchinitiative.hpoworkbench.io;
 
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
+import org.monarchinitiative.hpoworkbench.annotation.DiseasePostings;
 import org.monarchinitiative.hpoworkbench.exception.HPOWorkbenchException;
+import org.monarchinitiative.hpoworkbench.ontology.AncestorClosure;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
-import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseaseAnnotation;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
 import org.monarchinitiative.phenol.annotations.io.hpo.*;
-import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
@@ -36,6 +34,8 @@ public class DirectIndirectHpoAnnotationParser {
     private Map<TermId,List<HpoDisease>> directAnnotationMap;
     /** Key: term id of an HPO term; value: List of references to diseases directly or indirectly annotated to his term */
     private Map<TermId,List<HpoDisease>> totalAnnotationMap;
+    /** Compact posting lists that back {@link #directAnnotationMap} and {@link #totalAnnotationMap}. */
+    private DiseasePostings postings;
 
     /**
      * @param path Path to phenotype.hpoa
@@ -51,6 +51,26 @@ public class DirectIndirectHpoAnnotationParser {
         }
     }
 
+    /**
+     * Build the direct and indirect annotation maps from diseases that have already been loaded, e.g. by
+     * {@link HpoaDiseaseBlocks#resolve(Ontology)}. If the maps cannot be built, the error is logged, both maps are
+     * empty and {@link #getPostings()} returns <code>null</code>.
+     * @param diseases diseases parsed from phenotype.hpoa
+     * @param onto reference to HPO Ontology
+     */
+    public DirectIndirectHpoAnnotationParser(HpoDiseases diseases, Ontology onto) {
+        this.pathToPhenotypeAnnotationTab = null;
+        this.ontology = onto;
+        try {
+            buildAnnotationMaps(diseases.diseaseById());
+        } catch (HPOWorkbenchException | RuntimeException e) {
+            logger.error("Could not build annotation maps from {} diseases", diseases.size(), e);
+            this.postings = null;
+            this.directAnnotationMap = Map.of();
+            this.totalAnnotationMap = Map.of();
+        }
+    }
+
 
     /**
      * Get map with direct annotations. The map will be <code>null</code>, if the {@link #doParse()} method have not been
@@ -72,6 +92,14 @@ public class DirectIndirectHpoAnnotationParser {
         return totalAnnotationMap;
     }
 
+    /**
+     * @return the posting lists that back the direct and indirect annotation maps, or <code>null</code> if parsing
+     * failed
+     */
+    public DiseasePostings getPostings() {
+        return postings;
+    }
+
     /**
      * Parse annotations file and populate maps containing direct and indirect annotations.
      */
@@ -84,53 +112,21 @@ public class DirectIndirectHpoAnnotationParser {
         HpoDiseaseLoaderOptions options = HpoDiseaseLoaderOptions.defaultOptions();
         HpoDiseaseLoader loader = HpoDiseaseLoaders.defaultLoader(ontology, options);
         HpoDiseases diseases = loader.load(Path.of(pathToPhenotypeAnnotationTab));
-        Map<TermId, HpoDisease> diseaseMap = diseases.diseaseById();
-        directAnnotationMap=new HashMap<>();
-        totalAnnotationMap=new HashMap<>();
-        Map<TermId, Set<HpoDisease>> tempmap = new HashMap<>();
-        if (diseaseMap==null) {
-            throw new HPOWorkbenchException("disease map was null after parse of "+pathToPhenotypeAnnotationTab);
-        }
-        for (TermId diseaseId : diseaseMap.keySet()) {
-            HpoDisease disease = diseaseMap.get(diseaseId);
-            for  (HpoDiseaseAnnotation annot : disease.annotations()) {
-                TermId hpoId = annot.id();
+        buildAnnotationMaps(diseases.diseaseById());
+    }
 
-                Set<TermId> ancs = new HashSet<>();
-                if (ontology.containsTerm(hpoId)) {
-                    hpoId = ontology.getPrimaryTermId(hpoId);
-                    ancs = OntologyAlgorithm.getAncestorTerms(ontology, hpoId, true);
-                    directAnnotationMap.putIfAbsent(hpoId,new ArrayList<>());
-                    directAnnotationMap.get(hpoId).add(disease);
-                } else {
-                    logger.error("Term {} in disease {} not contained in ontology", hpoId.getValue(), disease.diseaseName());
-                }
-                for (TermId t : ancs) {
-                    tempmap.putIfAbsent(t, new HashSet<>());
-                    Set<HpoDisease> diseaseset = tempmap.get(t);
-                    diseaseset.add(disease);
-                }
-            }
-            // Also add the modes of inheritance to the annotations
-            for (TermId inheritanceId : disease.modesOfInheritance()) {
-                directAnnotationMap.putIfAbsent(inheritanceId,new ArrayList<>());
-                directAnnotationMap.get(inheritanceId).add(disease);
-                Set<TermId> ancs = OntologyAlgorithm.getAncestorTerms(ontology, inheritanceId, true);
-                for (TermId t : ancs) {
-                    tempmap.putIfAbsent(t, new HashSet<>());
-                    Set<HpoDisease> diseaseset = tempmap.get(t);
-                    diseaseset.add(disease);
-                }
-            }
+    private void buildAnnotationMaps(Map<TermId, HpoDisease> diseaseMap) throws HPOWorkbenchException {
+        if (ontology == null) {
+            logger.warn("Ontology unset, cannot build annotation maps");
+            return;
         }
-        // When we get here, we transform the sets into an immutable, sorted list
-        ImmutableMap.Builder<TermId, List<HpoDisease>> mapbuilder = new ImmutableMap.Builder<>();
-        for (TermId key : tempmap.keySet()) {
-            ImmutableList.Builder<HpoDisease> listbuilder = new ImmutableList.Builder<>();
-            listbuilder.addAll(tempmap.get(key));
-            mapbuilder.put(key, listbuilder.build());
+        if (diseaseMap==null) {
+            throw new HPOWorkbenchException("disease map was null after parse of "+pathToPhenotypeAnnotationTab);
         }
-        this.totalAnnotationMap = mapbuilder.build();
+        this.postings = DiseasePostings.build(AncestorClosure.of(ontology), diseaseMap.values());
+        logger.trace("Built posting lists for {} diseases ({} bytes)", postings.diseaseCount(), postings.postingBytes());
+        this.directAnnotationMap = postings.directAnnotMap();
+        this.totalAnnotationMap = postings.indirectAnnotMap();
     }
 
 }
@@ -11,7 +11,7 @@ import org.monarchinitiative.hpoworkbench.gui.PlatformUtil;
 import org.monarchinitiative.hpoworkbench.gui.PopUps;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoResource;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoaResource;
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.resources.ResourceFileWatcher;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Properties;
 
 import static org.monarchinitiative.hpoworkbench.resources.OptionalHpoaResource.HPOA_PATH_PROPERTY;
@@ -39,17 +40,22 @@ public class DownloaderFactory {
 
     private final  ApplicationProperties applicationProperties;
 
+    /** Watches the downloaded files, so it must be pointed at their new paths after a download. */
+    private final ResourceFileWatcher resourceFileWatcher;
+
     @Autowired
     public DownloaderFactory(OptionalHpoResource optres,
                              OptionalHpoaResource optionalHpoaResource,
                              ApplicationProperties applicationProperties,
                              Properties pgProperties,
-                             File appHomeDir) {
+                             File appHomeDir,
+                             ResourceFileWatcher resourceFileWatcher) {
         this.optionalHpoResources = optres;
         this.optionalHpoaResource = optionalHpoaResource;
         this.hpoWebConfigurationDirectory = appHomeDir;
         this.pgProperties = pgProperties;
         this.applicationProperties = applicationProperties;
+        this.resourceFileWatcher = resourceFileWatcher;
     }
 
 
@@ -85,11 +91,10 @@ public class DownloaderFactory {
             LOGGER.trace(String.format("Successfully downloaded %s to %s",
                     PlatformUtil.HPO_ANNOTATIONS_FILENAME, hpoWebConfigurationDirectory));
             String hpoAnnotationsFileName = hpoWebConfigurationDirectory + File.separator + PlatformUtil.HPO_ANNOTATIONS_FILENAME;
-            DirectIndirectHpoAnnotationParser parser = new DirectIndirectHpoAnnotationParser(hpoAnnotationsFileName, optionalHpoResources
-                    .getOntology());
             optionalHpoaResource.setAnnotationResources(hpoAnnotationsFileName, optionalHpoResources.getOntology());
 
             pgProperties.setProperty(HPOA_PATH_PROPERTY, hpoAnnotationsFileName);
+            watchResourceFiles();
         });
         hpodownload.setOnFailed(event -> {
             window.close();
@@ -117,10 +122,10 @@ public class DownloaderFactory {
             window.close();
             LOGGER.trace(String.format("Successfully downloaded hp.json to %s", hpoWebConfigurationDirectory));
             String hpoJsonPath = hpoWebConfigurationDirectory + File.separator + PlatformUtil.HPO_JSON_FILENAME;
-            Ontology hpo =  OntologyLoader.loadOntology(new File(hpoJsonPath));
+            Ontology hpo =  OntologySnapshot.loadOntology(new File(hpoJsonPath));
             optionalHpoResources.setOntology(hpo);
             pgProperties.setProperty(OptionalHpoResource.HP_JSON_PATH_PROPERTY, hpoJsonPath);
-
+            watchResourceFiles();
         });
         hpodownload.setOnFailed(event -> {
             window.close();
@@ -132,5 +137,14 @@ public class DownloaderFactory {
         thread.start();
     }
 
+    /** Watch the files at the paths that are currently configured, replacing the previously watched files. */
+    private void watchResourceFiles() {
+        try {
+            resourceFileWatcher.watch(pgProperties.getProperty(OptionalHpoResource.HP_JSON_PATH_PROPERTY),
+                    pgProperties.getProperty(HPOA_PATH_PROPERTY));
+        } catch (IOException e) {
+            LOGGER.warn("Could not watch resource files for changes: {}", e.getMessage());
+        }
+    }
 
 }
@@ -1,17 +1,24 @@
 package org.monarchinitiative.hpoworkbench.resources;
 
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.BooleanBinding;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
+import org.monarchinitiative.hpoworkbench.annotation.DiseasePostings;
 import org.monarchinitiative.hpoworkbench.io.DirectIndirectHpoAnnotationParser;
+import org.monarchinitiative.hpoworkbench.io.HpoaDiseaseBlocks;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDiseases;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -29,6 +36,18 @@ public class OptionalHpoaResource {
 
     private Map<String, TermId> name2diseaseIdMap;
     private Map<TermId, HpoDisease> id2diseaseModelMap;
+    /** Posting lists behind {@link #directAnnotMap} and {@link #indirectAnnotMap}. */
+    private final ObjectProperty<DiseasePostings> diseasePostings =
+            new SimpleObjectProperty<>(this, "diseasePostings", null);
+    /**
+     * The most recently loaded annotations. Unlike the properties, this is updated as soon as a reload has been
+     * computed, so that the next reload is diffed against it even if the FX thread has not yet published the
+     * previous one.
+     */
+    private volatile LoadedAnnotations loaded;
+
+    /** Annotations together with the file content and ontology they were built from. */
+    private record LoadedAnnotations(Ontology ontology, HpoaDiseaseBlocks blocks, DiseasePostings postings) {}
 
 
     public OptionalHpoaResource(){
@@ -46,30 +65,107 @@ public class OptionalHpoaResource {
 
     public void setAnnotationResources(String phenotypeDotHpoaPath, Ontology hpo){
         LOGGER.info("setAnnotationResources");
-        DirectIndirectHpoAnnotationParser parser =
-                new DirectIndirectHpoAnnotationParser(phenotypeDotHpoaPath, hpo);
-        Map<TermId, List<HpoDisease>> directMap = parser.getDirectAnnotMap();
-        LOGGER.info("Setting direct annotation map with size {}", directMap.size());
-        this.directAnnotMap.set(directMap);
-        this.indirectAnnotMap.set(parser.getTotalAnnotationMap());
-        if (getDirectAnnotMap() != null) {
-            Set<HpoDisease> diseaseSet = directAnnotMap.get().values().stream()
-                    .flatMap(Collection::stream)
-                    .collect(Collectors.toSet());
-            LOGGER.info("Found {} diseases (diseaseSet)", diseaseSet.size());
-            // for some reason the stream implementation is choking
-            name2diseaseIdMap = new HashMap<>();
-            for (HpoDisease disease : diseaseSet) {
-                name2diseaseIdMap.put(disease.diseaseName(), disease.id());
+        loaded = null;
+        setAnnotationResources(new DirectIndirectHpoAnnotationParser(phenotypeDotHpoaPath, hpo));
+    }
+
+    /**
+     * Initialize the annotation maps from diseases that were already loaded (see {@code StartupTask}).
+     */
+    public void setAnnotationResources(HpoDiseases diseases, Ontology hpo) {
+        LOGGER.info("setAnnotationResources from {} preloaded diseases", diseases.size());
+        loaded = null;
+        setAnnotationResources(new DirectIndirectHpoAnnotationParser(diseases, hpo));
+    }
+
+    /**
+     * Initialize the annotation maps from diseases that were resolved from {@code blocks}. The blocks are retained
+     * so that {@link #reloadAnnotations(Path, Ontology)} only needs to resolve the diseases that change later on.
+     */
+    public void setAnnotationResources(HpoaDiseaseBlocks blocks, HpoDiseases diseases, Ontology hpo) {
+        DirectIndirectHpoAnnotationParser parser = new DirectIndirectHpoAnnotationParser(diseases, hpo);
+        if (parser.getPostings() != null) {
+            loaded = new LoadedAnnotations(hpo, blocks, parser.getPostings());
+        }
+        setAnnotationResources(parser);
+    }
+
+    /**
+     * Re-read phenotype.hpoa after the file has changed. If the annotations were previously loaded with the same
+     * ontology, only the diseases whose lines changed are resolved and the posting lists of the affected terms are
+     * updated; otherwise all annotations are rebuilt. This method does the work on the calling thread and publishes
+     * the new maps on the JavaFX application thread in a single step.
+     *
+     * @return true if the annotations changed
+     */
+    public boolean reloadAnnotations(Path phenotypeHpoa, Ontology hpo) throws IOException {
+        HpoaDiseaseBlocks blocks = HpoaDiseaseBlocks.read(phenotypeHpoa);
+        LoadedAnnotations previous = loaded;
+        DiseasePostings postings;
+        if (previous == null || previous.ontology() != hpo) {
+            LOGGER.info("Rebuilding annotations of {} diseases", blocks.diseaseCount());
+            postings = new DirectIndirectHpoAnnotationParser(blocks.resolve(hpo), hpo).getPostings();
+            if (postings == null) {
+                LOGGER.error("Could not build annotations from {}", phenotypeHpoa);
+                return false;
             }
-            LOGGER.info("name2diseaseIdMap initialized with {} entries", name2diseaseIdMap.size());
-            id2diseaseModelMap = diseaseSet.stream()
-                    .collect(Collectors.toMap(HpoDisease::id, Function.identity()));
-            LOGGER.info("id2diseaseModelMap initialized with {} entries", id2diseaseModelMap.size());
         } else {
+            HpoaDiseaseBlocks.Changes changes = blocks.changesSince(previous.blocks());
+            if (changes.isEmpty()) {
+                LOGGER.trace("No annotation changes in {}", phenotypeHpoa);
+                return false;
+            }
+            HpoDiseases changed = blocks.resolve(hpo, HpoDiseaseLoaderOptions.defaultOptions(),
+                    changes.changedBlocks().values());
+            Set<TermId> removed = new HashSet<>();
+            changes.removedDiseases().forEach(id -> removed.add(TermId.of(id)));
+            // a changed block that no longer yields a disease (e.g. all lines invalid) removes the disease
+            Map<TermId, HpoDisease> changedById = changed.diseaseById();
+            for (String id : changes.changedBlocks().keySet()) {
+                TermId diseaseId = TermId.of(id);
+                if (!changedById.containsKey(diseaseId)) {
+                    removed.add(diseaseId);
+                }
+            }
+            LOGGER.info("Updating annotations: {} changed and {} removed diseases", changedById.size(), removed.size());
+            postings = previous.postings().update(changedById.values(), removed);
+        }
+        loaded = new LoadedAnnotations(hpo, blocks, postings);
+        final DiseasePostings result = postings;
+        Platform.runLater(() -> publish(result));
+        return true;
+    }
+
+    private void setAnnotationResources(DirectIndirectHpoAnnotationParser parser) {
+        if (parser.getPostings() == null) {
             // should never happen
             LOGGER.error("getDirectAnnotMap() was null after initialization");
+            return;
+        }
+        publish(parser.getPostings());
+    }
+
+    /**
+     * Replace all annotation resources. The lookup maps and both annotation maps are set before
+     * {@link #diseasePostings}, so listeners of that property see the complete new state.
+     */
+    private void publish(DiseasePostings postings) {
+        Map<TermId, List<HpoDisease>> directMap = postings.directAnnotMap();
+        LOGGER.info("Setting direct annotation map with size {}", directMap.size());
+        List<HpoDisease> diseaseSet = postings.diseases();
+        LOGGER.info("Found {} diseases (diseaseSet)", diseaseSet.size());
+        // for some reason the stream implementation is choking
+        name2diseaseIdMap = new HashMap<>();
+        for (HpoDisease disease : diseaseSet) {
+            name2diseaseIdMap.put(disease.diseaseName(), disease.id());
         }
+        LOGGER.info("name2diseaseIdMap initialized with {} entries", name2diseaseIdMap.size());
+        id2diseaseModelMap = diseaseSet.stream()
+                .collect(Collectors.toMap(HpoDisease::id, Function.identity()));
+        LOGGER.info("id2diseaseModelMap initialized with {} entries", id2diseaseModelMap.size());
+        this.indirectAnnotMap.set(postings.indirectAnnotMap());
+        this.directAnnotMap.set(directMap);
+        this.diseasePostings.set(postings);
     }
 
     public Map<TermId, List<HpoDisease>> getDirectAnnotMap() {
@@ -87,6 +183,19 @@ public class OptionalHpoaResource {
         return id2diseaseModelMap;
     }
 
+    /**
+     * @return posting lists with the diseases annotated to each term, e.g. for counting without materializing
+     * the lists of the annotation maps; <code>null</code> if the annotations have not been loaded
+     */
+    public DiseasePostings getDiseasePostings() {
+        return diseasePostings.get();
+    }
+
+    /** Changes whenever the annotations are (re)loaded, after all other annotation properties were updated. */
+    public ObjectProperty<DiseasePostings> diseasePostingsProperty() {
+        return diseasePostings;
+    }
+
     /**
      * If we cannot initialize these resources, create empty maps to avoid null pointer errors.
      */
@@ -95,6 +204,8 @@ public class OptionalHpoaResource {
         indirectAnnotMap.set(Map.of());
         name2diseaseIdMap = Map.of();
         id2diseaseModelMap = Map.of();
+        diseasePostings.set(null);
+        loaded = null;
     }
 
 
@@ -0,0 +1,154 @@
+package org.monarchinitiative.hpoworkbench.resources;
+
+import javafx.application.Platform;
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watch hp.json and phenotype.hpoa for changes and reload the {@link OptionalHpoResource} and
+ * {@link OptionalHpoaResource} when they are modified on disk, e.g. when a new phenotype.hpoa is written while the
+ * workbench is open. A changed phenotype.hpoa is applied incrementally (see
+ * {@link OptionalHpoaResource#reloadAnnotations(Path, Ontology)}); a changed hp.json requires reloading the ontology
+ * and rebuilding all annotations.
+ * <p>
+ * Events are collected until the files have been quiet for {@link #QUIET_PERIOD_MS}, so that a file that is written
+ * in several steps is only reloaded once.
+ */
+public class ResourceFileWatcher implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceFileWatcher.class);
+    /** Wait this long after the last change event before reloading. */
+    private static final long QUIET_PERIOD_MS = 750;
+
+    private final OptionalHpoResource optionalHpoResource;
+
+    private final OptionalHpoaResource optionalHpoaResource;
+
+    private WatchService watchService;
+
+    private Thread watcherThread;
+
+    public ResourceFileWatcher(OptionalHpoResource optionalHpoResource, OptionalHpoaResource optionalHpoaResource) {
+        this.optionalHpoResource = optionalHpoResource;
+        this.optionalHpoaResource = optionalHpoaResource;
+    }
+
+    /**
+     * Start watching the files, replacing any previously watched files. Either path may be {@code null}.
+     *
+     * @param hpJsonPath path to hp.json
+     * @param hpoaPath path to phenotype.hpoa
+     */
+    public synchronized void watch(String hpJsonPath, String hpoaPath) throws IOException {
+        close();
+        Path hpJson = hpJsonPath == null ? null : Path.of(hpJsonPath).toAbsolutePath();
+        Path hpoa = hpoaPath == null ? null : Path.of(hpoaPath).toAbsolutePath();
+        WatchService ws = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        for (Path file : new Path[]{hpJson, hpoa}) {
+            if (file != null && file.getParent() != null && directories.add(file.getParent())) {
+                file.getParent().register(ws, ENTRY_CREATE, ENTRY_MODIFY);
+            }
+        }
+        if (directories.isEmpty()) {
+            ws.close();
+            return;
+        }
+        this.watchService = ws;
+        this.watcherThread = new Thread(() -> watchLoop(ws, hpJson, hpoa), "resource-file-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        LOGGER.info("Watching {} and {} for changes", hpJson, hpoa);
+    }
+
+    private void watchLoop(WatchService ws, Path hpJson, Path hpoa) {
+        try {
+            while (true) {
+                Set<Path> changed = new HashSet<>();
+                WatchKey key = ws.take();
+                do {
+                    collectChanges(key, changed);
+                    key = ws.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                if (hpJson != null && changed.contains(hpJson)) {
+                    reloadOntology(hpJson, hpoa);
+                } else if (hpoa != null && changed.contains(hpoa)) {
+                    reloadAnnotations(hpoa, optionalHpoResource.getOntology());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.trace("Stopped watching resource files");
+        }
+    }
+
+    private static void collectChanges(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() != OVERFLOW) {
+                changed.add(dir.resolve((Path) event.context()));
+            }
+        }
+        key.reset();
+    }
+
+    private void reloadOntology(Path hpJson, Path hpoa) {
+        if (!Files.isRegularFile(hpJson)) {
+            LOGGER.warn("hp.json was removed from {}, keeping the loaded ontology", hpJson);
+            return;
+        }
+        LOGGER.info("{} changed, reloading ontology", hpJson);
+        Ontology ontology;
+        try {
+            ontology = OntologySnapshot.loadOntology(hpJson.toFile());
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not reload ontology from {}: {}", hpJson, e.getMessage());
+            return;
+        }
+        Platform.runLater(() -> optionalHpoResource.setOntology(ontology));
+        if (hpoa != null) {
+            // annotations must be rebuilt against the new ontology
+            reloadAnnotations(hpoa, ontology);
+        }
+    }
+
+    private void reloadAnnotations(Path hpoa, Ontology ontology) {
+        if (ontology == null) {
+            LOGGER.warn("Cannot reload phenotype.hpoa because HP ontology not loaded");
+            return;
+        }
+        if (!Files.isRegularFile(hpoa)) {
+            LOGGER.warn("phenotype.hpoa was removed from {}, keeping the loaded annotations", hpoa);
+            return;
+        }
+        try {
+            if (optionalHpoaResource.reloadAnnotations(hpoa, ontology)) {
+                LOGGER.info("Reloaded annotations from {}", hpoa);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Could not reload phenotype.hpoa from {}: {}", hpoa, e.getMessage());
+        }
+    }
+
+    /** Stop watching. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+            watcherThread = null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.monarchinitiative.hpoworkbench.html;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.analysis.AnnotationTlc;
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
+import org.monarchinitiative.hpoworkbench.io.SyntheticHpoGenerator;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaderOptions;
+import org.monarchinitiative.phenol.annotations.io.hpo.HpoDiseaseLoaders;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pins what the "entries needing more annotations" and "entries needing more specific annotations" reports flag with
+ * the default rules: diseases of all databases, organ system terms found by their depth below Phenotypic abnormality
+ * rather than by their label, and too general annotations also for diseases that are underannotated.
+ */
+public class AnnotationTlcHtmlGeneratorTest {
+
+    /** Children of Phenotypic abnormality in the six-term synthetic ontology, labelled "Abnormality of organ system". */
+    private static final String T0 = SyntheticHpoGenerator.termId(0);
+    private static final String T1 = SyntheticHpoGenerator.termId(1);
+    /** Children of T0, labelled "Synthetic phenotype". */
+    private static final String T2 = SyntheticHpoGenerator.termId(2);
+    private static final String T3 = SyntheticHpoGenerator.termId(3);
+
+    @TempDir
+    Path directory;
+
+    private AnnotationTlc tlc;
+
+    @BeforeEach
+    public void writeResources() throws IOException {
+        Path hpJson = directory.resolve(SyntheticHpoGenerator.HP_JSON);
+        new SyntheticHpoGenerator.Builder().terms(6).branching(2).multiParentRatio(1.0).diseases(0).build()
+                .writeOntology(hpJson);
+        Path phenotypeHpoa = directory.resolve(SyntheticHpoGenerator.PHENOTYPE_HPOA);
+        Files.writeString(phenotypeHpoa, "#version: 2022-06-11\n"
+                + line("OMIM:100001", T2) + line("OMIM:100001", T3) + line("OMIM:100001", T1)
+                + line("OMIM:100002", T0)
+                + line("OMIM:100003", T2) + line("OMIM:100003", T3) + line("OMIM:100003", "NOT", T1)
+                + line("ORPHA:100004", T3)
+                + line("DECIPHER:100005", T2) + line("DECIPHER:100005", T3) + line("DECIPHER:100005", T0),
+                StandardCharsets.UTF_8);
+        Ontology ontology = OntologySnapshot.loadOntology(hpJson.toFile());
+        tlc = new AnnotationTlc(ontology, HpoDiseaseLoaders.defaultLoader(ontology, HpoDiseaseLoaderOptions.defaultOptions())
+                .load(phenotypeHpoa).diseaseById());
+    }
+
+    @Test
+    public void testUnderannotated() {
+        String html = AnnotationTlcHtmlGenerator.getHTML(tlc);
+        assertTrue(html.contains("<p>Entries with less than 3 annotations (n=2)</p>"), html);
+        assertTrue(html.contains("<li>Disease OMIM:100002 [OMIM:100002]: 1</li>"), html);
+        assertTrue(html.contains("<li>Disease ORPHA:100004 [ORPHA:100004]: 1</li>"), html);
+    }
+
+    /**
+     * OMIM:100002 is flagged although it is also underannotated, and the excluded organ system term of OMIM:100003
+     * is not flagged.
+     */
+    @Test
+    public void testTooGeneral() {
+        String html = AnnotationTlcHtmlGenerator.getHTMLSpecificTerms(tlc);
+        assertTrue(html.contains("<p>Entries with annotations to terms at most 1 levels below HP:0000118 (n=3)</p>"), html);
+        assertTrue(html.contains("<li>Disease OMIM:100001 [OMIM:100001]: Abnormality of organ system 1 [" + T1 + "]</li>"), html);
+        assertTrue(html.contains("<li>Disease OMIM:100002 [OMIM:100002]: Abnormality of organ system 0 [" + T0 + "]</li>"), html);
+        assertTrue(html.contains("<li>Disease DECIPHER:100005 [DECIPHER:100005]: Abnormality of organ system 0 [" + T0 + "]</li>"), html);
+        assertFalse(html.contains("OMIM:100003"), html);
+    }
+
+    private static String line(String diseaseId, String termId) {
+        return line(diseaseId, "", termId);
+    }
+
+    private static String line(String diseaseId, String qualifier, String termId) {
+        return String.join("\t", diseaseId, "Disease " + diseaseId, qualifier, termId, diseaseId, "IEA", "", "", "",
+                "", "P", "HPO:probinson[2022-06-11]") + "\n";
+    }
+}